@@ -4,11 +4,15 @@ import java.io.InputStreamReader;
 import java.util.ArrayList;
 import java.util.List;
 
+import controller.DedupImageStore;
 import controller.GUIImageController;
 import controller.ImageController;
 import controller.ImageManager;
 import controller.ImageProcessorFeatures;
+import controller.MemoryBudget;
 import controller.RasterImageManager;
+import controller.ResultCache;
+import controller.SpillingImageStore;
 import controller.TextImageController;
 import view.GUIImageProcessorView;
 import view.ImageGUIView;
@@ -20,11 +24,14 @@ import view.SimpleImageTextView;
  * or have a graphical user interface.
  */
 public class ImageProcessor {
+  // the largest width and height of the proxies edited in preview mode
+  private static final int PREVIEW_SIZE = 1024;
 
   /**
    * Runs a simple image processor. Accepts arguments -file [script file path] to run a script file
    * found at the given path and -text to run the program in text mode. Runs in interactive GUI
-   * mode by default.
+   * mode by default. The -preview argument runs the GUI editing proxies of loaded images no
+   * larger than 1024 pixels either way, replaying the edits on the full image when it is saved.
    *
    * @param args optional command line arguments that can be used to specify a script file to run
    *             or choose to run in text mode rather than GUI mode
@@ -33,6 +40,7 @@ public class ImageProcessor {
 
     Readable input = new InputStreamReader(System.in);
     boolean guiMode = false;
+    int previewSize = 0; // edit loaded images at full resolution
 
     try {
       ArrayList<String> entered = new ArrayList<String>(List.of(args));
@@ -46,6 +54,9 @@ public class ImageProcessor {
           }
         } else if (entered.get(i).equals("-text")) {
           guiMode = false;
+        } else if (entered.get(i).equals("-preview")) {
+          guiMode = true;
+          previewSize = PREVIEW_SIZE;
         } else {
           System.out.println("Command line argument not recognized. Quitting.\n");
           return;
@@ -55,12 +66,24 @@ public class ImageProcessor {
       System.out.println("Insufficient inputs for the given argument. Using default settings.\n");
     }
 
+    // the stored images, cached results, and history of edits share the heap between them
+    MemoryBudget budget = MemoryBudget.ofHeap();
     if (guiMode) {
       ImageGUIView view = new GUIImageProcessorView("Image Processor");
-      ImageProcessorFeatures controller = new GUIImageController(view, new RasterImageManager());
+      // every edit is kept as a new image, so spill old ones to disk in a long session, keep
+      // edits that undo each other, like flipping twice, as one array of pixels, and remember
+      // results so pressing the same button on the same image again is instant
+      ImageManager manager = new RasterImageManager(new DedupImageStore(
+              new SpillingImageStore(budget.getStoredImages())),
+              new ResultCache(budget.getResults()));
+      // run commands in the background so the window stays responsive
+      ImageProcessorFeatures controller = new GUIImageController(view, manager,
+              true, previewSize, budget.getHistory());
       view.refresh();
     } else {
-      ImageManager manager = new RasterImageManager();
+      // scripts often run the same filters on the same images again
+      ImageManager manager = new RasterImageManager(new DedupImageStore(),
+              new ResultCache(budget.getResults()));
       ImageTextView view = new SimpleImageTextView(); // system.out by default
       ImageController controller =
               new TextImageController(input, manager, view);
@@ -23,7 +23,10 @@ public abstract class AbstractImageController {
   }
 
   /**
-   * Parses a file path to determine which image file format it uses.
+   * Parses a file path to determine which image file format it uses. A PPM file is saved as
+   * plain text (P3), unless the name before its extension ends in ".p6" or ".p6-16", as in
+   * "photo.p6.ppm", in which case it is saved as binary (P6) with one or two bytes per sample.
+   * Either form of PPM file can be loaded whatever its name.
    *
    * @param filePath the file path to be parsed
    * @return the file format used by the specified file path
@@ -34,6 +37,8 @@ public abstract class AbstractImageController {
     String extension;
     if (splitPath.length == 2) {
       extension = splitPath[1];
+    } else if (splitPath.length == 3 && splitPath[2].equals("ppm")) {
+      extension = splitPath[1] + "." + splitPath[2]; // a PPM file naming its binary form
     } else {
       throw new IOException("Invalid file name (no extension)");
     }
@@ -48,6 +53,10 @@ public abstract class AbstractImageController {
         return ImageManager.ImageFileFormat.JPG;
       case "ppm":
         return ImageManager.ImageFileFormat.PPM;
+      case "p6.ppm":
+        return ImageManager.ImageFileFormat.PPM_BINARY;
+      case "p6-16.ppm":
+        return ImageManager.ImageFileFormat.PPM_BINARY_16;
       default:
         throw new IOException("Invalid file extension");
     }
@@ -0,0 +1,137 @@
+package controller;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import model.ImageModel;
+
+/**
+ * Class for a store that keeps every image on the heap and can be used by many threads at
+ * once without a lock over the whole store, so that threads working on different names never
+ * wait for each other.
+ *
+ * <p>Each name has a version, which starts at 0 while nothing is stored under it and goes up
+ * by one every time an image is stored under it. A thread can store an image only if nothing
+ * is stored under the name yet, or only if the name is still at the version it last saw, so
+ * threads sharing names do not silently replace each other's images. Removing the image of a
+ * name takes it back to version 0.
+ */
+public class ConcurrentImageStore implements ImageStore {
+  private final ConcurrentHashMap<String, Versioned> images;
+
+  /**
+   * Constructs a store with no images.
+   */
+  public ConcurrentImageStore() {
+    this.images = new ConcurrentHashMap<>();
+  }
+
+  @Override
+  public void put(String name, ImageModel image) throws IllegalArgumentException {
+    checkNull(name, image);
+    this.images.compute(name, (key, old) ->
+            new Versioned(image, old == null ? 1 : old.version + 1));
+  }
+
+  /**
+   * Stores an image under the given name only if no image is stored under it yet, as one
+   * atomic step.
+   *
+   * @param name the name to store the image under
+   * @param image the image to store
+   * @return true if the image was stored, or false if the name was taken
+   * @throws IllegalArgumentException if the name or image is null
+   */
+  public boolean putIfAbsent(String name, ImageModel image) throws IllegalArgumentException {
+    checkNull(name, image);
+    return this.images.putIfAbsent(name, new Versioned(image, 1)) == null;
+  }
+
+  /**
+   * Stores an image under the given name only if the name is at the given version, as one
+   * atomic step. A version of 0 means nothing may be stored under the name yet.
+   *
+   * @param name the name to store the image under
+   * @param version the version the name must be at
+   * @param image the image to store
+   * @return true if the image was stored, or false if the name was at another version
+   * @throws IllegalArgumentException if the name or image is null
+   */
+  public boolean replace(String name, long version, ImageModel image)
+          throws IllegalArgumentException {
+    checkNull(name, image);
+    boolean[] stored = new boolean[1];
+    this.images.compute(name, (key, old) -> {
+      long current = old == null ? 0 : old.version;
+      if (current != version) {
+        return old;
+      }
+      stored[0] = true;
+      return new Versioned(image, current + 1);
+    });
+    return stored[0];
+  }
+
+  /**
+   * Gets the version of the given name, which is the number of times an image has been
+   * stored under it.
+   *
+   * @param name the name of the image
+   * @return the version of the name, or 0 if nothing is stored under it
+   */
+  public long getVersion(String name) {
+    Versioned versioned = name == null ? null : this.images.get(name);
+    return versioned == null ? 0 : versioned.version;
+  }
+
+  @Override
+  public ImageModel get(String name) {
+    Versioned versioned = name == null ? null : this.images.get(name);
+    return versioned == null ? null : versioned.image;
+  }
+
+  @Override
+  public void remove(String name) {
+    if (name != null) {
+      this.images.remove(name);
+    }
+  }
+
+  @Override
+  public boolean contains(String name) {
+    return name != null && this.images.containsKey(name);
+  }
+
+  @Override
+  public Set<String> names() {
+    return new HashSet<>(this.images.keySet());
+  }
+
+  @Override
+  public Map<String, ImageModel> snapshot() {
+    Map<String, ImageModel> copy = new HashMap<>();
+    this.images.forEach((name, versioned) -> copy.put(name, versioned.image));
+    return copy;
+  }
+
+  // throws an exception if the name or image is null
+  private static void checkNull(String name, ImageModel image) throws IllegalArgumentException {
+    if (name == null || image == null) {
+      throw new IllegalArgumentException("Arguments cannot be null.");
+    }
+  }
+
+  // an image and the version of its name when it was stored
+  private static final class Versioned {
+    private final ImageModel image;
+    private final long version;
+
+    private Versioned(ImageModel image, long version) {
+      this.image = image;
+      this.version = version;
+    }
+  }
+}
@@ -0,0 +1,99 @@
+package controller;
+
+import model.ImageModel;
+
+/**
+ * This class represents an image manager that many threads can use at once, such as several
+ * scripts run against a shared set of loaded images. Images are kept in a
+ * ConcurrentImageStore, so commands on different images run in parallel without waiting for
+ * each other, and every name has a version that goes up each time an image is stored under it.
+ *
+ * <p>A manager with exclusive results never replaces an image with the result of a command:
+ * storing a result under a name that is already taken fails as one atomic step, so threads
+ * cannot overwrite each other's results, or the images they share, by accident.
+ */
+public class ConcurrentRasterImageManager extends RasterImageManager {
+  private final ConcurrentImageStore images;
+  private final boolean exclusiveResults;
+
+  /**
+   * Constructs a manager that starts with no stored images, whose results replace any
+   * image stored under their names.
+   */
+  public ConcurrentRasterImageManager() {
+    this(false);
+  }
+
+  /**
+   * Constructs a manager that starts with no stored images.
+   *
+   * @param exclusiveResults whether results may only be stored under names that are not
+   *                         taken
+   */
+  public ConcurrentRasterImageManager(boolean exclusiveResults) {
+    this(new ConcurrentImageStore(), exclusiveResults);
+  }
+
+  // constructs a manager that keeps its images in the given store
+  private ConcurrentRasterImageManager(ConcurrentImageStore images, boolean exclusiveResults) {
+    super(images);
+    this.images = images;
+    this.exclusiveResults = exclusiveResults;
+  }
+
+  @Override
+  protected void storeResult(String resultName, ImageModel image)
+          throws IllegalArgumentException {
+    if (!this.exclusiveResults) {
+      this.images.put(resultName, image);
+    } else if (!this.images.putIfAbsent(resultName, image)) {
+      throw new IllegalArgumentException("Image already exists.");
+    }
+  }
+
+  /**
+   * Stores the given image under the given name only if no image is stored under it yet.
+   *
+   * @param name the name to store the image under
+   * @param image the image to store
+   * @return true if the image was stored, or false if the name was taken
+   * @throws IllegalArgumentException if any parameters are null
+   */
+  public boolean storeIfAbsent(String name, ImageModel image) throws IllegalArgumentException {
+    boolean stored = this.images.putIfAbsent(name, image);
+    if (stored) {
+      this.notifyStored(name, image);
+    }
+    return stored;
+  }
+
+  /**
+   * Stores the given image under the given name only if the name is still at the given
+   * version, so an image is only replaced by a thread that has seen it.
+   *
+   * @param name the name to store the image under
+   * @param version the version the name must be at, or 0 if it must not be taken
+   * @param image the image to store
+   * @return true if the image was stored, or false if the name was at another version
+   * @throws IllegalArgumentException if any parameters are null
+   */
+  public boolean replace(String name, long version, ImageModel image)
+          throws IllegalArgumentException {
+    boolean stored = this.images.replace(name, version, image);
+    if (stored) {
+      this.notifyStored(name, image);
+    }
+    return stored;
+  }
+
+  /**
+   * Gets the version of the given name, which is the number of times an image has been
+   * stored under it.
+   *
+   * @param name the name of the image
+   * @return the version of the name, or 0 if nothing is stored under it
+   */
+  public long getVersion(String name) {
+    return this.images.getVersion(name);
+  }
+}
@@ -0,0 +1,168 @@
+package controller;
+
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import model.ImageModel;
+import model.PackedImageModel;
+
+/**
+ * Class for a store that keeps only one array of pixels for images with the same content,
+ * such as an image flipped twice or a file loaded twice, and keeps the images in another
+ * store. An image with the same size and pixels as one stored before is stored as a new
+ * PackedImageModel with its own max RGB value, backed by the array of the earlier image.
+ * The arrays of these images never change, so sharing them cannot be seen by their users.
+ *
+ * <p>Images are found by their content hash (see ContentHash) and then compared pixel by
+ * pixel. Only images that are already PackedImageModels are hashed, so images that compute
+ * their pixels when first used, or that keep them in a file, are stored as they are.
+ *
+ * <p>This store does not keep arrays alive by itself: once the other store no longer holds
+ * any image backed by an array, as when the images are replaced or spilled to disk, later
+ * images are not matched with it. The store counts how many images it stored with an array
+ * shared with another image, and how many bytes of pixels that saved.
+ */
+public class DedupImageStore implements ImageStore {
+  private final ImageStore images;
+  private final Map<Long, List<Shared>> shared; // arrays of pixels by their content hash
+  private final ReferenceQueue<int[]> collected;
+  private long duplicates;
+  private long savedBytes;
+
+  /**
+   * Constructs a store with no images that keeps its images on the heap.
+   */
+  public DedupImageStore() {
+    this(new MemoryImageStore());
+  }
+
+  /**
+   * Constructs a store that keeps its images in the given store, such as a
+   * SpillingImageStore to bound the memory they take.
+   *
+   * @param images the store to keep images in, which should be empty
+   * @throws IllegalArgumentException if the store is null
+   */
+  public DedupImageStore(ImageStore images) throws IllegalArgumentException {
+    if (images == null) {
+      throw new IllegalArgumentException("Store cannot be null.");
+    }
+    this.images = images;
+    this.shared = new HashMap<>();
+    this.collected = new ReferenceQueue<>();
+    this.duplicates = 0;
+    this.savedBytes = 0;
+  }
+
+  @Override
+  public synchronized void put(String name, ImageModel image) throws IllegalArgumentException {
+    if (name == null || image == null) {
+      throw new IllegalArgumentException("Arguments cannot be null.");
+    }
+    if (image instanceof PackedImageModel) {
+      image = this.share((PackedImageModel) image);
+    }
+    this.images.put(name, image);
+  }
+
+  @Override
+  public synchronized ImageModel get(String name) {
+    return this.images.get(name);
+  }
+
+  @Override
+  public synchronized void remove(String name) {
+    this.images.remove(name);
+  }
+
+  @Override
+  public synchronized boolean contains(String name) {
+    return this.images.contains(name);
+  }
+
+  @Override
+  public synchronized Set<String> names() {
+    return this.images.names();
+  }
+
+  @Override
+  public synchronized Map<String, ImageModel> snapshot() {
+    return this.images.snapshot();
+  }
+
+  /**
+   * Gets the number of images stored with an array of pixels shared with another image.
+   *
+   * @return the number of duplicate images
+   */
+  public synchronized long getDuplicates() {
+    return this.duplicates;
+  }
+
+  /**
+   * Gets the total number of bytes of pixels not kept because they were shared.
+   *
+   * @return the number of saved bytes
+   */
+  public synchronized long getSavedBytes() {
+    return this.savedBytes;
+  }
+
+  // gets an image with the same content as the given image that is backed by an array
+  // already stored, or the image itself if its content is new
+  private ImageModel share(PackedImageModel image) {
+    this.forgetCollected();
+    int width = image.getWidth();
+    int height = image.getHeight();
+    int[] pixels = PackedImageModel.sharedBuffer(image);
+    long hash = image.contentHash();
+    List<Shared> candidates = this.shared.computeIfAbsent(hash, key -> new ArrayList<>(1));
+    for (Shared candidate : candidates) {
+      int[] existing = candidate.get();
+      if (existing == pixels) {
+        return image; // already backed by the shared array
+      }
+      if (existing != null && candidate.width == width && candidate.height == height
+              && Arrays.equals(existing, pixels)) {
+        this.duplicates++;
+        this.savedBytes += 4L * pixels.length;
+        return new PackedImageModel(width, height, image.getMaxRGB(), existing);
+      }
+    }
+    candidates.add(new Shared(pixels, width, height, hash, this.collected));
+    return image;
+  }
+
+  // removes the arrays that are no longer used by any image
+  private void forgetCollected() {
+    for (Object next = this.collected.poll(); next != null; next = this.collected.poll()) {
+      Shared gone = (Shared) next;
+      List<Shared> candidates = this.shared.get(gone.hash);
+      if (candidates != null && candidates.removeIf(candidate -> candidate == gone)
+              && candidates.isEmpty()) {
+        this.shared.remove(gone.hash);
+      }
+    }
+  }
+
+  // an array of pixels that images may share, with the size of the images and its hash
+  private static final class Shared extends WeakReference<int[]> {
+    private final int width;
+    private final int height;
+    private final long hash;
+
+    private Shared(int[] pixels, int width, int height, long hash,
+                   ReferenceQueue<int[]> queue) {
+      super(pixels, queue);
+      this.width = width;
+      this.height = height;
+      this.hash = hash;
+    }
+  }
+}
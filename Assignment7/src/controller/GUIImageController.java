@@ -1,18 +1,85 @@
 package controller;
 
 import java.io.IOException;
-import java.util.function.Function;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.function.Consumer;
+
+import javax.swing.SwingWorker;
 
 import controller.command.ImageCommand;
+import model.EditHistory;
+import model.ImageModel;
 import view.ImageGUIView;
 
 /**
  * This class represents a controller for an image processing program that takes input
  * from the user via a graphical user interface.
+ *
+ * <p>Commands can either run on the thread that asks for them, or in the background through
+ * a SwingWorker so the window stays responsive while they run. In the background, only one
+ * command runs at a time. A command asked for while another runs waits for it, and replaces
+ * any command already waiting, so repeated clicks are coalesced into the last one. The view
+ * is told when commands start and finish running, and a running command can be cancelled.
+ * Cancelling interrupts the command, which stops at the next band of rows it works on (see
+ * TileScheduler), and its result is not shown. A save cancelled before its file is whole
+ * leaves any file already there as it was, as the manager writes a new file next to it and
+ * only moves it into place once it is whole (see RasterImageManager.save).
+ * The controller listens to its manager (see ImageListener), and shows the image the manager
+ * reports storing as the result of a load or command.
+ *
+ * <p>In preview mode, a loaded image is shrunk to a proxy that fits within the preview size,
+ * and commands run on the proxy so their results show at once. The commands are remembered,
+ * and when the image is saved they are replayed in order on the full resolution image, whose
+ * result is what is saved. Only the commands since the last save are replayed each time, on
+ * the last full resolution image replayed, which is the only one kept; undoing past it, or
+ * loading another image, removes it from the manager. A PPM file loaded in preview mode
+ * stays in its file (see ImageManager.loadMapped), so the full resolution image is not kept
+ * on the heap while the proxy is edited.
+ *
+ * <p>Commands since the last load can be undone and redone. Their results are kept in an
+ * EditHistory, which runs commands again to find an earlier image rather than keeping it,
+ * except for the mosaic, whose random seeds give a different result every time. Commands are
+ * run again in a manager of their own, so the images of the manager are left alone. Once an
+ * image is in the history and is no longer the current one, it is removed from the manager,
+ * so the manager keeps only the current image (and any full resolution images replaying
+ * needs) however many edits are made.
  */
-public class GUIImageController extends AbstractImageController implements ImageProcessorFeatures {
+public class GUIImageController extends AbstractImageController
+        implements ImageProcessorFeatures, ImageListener {
+  // the names the history of edits runs a command again under, in a manager of its own
+  private static final String RERUN_IMAGE = "image";
+  private static final String RERUN_RESULT = "result";
+
   private ImageGUIView view;
   private int currentImageID; // the name of the currently displayed image
+  private final boolean background; // whether commands run in the background
+  // the command running in the background and the one waiting for it, or null if none;
+  // only used on the event dispatch thread
+  private CommandWorker<?> running;
+  private NamedCommand waiting;
+  private final int previewSize; // the largest width and height of a proxy, or 0 if none
+  // the name of the loaded full resolution image, or null if there is no proxy, and the name
+  // of the last full resolution image replaying made (or the loaded image, if none) with how
+  // many of the commands run on the proxy it has had; the images replaying made before it
+  // are removed from the manager once it exists
+  private String loadedFullName;
+  private String replayedName;
+  private int replayedCount;
+  private final List<ImageCommand> proxyCommands; // commands run on the proxy since loading
+  private final List<ImageCommand> undoneCommands; // those undone, the last undone first
+  private int replayCount; // how many full resolution images replaying has named
+  private EditHistory edits; // the edits since the last load, or null if none was loaded
+  // the names of the images being stored that are waited for, each with its image once the
+  // manager tells this it was stored (see onImageStored), guarded by this
+  private final Map<String, ImageModel> awaited;
+  // the bytes of earlier images the history of edits may keep to undo and redo quickly
+  private final long historyBudget;
 
   /**
    * Creates an image controller that displays information to the user via the given view
@@ -24,24 +91,128 @@ public class GUIImageController extends AbstractImageController implements Image
    */
   public GUIImageController(ImageGUIView view, ImageManager manager)
           throws IllegalArgumentException {
+    this(view, manager, false);
+  }
+
+  /**
+   * Creates an image controller that displays information to the user via the given view
+   * and handles image models via the given image manager, running commands either on the
+   * thread that asks for them or in the background. Commands in the background must be asked
+   * for on the event dispatch thread, as the buttons of a view do.
+   *
+   * @param view the view to display the program to the user
+   * @param manager the manager to handle images
+   * @param background whether to run commands in the background
+   * @throws IllegalArgumentException if the view or manager are null
+   */
+  public GUIImageController(ImageGUIView view, ImageManager manager, boolean background)
+          throws IllegalArgumentException {
+    this(view, manager, background, 0);
+  }
+
+  /**
+   * Creates an image controller that displays information to the user via the given view
+   * and handles image models via the given image manager, running commands either on the
+   * thread that asks for them or in the background, and on proxies of loaded images no
+   * larger than the given preview size. Saving in the background also replays the commands
+   * on the full resolution image in the background.
+   *
+   * @param view the view to display the program to the user
+   * @param manager the manager to handle images
+   * @param background whether to run commands in the background
+   * @param previewSize the largest width and height of a proxy, or 0 to edit loaded images
+   *                    at full resolution
+   * @throws IllegalArgumentException if the view or manager are null, or the preview size
+   *                                  is negative
+   */
+  public GUIImageController(ImageGUIView view, ImageManager manager, boolean background,
+                            int previewSize)
+          throws IllegalArgumentException {
+    this(view, manager, background, previewSize, MemoryBudget.ofHeap().getHistory());
+  }
+
+  /**
+   * Creates an image controller like the one above, whose history of edits keeps earlier
+   * images within the given number of bytes, such as the share of a MemoryBudget for it.
+   *
+   * @param view the view to display the program to the user
+   * @param manager the manager to handle images
+   * @param background whether to run commands in the background
+   * @param previewSize the largest width and height of a proxy, or 0 to edit loaded images
+   *                    at full resolution
+   * @param historyBudget the bytes of earlier images to keep to undo and redo quickly
+   * @throws IllegalArgumentException if the view or manager are null, or the preview size
+   *                                  or history budget is negative
+   */
+  public GUIImageController(ImageGUIView view, ImageManager manager, boolean background,
+                            int previewSize, long historyBudget)
+          throws IllegalArgumentException {
     super(manager);
     if (view == null) {
       throw new IllegalArgumentException("Arguments cannot be null.");
     }
+    if (previewSize < 0) {
+      throw new IllegalArgumentException("Preview size cannot be negative.");
+    }
+    if (historyBudget < 0) {
+      throw new IllegalArgumentException("History budget cannot be negative.");
+    }
+    this.historyBudget = historyBudget;
     this.view = view;
+    this.background = background;
+    this.running = null;
+    this.waiting = null;
+    this.previewSize = previewSize;
+    this.loadedFullName = null;
+    this.replayedName = null;
+    this.replayedCount = 0;
+    this.proxyCommands = new ArrayList<>();
+    this.undoneCommands = new ArrayList<>();
+    this.replayCount = 0;
+    this.edits = null;
+    this.awaited = new HashMap<>();
     this.view.addFeatures(this); // sets this as the features source for the provided view
+    this.manager.addImageListener(this); // told of the images stored, to display them
     this.currentImageID = 0;
   }
 
 
   @Override
   public void loadImage(String filepath) {
+    if (this.running != null) { // the manager is in use by the command
+      view.renderMessage("Please wait for the current operation to finish.");
+      return;
+    }
     try {
-      manager.load(filepath, Integer.toString(this.currentImageID + 1), // load image w/ next id
-              this.getFileFormat(filepath));
-      view.setDisplayImage(manager.getStoredImages()
-              .get(Integer.toString(this.currentImageID + 1))); // display the newly loaded image
+      ImageManager.ImageFileFormat format = this.getFileFormat(filepath);
+      String loadedName = Integer.toString(this.currentImageID + 1); // load image w/ next id
+      // in preview mode, the proxy of the loaded image is shown, under the id after it
+      String shownName = this.previewSize > 0
+              ? Integer.toString(this.currentImageID + 2) : loadedName;
+      ImageModel loaded = this.storedBy(shownName, () -> {
+        if (this.previewSize > 0 && format.toString().equals("ppm")) {
+          // the full image is only read to make the proxy and to replay edits when saving,
+          // so a PPM file is mapped rather than copied onto the heap
+          manager.loadMapped(filepath, loadedName);
+        } else {
+          manager.load(filepath, loadedName, format);
+        }
+        if (this.previewSize > 0) {
+          manager.downscale(this.previewSize, this.previewSize, loadedName, shownName);
+        }
+      });
+      if (this.previewSize > 0) {
+        this.forgetFullImages();
+        this.loadedFullName = loadedName;
+        this.replayedName = loadedName;
+        this.proxyCommands.clear();
+        this.undoneCommands.clear();
+        this.currentImageID += 1;
+      }
+      view.setDisplayImage(loaded); // display the newly loaded image
       this.currentImageID += 1; // update the current image to be the newly loaded image
+      this.dropImage(this.currentImageID - (this.previewSize > 0 ? 2 : 1));
+      this.edits = new EditHistory(loaded, this.historyBudget);
       view.refresh();
     } catch (IOException e) {
       view.renderMessage("Could not load file.");
@@ -62,6 +233,14 @@ public class GUIImageController extends AbstractImageController implements Image
 
   @Override
   public void saveImage(String filePath) {
+    if (this.running != null) {
+      view.renderMessage("Please wait for the current operation to finish.");
+      return;
+    }
+    if (this.loadedFullName != null) {
+      this.saveFullImage(filePath);
+      return;
+    }
     try {
       manager.save(Integer.toString(this.currentImageID), filePath, this.getFileFormat(filePath));
       view.refresh(); //for good measure
@@ -72,6 +251,85 @@ public class GUIImageController extends AbstractImageController implements Image
     }
   }
 
+  // replays the commands run on the proxy on the full resolution image, then saves the result
+  private void saveFullImage(String filePath) {
+    ImageManager.ImageFileFormat format;
+    try {
+      format = this.getFileFormat(filePath);
+    } catch (IllegalArgumentException e) {
+      view.renderMessage(e.getMessage());
+      return;
+    }
+    List<ImageCommand> commands = new ArrayList<>(this.proxyCommands.subList(
+            this.replayedCount, this.proxyCommands.size()));
+    String startName = this.replayedName;
+    int firstID = this.replayCount + 1;
+    Callable<String> task = () -> {
+      String imageName = startName;
+      try {
+        for (int i = 0; i < commands.size(); i++) {
+          checkCancelled();
+          String resultName = "full-" + (firstID + i);
+          commands.get(i).execute(imageName, resultName);
+          if (!imageName.equals(startName)) {
+            manager.remove(imageName); // only the last full resolution image is needed
+          }
+          imageName = resultName;
+        }
+        checkCancelled(); // do not write the file once the save has been cancelled
+        manager.save(imageName, filePath, format);
+        return imageName;
+      } catch (Exception e) { // the next save replays these commands again
+        if (!imageName.equals(startName)) {
+          manager.remove(imageName);
+        }
+        throw e;
+      }
+    };
+    Consumer<String> onSuccess = name -> {
+      if (!name.equals(startName)) { // later saves only replay the commands after this one
+        int count = this.replayedCount + commands.size();
+        this.removeReplayed();
+        this.replayedName = name;
+        this.replayedCount = count;
+        this.replayCount += commands.size();
+      }
+      view.refresh();
+    };
+    if (this.background) {
+      this.startTask(task, onSuccess);
+      return;
+    }
+    try {
+      onSuccess.accept(task.call());
+    } catch (Exception e) {
+      this.renderFailure(e);
+    }
+  }
+
+  // stops a task running in the background once it has been cancelled
+  private static void checkCancelled() throws CancellationException {
+    if (Thread.currentThread().isInterrupted()) {
+      throw new CancellationException("Operation was cancelled.");
+    }
+  }
+
+  // tells the user why a command or save failed
+  private void renderFailure(Exception e) {
+    if (e instanceof IllegalArgumentException) {
+      view.renderMessage(e.getMessage()); // display manager's exception message to the user
+    } else if (e instanceof IOException) {
+      view.renderMessage("Could not save file.");
+    } else {
+      view.renderMessage("Could not complete the operation.");
+    }
+  }
+
+
+  // gets the command with the given name and arguments from the manager, and uses it
+  private void useCommand(String name, String... args) {
+    this.useCommand(new NamedCommand(name, args, manager.getCommand(name).apply(args)));
+  }
 
   /**
    * Executes the given image manipulation command, sets the resulting image as the current one
@@ -79,88 +337,390 @@ public class GUIImageController extends AbstractImageController implements Image
    *
    * @param command the command to be executed
    */
-  private void useCommand(ImageCommand command) {
+  private void useCommand(NamedCommand command) {
+    if (this.background) {
+      if (this.running == null) {
+        this.startCommand(command);
+      } else {
+        this.waiting = command; // replaces any command already waiting
+        view.showProgress(true); // in case the running command was cancelled
+      }
+      return;
+    }
     try {
-      command.execute(Integer.toString(this.currentImageID), // act on the current image
-              Integer.toString(this.currentImageID + 1));  // name the result with the next id
-      view.setDisplayImage(manager.getStoredImages()
-              .get(Integer.toString(this.currentImageID + 1)));
-      // set the new image as the one to be displayed
+      String imageName = Integer.toString(this.currentImageID); // act on the current image
+      String resultName = Integer.toString(this.currentImageID + 1); // name it the next id
+      ImageModel result = this.storedBy(resultName,
+              () -> command.execute(imageName, resultName));
+      view.setDisplayImage(result); // set the new image as the one to be displayed
       this.currentImageID += 1; // update the current image to be the new image
+      this.remember(command, this.edit(command, result), result);
+      this.dropImage(this.currentImageID - 1);
       view.refresh(); // update view
     } catch (IllegalArgumentException e) {
       view.renderMessage(e.getMessage()); // display manager's exception message to the user
     } // do not update the image
   }
 
+  /**
+   * Keeps the image just stored under a name this controller is waiting for, which is how the
+   * results of loading and of commands reach the view.
+   *
+   * @param name the name the image is stored under
+   * @param image the image that was stored
+   */
+  @Override
+  public synchronized void onImageStored(String name, ImageModel image) {
+    if (this.awaited.containsKey(name)) {
+      this.awaited.put(name, image);
+    }
+  }
+
+  // runs an action that stores an image under the given name, and gets the image the manager
+  // told this controller it stored there, or null if it stored none
+  private <E extends Exception> ImageModel storedBy(String name, StoreAction<E> action)
+          throws E {
+    synchronized (this) {
+      this.awaited.put(name, null);
+    }
+    try {
+      action.run();
+      synchronized (this) {
+        return this.awaited.get(name);
+      }
+    } finally {
+      synchronized (this) {
+        this.awaited.remove(name);
+      }
+    }
+  }
+
+  // something that stores an image in the manager
+  private interface StoreAction<E extends Exception> {
+    void run() throws E;
+  }
+
+  // creates the edit of the current image that gave the given result of a command, or null
+  // if no image was loaded to start the history of edits from
+  private EditHistory.Edit edit(NamedCommand command, ImageModel result) {
+    if (this.edits == null || result == null) {
+      return null;
+    }
+    if (command.name.equals("mosaic")) { // the seeds are random, so keep the difference
+      return EditHistory.difference(this.edits.current(), result);
+    }
+    // run in a manager of its own, so the images of the program are not replaced, nobody is
+    // told of them, and they are let go of once the result is found
+    return EditHistory.replay(image -> {
+      ImageManager scratch = new RasterImageManager();
+      scratch.store(RERUN_IMAGE, image);
+      command.rebind(scratch).execute(RERUN_IMAGE, RERUN_RESULT);
+      return scratch.getImage(RERUN_RESULT);
+    });
+  }
+
+  // lets the manager drop the image under the given id once it is no longer the current one,
+  // as the history of edits keeps what it needs to find it again, unless replaying the
+  // commands on the full resolution image still needs it
+  private void dropImage(int id) {
+    String name = Integer.toString(id);
+    if (!name.equals(this.loadedFullName)) {
+      manager.remove(name);
+    }
+  }
+
+  // removes the last full resolution image replaying made from the manager, so the next
+  // save replays from the loaded image
+  private void removeReplayed() {
+    if (this.replayedName != null && !this.replayedName.equals(this.loadedFullName)) {
+      manager.remove(this.replayedName);
+    }
+    this.replayedName = this.loadedFullName;
+    this.replayedCount = 0;
+  }
+
+  // removes the full resolution images of the image loaded before from the manager
+  private void forgetFullImages() {
+    this.removeReplayed();
+    if (this.loadedFullName != null) {
+      manager.remove(this.loadedFullName);
+    }
+    this.loadedFullName = null;
+    this.replayedName = null;
+  }
+
+  // remembers a command that ran on the current image, and the edit that it made
+  private void remember(ImageCommand command, EditHistory.Edit edit, ImageModel result) {
+    if (edit != null) {
+      this.edits.push(edit, result);
+    }
+    if (this.loadedFullName != null) { // to replay on the full resolution image
+      this.proxyCommands.add(command);
+      this.undoneCommands.clear();
+    }
+  }
+
+  @Override
+  public void undo() {
+    if (this.running != null) {
+      view.renderMessage("Please wait for the current operation to finish.");
+    } else if (this.edits == null || !this.edits.canUndo()) {
+      view.renderMessage("Nothing to undo.");
+    } else {
+      this.revisit(true);
+    }
+  }
+
+  @Override
+  public void redo() {
+    if (this.running != null) {
+      view.renderMessage("Please wait for the current operation to finish.");
+    } else if (this.edits == null || !this.edits.canRedo()) {
+      view.renderMessage("Nothing to redo.");
+    } else {
+      this.revisit(false);
+    }
+  }
+
+  // finds the image before or after the current one in the history of edits, which may run
+  // commands again, then makes it the current image under the next id
+  private void revisit(boolean back) {
+    Callable<ImageModel> task = () -> back ? this.edits.previous() : this.edits.next();
+    Consumer<ImageModel> onSuccess = image -> {
+      if (back) {
+        this.edits.undo(); // the image was kept when it was found, so this is quick
+        if (!this.proxyCommands.isEmpty()) {
+          this.undoneCommands.add(this.proxyCommands.remove(this.proxyCommands.size() - 1));
+          // an image replayed past the commands left is no longer the full resolution image,
+          // so the next save replays from the loaded image
+          if (this.replayedCount > this.proxyCommands.size()) {
+            this.removeReplayed();
+          }
+        }
+      } else {
+        this.edits.redo();
+        if (!this.undoneCommands.isEmpty()) {
+          this.proxyCommands.add(this.undoneCommands.remove(this.undoneCommands.size() - 1));
+        }
+      }
+      manager.store(Integer.toString(this.currentImageID + 1), image);
+      view.setDisplayImage(image);
+      this.currentImageID += 1;
+      this.dropImage(this.currentImageID - 1);
+      view.refresh();
+    };
+    if (this.background) {
+      this.startTask(task, onSuccess);
+      return;
+    }
+    try {
+      onSuccess.accept(task.call());
+    } catch (Exception e) {
+      this.renderFailure(e);
+    }
+  }
+
+  @Override
+  public void cancel() {
+    this.waiting = null;
+    if (this.running != null && !this.running.isDiscarded()) {
+      // the command stops at the next band of rows, or the next command it replays, and its
+      // result is not shown; the next command waits for it to stop
+      this.running.discard();
+      view.showProgress(false);
+      view.renderMessage("Operation cancelled.");
+    }
+  }
+
+  // starts running a command in the background on the current image
+  private void startCommand(NamedCommand command) {
+    String imageName = Integer.toString(this.currentImageID);
+    String resultName = Integer.toString(this.currentImageID + 1);
+    this.startTask(() -> {
+      checkCancelled();
+      ImageModel result = this.storedBy(resultName,
+              () -> command.execute(imageName, resultName));
+      checkCancelled();
+      if (result != null) {
+        result.getHistogram(); // computed here so the view does not have to
+      }
+      return new Outcome(result, this.edit(command, result));
+    }, outcome -> {
+      view.setDisplayImage(outcome.result);
+      this.currentImageID += 1; // update the current image to be the new image
+      this.remember(command, outcome.edit, outcome.result);
+      this.dropImage(this.currentImageID - 1);
+      view.refresh();
+    });
+  }
+
+  // the result of a command run in the background, and the edit it made
+  private static final class Outcome {
+    private final ImageModel result;
+    private final EditHistory.Edit edit;
+
+    private Outcome(ImageModel result, EditHistory.Edit edit) {
+      this.result = result;
+      this.edit = edit;
+    }
+  }
+
+  // a command got from the manager by its name and arguments, so the same command can be got
+  // from another manager to run it there
+  private static final class NamedCommand implements ImageCommand {
+    private final String name;
+    private final String[] args;
+    private final ImageCommand command;
+
+    private NamedCommand(String name, String[] args, ImageCommand command) {
+      this.name = name;
+      this.args = args;
+      this.command = command;
+    }
+
+    // gets this command from the given manager instead
+    private ImageCommand rebind(ImageManager other) {
+      return other.getCommand(this.name).apply(this.args);
+    }
+
+    @Override
+    public void execute(String inputName, String resultName) {
+      this.command.execute(inputName, resultName);
+    }
+  }
+
+  // starts running a task in the background, which gives its result to the given consumer
+  // on the event dispatch thread unless it is cancelled
+  private <T> void startTask(Callable<T> task, Consumer<T> onSuccess) {
+    this.running = new CommandWorker<>(task, onSuccess);
+    view.showProgress(true);
+    this.running.execute();
+  }
+
+  // handles the result of a task that has finished running in the background, then starts
+  // the command waiting for it, if any
+  private <T> void finishTask(CommandWorker<T> worker) {
+    this.running = null;
+    if (!worker.isDiscarded()) {
+      try {
+        worker.onSuccess.accept(worker.get());
+      } catch (ExecutionException e) {
+        this.renderFailure(e.getCause() instanceof Exception
+                ? (Exception) e.getCause() : e); // do not update the image
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    }
+    NamedCommand next = this.waiting;
+    this.waiting = null;
+    if (next != null) {
+      this.startCommand(next);
+    } else {
+      view.showProgress(false);
+    }
+  }
+
+  // runs a task in the background, giving its result back on the event dispatch thread
+  private class CommandWorker<T> extends SwingWorker<T, Void> {
+    private final Callable<T> task;
+    private final Consumer<T> onSuccess;
+    // whether the result should not be used, set when cancelled, and the thread running the
+    // task, or null if it is not running, both guarded by this
+    private boolean discarded;
+    private Thread thread;
+
+    private CommandWorker(Callable<T> task, Consumer<T> onSuccess) {
+      this.task = task;
+      this.onSuccess = onSuccess;
+      this.discarded = false;
+      this.thread = null;
+    }
+
+    @Override
+    protected T doInBackground() throws Exception {
+      synchronized (this) {
+        if (this.discarded) {
+          throw new CancellationException("Operation was cancelled.");
+        }
+        this.thread = Thread.currentThread();
+      }
+      try {
+        return this.task.call();
+      } finally {
+        synchronized (this) {
+          this.thread = null;
+          Thread.interrupted(); // the thread is used again for other workers
+        }
+      }
+    }
+
+    // discards the result of the task and interrupts it, so it stops as soon as it can
+    private synchronized void discard() {
+      this.discarded = true;
+      if (this.thread != null) {
+        this.thread.interrupt();
+      }
+    }
+
+    // whether the result of the task should not be used
+    private synchronized boolean isDiscarded() {
+      return this.discarded;
+    }
+
+    @Override
+    protected void done() {
+      finishTask(this);
+    }
+  }
+
   @Override
   public void visualizeRed() {
-    Function<String[], ImageCommand> cmd = manager.getKnownCommands().get("red-component");
-    ImageCommand c = cmd.apply(new String[0]);
-    this.useCommand(c);
+    this.useCommand("red-component");
   }
 
   @Override
   public void visualizeGreen() {
-    Function<String[], ImageCommand> cmd = manager.getKnownCommands().get("green-component");
-    ImageCommand c = cmd.apply(new String[0]);
-    this.useCommand(c);
+    this.useCommand("green-component");
   }
 
   @Override
   public void visualizeBlue() {
-    Function<String[], ImageCommand> cmd = manager.getKnownCommands().get("blue-component");
-    ImageCommand c = cmd.apply(new String[0]);
-    this.useCommand(c);
+    this.useCommand("blue-component");
   }
 
   @Override
   public void visualizeValue() {
-    Function<String[], ImageCommand> cmd = manager.getKnownCommands().get("value-component");
-    ImageCommand c = cmd.apply(new String[0]);
-    this.useCommand(c);
+    this.useCommand("value-component");
   }
 
   @Override
   public void visualizeIntensity() {
-    Function<String[], ImageCommand> cmd = manager.getKnownCommands().get("intensity-component");
-    ImageCommand c = cmd.apply(new String[0]);
-    this.useCommand(c);
+    this.useCommand("intensity-component");
   }
 
   @Override
   public void visualizeLuma() {
-    Function<String[], ImageCommand> cmd = manager.getKnownCommands().get("luma-component");
-    ImageCommand c = cmd.apply(new String[0]);
-    this.useCommand(c);
+    this.useCommand("luma-component");
   }
 
   @Override
   public void greyscale() {
-    Function<String[], ImageCommand> cmd = manager.getKnownCommands().get("greyscale");
-    ImageCommand c = cmd.apply(new String[0]);
-    this.useCommand(c);
+    this.useCommand("greyscale");
   }
 
   @Override
   public void sepia() {
-    Function<String[], ImageCommand> cmd = manager.getKnownCommands().get("sepia");
-    ImageCommand c = cmd.apply(new String[0]);
-    this.useCommand(c);
+    this.useCommand("sepia");
   }
 
   @Override
   public void blur() {
-    Function<String[], ImageCommand> cmd = manager.getKnownCommands().get("blur");
-    ImageCommand c = cmd.apply(new String[0]);
-    this.useCommand(c);
+    this.useCommand("blur");
   }
 
   @Override
   public void sharpen() {
-    Function<String[], ImageCommand> cmd = manager.getKnownCommands().get("sharpen");
-    ImageCommand c = cmd.apply(new String[0]);
-    this.useCommand(c);
+    this.useCommand("sharpen");
   }
 
   @Override
@@ -176,9 +736,7 @@ public class GUIImageController extends AbstractImageController implements Image
       view.renderMessage("Please enter a positive integer amount of seeds.");
       return; // do not execute the command for invalid input
     }
-    Function<String[], ImageCommand> cmd = manager.getKnownCommands().get("mosaic");
-    ImageCommand c = cmd.apply(new String[]{text});
-    this.useCommand(c);
+    this.useCommand("mosaic", text);
   }
 
   @Override
@@ -189,9 +747,7 @@ public class GUIImageController extends AbstractImageController implements Image
       view.renderMessage("Please enter an integer increment.");
       return; // do not execute the command for invalid input
     }
-    Function<String[], ImageCommand> cmd = manager.getKnownCommands().get("brighten");
-    ImageCommand c = cmd.apply(new String[]{amount});
-    this.useCommand(c);
+    this.useCommand("brighten", amount);
   }
 
   @Override
@@ -202,23 +758,17 @@ public class GUIImageController extends AbstractImageController implements Image
       view.renderMessage("Please enter an integer increment.");
       return;
     }
-    Function<String[], ImageCommand> cmd = manager.getKnownCommands().get("brighten");
-    ImageCommand c = cmd.apply(new String[]{"-" + amount}); // brighten by negative amount
-    this.useCommand(c);
+    this.useCommand("brighten", "-" + amount); // brighten by negative amount
   }
 
   @Override
   public void flipHorizontal() {
-    Function<String[], ImageCommand> cmd = manager.getKnownCommands().get("horizontal-flip");
-    ImageCommand c = cmd.apply(new String[0]);
-    this.useCommand(c);
+    this.useCommand("horizontal-flip");
   }
 
   @Override
   public void flipVertical() {
-    Function<String[], ImageCommand> cmd = manager.getKnownCommands().get("vertical-flip");
-    ImageCommand c = cmd.apply(new String[0]);
-    this.useCommand(c);
+    this.useCommand("vertical-flip");
   }
 
 }
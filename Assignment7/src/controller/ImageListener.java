@@ -0,0 +1,19 @@
+package controller;
+
+import model.ImageModel;
+
+/**
+ * Represents something that wants to know when an image manager stores an image, such as a
+ * view that shows each new result as soon as it is ready.
+ */
+public interface ImageListener {
+
+  /**
+   * Called after an image is stored under the given name, by loading it, as the result of
+   * a command, or directly. Called on the thread that stored the image.
+   *
+   * @param name the name the image is stored under
+   * @param image the image that was stored
+   */
+  void onImageStored(String name, ImageModel image);
+}
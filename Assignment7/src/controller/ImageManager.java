@@ -26,6 +26,20 @@ public interface ImageManager {
   void load(String filePath, String name, ImageFileFormat fileFormat)
           throws IOException, IllegalArgumentException;
 
+  /**
+   * Load the PPM file at the specified file path into this program without copying its
+   * pixels onto the heap, and refer to it by the given name, so that images larger than the
+   * heap can still be loaded. Visualizing a component or brightening the image reads its
+   * pixels from the file as they are needed, but any other operation copies the whole image
+   * onto the heap first.
+   *
+   * @param filePath the file path where the PPM file is found
+   * @param name the name to refer to the image as within the program
+   * @throws IOException if an error occurs reading from the specified file path
+   * @throws IllegalArgumentException if any parameters are null or the file is not valid
+   */
+  void loadMapped(String filePath, String name) throws IOException, IllegalArgumentException;
+
   /**
    * Save an image to the specified file path with the specified name and file format.
    *
@@ -38,6 +52,24 @@ public interface ImageManager {
   void save(String imageName, String filePath, ImageFileFormat fileFormat)
           throws IOException, IllegalArgumentException;
 
+  /**
+   * Store the given image under the given name, replacing any image already stored under it.
+   *
+   * @param name the name to refer to the image as within the program
+   * @param image the image to store
+   * @throws IllegalArgumentException if any parameters are null
+   */
+  void store(String name, ImageModel image) throws IllegalArgumentException;
+
+  /**
+   * Remove the image stored under the given name, if there is one, so the program no longer
+   * keeps it.
+   *
+   * @param name the name of the image to remove
+   * @throws IllegalArgumentException if the name is null
+   */
+  void remove(String name) throws IllegalArgumentException;
+
   /**
    * Get all images that the program has loaded or created.
    *
@@ -52,6 +84,51 @@ public interface ImageManager {
    */
   Map<String, Function<String[], ImageCommand>> getKnownCommands();
 
+  /**
+   * Get the image stored under the given name. Managers should look the image up directly
+   * rather than copying every stored image, as the default does.
+   *
+   * @param name the name of the image
+   * @return the image stored under the name, or null if there is none
+   */
+  default ImageModel getImage(String name) {
+    return this.getStoredImages().get(name);
+  }
+
+  /**
+   * Get the command known by the given name. Managers should look the command up directly
+   * rather than copying every known command, as the default does.
+   *
+   * @param name the name of the command
+   * @return the function creating the command from its arguments, or null if it is unknown
+   */
+  default Function<String[], ImageCommand> getCommand(String name) {
+    return this.getKnownCommands().get(name);
+  }
+
+  /**
+   * Get a view of all images that the program has loaded or created, which cannot be changed
+   * through it but always shows the images stored at the moment it is used.
+   *
+   * @return an unmodifiable live map of the names of the stored images to the images
+   */
+  Map<String, ImageModel> getStoredImagesView();
+
+  /**
+   * Add a listener to be told about every image stored from now on.
+   *
+   * @param listener the listener to add
+   * @throws IllegalArgumentException if the listener is null
+   */
+  void addImageListener(ImageListener listener) throws IllegalArgumentException;
+
+  /**
+   * Remove a listener, so it is no longer told about stored images.
+   *
+   * @param listener the listener to remove
+   */
+  void removeImageListener(ImageListener listener);
+
   /**
    * Visualize the given component of the specified image,
    * and store the result under the given name.
@@ -122,15 +199,37 @@ public interface ImageManager {
    */
   void mosaic(int seeds, String imageName, String resultName) throws IllegalArgumentException;
 
+  /**
+   * Shrinks the image with the given name to fit within the given size, keeping its
+   * proportions, and stores the result under the given result name. An image that already
+   * fits is stored under the result name as it is.
+   *
+   * @param maxWidth the largest width the result may have
+   * @param maxHeight the largest height the result may have
+   * @param imageName the name of the image to be shrunk
+   * @param resultName the name to store the resulting image under
+   * @throws IllegalArgumentException if the image is not found or the size is not positive
+   */
+  void downscale(int maxWidth, int maxHeight, String imageName, String resultName)
+          throws IllegalArgumentException;
+
   /**
    * Enum used to represent the different
    * choices for possible file extensions.
    * This limits the amount of file formats
    * that this program can support saving as.
+   * PPM saves as plain text (P3), while PPM_BINARY
+   * and PPM_BINARY_16 save as binary (P6) with one or
+   * two bytes per sample. Loading any of the three
+   * reads either form of PPM file. All three have the
+   * extension "ppm", so the controllers choose between
+   * them by the rest of the file name (see
+   * AbstractImageController.getFileFormat).
    */
   enum ImageFileFormat {
 
-    BMP("bmp"), PNG("png"), JPEG("jpeg"), JPG("jpg"), PPM("ppm");
+    BMP("bmp"), PNG("png"), JPEG("jpeg"), JPG("jpg"), PPM("ppm"),
+    PPM_BINARY("ppm"), PPM_BINARY_16("ppm");
 
     ImageFileFormat(String extension) {
       this.extension = extension;
@@ -116,5 +116,20 @@ public interface ImageProcessorFeatures {
    */
   void mosaic(String text);
 
+  /**
+   * Cancels the operation that is running, if any, so that its result is not shown, along
+   * with any operation waiting for it.
+   */
+  void cancel();
 
+  /**
+   * Undoes the last change to the current image since it was loaded, and updates the view
+   * to display the image before it.
+   */
+  void undo();
+
+  /**
+   * Redoes the last change that was undone, and updates the view to display its result.
+   */
+  void redo();
 }
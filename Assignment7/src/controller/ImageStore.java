@@ -0,0 +1,63 @@
+package controller;
+
+import java.util.Map;
+import java.util.Set;
+
+import model.ImageModel;
+
+/**
+ * Represents where an image manager keeps the images it has loaded or created, by name.
+ * A store may hold images somewhere other than the heap, as long as getting an image gives
+ * back one with the same size, max RGB value, and pixels as the image that was put.
+ */
+public interface ImageStore {
+
+  /**
+   * Stores an image under the given name, replacing any image already stored under it.
+   *
+   * @param name the name to store the image under
+   * @param image the image to store
+   * @throws IllegalArgumentException if the name or image is null
+   */
+  void put(String name, ImageModel image) throws IllegalArgumentException;
+
+  /**
+   * Gets the image stored under the given name.
+   *
+   * @param name the name of the image
+   * @return the image stored under the name, or null if there is none
+   */
+  ImageModel get(String name);
+
+  /**
+   * Removes the image stored under the given name, if there is one, so this store no longer
+   * keeps it (or any file holding it).
+   *
+   * @param name the name of the image
+   */
+  void remove(String name);
+
+  /**
+   * Gets whether an image is stored under the given name, without reading it back if it is
+   * held somewhere other than the heap.
+   *
+   * @param name the name of the image
+   * @return true if an image is stored under the name
+   */
+  boolean contains(String name);
+
+  /**
+   * Gets the names of the images stored at this moment.
+   *
+   * @return a new set of the names of all stored images
+   */
+  Set<String> names();
+
+  /**
+   * Gets the images stored at this moment. Images stored later are not added to the result,
+   * and changing the result does not change this store.
+   *
+   * @return a map of the names of all stored images to the images
+   */
+  Map<String, ImageModel> snapshot();
+}
@@ -0,0 +1,72 @@
+package controller;
+
+/**
+ * Class for a budget of heap memory shared by the parts of the program that keep images only
+ * to save time: the stored images kept on the heap before they are spilled to disk (see
+ * SpillingImageStore), the results of operations kept to give them again (see ResultCache),
+ * and the earlier images kept to undo and redo quickly (see EditHistory). Each part gets a
+ * fixed share of the budget, half for stored images and an eighth each for results and
+ * earlier images, leaving a quarter for the images being worked on, so together they never
+ * plan to use more than the budget.
+ */
+public final class MemoryBudget {
+  private final long total;
+
+  /**
+   * Constructs a budget of the given number of bytes.
+   *
+   * @param total the number of bytes to share
+   * @throws IllegalArgumentException if the budget is negative
+   */
+  public MemoryBudget(long total) throws IllegalArgumentException {
+    if (total < 0) {
+      throw new IllegalArgumentException("Budget cannot be negative.");
+    }
+    this.total = total;
+  }
+
+  /**
+   * Constructs a budget of all the heap memory this program may use.
+   *
+   * @return the budget of the heap
+   */
+  public static MemoryBudget ofHeap() {
+    return new MemoryBudget(Runtime.getRuntime().maxMemory());
+  }
+
+  /**
+   * Gets the number of bytes this budget shares.
+   *
+   * @return the total number of bytes
+   */
+  public long getTotal() {
+    return this.total;
+  }
+
+  /**
+   * Gets the number of bytes of stored images to keep on the heap.
+   *
+   * @return the share of this budget for stored images
+   */
+  public long getStoredImages() {
+    return this.total / 2;
+  }
+
+  /**
+   * Gets the number of bytes of results of operations to keep.
+   *
+   * @return the share of this budget for results
+   */
+  public long getResults() {
+    return this.total / 8;
+  }
+
+  /**
+   * Gets the number of bytes of earlier images to keep to undo and redo quickly.
+   *
+   * @return the share of this budget for the history of edits
+   */
+  public long getHistory() {
+    return this.total / 8;
+  }
+}
@@ -0,0 +1,55 @@
+package controller;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import model.ImageModel;
+
+/**
+ * Class for a store that keeps every image on the heap for as long as the program runs.
+ */
+public class MemoryImageStore implements ImageStore {
+  private final Map<String, ImageModel> images;
+
+  /**
+   * Constructs a store with no images.
+   */
+  public MemoryImageStore() {
+    this.images = new HashMap<>();
+  }
+
+  @Override
+  public void put(String name, ImageModel image) throws IllegalArgumentException {
+    if (name == null || image == null) {
+      throw new IllegalArgumentException("Arguments cannot be null.");
+    }
+    this.images.put(name, image);
+  }
+
+  @Override
+  public ImageModel get(String name) {
+    return this.images.get(name);
+  }
+
+  @Override
+  public void remove(String name) {
+    this.images.remove(name);
+  }
+
+  @Override
+  public boolean contains(String name) {
+    return this.images.containsKey(name);
+  }
+
+  @Override
+  public Set<String> names() {
+    return new HashSet<>(this.images.keySet());
+  }
+
+  @Override
+  public Map<String, ImageModel> snapshot() {
+    return new HashMap<>(this.images);
+  }
+}
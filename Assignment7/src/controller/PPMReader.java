@@ -0,0 +1,351 @@
+package controller;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import model.ImageModel;
+import model.MappedImageModel;
+import model.PackedImageModel;
+import model.PackedPixels;
+
+/**
+ * Reads images in the PPM format from a channel of bytes, in either the plain (P3) or the
+ * binary (P6) form. The channel is read in large blocks into a buffer. Plain images are split
+ * into numbers by hand as they are read, skipping comments (from a '#' to the end of its line)
+ * wherever they appear. Binary images hold one or two bytes per sample after the header, and
+ * are read in bulk a block of rows at a time. Either way, pixels are written straight into
+ * the array of packed values backing the resulting PackedImageModel.
+ *
+ * <p>The image models hold 8 bits per component, so binary images with a max value above 255
+ * (two bytes per sample) are scaled down to a max value of 255 as they are read.
+ *
+ * <p>Images in files can instead be mapped into memory as a MappedImageModel, so that their
+ * pixels are never copied onto the heap. A binary image is mapped where it is in the file,
+ * while a plain image is first converted to binary samples in a temporary file.
+ */
+final class PPMReader {
+  private static final int BUFFER_SIZE = 1 << 16;
+  private static final int MAX_BINARY_VALUE = 65535;
+
+  private final ReadableByteChannel in;
+  private final byte[] buffer;
+  private final ByteBuffer wrapped; // the buffer, as filled by the channel
+  private int position; // the index of the next byte to read from the buffer
+  private int limit; // the number of bytes in the buffer, or -1 at the end of the stream
+  private long bufferStart; // the position in the channel of the start of the buffer
+
+  /**
+   * Creates a reader of the given channel, such as a FileChannel.
+   *
+   * @param in the channel to read
+   */
+  PPMReader(ReadableByteChannel in) {
+    this.in = in;
+    this.buffer = new byte[BUFFER_SIZE];
+    this.wrapped = ByteBuffer.wrap(this.buffer);
+    this.position = 0;
+    this.limit = 0;
+    this.bufferStart = 0;
+  }
+
+  /**
+   * Creates a reader of the given stream. The stream does not need to be buffered.
+   *
+   * @param in the stream to read
+   */
+  PPMReader(InputStream in) {
+    this(Channels.newChannel(in));
+  }
+
+  /**
+   * Reads an image in the P3 or P6 format from the channel of this reader.
+   *
+   * @return the image
+   * @throws IOException if the channel cannot be read
+   * @throws IllegalArgumentException if the channel does not hold a valid P3 or P6 image
+   */
+  ImageModel read() throws IOException, IllegalArgumentException {
+    boolean binary = this.readMagicNumber();
+    int imageWidth = this.nextInt();
+    int imageHeight = this.nextInt();
+    int maxImageRGB = this.nextInt();
+    checkHeader(imageWidth, imageHeight, maxImageRGB);
+    if ((long) imageWidth * imageHeight > Integer.MAX_VALUE) {
+      throw new IllegalArgumentException("Image is too large to load");
+    }
+    if (binary) {
+      return this.readBinary(imageWidth, imageHeight, maxImageRGB);
+    }
+    int[] pixels = new int[imageWidth * imageHeight];
+    for (int i = 0; i < pixels.length; i++) {
+      pixels[i] = this.nextPlainPixel(maxImageRGB);
+    }
+    return new PackedImageModel(imageWidth, imageHeight, maxImageRGB, pixels);
+  }
+
+  /**
+   * Maps an image in the P3 or P6 format from the file of this reader into memory, which must
+   * not have been read from yet. The samples of a P6 image are mapped where they are in the
+   * file. The samples of a P3 image are checked and written in binary to a temporary file in
+   * the given directory, which is mapped instead and deleted once the image is no longer
+   * needed. Unlike reading, the samples of a P6 image are not checked against its max value.
+   *
+   * @param temporaryDirectory the directory for temporary files
+   * @return the mapped image
+   * @throws IOException if the file cannot be read or mapped, or the temporary file cannot
+   *         be written
+   * @throws IllegalArgumentException if the file does not hold a valid P3 or P6 image
+   * @throws IllegalStateException if this reader is not reading from a file
+   */
+  ImageModel map(Path temporaryDirectory)
+          throws IOException, IllegalArgumentException, IllegalStateException {
+    if (!(this.in instanceof FileChannel)) {
+      throw new IllegalStateException("Only images in files can be mapped");
+    }
+    boolean binary = this.readMagicNumber();
+    int imageWidth = this.nextInt();
+    int imageHeight = this.nextInt();
+    int maxImageRGB = this.nextInt();
+    checkHeader(imageWidth, imageHeight, maxImageRGB);
+    if (binary) {
+      this.readBinarySeparator(maxImageRGB);
+      return new MappedImageModel((FileChannel) this.in, this.bufferStart + this.position,
+              imageWidth, imageHeight, maxImageRGB, maxImageRGB > 255);
+    }
+    Path temporary = Files.createTempFile(temporaryDirectory, "image", ".raw");
+    try (FileChannel samples = FileChannel.open(temporary,
+            StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+      byte[] block = new byte[BUFFER_SIZE - BUFFER_SIZE % 3];
+      int filled = 0;
+      for (long i = (long) imageWidth * imageHeight; i > 0; i--) {
+        int argb = this.nextPlainPixel(maxImageRGB);
+        block[filled++] = (byte) PackedPixels.red(argb);
+        block[filled++] = (byte) PackedPixels.green(argb);
+        block[filled++] = (byte) PackedPixels.blue(argb);
+        if (filled == block.length || i == 1) {
+          ByteBuffer written = ByteBuffer.wrap(block, 0, filled);
+          while (written.hasRemaining()) {
+            samples.write(written);
+          }
+          filled = 0;
+        }
+      }
+      return new MappedImageModel(samples, 0, imageWidth, imageHeight, maxImageRGB, false);
+    } finally {
+      try {
+        Files.delete(temporary); // a mapping stays valid on systems that allow this
+      } catch (IOException e) {
+        temporary.toFile().deleteOnExit();
+      }
+    }
+  }
+
+  // reads the magic number at the start of the image, returning whether it is binary (P6)
+  private boolean readMagicNumber() throws IOException, IllegalArgumentException {
+    String magic = this.nextToken();
+    boolean binary = "P6".equals(magic);
+    if (!binary && !"P3".equals(magic)) {
+      throw new IllegalArgumentException("Image must start with"
+              + " correct identifying number (P3 or P6)");
+    }
+    return binary;
+  }
+
+  // throws an exception if the size or max value read from a header is not positive
+  private static void checkHeader(int width, int height, int maxValue)
+          throws IllegalArgumentException {
+    if (width <= 0 || height <= 0 || maxValue < 0) {
+      throw new IllegalArgumentException(
+              "Height, width, and max RGB values cannot be negative");
+    }
+  }
+
+  // reads the next three numbers of a P3 image as a packed pixel, checking them
+  private int nextPlainPixel(int maxImageRGB) throws IOException, IllegalArgumentException {
+    int red = this.nextInt();
+    int green = this.nextInt();
+    int blue = this.nextInt();
+    if (red < 0 || red > 255
+            || green < 0 || green > 255
+            || blue < 0 || blue > 255) {
+      throw new IllegalArgumentException("Invalid RGB value");
+    } else if (red > maxImageRGB || green > maxImageRGB || blue > maxImageRGB) {
+      throw new IllegalArgumentException(
+              "Found number larger than maximum expected RGB value");
+    }
+    return PackedPixels.pack(255, red, green, blue);
+  }
+
+  // checks the max value of a P6 image and reads the one whitespace byte before its samples
+  private void readBinarySeparator(int maxValue) throws IOException, IllegalArgumentException {
+    if (maxValue < 1 || maxValue > MAX_BINARY_VALUE) {
+      throw new IllegalArgumentException("Invalid max RGB value for a P6 image");
+    }
+    if (!isWhitespace(this.peek())) {
+      throw new IllegalArgumentException("Invalid dimensions/RGB value");
+    }
+    this.position++;
+  }
+
+  // reads the samples of a P6 image, whose header has been read up to its max value
+  private ImageModel readBinary(int width, int height, int maxValue)
+          throws IOException, IllegalArgumentException {
+    this.readBinarySeparator(maxValue);
+    boolean wide = maxValue > 255;
+    if ((long) width * (wide ? 6 : 3) > Integer.MAX_VALUE) {
+      throw new IllegalArgumentException("Image is too large to load");
+    }
+    int rowBytes = width * (wide ? 6 : 3);
+    int rowsPerBlock = Math.max(1, Math.min(height, BUFFER_SIZE / rowBytes));
+    byte[] block = new byte[rowsPerBlock * rowBytes];
+    int[] pixels = new int[width * height];
+    int pixel = 0;
+    for (int row = 0; row < height; row += rowsPerBlock) {
+      int length = Math.min(rowsPerBlock, height - row) * rowBytes;
+      this.readFully(block, length);
+      if (wide) {
+        for (int i = 0; i < length; i += 6) {
+          int red = ((block[i] & 0xFF) << 8) | (block[i + 1] & 0xFF);
+          int green = ((block[i + 2] & 0xFF) << 8) | (block[i + 3] & 0xFF);
+          int blue = ((block[i + 4] & 0xFF) << 8) | (block[i + 5] & 0xFF);
+          checkSamples(red, green, blue, maxValue);
+          pixels[pixel++] = PackedPixels.pack(255, scale(red, maxValue),
+                  scale(green, maxValue), scale(blue, maxValue));
+        }
+      } else {
+        for (int i = 0; i < length; i += 3) {
+          int red = block[i] & 0xFF;
+          int green = block[i + 1] & 0xFF;
+          int blue = block[i + 2] & 0xFF;
+          checkSamples(red, green, blue, maxValue);
+          pixels[pixel++] = PackedPixels.pack(255, red, green, blue);
+        }
+      }
+    }
+    return new PackedImageModel(width, height, wide ? 255 : maxValue, pixels);
+  }
+
+  // throws an exception if any of the given samples is above the max value of the image
+  private static void checkSamples(int red, int green, int blue, int maxValue) {
+    if (red > maxValue || green > maxValue || blue > maxValue) {
+      throw new IllegalArgumentException(
+              "Found number larger than maximum expected RGB value");
+    }
+  }
+
+  // scales a sample out of the given max value to one out of 255, rounding to the nearest
+  private static int scale(int sample, int maxValue) {
+    return (sample * 255 + maxValue / 2) / maxValue;
+  }
+
+  // fills the start of the given array with the next bytes of the channel, taking any bytes
+  // left in the buffer first and reading the rest straight from the channel
+  private void readFully(byte[] destination, int length)
+          throws IOException, IllegalArgumentException {
+    int filled = 0;
+    if (this.limit > this.position) {
+      filled = Math.min(length, this.limit - this.position);
+      System.arraycopy(this.buffer, this.position, destination, 0, filled);
+      this.position += filled;
+    }
+    ByteBuffer target = ByteBuffer.wrap(destination, filled, length - filled);
+    while (target.hasRemaining()) {
+      if (this.limit < 0 || this.in.read(target) <= 0) {
+        this.limit = -1;
+        throw new IllegalArgumentException("Not enough pixel values supplied");
+      }
+    }
+  }
+
+  // gets the next byte of the stream without consuming it, or -1 at the end of the stream
+  private int peek() throws IOException {
+    if (this.position == this.limit) {
+      if (this.limit < 0) {
+        return -1;
+      }
+      this.bufferStart += this.limit;
+      this.wrapped.clear();
+      this.limit = this.in.read(this.wrapped);
+      this.position = 0;
+      if (this.limit <= 0) {
+        this.limit = -1; // a stream that returns no bytes is treated as ended
+        return -1;
+      }
+    }
+    return this.buffer[this.position] & 0xFF;
+  }
+
+  // whether the given byte separates tokens
+  private static boolean isWhitespace(int b) {
+    return b == ' ' || b == '\n' || b == '\r' || b == '\t' || b == '\f' || b == 0x0B;
+  }
+
+  // skips whitespace and comments, returning the first byte after them without consuming it
+  private int skipSeparators() throws IOException {
+    int b = this.peek();
+    while (b >= 0) {
+      if (b == '#') {
+        while (b >= 0 && b != '\n' && b != '\r') { // the comment ends at the end of the line
+          this.position++;
+          b = this.peek();
+        }
+      } else if (isWhitespace(b)) {
+        this.position++;
+        b = this.peek();
+      } else {
+        return b;
+      }
+    }
+    return b;
+  }
+
+  // reads the next token as a string, or returns null at the end of the stream
+  private String nextToken() throws IOException {
+    int b = this.skipSeparators();
+    if (b < 0) {
+      return null;
+    }
+    StringBuilder token = new StringBuilder();
+    while (b >= 0 && !isWhitespace(b) && b != '#') {
+      token.append((char) b);
+      this.position++;
+      b = this.peek();
+    }
+    return token.toString();
+  }
+
+  // reads the next token as an integer
+  private int nextInt() throws IOException, IllegalArgumentException {
+    int b = this.skipSeparators();
+    if (b < 0) {
+      throw new IllegalArgumentException("Not enough pixel values supplied");
+    }
+    boolean negative = b == '-';
+    if (negative) {
+      this.position++;
+      b = this.peek();
+    }
+    long value = 0;
+    int digits = 0;
+    while (b >= '0' && b <= '9') {
+      value = value * 10 + (b - '0');
+      if (value > Integer.MAX_VALUE) {
+        throw new IllegalArgumentException("Invalid dimensions/RGB value");
+      }
+      digits++;
+      this.position++;
+      b = this.peek();
+    }
+    if (digits == 0 || (b >= 0 && !isWhitespace(b) && b != '#')) {
+      throw new IllegalArgumentException("Invalid dimensions/RGB value");
+    }
+    return (int) (negative ? -value : value);
+  }
+}
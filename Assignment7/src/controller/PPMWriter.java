@@ -0,0 +1,181 @@
+package controller;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+
+import model.ImageModel;
+import model.PackedPixels;
+
+/**
+ * Writes images in the PPM format to a stream of bytes, either in the plain (P3) form, in the
+ * same layout as ImageModel.toPPMFile, or in the binary (P6) form with one or two bytes per
+ * sample. Numbers and samples are written by hand into a reusable buffer that is written out
+ * in large blocks, and the image is read one row at a time, so the whole file is never held
+ * in memory.
+ */
+final class PPMWriter {
+  private static final int BUFFER_SIZE = 1 << 16;
+  private static final int MAX_INT_LENGTH = 11; // "-2147483648"
+  private static final int MAX_WIDE_VALUE = 65535;
+
+  private final OutputStream out;
+  private final byte[] buffer;
+  private int position; // the number of bytes in the buffer that are not written yet
+
+  /**
+   * Creates a writer to the given stream. The stream does not need to be buffered.
+   *
+   * @param out the stream to write to
+   */
+  PPMWriter(OutputStream out) {
+    this.out = out;
+    this.buffer = new byte[BUFFER_SIZE];
+    this.position = 0;
+  }
+
+  /**
+   * Creates a writer to the given channel.
+   *
+   * @param channel the channel to write to
+   */
+  PPMWriter(WritableByteChannel channel) {
+    this(Channels.newOutputStream(channel));
+  }
+
+  /**
+   * Writes the given image in the P3 format, then flushes everything to the stream. The
+   * stream is not closed.
+   *
+   * @param image the image to write
+   * @throws IOException if the stream cannot be written to
+   */
+  void write(ImageModel image) throws IOException {
+    int width = image.getWidth();
+    int height = image.getHeight();
+    this.writeText("P3" + System.lineSeparator());
+    this.writeInt(width);
+    this.writeByte(' ');
+    this.writeInt(height);
+    this.writeText(System.lineSeparator());
+    this.writeInt(image.getMaxRGB());
+    this.writeText(System.lineSeparator());
+    int[] rowData = new int[width];
+    for (int row = 0; row < height; row++) {
+      image.getRowARGB(row, rowData);
+      for (int col = 0; col < width; col++) {
+        int argb = rowData[col];
+        this.writeInt(PackedPixels.red(argb));
+        this.writeByte('\n');
+        this.writeInt(PackedPixels.green(argb));
+        this.writeByte('\n');
+        this.writeInt(PackedPixels.blue(argb));
+        if (row != height - 1 || col != width - 1) {
+          this.writeByte('\n');
+        }
+      }
+    }
+    this.flush();
+  }
+
+  /**
+   * Writes the given image in the binary P6 format, then flushes everything to the stream.
+   * The stream is not closed. With one byte per sample, the max value written is the max
+   * value of the image, kept between 1 and 255. With two bytes per sample, the max value
+   * written is 65535 and each component is scaled up to it, so that reading the file back
+   * gives the same components.
+   *
+   * @param image the image to write
+   * @param wide whether to write two bytes per sample rather than one
+   * @throws IOException if the stream cannot be written to
+   */
+  void writeBinary(ImageModel image, boolean wide) throws IOException {
+    int width = image.getWidth();
+    int height = image.getHeight();
+    // the header ends in exactly one whitespace byte, so no line separator is used here
+    this.writeText("P6\n");
+    this.writeInt(width);
+    this.writeByte(' ');
+    this.writeInt(height);
+    this.writeByte('\n');
+    this.writeInt(wide ? MAX_WIDE_VALUE : Math.max(1, Math.min(255, image.getMaxRGB())));
+    this.writeByte('\n');
+    int[] rowData = new int[width];
+    for (int row = 0; row < height; row++) {
+      image.getRowARGB(row, rowData);
+      for (int col = 0; col < width; col++) {
+        int argb = rowData[col];
+        if (wide) {
+          this.ensureSpace(6);
+          this.writeWideSample(PackedPixels.red(argb) * 257);
+          this.writeWideSample(PackedPixels.green(argb) * 257);
+          this.writeWideSample(PackedPixels.blue(argb) * 257);
+        } else {
+          this.ensureSpace(3);
+          this.buffer[this.position++] = (byte) PackedPixels.red(argb);
+          this.buffer[this.position++] = (byte) PackedPixels.green(argb);
+          this.buffer[this.position++] = (byte) PackedPixels.blue(argb);
+        }
+      }
+    }
+    this.flush();
+  }
+
+  // writes a two byte sample, most significant byte first, into space already made for it
+  private void writeWideSample(int sample) {
+    this.buffer[this.position++] = (byte) (sample >>> 8);
+    this.buffer[this.position++] = (byte) sample;
+  }
+
+  // writes the buffered bytes to the stream
+  private void flush() throws IOException {
+    this.out.write(this.buffer, 0, this.position);
+    this.position = 0;
+    this.out.flush();
+  }
+
+  // makes room in the buffer for at least the given number of bytes
+  private void ensureSpace(int length) throws IOException {
+    if (this.buffer.length - this.position < length) {
+      this.out.write(this.buffer, 0, this.position);
+      this.position = 0;
+    }
+  }
+
+  // writes one byte
+  private void writeByte(char c) throws IOException {
+    this.ensureSpace(1);
+    this.buffer[this.position++] = (byte) c;
+  }
+
+  // writes text made only of ASCII characters
+  private void writeText(String text) throws IOException {
+    for (int i = 0; i < text.length(); i++) {
+      this.writeByte(text.charAt(i));
+    }
+  }
+
+  // writes the decimal digits of a number
+  private void writeInt(int value) throws IOException {
+    this.ensureSpace(MAX_INT_LENGTH);
+    if (value == Integer.MIN_VALUE) {
+      this.writeText(Integer.toString(value));
+      return;
+    }
+    if (value < 0) {
+      this.buffer[this.position++] = '-';
+      value = -value;
+    }
+    int digits = 1;
+    for (int rest = value / 10; rest > 0; rest /= 10) {
+      digits++;
+    }
+    int end = this.position + digits;
+    for (int i = end - 1; i >= this.position; i--) {
+      this.buffer[i] = (byte) ('0' + value % 10);
+      value /= 10;
+    }
+    this.position = end;
+  }
+}
@@ -1,28 +1,40 @@
 package controller;
 
+import java.awt.Rectangle;
 import java.awt.image.BufferedImage;
+import java.awt.image.ComponentSampleModel;
+import java.awt.image.DataBuffer;
+import java.awt.image.DataBufferByte;
+import java.awt.image.DataBufferInt;
+import java.awt.image.Raster;
+import java.awt.image.SinglePixelPackedSampleModel;
 import java.io.File;
-import java.io.FileOutputStream;
 import java.io.IOException;
-import java.io.OutputStream;
-import java.util.ArrayList;
+import java.io.InterruptedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.NoSuchElementException;
-import java.util.Scanner;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.function.Function;
+import java.util.function.Supplier;
 
 import javax.imageio.ImageIO;
 
 import controller.command.Mosaic;
-import model.ARGBPixel;
 import model.ColorMatrix;
+import model.FusedColorImageModel;
 import model.ImageModel;
+import model.ImageScaling;
 import model.Kernel;
-import model.RasterImageModel;
-import model.Pixel;
-import model.RGBPixel;
+import model.MappedImageModel;
+import model.PackedImageModel;
 import controller.command.Blue;
 import controller.command.Brighten;
 import controller.command.FlipHorizontal;
@@ -41,10 +53,15 @@ import controller.command.Value;
 /**
  * This class represents the stored images of an image processing program dealing with pixel-based
  * images and the ability to load and save images through the program.
+ * A manager is as safe to share between threads as the store it keeps
+ * its images in (see ConcurrentRasterImageManager).
  */
 public class RasterImageManager implements ImageManager {
-  private final Map<String, ImageModel> storedImages;
+  private final ImageStore storedImages;
+  private final Map<String, ImageModel> storedImagesView;
   private final Map<String, Function<String[], ImageCommand>> knownCommands;
+  private final List<ImageListener> listeners;
+  private final ResultCache results; // null if results are always computed
 
   /**
    * Constructs a new object to process images,
@@ -52,8 +69,45 @@ public class RasterImageManager implements ImageManager {
    * that implement the ImageCommand interface.
    */
   public RasterImageManager() {
-    this.storedImages = new HashMap<>();
-    this.knownCommands = new HashMap<>();
+    this(new MemoryImageStore());
+  }
+
+  /**
+   * Constructs a new object to process images, which keeps its images
+   * in the given store, such as a SpillingImageStore to bound the memory
+   * they take, and starts with all the commands that implement the
+   * ImageCommand interface.
+   *
+   * @param store the store to keep images in, which should be empty
+   * @throws IllegalArgumentException if the store is null
+   */
+  public RasterImageManager(ImageStore store) throws IllegalArgumentException {
+    this(store, null);
+  }
+
+  /**
+   * Constructs a new object to process images, which keeps its images
+   * in the given store and gets the results of flipping, filtering,
+   * visualizing components, and downscaling from the given cache when
+   * they were computed before from an image with the same content.
+   * Brightening and color transformations are not cached, as they are
+   * fused into a single pass over the image (see FusedColorImageModel),
+   * and neither are mosaics, which are random.
+   *
+   * @param store the store to keep images in, which should be empty
+   * @param results the cache to keep results in, or null to always compute them
+   * @throws IllegalArgumentException if the store is null
+   */
+  public RasterImageManager(ImageStore store, ResultCache results)
+          throws IllegalArgumentException {
+    if (store == null) {
+      throw new IllegalArgumentException("Arguments cannot be null.");
+    }
+    this.storedImages = store;
+    this.results = results;
+    this.storedImagesView = new StoreView(store);
+    this.knownCommands = new ConcurrentHashMap<>(); // read by every thread using this
+    this.listeners = new CopyOnWriteArrayList<>(); // told about images stored by any thread
     this.addCommands();
   }
 
@@ -78,7 +132,8 @@ public class RasterImageManager implements ImageManager {
 
   /**
    * Loads the specified file into this model's set of stored images
-   * as a RasterImageModel. (Currently only supports loading PPM files.)
+   * as a PackedImageModel. Both plain (P3) and binary (P6) PPM files
+   * are supported, and are told apart by the start of the file.
    *
    * @param filePath the file path where the image is found
    * @throws IOException if the specified path cannot be found.
@@ -88,59 +143,44 @@ public class RasterImageManager implements ImageManager {
       throw new IllegalArgumentException("File path or name cannot be null");
     }
     File imageFile = new File(getAbsoluteFilePath(filePath)); // start from current directory
-    StringBuilder fileText = new StringBuilder();
-    if (imageFile.exists()) {
-      Scanner inFile = new Scanner(imageFile);
-      while (inFile.hasNextLine()) {
-        String line = inFile.nextLine();
-        if (!line.startsWith("#")) {
-          fileText.append(line).append(System.lineSeparator());
-        }
-      }
-      inFile.close();
-    } else {
+    if (!imageFile.exists()) {
       throw new IOException(String.format(
               "File: %s could not be found", filePath));
     }
-    this.storedImages.put(name, parseDataToModel(fileText));
+    try (FileChannel inFile = FileChannel.open(imageFile.toPath(), StandardOpenOption.READ)) {
+      this.put(name, new PPMReader(inFile).read());
+    }
   }
 
-  private static ImageModel parseDataToModel(StringBuilder fileText)
-          throws IllegalArgumentException {
-    Scanner inText = new Scanner(fileText.toString());
-    if (inText.next().equals("P3")) {
-      try {
-        int imageWidth = inText.nextInt();
-        int imageHeight = inText.nextInt();
-        int maxImageRGB = inText.nextInt();
-        List<List<Pixel>> pixelGrid = new ArrayList<>();
-        for (int row = 0; row < imageHeight; row++) {
-          pixelGrid.add(new ArrayList<>());
-          for (int col = 0; col < imageWidth; col++) {
-            int red = inText.nextInt();
-            int green = inText.nextInt();
-            int blue = inText.nextInt();
-            if (red < 0 || red > 255
-                    || green < 0 || green > 255
-                    || blue < 0 || blue > 255) {
-              throw new IllegalArgumentException("Invalid RGB value");
-            } else if (red > maxImageRGB || green > maxImageRGB || blue > maxImageRGB) {
-              throw new IllegalArgumentException(
-                      "Found number larger than maximum expected RGB value");
-            }
-            pixelGrid.get(row).add(new RGBPixel(red, green, blue));
-          }
-        }
-        inText.close();
-        return new RasterImageModel(imageWidth, imageHeight, maxImageRGB, pixelGrid);
-      } catch (NumberFormatException e) {
-        throw new IllegalArgumentException("Invalid dimensions/RGB value");
-      } catch (NoSuchElementException e) {
-        throw new IllegalArgumentException("Not enough pixel values supplied");
-      }
-    } else {
-      throw new IllegalArgumentException("Image must start with"
-              + " correct identifying number (P3)");
+  /**
+   * Loads the specified PPM file into this model's set of stored images as a
+   * MappedImageModel, whose pixels stay in the file rather than being copied
+   * onto the heap, so that images larger than the heap can still be loaded.
+   * Both plain (P3) and binary (P6) PPM files are supported, though plain
+   * files are first converted to a temporary binary file to be mapped.
+   * Only visualizing components and brightening stream the image from the
+   * file; color transformations, which are fused, and every other operation
+   * copy the whole image onto the heap.
+   *
+   * @param filePath the file path where the image is found
+   * @param name the name to refer to the image as within the program
+   * @throws IOException if the file cannot be found or mapped
+   * @throws IllegalArgumentException if any parameters are null or the file is not valid
+   */
+  @Override
+  public void loadMapped(String filePath, String name)
+          throws IOException, IllegalArgumentException {
+    if (filePath == null || name == null) {
+      throw new IllegalArgumentException("File path or name cannot be null");
+    }
+    File imageFile = new File(getAbsoluteFilePath(filePath)); // start from current directory
+    if (!imageFile.exists()) {
+      throw new IOException(String.format(
+              "File: %s could not be found", filePath));
+    }
+    try (FileChannel inFile = FileChannel.open(imageFile.toPath(), StandardOpenOption.READ)) {
+      this.put(name, new PPMReader(inFile).map(
+              Paths.get(System.getProperty("java.io.tmpdir"))));
     }
   }
 
@@ -171,77 +211,163 @@ public class RasterImageManager implements ImageManager {
     if (filePath == null || name == null || fileFormat == null) {
       throw new IllegalArgumentException("Parameters cannot be null");
     }
-    if (fileFormat == ImageFileFormat.PPM) {
+    if (fileFormat == ImageFileFormat.PPM || fileFormat == ImageFileFormat.PPM_BINARY
+            || fileFormat == ImageFileFormat.PPM_BINARY_16) {
       this.loadPPM(filePath, name);
       return;
     }
     File inFile = new File(getAbsoluteFilePath(filePath));
     if (inFile.exists()) {
       BufferedImage im;
-      List<List<Pixel>> imageData = new ArrayList<>();
       try {
         im = ImageIO.read(inFile);
-        int pixel;
-        int max = 0;
-        for (int row = 0; row < im.getHeight(); row++) {
-          imageData.add(new ArrayList<>());
-          for (int col = 0; col < im.getWidth(); col++) {
-            pixel = im.getRGB(col, row);
-            int r = (pixel >> 16) & 0xFF;
-            int g = (pixel >> 8) & 0xFF;
-            int b = (pixel & 0xFF);
-            max = Math.max(max, Math.max(r, Math.max(g, b)));
-            imageData.get(row).add(new ARGBPixel(
-                    ((pixel >> 24) & 0xFF), r, g, b));
-          }
-        }
-        this.storedImages.put(name, new RasterImageModel(im.getWidth(),
-                im.getHeight(), max, imageData));
       } catch (IOException e) {
         throw new IOException("Could not open file");
       }
+      if (im == null) {
+        throw new IOException("Could not open file");
+      }
+      this.put(name, toModel(im));
     } else {
       throw new IOException("File does not exist.");
     }
   }
 
+  // converts an image read by ImageIO to a PackedImageModel, reading the array behind its
+  // raster directly for the usual layouts instead of converting each pixel through its color
+  // model, and using that array as the pixels of the model when it already holds packed ARGB
+  private static ImageModel toModel(BufferedImage im) {
+    int width = im.getWidth();
+    int height = im.getHeight();
+    int[] imageData = readRaster(im);
+    if (imageData == null) { // any other layout is converted in bulk by the image itself
+      imageData = im.getRGB(0, 0, width, height, null, 0, width);
+    }
+    int max = 0;
+    for (int pixel : imageData) {
+      int r = (pixel >> 16) & 0xFF;
+      int g = (pixel >> 8) & 0xFF;
+      int b = (pixel & 0xFF);
+      max = Math.max(max, Math.max(r, Math.max(g, b)));
+    }
+    return new PackedImageModel(width, height, max, imageData);
+  }
+
+  // gets the packed ARGB pixels of an image with one of the usual layouts straight from its
+  // raster, or returns null for any other layout
+  private static int[] readRaster(BufferedImage im) {
+    Raster raster = im.getRaster();
+    DataBuffer buffer = raster.getDataBuffer();
+    if (raster.getSampleModelTranslateX() != 0 || raster.getSampleModelTranslateY() != 0
+            || buffer.getNumBanks() != 1 || buffer.getOffset() != 0) {
+      return null;
+    }
+    int size = im.getWidth() * im.getHeight();
+    switch (im.getType()) {
+      case BufferedImage.TYPE_INT_ARGB:
+      case BufferedImage.TYPE_INT_RGB:
+        if (!(raster.getSampleModel() instanceof SinglePixelPackedSampleModel)
+                || ((SinglePixelPackedSampleModel) raster.getSampleModel()).getScanlineStride()
+                != im.getWidth() || buffer.getSize() != size) {
+          return null;
+        }
+        int[] data = ((DataBufferInt) buffer).getData(); // the image is not used after this
+        if (im.getType() == BufferedImage.TYPE_INT_RGB) {
+          for (int i = 0; i < size; i++) {
+            data[i] |= 0xFF000000; // the alpha bits of these images are not used, so set them
+          }
+        }
+        return data;
+      case BufferedImage.TYPE_3BYTE_BGR:
+      case BufferedImage.TYPE_4BYTE_ABGR:
+        int samples = im.getType() == BufferedImage.TYPE_3BYTE_BGR ? 3 : 4;
+        if (!(raster.getSampleModel() instanceof ComponentSampleModel)
+                || ((ComponentSampleModel) raster.getSampleModel()).getPixelStride() != samples
+                || ((ComponentSampleModel) raster.getSampleModel()).getScanlineStride()
+                != im.getWidth() * samples) {
+          return null;
+        }
+        byte[] bytes = ((DataBufferByte) buffer).getData();
+        int[] pixels = new int[size];
+        for (int i = 0, j = 0; i < size; i++, j += samples) {
+          int alpha = samples == 4 ? bytes[j] & 0xFF : 0xFF;
+          int blue = j + samples - 3; // blue, green, and red follow any alpha
+          pixels[i] = (alpha << 24) | ((bytes[blue + 2] & 0xFF) << 16)
+                  | ((bytes[blue + 1] & 0xFF) << 8) | (bytes[blue] & 0xFF);
+        }
+        return pixels;
+      default:
+        return null;
+    }
+  }
+
   /**
    * Saves the given image to the specified file path, which includes the desired
-   * file name and extension. (Currently only supports writing to PPM files.)
+   * file name and extension, as a plain (P3) or binary (P6) PPM file.
    *
    * @param imageName the name of the image to be saved
    * @param filePath the file path to save the image to
+   * @param fileFormat the kind of PPM file to save as
    * @throws IOException if file cannot be created
    * @throws IllegalArgumentException if any parameters are null
    * @throws IllegalStateException if image cannot be found
    */
-  private void savePPM(String imageName, String filePath)
+  private void savePPM(String imageName, String filePath, ImageFileFormat fileFormat)
           throws IOException, IllegalArgumentException {
     if (imageName == null || filePath == null) {
       throw new IllegalArgumentException("Parameters cannot be null");
     }
-    ImageModel image = storedImages.getOrDefault(imageName, null);
+    ImageModel image = storedImages.get(imageName);
     if (image == null) {
       throw new IllegalStateException("Image not found.");
     }
-    String outputText = image.toPPMFile();
     File outputFile = new File(getAbsoluteFilePath(filePath)); // start from current directory
-    boolean createdSuccessfully = true;
-    if (!outputFile.exists()) {
-      try {
-        createdSuccessfully = outputFile.createNewFile();
-      } catch (IOException e) {
-        throw new IOException("Could not create file");
+    writeWhole(outputFile, file -> {
+      try (FileChannel outFile = FileChannel.open(file.toPath(),
+              StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+        PPMWriter writer = new PPMWriter(outFile); // streamed in blocks, never one whole string
+        if (fileFormat == ImageFileFormat.PPM) {
+          writer.write(image);
+        } else {
+          writer.writeBinary(image, fileFormat == ImageFileFormat.PPM_BINARY_16);
+        }
       }
+    });
+  }
+
+  // something that writes a saved image to a file
+  private interface FileWrite {
+    void write(File file) throws IOException;
+  }
+
+  // writes a file by writing a new file next to it, then moving that into its place once it
+  // is whole, so a save that fails or is interrupted part way (which closes a FileChannel in
+  // the middle of a write) leaves any file already there as it was rather than cut short
+  private static void writeWhole(File file, FileWrite write) throws IOException {
+    File partial;
+    try {
+      partial = File.createTempFile("." + file.getName() + "-", ".part",
+              file.getAbsoluteFile().getParentFile());
+    } catch (IOException | IllegalArgumentException e) {
+      throw new IOException("Could not create file");
     }
-    if (createdSuccessfully) {
-      OutputStream outFile = new FileOutputStream(outputFile);
-      for (int i = 0; i < outputText.length(); i++) {
-        outFile.write(outputText.charAt(i));
+    boolean moved = false;
+    try {
+      write.write(partial);
+      if (Thread.currentThread().isInterrupted()) { // the save was cancelled once written
+        throw new InterruptedIOException("Save was interrupted.");
+      }
+      try {
+        Files.move(partial.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                StandardCopyOption.ATOMIC_MOVE);
+      } catch (AtomicMoveNotSupportedException e) {
+        Files.move(partial.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+      }
+      moved = true;
+    } finally {
+      if (!moved) {
+        Files.deleteIfExists(partial.toPath());
       }
-      outFile.close();
-    } else {
-      throw new IOException("Could not create file");
     }
   }
 
@@ -252,7 +378,8 @@ public class RasterImageManager implements ImageManager {
    * @param imageName the name of the image to be saved
    * @param filePath the file path to save the image to, including the file name
    * @param fileFormat the format to save the file as
-   * @throws IOException if the file could not be saved
+   * @throws IOException if the file could not be saved, including when the thread saving it is
+   *         interrupted, leaving any file already at the path as it was
    * @throws IllegalArgumentException if the provided values are null/invalid
    */
   @Override
@@ -261,11 +388,12 @@ public class RasterImageManager implements ImageManager {
     if (imageName == null || filePath == null || fileFormat == null) {
       throw new IllegalArgumentException("Parameters cannot be null");
     }
-    if (fileFormat == ImageFileFormat.PPM) {
-      this.savePPM(imageName, filePath);
+    if (fileFormat == ImageFileFormat.PPM || fileFormat == ImageFileFormat.PPM_BINARY
+            || fileFormat == ImageFileFormat.PPM_BINARY_16) {
+      this.savePPM(imageName, filePath, fileFormat);
       return;
     }
-    ImageModel model = this.getImage(imageName);
+    ImageModel model = this.findImage(imageName);
     int format;
     if (fileFormat == ImageFileFormat.PNG) {
       format = BufferedImage.TYPE_INT_ARGB;
@@ -273,42 +401,49 @@ public class RasterImageManager implements ImageManager {
       format = BufferedImage.TYPE_INT_RGB;
     }
     BufferedImage outIm = new BufferedImage(model.getWidth(), model.getHeight(), format);
-    int mask = 0xFFFFFFFF;
-    Pixel pixel;
-    int color;
-    for (int row = 0; row < model.getHeight(); row++) {
-      for (int col = 0; col < model.getWidth(); col++) {
-        pixel = model.getPixel(row, col);
-        color = ((pixel.getAlpha() << 24) & mask)
-                + ((pixel.getRed() << 16) & mask)
-                + ((pixel.getGreen() << 8) & mask)
-                + (pixel.getBlue() & mask);
-        outIm.setRGB(col, row, color);
+    // both formats store packed ARGB values in a single array, so the pixels are copied
+    // straight into it rather than converted one at a time through the color model
+    int[] outData = ((DataBufferInt) outIm.getRaster().getDataBuffer()).getData();
+    model.getRegionARGB(new Rectangle(0, 0, model.getWidth(), model.getHeight()),
+            outData, 0, model.getWidth());
+    if (format == BufferedImage.TYPE_INT_RGB) {
+      for (int i = 0; i < outData.length; i++) {
+        outData[i] &= 0x00FFFFFF; // clear the alpha bits, which this format has no place for
       }
     }
     try {
       File outFile = new File(getAbsoluteFilePath(filePath));
-      boolean createdSuccessfully;
-      if (!outFile.exists()) {
-        createdSuccessfully = outFile.createNewFile();
-      } else {
-        createdSuccessfully = true;
-      }
-      if (createdSuccessfully) {
-        ImageIO.write(outIm, fileFormat.toString(), outFile);
-      } else {
-        throw new IOException("Could not write to file");
-      }
+      writeWhole(outFile, file -> ImageIO.write(outIm, fileFormat.toString(), file));
     } catch (IOException e) {
       throw new IOException("Could not save file");
     }
   }
 
+  @Override
+  public void store(String name, ImageModel image) throws IllegalArgumentException {
+    checkNull(name, image);
+    this.put(name, image);
+  }
+
+  @Override
+  public void remove(String name) throws IllegalArgumentException {
+    checkNull(name);
+    this.storedImages.remove(name);
+  }
+
   @Override
   public Map<String, ImageModel> getStoredImages() {
-    Map<String, ImageModel> storedImageCopy = new HashMap<>();
-    storedImageCopy.putAll(this.storedImages);
-    return storedImageCopy;
+    return this.storedImages.snapshot();
+  }
+
+  @Override
+  public ImageModel getImage(String name) {
+    return name == null ? null : this.storedImages.get(name);
+  }
+
+  @Override
+  public Map<String, ImageModel> getStoredImagesView() {
+    return this.storedImagesView;
   }
 
   @Override
@@ -318,47 +453,147 @@ public class RasterImageManager implements ImageManager {
     return knownCommandsCopy;
   }
 
+  @Override
+  public Function<String[], ImageCommand> getCommand(String name) {
+    return name == null ? null : this.knownCommands.get(name);
+  }
+
+  @Override
+  public void addImageListener(ImageListener listener) throws IllegalArgumentException {
+    checkNull(listener);
+    this.listeners.add(listener);
+  }
+
+  @Override
+  public void removeImageListener(ImageListener listener) {
+    this.listeners.remove(listener);
+  }
+
   @Override
   public void visualizeComponent(ImageModel.Component component,
                                  String imageName, String resultName)
           throws IllegalArgumentException {
     checkNull(component,imageName,resultName);
-    this.storedImages.put(resultName, this.getImage(imageName).visualizeComponent(component));
+    ImageModel image = this.findImage(imageName);
+    this.putResult(resultName, this.cached(image, "visualize-component", component.toString(),
+            () -> image.visualizeComponent(component)));
   }
 
   @Override
   public void flip(String direction, String imageName, String resultName)
           throws IllegalArgumentException {
     checkNull(direction, imageName, resultName); // throws an exception/won't go on if any are null
-    this.storedImages.put(resultName, this.getImage(imageName).flip(direction));
+    ImageModel image = this.findImage(imageName);
+    this.putResult(resultName, this.cached(image, "flip", direction,
+            () -> image.flip(direction)));
   }
 
   @Override
   public void brighten(int increment, String imageName, String resultName)
           throws IllegalArgumentException {
     checkNull(imageName, resultName);
-    this.storedImages.put(resultName, this.getImage(imageName).brighten(increment));
+    ImageModel image = this.findImage(imageName);
+    if (image instanceof MappedImageModel) { // streams from the file rather than copying it
+      this.putResult(resultName, image.brighten(increment));
+      return;
+    }
+    // computed when first needed, so a chain of color steps makes one pass over the image
+    this.putResult(resultName, FusedColorImageModel.brighten(image, increment));
   }
 
   @Override
   public void filter(Kernel kernel, String imageName, String resultName)
           throws IllegalArgumentException {
     checkNull(kernel, imageName, resultName);
-    this.storedImages.put(resultName, this.getImage(imageName).filter(kernel));
+    ImageModel image = this.findImage(imageName);
+    this.putResult(resultName, this.cached(image, "filter", kernelArguments(kernel),
+            () -> image.filter(kernel)));
   }
 
   @Override
   public void colorTransform(ColorMatrix matrix, String imageName, String resultName)
           throws IllegalArgumentException {
     checkNull(matrix, imageName, resultName);
-    this.storedImages.put(resultName, this.getImage(imageName).colorTransform(matrix));
+    this.putResult(resultName,
+            FusedColorImageModel.colorTransform(this.findImage(imageName), matrix));
   }
 
   @Override
   public void mosaic(int seeds, String imageName, String resultName)
       throws IllegalArgumentException {
     checkNull(imageName, resultName);
-    this.storedImages.put(resultName, this.getImage(imageName).mosaic(seeds));
+    this.putResult(resultName, this.findImage(imageName).mosaic(seeds));
+  }
+
+  @Override
+  public void downscale(int maxWidth, int maxHeight, String imageName, String resultName)
+          throws IllegalArgumentException {
+    checkNull(imageName, resultName);
+    ImageModel image = this.findImage(imageName);
+    this.putResult(resultName, this.cached(image, "downscale", maxWidth + " " + maxHeight,
+            () -> ImageScaling.downscale(image, maxWidth, maxHeight)));
+  }
+
+  /**
+   * Stores the result of an operation under the given name. Results replace any image
+   * already stored under the name, though subclasses may store them differently.
+   *
+   * @param resultName the name to store the result under
+   * @param image the result to store
+   * @throws IllegalArgumentException if the result cannot be stored under the name
+   */
+  protected void storeResult(String resultName, ImageModel image)
+          throws IllegalArgumentException {
+    this.storedImages.put(resultName, image);
+  }
+
+  /**
+   * Tells every listener that an image has been stored under the given name. Subclasses that
+   * store images other than through this class should call this after storing them.
+   *
+   * @param name the name the image was stored under
+   * @param image the image that was stored
+   */
+  protected void notifyStored(String name, ImageModel image) {
+    for (ImageListener listener : this.listeners) {
+      listener.onImageStored(name, image);
+    }
+  }
+
+  // stores an image that was loaded or given, and then tells the listeners about it
+  private void put(String name, ImageModel image) {
+    this.storedImages.put(name, image);
+    this.notifyStored(name, image);
+  }
+
+  // stores the result of an operation, and then tells the listeners about it
+  private void putResult(String resultName, ImageModel image) {
+    this.storeResult(resultName, image);
+    this.notifyStored(resultName, image);
+  }
+
+  // gets the result of an operation on an image from the cache, or computes it if there is no
+  // cache or the result is not in it
+  private ImageModel cached(ImageModel image, String operation, String arguments,
+                            Supplier<ImageModel> compute) {
+    if (this.results == null) {
+      return compute.get();
+    }
+    return this.results.getOrCompute(image, operation, arguments, compute);
+  }
+
+  // writes the values of a kernel row by row, the same way for any kernel with those values
+  private static String kernelArguments(Kernel kernel) {
+    StringBuilder arguments = new StringBuilder();
+    arguments.append(kernel.getWidth()).append('x').append(kernel.getHeight());
+    int top = -(kernel.getHeight() / 2); // the center of the kernel is at 0, 0
+    int left = -(kernel.getWidth() / 2);
+    for (int row = top; row < top + kernel.getHeight(); row++) {
+      for (int col = left; col < left + kernel.getWidth(); col++) {
+        arguments.append(' ').append(kernel.get(row, col) + 0.0); // makes -0.0 the same as 0.0
+      }
+    }
+    return arguments.toString();
   }
 
   // throws an exception if any of the arguments is null
@@ -371,7 +606,7 @@ public class RasterImageManager implements ImageManager {
   }
 
   // gets the image corresponding to the given string, or throws an exception if it is not found
-  private ImageModel getImage(String imageName) throws IllegalArgumentException {
+  private ImageModel findImage(String imageName) throws IllegalArgumentException {
     ImageModel image = this.storedImages.get(imageName);
     if (image == null) {
       throw new IllegalArgumentException("Image not found.");
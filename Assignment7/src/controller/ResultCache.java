@@ -0,0 +1,229 @@
+package controller;
+
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Objects;
+import java.util.function.Supplier;
+
+import model.ContentHash;
+import model.ImageModel;
+import model.PackedImageModel;
+
+/**
+ * Class for a cache of the results of image operations, so that running an operation again
+ * on an image with the same content, with the same arguments, gives the result without
+ * computing it. Results are found by the content hash (see ContentHash), size, and max RGB
+ * value of the image they were computed from, and by the name and arguments of the operation,
+ * so an image loaded again from an unchanged file finds the results of the first one. A result
+ * found by its hash is only used if the pixels it was computed from, which the cache keeps,
+ * are the same as the pixels of the image, so two images with the same hash cannot be mixed up.
+ *
+ * <p>Only images whose pixels are on the heap, PackedImageModels and FusedColorImageModels,
+ * are looked up. Other images, like a MappedImageModel, would have to be read in full to hash
+ * them on every call, so operations on them are always computed.
+ *
+ * <p>The cache keeps the pixels of results, and of the images they were computed from, within
+ * a budget of bytes, dropping the results used least recently when it goes over. Each result
+ * given from the cache is a new PackedImageModel sharing the pixels of the cached result, with
+ * the max RGB value the result had when it was computed. Only results that are
+ * PackedImageModels are kept, as other images either compute their pixels when first used or
+ * keep them somewhere other than the heap. The cache counts how many results were found
+ * (hits), how many had to be computed (misses), and how many it dropped to stay within the
+ * budget (evictions).
+ */
+public class ResultCache {
+  private final long budget;
+  private final LinkedHashMap<Key, Result> results; // in order of use, least recent first
+  // how many results were computed from each array of pixels kept, by identity
+  private final IdentityHashMap<int[], Integer> sources;
+  private long cachedBytes;
+  private long hits;
+  private long misses;
+  private long evictions;
+
+  /**
+   * Constructs a cache with no results.
+   *
+   * @param budget the number of bytes of results to keep
+   * @throws IllegalArgumentException if the budget is negative
+   */
+  public ResultCache(long budget) throws IllegalArgumentException {
+    if (budget < 0) {
+      throw new IllegalArgumentException("Budget cannot be negative.");
+    }
+    this.budget = budget;
+    this.results = new LinkedHashMap<>(16, 0.75f, true);
+    this.sources = new IdentityHashMap<>();
+    this.cachedBytes = 0;
+    this.hits = 0;
+    this.misses = 0;
+    this.evictions = 0;
+  }
+
+  /**
+   * Gets the result of an operation on an image from this cache, or computes it and keeps it
+   * if it is not cached yet. The operation is computed without holding a lock on this cache,
+   * so operations on other images are not held up by it.
+   *
+   * @param image the image the operation is run on
+   * @param operation the name of the operation
+   * @param arguments the arguments of the operation, written the same way every time
+   * @param compute computes the result of the operation on the image
+   * @return the result of the operation
+   * @throws IllegalArgumentException if any parameters are null, or computing the result
+   *         throws it
+   */
+  public ImageModel getOrCompute(ImageModel image, String operation, String arguments,
+                                 Supplier<ImageModel> compute) throws IllegalArgumentException {
+    if (image == null || operation == null || arguments == null || compute == null) {
+      throw new IllegalArgumentException("Arguments cannot be null.");
+    }
+    int[] pixels = PackedImageModel.sharedBuffer(image);
+    if (pixels == null) { // not on the heap, so not worth hashing every time
+      return compute.get();
+    }
+    Key key = new Key(ContentHash.hash(image), image.getWidth(), image.getHeight(),
+            image.getMaxRGB(), operation, arguments);
+    Result cached;
+    synchronized (this) {
+      cached = this.results.get(key); // moves the result to the most recently used
+    }
+    // compared without holding the lock, as comparing two large images takes a while
+    boolean hit = cached != null
+            && (cached.source == pixels || Arrays.equals(cached.source, pixels));
+    synchronized (this) {
+      if (hit) {
+        this.hits++;
+      } else {
+        this.misses++;
+      }
+    }
+    if (hit) {
+      return new PackedImageModel(cached.width, cached.height, cached.maxRGB, cached.pixels);
+    }
+    ImageModel result = compute.get();
+    if (result instanceof PackedImageModel && result != image) {
+      this.keep(key, new Result(pixels, result));
+    }
+    return result;
+  }
+
+  /**
+   * Gets the number of results found in this cache.
+   *
+   * @return the number of hits
+   */
+  public synchronized long getHits() {
+    return this.hits;
+  }
+
+  /**
+   * Gets the number of results that were not in this cache and had to be computed.
+   *
+   * @return the number of misses
+   */
+  public synchronized long getMisses() {
+    return this.misses;
+  }
+
+  /**
+   * Gets the number of results dropped from this cache to stay within its budget.
+   *
+   * @return the number of evictions
+   */
+  public synchronized long getEvictions() {
+    return this.evictions;
+  }
+
+  /**
+   * Gets the number of bytes of pixels of the results kept in this cache, and of the images
+   * they were computed from.
+   *
+   * @return the number of cached bytes
+   */
+  public synchronized long getCachedBytes() {
+    return this.cachedBytes;
+  }
+
+  // keeps a result, then drops the results used least recently until within the budget; a
+  // result over the whole budget is not kept at all
+  private synchronized void keep(Key key, Result result) {
+    long sourceBytes = this.sources.containsKey(result.source) ? 0 : 4L * result.source.length;
+    if (result.bytes + sourceBytes > this.budget || this.results.containsKey(key)) {
+      return;
+    }
+    this.results.put(key, result);
+    this.sources.merge(result.source, 1, Integer::sum);
+    this.cachedBytes += result.bytes + sourceBytes;
+    Iterator<Result> iterator = this.results.values().iterator();
+    while (this.cachedBytes > this.budget) {
+      Result dropped = iterator.next();
+      iterator.remove();
+      this.cachedBytes -= dropped.bytes;
+      if (this.sources.merge(dropped.source, -1, Integer::sum) == 0) {
+        this.sources.remove(dropped.source);
+        this.cachedBytes -= 4L * dropped.source.length;
+      }
+      this.evictions++;
+    }
+  }
+
+  // the content of an image, and an operation run on it
+  private static final class Key {
+    private final long hash;
+    private final int width;
+    private final int height;
+    private final int maxRGB;
+    private final String operation;
+    private final String arguments;
+
+    private Key(long hash, int width, int height, int maxRGB, String operation,
+                String arguments) {
+      this.hash = hash;
+      this.width = width;
+      this.height = height;
+      this.maxRGB = maxRGB;
+      this.operation = operation;
+      this.arguments = arguments;
+    }
+
+    @Override
+    public boolean equals(Object other) {
+      if (!(other instanceof Key)) {
+        return false;
+      }
+      Key that = (Key) other;
+      return this.hash == that.hash && this.width == that.width
+              && this.height == that.height && this.maxRGB == that.maxRGB
+              && this.operation.equals(that.operation) && this.arguments.equals(that.arguments);
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(this.hash, this.width, this.height, this.maxRGB, this.operation,
+              this.arguments);
+    }
+  }
+
+  // the pixels of a result, its max RGB value when it was computed, and the pixels it was
+  // computed from
+  private static final class Result {
+    private final int[] source;
+    private final int[] pixels;
+    private final int width;
+    private final int height;
+    private final int maxRGB;
+    private final long bytes;
+
+    private Result(int[] source, ImageModel image) {
+      this.source = source;
+      this.pixels = PackedImageModel.sharedBuffer(image);
+      this.width = image.getWidth();
+      this.height = image.getHeight();
+      this.maxRGB = image.getMaxRGB();
+      this.bytes = 4L * this.pixels.length;
+    }
+  }
+}
@@ -0,0 +1,352 @@
+package controller;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+import model.ImageModel;
+import model.MappedImageModel;
+import model.PackedImageModel;
+import model.PackedPixels;
+
+/**
+ * Class for a store that keeps the images on the heap within a budget of bytes. When storing
+ * or reloading an image takes the heap over the budget, the images used least recently are
+ * spilled to files in a temporary directory and dropped from the heap, and they are read back
+ * the next time they are asked for. The image most recently used always stays on the heap,
+ * even when it alone is over the budget.
+ *
+ * <p>A spilled image takes three bytes per pixel in its file, or four if any pixel is not
+ * opaque, where the heap holds four. The file of an image is kept until the image is replaced,
+ * so an image that is spilled again after being read back does not have to be written again.
+ * Images mapped from files are never spilled, as their pixels are not on the heap.
+ *
+ * <p>The store counts how many images asked for were on the heap (hits) and how many had to
+ * be read back (misses), and how many bytes it has written to spill files.
+ */
+public class SpillingImageStore implements ImageStore {
+  private static final int BUFFER_SIZE = 1 << 16;
+
+  private final long budget;
+  private final Path directory;
+  private final LinkedHashMap<String, Entry> entries; // in order of use, least recent first
+  private long residentBytes; // the heap taken by the images held on the heap
+  private long hits;
+  private long misses;
+  private long spilledBytes;
+
+  /**
+   * Constructs a store with no images that spills to the temporary directory of the system.
+   *
+   * @param budget the number of bytes of images to keep on the heap
+   * @throws IllegalArgumentException if the budget is negative
+   */
+  public SpillingImageStore(long budget) throws IllegalArgumentException {
+    this(budget, new File(System.getProperty("java.io.tmpdir")).toPath());
+  }
+
+  /**
+   * Constructs a store with no images that spills to files in the given directory.
+   *
+   * @param budget the number of bytes of images to keep on the heap
+   * @param directory the directory to write spilled images to
+   * @throws IllegalArgumentException if the budget is negative or the directory is null
+   */
+  public SpillingImageStore(long budget, Path directory) throws IllegalArgumentException {
+    if (budget < 0) {
+      throw new IllegalArgumentException("Budget cannot be negative.");
+    }
+    if (directory == null) {
+      throw new IllegalArgumentException("Directory cannot be null.");
+    }
+    this.budget = budget;
+    this.directory = directory;
+    this.entries = new LinkedHashMap<>(16, 0.75f, true);
+    this.residentBytes = 0;
+    this.hits = 0;
+    this.misses = 0;
+    this.spilledBytes = 0;
+  }
+
+  @Override
+  public synchronized void put(String name, ImageModel image) throws IllegalArgumentException {
+    if (name == null || image == null) {
+      throw new IllegalArgumentException("Arguments cannot be null.");
+    }
+    Entry old = this.entries.remove(name);
+    if (old != null) {
+      this.discard(old);
+    }
+    Entry entry = new Entry(image);
+    this.entries.put(name, entry);
+    this.residentBytes += entry.bytes;
+    this.evict();
+  }
+
+  @Override
+  public synchronized ImageModel get(String name) {
+    Entry entry = this.entries.get(name); // moves the entry to the most recently used
+    if (entry == null) {
+      return null;
+    }
+    if (entry.image != null) {
+      this.hits++;
+      return entry.image;
+    }
+    this.misses++;
+    try {
+      entry.image = this.reload(entry);
+    } catch (IOException e) {
+      throw new IllegalStateException("Could not read back a spilled image.");
+    }
+    this.residentBytes += entry.bytes;
+    this.evict();
+    return entry.image;
+  }
+
+  @Override
+  public synchronized void remove(String name) {
+    Entry entry = this.entries.remove(name);
+    if (entry != null) {
+      this.discard(entry);
+    }
+  }
+
+  @Override
+  public synchronized boolean contains(String name) {
+    return this.entries.containsKey(name); // does not count as a use of the image
+  }
+
+  @Override
+  public synchronized Set<String> names() {
+    return new HashSet<>(this.entries.keySet());
+  }
+
+  @Override
+  public synchronized Map<String, ImageModel> snapshot() {
+    Set<String> names = new HashSet<>(this.entries.keySet());
+    // images are only read back when the map is asked for them
+    return new AbstractMap<>() {
+      @Override
+      public boolean containsKey(Object key) {
+        return names.contains(key);
+      }
+
+      @Override
+      public ImageModel get(Object key) {
+        return names.contains(key) ? SpillingImageStore.this.get((String) key) : null;
+      }
+
+      @Override
+      public Set<Map.Entry<String, ImageModel>> entrySet() {
+        return new AbstractSet<>() {
+          @Override
+          public Iterator<Map.Entry<String, ImageModel>> iterator() {
+            Iterator<String> iterator = names.iterator();
+            return new Iterator<>() {
+              @Override
+              public boolean hasNext() {
+                return iterator.hasNext();
+              }
+
+              @Override
+              public Map.Entry<String, ImageModel> next() {
+                String name = iterator.next();
+                return new SimpleImmutableEntry<>(name, SpillingImageStore.this.get(name));
+              }
+            };
+          }
+
+          @Override
+          public int size() {
+            return names.size();
+          }
+        };
+      }
+    };
+  }
+
+  /**
+   * Gets the number of times an image asked for was on the heap.
+   *
+   * @return the number of hits
+   */
+  public synchronized long getHits() {
+    return this.hits;
+  }
+
+  /**
+   * Gets the number of times an image asked for had been spilled and was read back.
+   *
+   * @return the number of misses
+   */
+  public synchronized long getMisses() {
+    return this.misses;
+  }
+
+  /**
+   * Gets the total number of bytes written to spill files.
+   *
+   * @return the number of spilled bytes
+   */
+  public synchronized long getSpilledBytes() {
+    return this.spilledBytes;
+  }
+
+  /**
+   * Gets the number of bytes of images held on the heap.
+   *
+   * @return the number of resident bytes
+   */
+  public synchronized long getResidentBytes() {
+    return this.residentBytes;
+  }
+
+  // spills the images used least recently until the heap is within the budget, keeping the
+  // image used most recently; an image that cannot be written stays on the heap
+  private void evict() {
+    Iterator<Entry> iterator = this.entries.values().iterator();
+    int remaining = this.entries.size();
+    while (this.residentBytes > this.budget && remaining > 1) {
+      Entry entry = iterator.next();
+      remaining--;
+      if (entry.image == null || entry.bytes == 0) {
+        continue;
+      }
+      try {
+        if (entry.file == null) {
+          this.spill(entry);
+        }
+        entry.maxRGB = entry.image.getMaxRGB(); // brightening may have raised it
+        entry.image = null;
+        this.residentBytes -= entry.bytes;
+      } catch (IOException e) {
+        // keep the image on the heap
+      }
+    }
+  }
+
+  // writes the pixels of an image to a new file, three or four bytes per pixel
+  private void spill(Entry entry) throws IOException {
+    ImageModel image = entry.image;
+    int width = image.getWidth();
+    int[] row = new int[width];
+    boolean opaque = true;
+    for (int r = 0; r < image.getHeight() && opaque; r++) {
+      image.getRowARGB(r, row);
+      for (int argb : row) {
+        opaque &= PackedPixels.alpha(argb) == 255;
+      }
+    }
+    int pixelBytes = opaque ? 3 : 4;
+    Path file = Files.createTempFile(this.directory, "spill", ".raw");
+    file.toFile().deleteOnExit();
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+      ByteBuffer buffer = ByteBuffer.allocate(Math.max(BUFFER_SIZE, width * pixelBytes));
+      for (int r = 0; r < image.getHeight(); r++) {
+        if (buffer.remaining() < width * pixelBytes) {
+          this.writeAll(channel, buffer);
+        }
+        image.getRowARGB(r, row);
+        for (int argb : row) {
+          if (!opaque) {
+            buffer.put((byte) PackedPixels.alpha(argb));
+          }
+          buffer.put((byte) PackedPixels.red(argb));
+          buffer.put((byte) PackedPixels.green(argb));
+          buffer.put((byte) PackedPixels.blue(argb));
+        }
+      }
+      this.writeAll(channel, buffer);
+    } catch (IOException e) {
+      Files.deleteIfExists(file);
+      throw e;
+    }
+    entry.file = file;
+    entry.opaque = opaque;
+    this.spilledBytes += (long) width * image.getHeight() * pixelBytes;
+  }
+
+  // writes everything in the buffer to the channel, leaving the buffer empty
+  private void writeAll(FileChannel channel, ByteBuffer buffer) throws IOException {
+    buffer.flip();
+    while (buffer.hasRemaining()) {
+      channel.write(buffer);
+    }
+    buffer.clear();
+  }
+
+  // reads a spilled image back onto the heap
+  private ImageModel reload(Entry entry) throws IOException {
+    int[] pixels = new int[entry.width * entry.height];
+    try (FileChannel channel = FileChannel.open(entry.file, StandardOpenOption.READ)) {
+      ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE - BUFFER_SIZE % 12);
+      int pixel = 0;
+      while (pixel < pixels.length) {
+        if (channel.read(buffer) < 0) {
+          throw new IOException("Spill file is too short");
+        }
+        buffer.flip();
+        if (entry.opaque) {
+          while (buffer.remaining() >= 3 && pixel < pixels.length) {
+            pixels[pixel++] = PackedPixels.pack(255, buffer.get() & 0xFF,
+                    buffer.get() & 0xFF, buffer.get() & 0xFF);
+          }
+        } else {
+          while (buffer.remaining() >= 4 && pixel < pixels.length) {
+            pixels[pixel++] = PackedPixels.pack(buffer.get() & 0xFF, buffer.get() & 0xFF,
+                    buffer.get() & 0xFF, buffer.get() & 0xFF);
+          }
+        }
+        buffer.compact();
+      }
+    }
+    return new PackedImageModel(entry.width, entry.height, entry.maxRGB, pixels);
+  }
+
+  // deletes the spill file of an image that is no longer stored, and forgets its heap
+  private void discard(Entry entry) {
+    if (entry.image != null) {
+      this.residentBytes -= entry.bytes;
+    }
+    if (entry.file != null) {
+      try {
+        Files.deleteIfExists(entry.file);
+      } catch (IOException e) {
+        // it is deleted on exit instead
+      }
+    }
+  }
+
+  // an image in this store, which is either on the heap or spilled to a file
+  private static final class Entry {
+    private ImageModel image; // null while spilled
+    private Path file; // null until first spilled
+    private boolean opaque; // whether the file leaves out alpha
+    private final int width;
+    private final int height;
+    private int maxRGB;
+    private final long bytes; // the heap taken by the image while it is held
+
+    private Entry(ImageModel image) {
+      this.image = image;
+      this.file = null;
+      this.opaque = true;
+      this.width = image.getWidth();
+      this.height = image.getHeight();
+      this.maxRGB = image.getMaxRGB();
+      this.bytes = image instanceof MappedImageModel ? 0 : 4L * this.width * this.height;
+    }
+  }
+}
@@ -0,0 +1,64 @@
+package controller;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+
+import model.ImageModel;
+
+/**
+ * Class for a map that shows the images in a store as they are at the moment it is used,
+ * without copying them, and that cannot be used to change the store. Looking up or checking
+ * for one image goes straight to the store, and only iterating asks the store for its names.
+ */
+class StoreView extends AbstractMap<String, ImageModel> {
+  private final ImageStore store;
+
+  /**
+   * Constructs a view of the given store.
+   *
+   * @param store the store to show the images of
+   */
+  StoreView(ImageStore store) {
+    this.store = store;
+  }
+
+  @Override
+  public ImageModel get(Object key) {
+    return key instanceof String ? this.store.get((String) key) : null;
+  }
+
+  @Override
+  public boolean containsKey(Object key) {
+    return key instanceof String && this.store.contains((String) key);
+  }
+
+  @Override
+  public Set<Map.Entry<String, ImageModel>> entrySet() {
+    return new AbstractSet<>() {
+      @Override
+      public Iterator<Map.Entry<String, ImageModel>> iterator() {
+        Iterator<String> names = StoreView.this.store.names().iterator();
+        return new Iterator<>() {
+          @Override
+          public boolean hasNext() {
+            return names.hasNext();
+          }
+
+          @Override
+          public Map.Entry<String, ImageModel> next() {
+            String name = names.next();
+            return new SimpleImmutableEntry<>(name, StoreView.this.store.get(name));
+          }
+        };
+      }
+
+      @Override
+      public int size() {
+        return StoreView.this.store.names().size();
+      }
+    };
+  }
+}
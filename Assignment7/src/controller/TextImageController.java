@@ -83,10 +83,12 @@ public class TextImageController extends AbstractImageController implements Imag
           } else if (command.equalsIgnoreCase("load")) {
             this.handleLoad(args);
 
+          } else if (command.equalsIgnoreCase("load-mapped")) {
+            this.handleLoadMapped(args);
+
           } else {
             // handle image manipulation commands via command design pattern-style lookup
-            Function<String[], ImageCommand> cmd =
-                    manager.getKnownCommands().getOrDefault(command, null);
+            Function<String[], ImageCommand> cmd = manager.getCommand(command);
             ImageCommand c = this.getCommand(cmd, args);
             if (c == null) { // if a command could not be retrieved,
               continue; // go to the next iteration of the loop to get new inputs
@@ -121,9 +123,13 @@ public class TextImageController extends AbstractImageController implements Imag
             "- menu (display the menu of supported commands)\n" +
             "- load file-path name " +
             "(loads the file at the file path and refer to it by the given name)\n" +
+            "- load-mapped file-path name " +
+            "(loads the PPM file at the file path without copying it into memory, " +
+            "for images too large to load otherwise)\n" +
             "- save file-path image-name" +
             "(save the image with the given name to the specified file path," +
-            " including the file name)\n" +
+            " including the file name; a name ending in .p6.ppm or .p6-16.ppm" +
+            " saves a binary PPM file)\n" +
             "- red-component image-name result-name " +
             "(create a greyscale image using the red component of the given image, " +
             "and refer to the result by the given result name)\n" +
@@ -168,37 +174,6 @@ public class TextImageController extends AbstractImageController implements Imag
             "- q or quit (end the program)\n");
   }
 
-  /**
-   * Returns the ImageFileFormat of the provided image.
-   *
-   * @param filePath the path to find the extension of
-   * @return the file extension
-   * @throws IOException if extension is missing or not supported/invalid
-   */
-  protected ImageFileFormat getFileFormat(String filePath) throws IOException {
-    String[] splitPath = filePath.split("\\.");
-    String extension;
-    if (splitPath.length == 2) {
-      extension = splitPath[1];
-    } else {
-      throw new IOException("Invalid file name (no extension)");
-    }
-    switch (extension) {
-      case "bmp":
-        return ImageFileFormat.BMP;
-      case "png":
-        return ImageFileFormat.PNG;
-      case "jpeg":
-        return ImageFileFormat.JPEG;
-      case "jpg":
-        return ImageFileFormat.JPG;
-      case "ppm":
-        return ImageFileFormat.PPM;
-      default:
-        throw new IOException("Invalid file extension");
-    }
-  }
-
   /**
    * Tells the model to save the image, prints an error if unable to do so.
    */
@@ -235,6 +210,21 @@ public class TextImageController extends AbstractImageController implements Imag
     }
   }
 
+  /**
+   * Tells the model to load the PPM file without copying it into memory, prints an error if
+   * unable to do so.
+   */
+  private void handleLoadMapped(String[] args) throws IOException {
+    String filePath = args[1];
+    String name = args[2];
+    try {
+      manager.loadMapped(filePath, name);
+      view.renderMessage("File loaded successfully.\n");
+    } catch (IOException | IllegalArgumentException e) {
+      view.renderMessage("Could not load file.\n");
+    }
+  }
+
   /**
    * Returns an ImageCommand object if one can be found, null if not.
    */
@@ -0,0 +1,44 @@
+package model;
+
+import java.awt.Rectangle;
+
+/**
+ * Holds the argument checks shared by the bulk pixel accessors of the image models.
+ */
+final class BulkAccess {
+
+  // not meant to be instantiated
+  private BulkAccess() {
+  }
+
+  // throws an exception if the row or destination array is invalid for an image of this size
+  static void checkRow(int row, int[] dest, int width, int height)
+          throws IllegalArgumentException {
+    if (row < 0 || row >= height) {
+      throw new IllegalArgumentException("Position out of bounds");
+    }
+    if (dest == null || dest.length < width) {
+      throw new IllegalArgumentException("Destination array is too small for a row");
+    }
+  }
+
+  // throws an exception if the region or destination array is invalid for an image of this size
+  static void checkRegion(Rectangle region, int[] dest, int offset, int stride,
+                          int width, int height) throws IllegalArgumentException {
+    if (region == null || dest == null) {
+      throw new IllegalArgumentException("Arguments cannot be null.");
+    }
+    if (region.x < 0 || region.y < 0 || region.width < 0 || region.height < 0
+            || (long) region.x + region.width > width
+            || (long) region.y + region.height > height) {
+      throw new IllegalArgumentException("Region out of bounds");
+    }
+    if (region.height == 0 || region.width == 0) {
+      return; // nothing will be copied
+    }
+    if (offset < 0 || stride < region.width
+            || offset + (long) (region.height - 1) * stride + region.width > dest.length) {
+      throw new IllegalArgumentException("Destination array is too small for the region");
+    }
+  }
+}
@@ -0,0 +1,149 @@
+package model;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Holds a sequence of color transformations and brightening steps that are applied to each
+ * packed pixel in turn, so a whole sequence makes a single pass over an image. Every step
+ * rounds and clamps its result to 0 to 255 exactly as running it on its own would.
+ *
+ * <p>Steps are kept in groups of an optional color matrix followed by an optional curve.
+ * Consecutive brightening steps are composed into a single curve, which is exact because
+ * each one only maps 8 bit values to 8 bit values. Color matrices are not multiplied
+ * together, since rounding and clamping between them changes the result.
+ */
+final class ColorPipeline {
+  // for each group, its color matrix (red, green, and blue rows), or null for none
+  private final List<double[]> matrices;
+  // for each group, the curve applied after its matrix, or null for none
+  private final List<int[]> curves;
+  // for each step, the group it is in
+  private final List<Integer> stepGroups;
+  // for each step, the curve of its group up to and including that step (null for a matrix)
+  private final List<int[]> stepCurves;
+
+  /**
+   * Creates a pipeline with no steps, which leaves every pixel as it is.
+   */
+  ColorPipeline() {
+    this.matrices = new ArrayList<>();
+    this.curves = new ArrayList<>();
+    this.stepGroups = new ArrayList<>();
+    this.stepCurves = new ArrayList<>();
+  }
+
+  /**
+   * Adds a color transformation with the given matrix to the end of this pipeline.
+   *
+   * @param matrix the matrix of color coefficients
+   */
+  void addColorTransform(ColorMatrix matrix) {
+    Double[] red = matrix.redCoefficients();
+    Double[] green = matrix.greenCoefficients();
+    Double[] blue = matrix.blueCoefficients();
+    this.matrices.add(new double[] {red[0], red[1], red[2], green[0], green[1], green[2],
+        blue[0], blue[1], blue[2]});
+    this.curves.add(null);
+    this.stepGroups.add(this.matrices.size() - 1);
+    this.stepCurves.add(null);
+  }
+
+  /**
+   * Adds brightening by the given amount to the end of this pipeline.
+   *
+   * @param increment the amount to brighten by, where negative values darken
+   */
+  void addBrighten(int increment) {
+    if (this.matrices.isEmpty()) {
+      this.matrices.add(null);
+      this.curves.add(null);
+    }
+    int group = this.matrices.size() - 1;
+    int[] table = PointOperation.brightenTable(increment);
+    int[] previous = this.curves.get(group);
+    if (previous != null) {
+      int[] composed = new int[table.length];
+      for (int c = 0; c < table.length; c++) {
+        composed[c] = table[previous[c]]; // brighten what the earlier steps produced
+      }
+      table = composed;
+    }
+    this.curves.set(group, table);
+    this.stepGroups.add(group);
+    this.stepCurves.add(table);
+  }
+
+  /**
+   * Gets the number of groups in this pipeline.
+   *
+   * @return the number of groups
+   */
+  int groupCount() {
+    return this.matrices.size();
+  }
+
+  /**
+   * Runs this pipeline on the packed pixels from start (inclusive) to end (exclusive) of the
+   * given array, replacing them with the results. Alpha is kept.
+   *
+   * @param pixels the packed pixels to transform
+   * @param start the first index to transform
+   * @param end the index after the last one to transform
+   * @return for each group, the largest color component going into its curve
+   */
+  int[] apply(int[] pixels, int start, int end) {
+    int groups = this.matrices.size();
+    double[][] matrixArray = this.matrices.toArray(new double[groups][]);
+    int[][] curveArray = this.curves.toArray(new int[groups][]);
+    int[] groupMax = new int[groups];
+    for (int i = start; i < end; i++) {
+      int argb = pixels[i];
+      int r = PackedPixels.red(argb);
+      int g = PackedPixels.green(argb);
+      int b = PackedPixels.blue(argb);
+      for (int k = 0; k < groups; k++) {
+        double[] m = matrixArray[k];
+        if (m != null) {
+          int newRed = clampRound(m[0] * r + m[1] * g + m[2] * b);
+          int newGreen = clampRound(m[3] * r + m[4] * g + m[5] * b);
+          int newBlue = clampRound(m[6] * r + m[7] * g + m[8] * b);
+          r = newRed;
+          g = newGreen;
+          b = newBlue;
+        }
+        groupMax[k] = Math.max(groupMax[k], Math.max(r, Math.max(g, b)));
+        int[] curve = curveArray[k];
+        if (curve != null) {
+          r = curve[r];
+          g = curve[g];
+          b = curve[b];
+        }
+      }
+      pixels[i] = (argb & 0xFF000000) | (r << 16) | (g << 8) | b;
+    }
+    return groupMax;
+  }
+
+  /**
+   * Gets the largest color component that each brightening step in this pipeline produced,
+   * given the largest components going into each group's curve over a whole image.
+   *
+   * @param groupMax for each group, the largest color component going into its curve
+   * @return for each step, the largest component it produced, or -1 for color transformations
+   */
+  int[] stepMax(int[] groupMax) {
+    int[] result = new int[this.stepGroups.size()];
+    for (int step = 0; step < result.length; step++) {
+      int[] curve = this.stepCurves.get(step);
+      // brightening never reorders components, so the largest going in gives the largest out
+      result[step] = curve == null ? -1 : curve[groupMax[this.stepGroups.get(step)]];
+    }
+    return result;
+  }
+
+  // rounds to the nearest integer and clamps 0 to 255
+  private static int clampRound(double value) {
+    return (int) Math.max(0, Math.min(Math.round(value), 255));
+  }
+}
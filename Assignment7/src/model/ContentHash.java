@@ -0,0 +1,162 @@
+package model;
+
+import java.awt.Rectangle;
+
+/**
+ * Holds operations that hash the pixels of an image, so that images with the same content can
+ * be found without comparing them pixel by pixel. Hashes use 64-bit xxHash, which is fast
+ * enough to run over every pixel of every image stored.
+ *
+ * <p>The pixels are hashed in chunks of rows, in parallel with the default TileScheduler, and
+ * the hashes of the chunks are hashed together with the size of the image. The chunks depend
+ * only on the width of the image, so an image has the same hash however many threads hash it.
+ */
+public final class ContentHash {
+  // about 256KB of packed pixels per chunk, so each thread hashes enough to be worth it
+  private static final int CHUNK_PIXELS = 1 << 16;
+
+  private static final long PRIME1 = 0x9E3779B185EBCA87L;
+  private static final long PRIME2 = 0xC2B2AE3D27D4EB4FL;
+  private static final long PRIME3 = 0x165667B19E3779F9L;
+  private static final long PRIME4 = 0x85EBCA77C2B2AE63L;
+  private static final long PRIME5 = 0x27D4EB2F165667C5L;
+
+  // not meant to be instantiated
+  private ContentHash() {
+  }
+
+  /**
+   * Hashes the size and packed ARGB pixels of an image. Images with the same size and pixels
+   * have the same hash whatever class they are, and whatever their max RGB values are. The
+   * hash of a PackedImageModel, or of a FusedColorImageModel once computed, is only computed
+   * once, as their pixels never change.
+   *
+   * @param image the image to hash
+   * @return the 64-bit hash of the image
+   * @throws IllegalArgumentException if the image is null
+   */
+  public static long hash(ImageModel image) throws IllegalArgumentException {
+    if (image == null) {
+      throw new IllegalArgumentException("Image cannot be null.");
+    }
+    if (image instanceof FusedColorImageModel) {
+      image = ((FusedColorImageModel) image).compute();
+    }
+    if (image instanceof PackedImageModel) {
+      return ((PackedImageModel) image).contentHash();
+    }
+    return hashPixels(image);
+  }
+
+  /**
+   * Hashes the size and packed ARGB pixels of an image every time it is called.
+   *
+   * @param image the image to hash
+   * @return the 64-bit hash of the image
+   */
+  static long hashPixels(ImageModel image) {
+    int width = image.getWidth();
+    int height = image.getHeight();
+    int[] buffer = PackedImageModel.sharedBuffer(image);
+    int chunkRows = Math.max(1, CHUNK_PIXELS / width);
+    int chunks = (height + chunkRows - 1) / chunkRows;
+    // the width and height, then the low and high halves of the hash of each chunk
+    int[] summary = new int[2 + 2 * chunks];
+    summary[0] = width;
+    summary[1] = height;
+    // each chunk is one row of the bands the scheduler splits the work into
+    TileScheduler.getDefault().forEachBand(width * chunkRows, chunks, (chunkStart, chunkEnd) -> {
+      int[] rows = buffer == null ? new int[width * chunkRows] : null;
+      for (int c = chunkStart; c < chunkEnd; c++) {
+        int top = c * chunkRows;
+        int length = width * (Math.min(height, top + chunkRows) - top);
+        long chunkHash;
+        if (buffer != null) {
+          chunkHash = xxHash64(buffer, top * width, length);
+        } else {
+          image.getRegionARGB(new Rectangle(0, top, width, length / width), rows, 0, width);
+          chunkHash = xxHash64(rows, 0, length);
+        }
+        summary[2 + 2 * c] = (int) chunkHash;
+        summary[3 + 2 * c] = (int) (chunkHash >>> 32);
+      }
+    });
+    return xxHash64(summary, 0, summary.length);
+  }
+
+  /**
+   * Hashes part of an array of ints with 64-bit xxHash and a seed of 0, reading each int as
+   * four bytes with the lowest byte first.
+   *
+   * @param values the array to hash part of
+   * @param offset the index of the first int to hash
+   * @param length the number of ints to hash
+   * @return the 64-bit hash of the ints
+   * @throws IllegalArgumentException if the array is null or the part is not within it
+   */
+  public static long xxHash64(int[] values, int offset, int length)
+          throws IllegalArgumentException {
+    if (values == null) {
+      throw new IllegalArgumentException("Values cannot be null.");
+    }
+    if (offset < 0 || length < 0 || offset > values.length - length) {
+      throw new IllegalArgumentException("Range is not within the values.");
+    }
+    int i = offset;
+    int end = offset + length;
+    long hash;
+    if (length >= 8) { // 32 bytes at a time, in four lanes
+      long v1 = PRIME1 + PRIME2;
+      long v2 = PRIME2;
+      long v3 = 0;
+      long v4 = -PRIME1;
+      for (; i <= end - 8; i += 8) {
+        v1 = round(v1, lane(values, i));
+        v2 = round(v2, lane(values, i + 2));
+        v3 = round(v3, lane(values, i + 4));
+        v4 = round(v4, lane(values, i + 6));
+      }
+      hash = Long.rotateLeft(v1, 1) + Long.rotateLeft(v2, 7)
+              + Long.rotateLeft(v3, 12) + Long.rotateLeft(v4, 18);
+      hash = merge(hash, v1);
+      hash = merge(hash, v2);
+      hash = merge(hash, v3);
+      hash = merge(hash, v4);
+    } else {
+      hash = PRIME5;
+    }
+    hash += 4L * length;
+    for (; i <= end - 2; i += 2) {
+      hash ^= round(0, lane(values, i));
+      hash = Long.rotateLeft(hash, 27) * PRIME1 + PRIME4;
+    }
+    if (i < end) {
+      hash ^= (values[i] & 0xFFFFFFFFL) * PRIME1;
+      hash = Long.rotateLeft(hash, 23) * PRIME2 + PRIME3;
+    }
+    hash ^= hash >>> 33;
+    hash *= PRIME2;
+    hash ^= hash >>> 29;
+    hash *= PRIME3;
+    hash ^= hash >>> 32;
+    return hash;
+  }
+
+  // reads two ints as the eight bytes of one lane, lowest byte first
+  private static long lane(int[] values, int index) {
+    return (values[index] & 0xFFFFFFFFL) | ((long) values[index + 1] << 32);
+  }
+
+  // mixes eight bytes of input into an accumulator
+  private static long round(long accumulator, long input) {
+    accumulator += input * PRIME2;
+    accumulator = Long.rotateLeft(accumulator, 31);
+    return accumulator * PRIME1;
+  }
+
+  // mixes an accumulator into the hash once all the input has been read
+  private static long merge(long hash, long accumulator) {
+    hash ^= round(0, accumulator);
+    return hash * PRIME1 + PRIME4;
+  }
+}
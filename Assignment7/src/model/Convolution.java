@@ -0,0 +1,249 @@
+package model;
+
+import java.util.Arrays;
+
+/**
+ * Holds the filtering engine used by the image models. Filters images stored as arrays of
+ * packed ARGB values (see PackedPixels). Rank-1 kernels whose two 1D passes give exactly the
+ * result of the full 2D convolution (see SeparableKernel) are applied as those passes; all
+ * other kernels as a full 2D convolution, so the result never depends on which is used. Every
+ * pass filters the red, green, and blue channels together so each neighbouring pixel is only
+ * read once.
+ *
+ * <p>Each pass is split into the interior of the image, where the whole kernel fits and no
+ * bounds checks are needed, and the band along the edges, where an EdgePolicy decides which
+ * pixels the kernel reads. The rows of the result are filtered in bands by the default
+ * TileScheduler.
+ */
+final class Convolution {
+
+  // not meant to be instantiated
+  private Convolution() {
+  }
+
+  /**
+   * Filters the given pixels with the given kernel. Every resulting pixel is opaque.
+   *
+   * @param src the packed pixels of the image, row by row
+   * @param width the width of the image
+   * @param height the height of the image
+   * @param kernel the kernel of the filter
+   * @param edgePolicy how to treat pixels the kernel overlaps outside the image
+   * @return the packed pixels of the filtered image
+   */
+  static int[] apply(int[] src, int width, int height, Kernel kernel, EdgePolicy edgePolicy) {
+    int[] dst = new int[src.length];
+    // each band sets up the kernel rows around it, so keep bands well above the kernel height
+    int minRows = 4 * kernel.getHeight();
+    SeparableKernel separable = SeparableKernel.decompose(kernel);
+    if (separable != null) {
+      double[] vertical = separable.getVertical();
+      double[] horizontal = separable.getHorizontal();
+      TileScheduler.getDefault().forEachBand(width, height, minRows, (rowStart, rowEnd) ->
+              convolveSeparable(src, width, height, vertical, horizontal,
+                      edgePolicy, dst, rowStart, rowEnd));
+    } else {
+      double[] weights = new double[kernel.getHeight() * kernel.getWidth()];
+      int radiusRow = (kernel.getHeight() - 1) / 2;
+      int radiusCol = (kernel.getWidth() - 1) / 2;
+      for (int r = -radiusRow; r <= radiusRow; r++) {
+        for (int c = -radiusCol; c <= radiusCol; c++) {
+          weights[(r + radiusRow) * kernel.getWidth() + c + radiusCol] = kernel.get(r, c);
+        }
+      }
+      int kernelWidth = kernel.getWidth();
+      int kernelHeight = kernel.getHeight();
+      TileScheduler.getDefault().forEachBand(width, height, minRows, (rowStart, rowEnd) ->
+              convolveFull(src, width, height, weights, kernelWidth, kernelHeight,
+                      edgePolicy, dst, rowStart, rowEnd));
+    }
+    return dst;
+  }
+
+  // applies a 2D kernel to rows rowStart (inclusive) to rowEnd (exclusive) of the image
+  private static void convolveFull(int[] src, int width, int height, double[] weights,
+                                   int kernelWidth, int kernelHeight, EdgePolicy edgePolicy,
+                                   int[] dst, int rowStart, int rowEnd) {
+    int radiusRow = (kernelHeight - 1) / 2;
+    int radiusCol = (kernelWidth - 1) / 2;
+    // the interior columns of the image, where the kernel never overlaps the sides
+    int firstCol = Math.min(radiusCol, width);
+    int lastCol = Math.max(firstCol, width - radiusCol);
+    for (int row = rowStart; row < rowEnd; row++) {
+      if (row < radiusRow || row >= height - radiusRow) {
+        for (int col = 0; col < width; col++) { // the whole row is in the border band
+          dst[row * width + col] = filterBorderPixel(src, width, height, weights,
+                  kernelWidth, kernelHeight, edgePolicy, row, col);
+        }
+        continue;
+      }
+      for (int col = 0; col < firstCol; col++) {
+        dst[row * width + col] = filterBorderPixel(src, width, height, weights,
+                kernelWidth, kernelHeight, edgePolicy, row, col);
+      }
+      for (int col = firstCol; col < lastCol; col++) {
+        double sumRed = 0.0;
+        double sumGreen = 0.0;
+        double sumBlue = 0.0;
+        int weight = 0;
+        for (int r = -radiusRow; r <= radiusRow; r++) {
+          int base = (row + r) * width + col;
+          for (int c = -radiusCol; c <= radiusCol; c++) {
+            int argb = src[base + c];
+            sumRed += weights[weight] * PackedPixels.red(argb);
+            sumGreen += weights[weight] * PackedPixels.green(argb);
+            sumBlue += weights[weight] * PackedPixels.blue(argb);
+            weight++;
+          }
+        }
+        dst[row * width + col] = PackedPixels.pack(255,
+                clampRound(sumRed), clampRound(sumGreen), clampRound(sumBlue));
+      }
+      for (int col = lastCol; col < width; col++) {
+        dst[row * width + col] = filterBorderPixel(src, width, height, weights,
+                kernelWidth, kernelHeight, edgePolicy, row, col);
+      }
+    }
+  }
+
+  // applies a 2D kernel centered on a pixel whose kernel overlaps the edge of the image
+  private static int filterBorderPixel(int[] src, int width, int height, double[] weights,
+                                       int kernelWidth, int kernelHeight, EdgePolicy edgePolicy,
+                                       int row, int col) {
+    int radiusRow = (kernelHeight - 1) / 2;
+    int radiusCol = (kernelWidth - 1) / 2;
+    double sumRed = 0.0;
+    double sumGreen = 0.0;
+    double sumBlue = 0.0;
+    for (int r = -radiusRow; r <= radiusRow; r++) {
+      int srcRow = edgePolicy.resolve(row + r, height);
+      if (srcRow < 0) {
+        continue; // nothing is read here, ie the sum does not change
+      }
+      for (int c = -radiusCol; c <= radiusCol; c++) {
+        int srcCol = edgePolicy.resolve(col + c, width);
+        if (srcCol < 0) {
+          continue;
+        }
+        double weight = weights[(r + radiusRow) * kernelWidth + c + radiusCol];
+        int argb = src[srcRow * width + srcCol];
+        sumRed += weight * PackedPixels.red(argb);
+        sumGreen += weight * PackedPixels.green(argb);
+        sumBlue += weight * PackedPixels.blue(argb);
+      }
+    }
+    return PackedPixels.pack(255, clampRound(sumRed), clampRound(sumGreen), clampRound(sumBlue));
+  }
+
+  // applies a separated kernel to rows rowStart (inclusive) to rowEnd (exclusive) of the image.
+  // horizontally filtered rows near the current row are kept in a ring buffer with one slot per
+  // kernel row, so each of those source rows is filtered horizontally only once
+  private static void convolveSeparable(int[] src, int width, int height,
+                                        double[] vertical, double[] horizontal,
+                                        EdgePolicy edgePolicy,
+                                        int[] dst, int rowStart, int rowEnd) {
+    int radiusRow = (vertical.length - 1) / 2;
+    double[][] ring = new double[vertical.length][3 * width];
+    double[] outside = new double[3 * width]; // for border rows read from far away (WRAP)
+    double[] sums = new double[3 * width];
+    int nextRow = Math.max(0, rowStart - radiusRow); // next source row to filter horizontally
+    for (int row = rowStart; row < rowEnd; row++) {
+      int firstRow = Math.max(0, row - radiusRow);
+      int lastRow = Math.min(height - 1, row + radiusRow);
+      while (nextRow <= lastRow) {
+        filterRow(src, width, horizontal, edgePolicy, nextRow, ring[nextRow % vertical.length]);
+        nextRow++;
+      }
+      Arrays.fill(sums, 0.0);
+      boolean interior = row - radiusRow >= 0 && row + radiusRow < height;
+      for (int r = -radiusRow; r <= radiusRow; r++) {
+        int srcRow = interior ? row + r : edgePolicy.resolve(row + r, height);
+        if (srcRow < 0) {
+          continue; // nothing is read here, ie the sums do not change
+        }
+        double[] filtered;
+        if (srcRow >= firstRow && srcRow <= lastRow) {
+          filtered = ring[srcRow % vertical.length];
+        } else {
+          filterRow(src, width, horizontal, edgePolicy, srcRow, outside);
+          filtered = outside;
+        }
+        double weight = vertical[r + radiusRow];
+        for (int i = 0; i < sums.length; i++) {
+          sums[i] += weight * filtered[i];
+        }
+      }
+      int base = row * width;
+      for (int col = 0; col < width; col++) {
+        dst[base + col] = PackedPixels.pack(255, clampRound(sums[3 * col]),
+                clampRound(sums[3 * col + 1]), clampRound(sums[3 * col + 2]));
+      }
+    }
+  }
+
+  // filters one row of the image with a row vector, storing red, green, and blue sums
+  // for each column next to each other in the given array
+  private static void filterRow(int[] src, int width, double[] horizontal,
+                                EdgePolicy edgePolicy, int row, double[] out) {
+    int radiusCol = (horizontal.length - 1) / 2;
+    int base = row * width;
+    // the interior columns of the row, where the kernel never overlaps the sides
+    int firstCol = Math.min(radiusCol, width);
+    int lastCol = Math.max(firstCol, width - radiusCol);
+    for (int col = 0; col < firstCol; col++) {
+      filterRowBorder(src, width, base, horizontal, edgePolicy, col, out);
+    }
+    filterRowInterior(src, base, horizontal, firstCol, lastCol, out);
+    for (int col = lastCol; col < width; col++) {
+      filterRowBorder(src, width, base, horizontal, edgePolicy, col, out);
+    }
+  }
+
+  // filters one column of a row whose kernel overlaps the side of the image
+  private static void filterRowBorder(int[] src, int width, int base, double[] horizontal,
+                                      EdgePolicy edgePolicy, int col, double[] out) {
+    int radiusCol = (horizontal.length - 1) / 2;
+    double sumRed = 0.0;
+    double sumGreen = 0.0;
+    double sumBlue = 0.0;
+    for (int c = -radiusCol; c <= radiusCol; c++) {
+      int srcCol = edgePolicy.resolve(col + c, width);
+      if (srcCol < 0) {
+        continue;
+      }
+      int argb = src[base + srcCol];
+      sumRed += horizontal[c + radiusCol] * PackedPixels.red(argb);
+      sumGreen += horizontal[c + radiusCol] * PackedPixels.green(argb);
+      sumBlue += horizontal[c + radiusCol] * PackedPixels.blue(argb);
+    }
+    out[3 * col] = sumRed;
+    out[3 * col + 1] = sumGreen;
+    out[3 * col + 2] = sumBlue;
+  }
+
+  // filters the interior columns firstCol (inclusive) to lastCol (exclusive) of a row
+  private static void filterRowInterior(int[] src, int base, double[] horizontal,
+                                        int firstCol, int lastCol, double[] out) {
+    int radiusCol = (horizontal.length - 1) / 2;
+    for (int col = firstCol; col < lastCol; col++) {
+      double sumRed = 0.0;
+      double sumGreen = 0.0;
+      double sumBlue = 0.0;
+      int start = base + col - radiusCol;
+      for (int c = 0; c < horizontal.length; c++) {
+        int argb = src[start + c];
+        sumRed += horizontal[c] * PackedPixels.red(argb);
+        sumGreen += horizontal[c] * PackedPixels.green(argb);
+        sumBlue += horizontal[c] * PackedPixels.blue(argb);
+      }
+      out[3 * col] = sumRed;
+      out[3 * col + 1] = sumGreen;
+      out[3 * col + 2] = sumBlue;
+    }
+  }
+
+  // rounds to the nearest integer and clamps 0 to 255
+  private static int clampRound(double value) {
+    return (int) Math.max(0, Math.min(Math.round(value), 255));
+  }
+}
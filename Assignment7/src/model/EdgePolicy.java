@@ -0,0 +1,55 @@
+package model;
+
+/**
+ * Represents the ways a filter can treat the pixels its kernel overlaps outside the image.
+ */
+public enum EdgePolicy {
+  /**
+   * Pixels outside the image count as zero, so they add nothing to the filtered value.
+   */
+  ZERO,
+  /**
+   * Pixels outside the image repeat the nearest pixel on the edge of the image.
+   */
+  CLAMP,
+  /**
+   * Pixels outside the image reflect the image about its edge pixels, without repeating them
+   * (index -1 reads index 1).
+   */
+  MIRROR,
+  /**
+   * Pixels outside the image wrap around to the opposite side of the image.
+   */
+  WRAP;
+
+  /**
+   * Maps a row or column index, which may be outside the image, to the index that a filter
+   * should read instead.
+   *
+   * @param index the index to map
+   * @param size the number of rows or columns in the image
+   * @return the index to read, between 0 and size - 1, or -1 if nothing should be read
+   */
+  public int resolve(int index, int size) {
+    if (index >= 0 && index < size) {
+      return index;
+    }
+    switch (this) {
+      case ZERO:
+        return -1;
+      case CLAMP:
+        return index < 0 ? 0 : size - 1;
+      case MIRROR:
+        if (size == 1) {
+          return 0;
+        }
+        int period = 2 * (size - 1); // reflecting twice gets back to the start
+        int reflected = Math.floorMod(index, period);
+        return reflected < size ? reflected : period - reflected;
+      case WRAP:
+        return Math.floorMod(index, size);
+      default:
+        throw new IllegalStateException("Unknown edge policy");
+    }
+  }
+}
@@ -0,0 +1,438 @@
+package model;
+
+import java.awt.Rectangle;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.UnaryOperator;
+
+/**
+ * Class for the history of edits made to an image, which can be undone and redone. Rather
+ * than keeping every image of the history, the history keeps the first image and the edits
+ * that lead from each image to the next, and finds the other images again when they are
+ * needed by applying the edits to the nearest image it still has.
+ *
+ * <p>An edit that always gives the same result is kept as the operation itself, and costs
+ * nothing to keep but the time to run it again. Any other edit, like a mosaic with random
+ * seeds, is kept as the difference between the image and the result, in square tiles. Each
+ * changed tile holds whichever is smallest of the runs of equal values in the exclusive or
+ * of the two images, the runs of equal values in the result, or the pixels of the result, so
+ * small changes and flat results both take little space, and unchanged tiles take none.
+ *
+ * <p>Images found along the way are kept within a budget of bytes, dropping those used least
+ * recently, so moving back and forth over the same few steps stays quick. The first image of
+ * the history is always kept and does not count towards the budget.
+ */
+public final class EditHistory {
+  private static final int TILE_SIZE = 64;
+  // the ways a changed tile can be encoded, kept in the first value of the tile
+  private static final int XOR_RUNS = 0;
+  private static final int RESULT_RUNS = 1;
+  private static final int RESULT_PIXELS = 2;
+
+  private final ImageModel base;
+  private final long budget;
+  private final List<Edit> edits; // edit i leads from image i to image i + 1
+  private int position; // the index of the current image, where the first image is 0
+  private final LinkedHashMap<Integer, ImageModel> images; // in order of use, least recent first
+  private long imageBytes; // the bytes taken by the images kept
+
+  /**
+   * Represents one edit of an image, kept either as an operation that gives the result again,
+   * or as the difference between the image and the result.
+   */
+  public static final class Edit {
+    private final UnaryOperator<ImageModel> operation; // null for a difference
+    private final int width;
+    private final int height;
+    private final int maxRGB;
+    private final int[][] tiles; // each changed tile encoded, or null if it is unchanged
+    private final long bytes;
+
+    // creates an edit that runs the given operation
+    private Edit(UnaryOperator<ImageModel> operation) {
+      this.operation = operation;
+      this.width = 0;
+      this.height = 0;
+      this.maxRGB = 0;
+      this.tiles = null;
+      this.bytes = 0;
+    }
+
+    // creates an edit that applies the given encoded tiles of a result of the given size
+    private Edit(int width, int height, int maxRGB, int[][] tiles) {
+      this.operation = null;
+      this.width = width;
+      this.height = height;
+      this.maxRGB = maxRGB;
+      this.tiles = tiles;
+      long bytes = 0;
+      for (int[] tile : tiles) {
+        bytes += tile == null ? 0 : 4L * tile.length;
+      }
+      this.bytes = bytes;
+    }
+
+    /**
+     * Gets the number of bytes this edit takes to keep, not counting the operation of an
+     * edit that runs one.
+     *
+     * @return the bytes of the tiles of this edit
+     */
+    public long getBytes() {
+      return this.bytes;
+    }
+
+    // gives the result of this edit of the given image
+    private ImageModel apply(ImageModel image) {
+      if (this.operation != null) {
+        return this.operation.apply(image);
+      }
+      int[] pixels = new int[this.width * this.height];
+      boolean sameSize = image.getWidth() == this.width && image.getHeight() == this.height;
+      if (sameSize) {
+        image.getRegionARGB(new Rectangle(0, 0, this.width, this.height), pixels, 0,
+                this.width);
+      }
+      int tilesAcross = tilesAcross(this.width);
+      TileScheduler.getDefault().forEachBand(this.width * TILE_SIZE, tilesDown(this.height),
+          (tileRowStart, tileRowEnd) -> {
+            for (int tileRow = tileRowStart; tileRow < tileRowEnd; tileRow++) {
+              for (int tileCol = 0; tileCol < tilesAcross; tileCol++) {
+                int[] tile = this.tiles[tileRow * tilesAcross + tileCol];
+                if (tile != null) {
+                  decode(tile, pixels, tileBounds(tileRow, tileCol, this.width, this.height),
+                          this.width);
+                }
+              }
+            }
+          });
+      return new PackedImageModel(this.width, this.height, this.maxRGB, pixels);
+    }
+  }
+
+  /**
+   * Creates a history that starts with the given image, keeping images it finds again
+   * within the given budget.
+   *
+   * @param base the first image of the history
+   * @param budget the number of bytes of images to keep, besides the first image
+   * @throws IllegalArgumentException if the image is null or the budget is negative
+   */
+  public EditHistory(ImageModel base, long budget) throws IllegalArgumentException {
+    if (base == null) {
+      throw new IllegalArgumentException("Image cannot be null.");
+    }
+    if (budget < 0) {
+      throw new IllegalArgumentException("Budget cannot be negative.");
+    }
+    this.base = base;
+    this.budget = budget;
+    this.edits = new ArrayList<>();
+    this.position = 0;
+    this.images = new LinkedHashMap<>(16, 0.75f, true);
+    this.imageBytes = 0;
+  }
+
+  /**
+   * Creates an edit that is kept as the given operation, which must give the same result
+   * every time it is run on the same image.
+   *
+   * @param operation the operation of the edit
+   * @return the edit
+   * @throws IllegalArgumentException if the operation is null
+   */
+  public static Edit replay(UnaryOperator<ImageModel> operation)
+          throws IllegalArgumentException {
+    if (operation == null) {
+      throw new IllegalArgumentException("Operation cannot be null.");
+    }
+    return new Edit(operation);
+  }
+
+  /**
+   * Creates an edit that is kept as the difference between an image and its result, for
+   * operations that may give a different result each time. The tiles are compared in
+   * parallel with the default TileScheduler.
+   *
+   * @param image the image that was edited
+   * @param result the result of the edit, which may be a different size
+   * @return the edit
+   * @throws IllegalArgumentException if either image is null
+   */
+  public static Edit difference(ImageModel image, ImageModel result)
+          throws IllegalArgumentException {
+    if (image == null || result == null) {
+      throw new IllegalArgumentException("Arguments cannot be null.");
+    }
+    int width = result.getWidth();
+    int height = result.getHeight();
+    boolean sameSize = image.getWidth() == width && image.getHeight() == height;
+    int tilesAcross = tilesAcross(width);
+    int[][] tiles = new int[tilesAcross * tilesDown(height)][];
+    TileScheduler.getDefault().forEachBand(width * TILE_SIZE, tilesDown(height),
+        (tileRowStart, tileRowEnd) -> {
+          int[] before = new int[TILE_SIZE * TILE_SIZE];
+          int[] after = new int[TILE_SIZE * TILE_SIZE];
+          for (int tileRow = tileRowStart; tileRow < tileRowEnd; tileRow++) {
+            for (int tileCol = 0; tileCol < tilesAcross; tileCol++) {
+              Rectangle bounds = tileBounds(tileRow, tileCol, width, height);
+              result.getRegionARGB(bounds, after, 0, bounds.width);
+              if (sameSize) {
+                image.getRegionARGB(bounds, before, 0, bounds.width);
+              }
+              tiles[tileRow * tilesAcross + tileCol] = encode(sameSize ? before : null, after,
+                      bounds.width * bounds.height);
+            }
+          }
+        });
+    return new Edit(width, height, result.getMaxRGB(), tiles);
+  }
+
+  // the number of tiles across an image of the given width
+  private static int tilesAcross(int width) {
+    return (width + TILE_SIZE - 1) / TILE_SIZE;
+  }
+
+  // the number of tiles down an image of the given height
+  private static int tilesDown(int height) {
+    return (height + TILE_SIZE - 1) / TILE_SIZE;
+  }
+
+  // the pixels of an image covered by the given tile, which are fewer at the edges
+  private static Rectangle tileBounds(int tileRow, int tileCol, int width, int height) {
+    int x = tileCol * TILE_SIZE;
+    int y = tileRow * TILE_SIZE;
+    return new Rectangle(x, y, Math.min(TILE_SIZE, width - x), Math.min(TILE_SIZE, height - y));
+  }
+
+  // encodes the given number of pixels of a tile of the result in the smallest way, given
+  // the same tile of the image if it is the same size, or null if the tile is unchanged
+  private static int[] encode(int[] before, int[] after, int count) {
+    int[] best = null;
+    if (before != null) {
+      int[] xor = new int[count];
+      boolean changed = false;
+      for (int i = 0; i < count; i++) {
+        xor[i] = before[i] ^ after[i];
+        changed |= xor[i] != 0;
+      }
+      if (!changed) {
+        return null;
+      }
+      best = runs(XOR_RUNS, xor, count);
+    }
+    int[] resultRuns = runs(RESULT_RUNS, after, count);
+    if (best == null || resultRuns.length < best.length) {
+      best = resultRuns;
+    }
+    if (count + 1 < best.length) {
+      best = new int[count + 1];
+      best[0] = RESULT_PIXELS;
+      System.arraycopy(after, 0, best, 1, count);
+    }
+    return best;
+  }
+
+  // encodes values as the given way followed by pairs of a length and the value repeated
+  private static int[] runs(int way, int[] values, int count) {
+    int[] encoded = new int[1 + 2 * count];
+    encoded[0] = way;
+    int length = 1;
+    int i = 0;
+    while (i < count) {
+      int run = 1;
+      while (i + run < count && values[i + run] == values[i]) {
+        run++;
+      }
+      encoded[length++] = run;
+      encoded[length++] = values[i];
+      i += run;
+    }
+    int[] trimmed = new int[length];
+    System.arraycopy(encoded, 0, trimmed, 0, length);
+    return trimmed;
+  }
+
+  // decodes a tile into the pixels of an image of the given width, which hold the same
+  // tile of the image that was edited
+  private static void decode(int[] tile, int[] pixels, Rectangle bounds, int width) {
+    int i = 0;
+    int index = 1;
+    int count = bounds.width * bounds.height;
+    while (i < count) {
+      int run = tile[0] == RESULT_PIXELS ? 1 : tile[index++];
+      int value = tile[index++];
+      for (int end = i + run; i < end; i++) {
+        int pixel = (bounds.y + i / bounds.width) * width + bounds.x + i % bounds.width;
+        pixels[pixel] = tile[0] == XOR_RUNS ? pixels[pixel] ^ value : value;
+      }
+    }
+  }
+
+  /**
+   * Adds an edit of the current image to this history, whose result becomes the current
+   * image. Any edits that were undone are forgotten.
+   *
+   * @param edit the edit of the current image
+   * @param result the result of the edit
+   * @throws IllegalArgumentException if the edit or result is null
+   */
+  public synchronized void push(Edit edit, ImageModel result) throws IllegalArgumentException {
+    if (edit == null || result == null) {
+      throw new IllegalArgumentException("Arguments cannot be null.");
+    }
+    while (this.edits.size() > this.position) {
+      this.forget(this.edits.size());
+      this.edits.remove(this.edits.size() - 1);
+    }
+    this.edits.add(edit);
+    this.position++;
+    this.keep(this.position, result);
+  }
+
+  /**
+   * Gets whether there is an edit to undo.
+   *
+   * @return true if the current image is not the first image
+   */
+  public synchronized boolean canUndo() {
+    return this.position > 0;
+  }
+
+  /**
+   * Gets whether there is an undone edit to redo.
+   *
+   * @return true if an edit has been undone since the last edit was added
+   */
+  public synchronized boolean canRedo() {
+    return this.position < this.edits.size();
+  }
+
+  /**
+   * Undoes the last edit, making the image before it the current image.
+   *
+   * @return the image before the edit
+   * @throws IllegalStateException if there is no edit to undo
+   */
+  public synchronized ImageModel undo() throws IllegalStateException {
+    if (!this.canUndo()) {
+      throw new IllegalStateException("Nothing to undo.");
+    }
+    this.position--;
+    return this.image(this.position);
+  }
+
+  /**
+   * Redoes the last edit that was undone, making its result the current image.
+   *
+   * @return the result of the edit
+   * @throws IllegalStateException if there is no edit to redo
+   */
+  public synchronized ImageModel redo() throws IllegalStateException {
+    if (!this.canRedo()) {
+      throw new IllegalStateException("Nothing to redo.");
+    }
+    this.position++;
+    return this.image(this.position);
+  }
+
+  /**
+   * Gets the image before the current one, which undoing would give, without undoing.
+   *
+   * @return the image before the current one
+   * @throws IllegalStateException if there is no edit to undo
+   */
+  public synchronized ImageModel previous() throws IllegalStateException {
+    if (!this.canUndo()) {
+      throw new IllegalStateException("Nothing to undo.");
+    }
+    return this.image(this.position - 1);
+  }
+
+  /**
+   * Gets the image after the current one, which redoing would give, without redoing.
+   *
+   * @return the image after the current one
+   * @throws IllegalStateException if there is no edit to redo
+   */
+  public synchronized ImageModel next() throws IllegalStateException {
+    if (!this.canRedo()) {
+      throw new IllegalStateException("Nothing to redo.");
+    }
+    return this.image(this.position + 1);
+  }
+
+  /**
+   * Gets the current image of this history.
+   *
+   * @return the current image
+   */
+  public synchronized ImageModel current() {
+    return this.image(this.position);
+  }
+
+  /**
+   * Gets the number of bytes this history takes to keep its edits and the images it has
+   * kept, not counting the first image.
+   *
+   * @return the bytes taken by this history
+   */
+  public synchronized long getBytes() {
+    long bytes = this.imageBytes;
+    for (Edit edit : this.edits) {
+      bytes += edit.bytes;
+    }
+    return bytes;
+  }
+
+  // finds the image with the given index from the nearest image before it that is kept
+  private ImageModel image(int index) {
+    if (index == 0) {
+      return this.base;
+    }
+    ImageModel kept = this.images.get(index);
+    if (kept != null) {
+      return kept;
+    }
+    int start = index - 1;
+    while (start > 0 && !this.images.containsKey(start)) {
+      start--;
+    }
+    ImageModel image = start == 0 ? this.base : this.images.get(start);
+    for (int i = start; i < index; i++) {
+      image = this.edits.get(i).apply(image);
+    }
+    this.keep(index, image);
+    return image;
+  }
+
+  // keeps an image, dropping the images used least recently to stay within the budget,
+  // though never the image just kept
+  private void keep(int index, ImageModel image) {
+    this.forget(index);
+    this.images.put(index, image);
+    this.imageBytes += bytes(image);
+    Iterator<Map.Entry<Integer, ImageModel>> iterator = this.images.entrySet().iterator();
+    while (this.imageBytes > this.budget && this.images.size() > 1) {
+      Map.Entry<Integer, ImageModel> eldest = iterator.next();
+      this.imageBytes -= bytes(eldest.getValue());
+      iterator.remove();
+    }
+  }
+
+  // stops keeping the image with the given index, if it is kept
+  private void forget(int index) {
+    ImageModel image = this.images.remove(index);
+    if (image != null) {
+      this.imageBytes -= bytes(image);
+    }
+  }
+
+  // the bytes taken by the pixels of an image
+  private static long bytes(ImageModel image) {
+    return image instanceof MappedImageModel ? 0 : 4L * image.getWidth() * image.getHeight();
+  }
+}
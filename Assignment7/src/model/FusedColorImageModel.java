@@ -0,0 +1,326 @@
+package model;
+
+import java.awt.Rectangle;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * Class for an image that is another image after a number of color transformations and
+ * brightening steps, which is only computed when something first needs its pixels.
+ * Transforming or brightening an image of this class that has not been computed yet adds a
+ * step to it instead of computing it, so a chain like sepia, greyscale, then brighten makes
+ * a single pass over the original image (see ColorPipeline) and no images in between.
+ * Images in the middle of a chain are still computed if they are used later.
+ *
+ * <p>Each step rounds and clamps exactly as ImageModel.colorTransform and brighten do, so
+ * the result is the same as running the steps one at a time. Brightening still raises the
+ * max RGB value of the image it was applied to right away, as ImageModel.brighten does, or
+ * once that image is computed if it is itself a step that has not been computed yet.
+ *
+ * <p>Once an image of this class is computed it keeps only its computed image, letting go of
+ * the images earlier in its chain.
+ */
+public final class FusedColorImageModel implements ImageModel {
+  private final ColorMatrix matrix; // the matrix of this step, or null to brighten
+  private final int increment;
+  private final int width;
+  private final int height;
+  // the computed image at the start of the chain, and the step before this one (or null if
+  // none), both guarded by this and dropped once this image is computed
+  private ImageModel source;
+  private FusedColorImageModel previous;
+  private volatile ImageModel computed; // null until first needed
+  // whether a step after this one brightens it, and by the most of any such step, so its max
+  // RGB value can be raised once computed, guarded by this
+  private boolean brightened;
+  private int brightenIncrement;
+
+  // creates a step applying the given matrix (or increment, if null) after the previous step
+  private FusedColorImageModel(ImageModel source, FusedColorImageModel previous,
+                               ColorMatrix matrix, int increment) {
+    this.source = source;
+    this.previous = previous;
+    this.matrix = matrix;
+    this.increment = increment;
+    this.width = source.getWidth();
+    this.height = source.getHeight();
+  }
+
+  /**
+   * Gets an image that is the given image after a color transformation with the given
+   * matrix, which is computed when it is first needed.
+   *
+   * @param image the image to transform
+   * @param matrix the matrix of color coefficients for the transformation
+   * @return the transformed image
+   * @throws IllegalArgumentException if the image or matrix is null
+   */
+  public static ImageModel colorTransform(ImageModel image, ColorMatrix matrix)
+          throws IllegalArgumentException {
+    if (image == null || matrix == null) {
+      throw new IllegalArgumentException("Arguments cannot be null.");
+    }
+    return then(image, matrix, 0);
+  }
+
+  /**
+   * Gets an image that is the given image brightened or darkened by the given amount, which
+   * is computed when it is first needed.
+   *
+   * @param image the image to brighten
+   * @param increment the amount to brighten the image, where negative values darken
+   * @return the brightened image
+   * @throws IllegalArgumentException if the image is null
+   */
+  public static ImageModel brighten(ImageModel image, int increment)
+          throws IllegalArgumentException {
+    if (image == null) {
+      throw new IllegalArgumentException("Arguments cannot be null.");
+    }
+    return then(image, null, increment);
+  }
+
+  // adds a step after the given image, continuing its chain if it has not been computed, and
+  // raises the max RGB value of the image if the step brightens it
+  private static ImageModel then(ImageModel image, ColorMatrix matrix, int increment) {
+    if (image instanceof FusedColorImageModel) {
+      FusedColorImageModel fused = (FusedColorImageModel) image;
+      synchronized (fused) {
+        if (fused.computed == null) {
+          if (matrix == null) {
+            fused.brightenIncrement = fused.brightened
+                    ? Math.max(fused.brightenIncrement, increment) : increment;
+            fused.brightened = true;
+          }
+          return new FusedColorImageModel(fused.source, fused, matrix, increment);
+        }
+      }
+      image = fused.computed;
+    }
+    if (matrix == null) {
+      raiseMaxRGB(image, brightenedMax(image, increment));
+    }
+    return new FusedColorImageModel(image, null, matrix, increment);
+  }
+
+  /**
+   * Computes this image the first time it is needed, returning the computed image.
+   *
+   * @return the result of every step of this image
+   */
+  ImageModel compute() {
+    ImageModel result = this.computed;
+    if (result == null) {
+      synchronized (this) {
+        result = this.computed;
+        if (result == null) {
+          result = this.run();
+          if (this.brightened) {
+            raiseMaxRGB(result, brightenedMax(result, this.brightenIncrement));
+          }
+          this.computed = result;
+          this.source = null;
+          this.previous = null;
+        }
+      }
+    }
+    return result;
+  }
+
+  // runs every step from the source, or from the last step already computed, to this one in
+  // a single pass; called holding the lock on this, and locks earlier steps only after it
+  private ImageModel run() {
+    List<FusedColorImageModel> steps = new ArrayList<>();
+    ImageModel start = null;
+    for (FusedColorImageModel step = this; start == null; ) {
+      synchronized (step) {
+        if (step != this && step.computed != null) {
+          start = step.computed;
+        } else {
+          steps.add(step);
+          if (step.previous == null) {
+            start = step.source;
+          }
+          step = step.previous;
+        }
+      }
+    }
+    Collections.reverse(steps);
+    ImageModel first = start;
+    ColorPipeline pipeline = new ColorPipeline();
+    for (FusedColorImageModel step : steps) {
+      if (step.matrix != null) {
+        pipeline.addColorTransform(step.matrix);
+      } else {
+        pipeline.addBrighten(step.increment);
+      }
+    }
+
+    int width = this.width;
+    int height = this.height;
+    int[] result = new int[width * height];
+    AtomicIntegerArray groupMax = new AtomicIntegerArray(pipeline.groupCount());
+    TileScheduler.getDefault().forEachBand(width, height, (rowStart, rowEnd) -> {
+      first.getRegionARGB(new Rectangle(0, rowStart, width, rowEnd - rowStart),
+              result, rowStart * width, width);
+      int[] bandMax = pipeline.apply(result, rowStart * width, rowEnd * width);
+      for (int k = 0; k < bandMax.length; k++) {
+        groupMax.accumulateAndGet(k, bandMax[k], Math::max);
+      }
+    });
+
+    // work out the max RGB values the steps would have had if run one at a time (the images
+    // they brightened were already raised when the steps were added)
+    int[] totalMax = new int[groupMax.length()];
+    for (int k = 0; k < totalMax.length; k++) {
+      totalMax[k] = groupMax.get(k);
+    }
+    int[] stepMax = pipeline.stepMax(totalMax);
+    int maxRGB = first.getMaxRGB();
+    for (int i = 0; i < steps.size(); i++) {
+      if (steps.get(i).matrix == null) {
+        maxRGB = Math.max(maxRGB, stepMax[i]);
+      }
+    }
+
+    // a chain of only brightening steps can carry the histogram of the source to the result
+    Histogram histogram = first instanceof PackedImageModel
+            ? ((PackedImageModel) first).cachedHistogram() : null;
+    for (int i = 0; i < steps.size() && histogram != null; i++) {
+      histogram = steps.get(i).matrix == null ? histogram.brighten(steps.get(i).increment) : null;
+    }
+    return new PackedImageModel(width, height, maxRGB, result).withHistogram(histogram);
+  }
+
+  // the largest component brightening the given computed image would give, which is its
+  // largest component after the same clamping as PointOperation.brighten
+  private static int brightenedMax(ImageModel image, int increment) {
+    int width = image.getWidth();
+    int height = image.getHeight();
+    int[] buffer = PackedImageModel.sharedBuffer(image);
+    AtomicInteger max = new AtomicInteger();
+    TileScheduler.getDefault().forEachBand(width, height, (rowStart, rowEnd) -> {
+      int[] pixels = buffer;
+      int start = rowStart * width;
+      if (pixels == null) {
+        pixels = new int[width * (rowEnd - rowStart)];
+        image.getRegionARGB(new Rectangle(0, rowStart, width, rowEnd - rowStart),
+                pixels, 0, width);
+        start = 0;
+      }
+      int bandMax = 0;
+      for (int i = start; i < start + width * (rowEnd - rowStart); i++) {
+        int argb = pixels[i];
+        bandMax = Math.max(bandMax, Math.max(PackedPixels.red(argb),
+                Math.max(PackedPixels.green(argb), PackedPixels.blue(argb))));
+      }
+      max.accumulateAndGet(bandMax, Math::max);
+    });
+    return Math.max(0, Math.min(max.get() + increment, 255));
+  }
+
+  // raises the max RGB value of a computed image that was brightened by a step
+  private static void raiseMaxRGB(ImageModel image, int value) {
+    if (image instanceof PackedImageModel) {
+      ((PackedImageModel) image).raiseMaxRGB(value);
+    } else if (image instanceof RasterImageModel) {
+      ((RasterImageModel) image).raiseMaxRGB(value);
+    } else if (image instanceof MappedImageModel) {
+      ((MappedImageModel) image).raiseMaxRGB(value);
+    }
+  }
+
+  @Override
+  public ImageModel colorTransform(ColorMatrix matrix) throws IllegalArgumentException {
+    if (matrix == null) {
+      throw new IllegalArgumentException("Transformation matrix cannot be null.");
+    }
+    return then(this, matrix, 0);
+  }
+
+  @Override
+  public ImageModel brighten(int increment) {
+    return then(this, null, increment);
+  }
+
+  @Override
+  public ImageModel visualizeComponent(Component component) throws IllegalArgumentException {
+    return this.compute().visualizeComponent(component);
+  }
+
+  @Override
+  public ImageModel flip(String direction) throws IllegalArgumentException {
+    return this.compute().flip(direction);
+  }
+
+  @Override
+  public ImageModel filter(Kernel kernel) throws IllegalArgumentException {
+    return this.compute().filter(kernel);
+  }
+
+  @Override
+  public ImageModel filter(Kernel kernel, EdgePolicy edgePolicy)
+          throws IllegalArgumentException {
+    return this.compute().filter(kernel, edgePolicy);
+  }
+
+  @Override
+  public ImageModel applyPointOperation(PointOperation operation)
+          throws IllegalArgumentException {
+    return this.compute().applyPointOperation(operation);
+  }
+
+  @Override
+  public ImageModel mosaic(int seeds) throws IllegalArgumentException {
+    return this.compute().mosaic(seeds);
+  }
+
+  @Override
+  public int getWidth() {
+    return this.width;
+  }
+
+  @Override
+  public int getHeight() {
+    return this.height;
+  }
+
+  @Override
+  public int getMaxRGB() {
+    return this.compute().getMaxRGB();
+  }
+
+  @Override
+  public Histogram getHistogram() {
+    return this.compute().getHistogram();
+  }
+
+  @Override
+  public Pixel getPixel(int row, int col) throws IllegalArgumentException {
+    return this.compute().getPixel(row, col);
+  }
+
+  @Override
+  public void getRowARGB(int row, int[] dest) throws IllegalArgumentException {
+    this.compute().getRowARGB(row, dest);
+  }
+
+  @Override
+  public void getRegionARGB(Rectangle region, int[] dest, int offset, int stride)
+          throws IllegalArgumentException {
+    this.compute().getRegionARGB(region, dest, offset, stride);
+  }
+
+  @Override
+  public void forEachPixel(IntPixelConsumer consumer) throws IllegalArgumentException {
+    this.compute().forEachPixel(consumer);
+  }
+
+  @Override
+  public String toPPMFile() {
+    return this.compute().toPPMFile();
+  }
+}
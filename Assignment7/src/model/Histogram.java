@@ -0,0 +1,221 @@
+package model;
+
+/**
+ * Class for the histogram of an image: how many pixels have each value of the red, green,
+ * and blue components and of the intensity of the pixel. A histogram never changes after it
+ * is created, so images compute their histogram once and keep it (see
+ * ImageModel.getHistogram). Computing a histogram scans the image in bands with the default
+ * TileScheduler, counting into separate bins for each band that are added together at the
+ * end.
+ */
+public final class Histogram {
+
+  /**
+   * The number of values each component can have, and so the length of each array of
+   * frequencies.
+   */
+  public static final int LEVELS = 256;
+
+  private final int[] red;
+  private final int[] green;
+  private final int[] blue;
+  private final int[] intensity;
+
+  // creates a histogram from arrays of frequencies, which are used directly
+  private Histogram(int[] red, int[] green, int[] blue, int[] intensity) {
+    this.red = red;
+    this.green = green;
+    this.blue = blue;
+    this.intensity = intensity;
+  }
+
+  /**
+   * Computes the histogram of an image from its rows.
+   *
+   * @param image the image to compute the histogram of
+   * @return the histogram of the image
+   */
+  static Histogram compute(ImageModel image) {
+    int width = image.getWidth();
+    return count(width, image.getHeight(), (bins, rowStart, rowEnd) -> {
+      int[] rowData = new int[width];
+      for (int row = rowStart; row < rowEnd; row++) {
+        image.getRowARGB(row, rowData);
+        countPixels(bins, rowData, 0, width);
+      }
+    });
+  }
+
+  /**
+   * Computes the histogram of an image from the row-major array of packed ARGB values
+   * backing it.
+   *
+   * @param width the width of the image
+   * @param height the height of the image
+   * @param pixels the packed pixels of the image
+   * @return the histogram of the image
+   */
+  static Histogram compute(int width, int height, int[] pixels) {
+    return count(width, height, (bins, rowStart, rowEnd) ->
+            countPixels(bins, pixels, rowStart * width, rowEnd * width));
+  }
+
+  // counts the pixels of bands of rows into separate bins that are added together at the end
+  private static Histogram count(int width, int height, BandCounter counter) {
+    int[] totals = new int[4 * LEVELS];
+    TileScheduler.getDefault().forEachPartition(width, height, (rowStart, rowEnd) -> {
+      int[] bins = new int[4 * LEVELS];
+      counter.count(bins, rowStart, rowEnd);
+      synchronized (totals) {
+        for (int i = 0; i < totals.length; i++) {
+          totals[i] += bins[i];
+        }
+      }
+    });
+    return fromBins(totals);
+  }
+
+  // counts pixels into bins for red, green, blue, and intensity, one after another
+  private static void countPixels(int[] bins, int[] pixels, int start, int end) {
+    for (int i = start; i < end; i++) {
+      int argb = pixels[i];
+      int r = PackedPixels.red(argb);
+      int g = PackedPixels.green(argb);
+      int b = PackedPixels.blue(argb);
+      bins[r]++;
+      bins[LEVELS + g]++;
+      bins[2 * LEVELS + b]++;
+      bins[3 * LEVELS + PointOperation.intensity(r, g, b)]++;
+    }
+  }
+
+  // splits bins for red, green, blue, and intensity into a histogram
+  private static Histogram fromBins(int[] bins) {
+    int[][] channels = new int[4][LEVELS];
+    for (int c = 0; c < 4; c++) {
+      System.arraycopy(bins, c * LEVELS, channels[c], 0, LEVELS);
+    }
+    return new Histogram(channels[0], channels[1], channels[2], channels[3]);
+  }
+
+  /**
+   * Derives the histogram of the image brightened by the given increment from this
+   * histogram of the image. Each component moves to another bin, and so does the intensity,
+   * but only when no component is clamped: once some are, the intensity of a pixel depends
+   * on which of its components were clamped, which this histogram does not say.
+   *
+   * @param increment the amount the image is brightened by
+   * @return the histogram of the brightened image, or null if it cannot be derived exactly
+   */
+  Histogram brighten(int increment) {
+    if (increment == 0) {
+      return this;
+    }
+    for (int[] channel : new int[][] {this.red, this.green, this.blue}) {
+      for (int value = 0; value < LEVELS; value++) {
+        if (channel[value] != 0 && (value + increment < 0 || value + increment >= LEVELS)) {
+          return null; // this component would be clamped
+        }
+      }
+    }
+    return new Histogram(shift(this.red, increment), shift(this.green, increment),
+            shift(this.blue, increment), shift(this.intensity, increment));
+  }
+
+  // moves every frequency of a channel along by the given amount, which keeps them in range
+  private static int[] shift(int[] channel, int amount) {
+    int[] result = new int[LEVELS];
+    for (int value = Math.max(0, -amount); value < Math.min(LEVELS, LEVELS - amount); value++) {
+      result[value + amount] = channel[value];
+    }
+    return result;
+  }
+
+  /**
+   * Derives the histogram of the image visualizing the given component from this histogram
+   * of the image. Each pixel of the result is a grey whose three components and intensity
+   * all equal the component it visualizes, so for the red, green, blue, and intensity
+   * components every array of the result is the array of that component. The other
+   * components cannot be found from this histogram.
+   *
+   * @param component the component being visualized
+   * @return the histogram of the visualized image, or null if it cannot be derived exactly
+   */
+  Histogram visualize(ImageModel.Component component) {
+    int[] channel;
+    switch (component) {
+      case RED:
+        channel = this.red;
+        break;
+      case GREEN:
+        channel = this.green;
+        break;
+      case BLUE:
+        channel = this.blue;
+        break;
+      case INTENSITY:
+        channel = this.intensity;
+        break;
+      default:
+        return null;
+    }
+    return new Histogram(channel, channel, channel, channel);
+  }
+
+  /**
+   * Gets the number of pixels with each value of the red component.
+   *
+   * @return a new array of frequencies, indexed by value
+   */
+  public int[] getRed() {
+    return this.red.clone();
+  }
+
+  /**
+   * Gets the number of pixels with each value of the green component.
+   *
+   * @return a new array of frequencies, indexed by value
+   */
+  public int[] getGreen() {
+    return this.green.clone();
+  }
+
+  /**
+   * Gets the number of pixels with each value of the blue component.
+   *
+   * @return a new array of frequencies, indexed by value
+   */
+  public int[] getBlue() {
+    return this.blue.clone();
+  }
+
+  /**
+   * Gets the number of pixels with each value of intensity, the rounded average of the
+   * three components.
+   *
+   * @return a new array of frequencies, indexed by value
+   */
+  public int[] getIntensity() {
+    return this.intensity.clone();
+  }
+
+  /**
+   * Gets the largest frequency of any value in any of the four arrays.
+   *
+   * @return the largest frequency
+   */
+  public int getMaxFrequency() {
+    int max = 0;
+    for (int[] channel : new int[][] {this.red, this.green, this.blue, this.intensity}) {
+      for (int frequency : channel) {
+        max = Math.max(max, frequency);
+      }
+    }
+    return max;
+  }
+
+  // counts the pixels of a band of rows into the given bins
+  private interface BandCounter {
+    void count(int[] bins, int rowStart, int rowEnd);
+  }
+}
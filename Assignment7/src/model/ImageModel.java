@@ -1,5 +1,6 @@
 package model;
 
+import java.awt.Rectangle;
 
 /**
  * Interface containing the methods
@@ -49,6 +50,18 @@ public interface ImageModel {
    */
   ImageModel filter(Kernel kernel);
 
+  /**
+   * Filter this image according to the given kernel, treating the pixels that the kernel
+   * overlaps outside the image as described by the given edge policy. Filtering with
+   * EdgePolicy.ZERO is the same as filter(kernel).
+   *
+   * @param kernel the kernel of the desired filter
+   * @param edgePolicy how to treat pixels outside the image
+   * @return a new image visualizing a filtered image
+   * @throws IllegalArgumentException if the kernel or edge policy is null
+   */
+  ImageModel filter(Kernel kernel, EdgePolicy edgePolicy) throws IllegalArgumentException;
+
   /**
    * Apply a color transformation according to the coefficients in the given matrix.
    * Supports a color transformation is such that the RGB components of each pixel in a resulting
@@ -59,6 +72,17 @@ public interface ImageModel {
    */
   ImageModel colorTransform(ColorMatrix matrix);
 
+  /**
+   * Apply an operation that changes each pixel using only its own color, such as a curve,
+   * through the lookup tables of the given point operation. Brightening and visualizing
+   * components are point operations as well.
+   *
+   * @param operation the point operation to apply
+   * @return a new image visualizing the result of the operation
+   * @throws IllegalArgumentException if the operation is null
+   */
+  ImageModel applyPointOperation(PointOperation operation) throws IllegalArgumentException;
+
   /**
    * Conducts a mosaic operation on the given image using the number of seeds provided.
    * @param seeds the number of seeds to conduct the operation with.
@@ -66,6 +90,15 @@ public interface ImageModel {
    */
   ImageModel mosaic(int seeds) throws IllegalArgumentException;
 
+  /**
+   * Returns the histogram of this image,
+   * computing it the first time it is asked
+   * for and keeping it after that.
+   *
+   * @return the histogram of this image
+   */
+  Histogram getHistogram();
+
   /**
    * Returns the width of the
    * image in pixels.
@@ -105,6 +138,41 @@ public interface ImageModel {
    */
   Pixel getPixel(int row, int col);
 
+  /**
+   * Copies one row of this image into the given array as packed ARGB values
+   * (see PackedPixels), starting at index 0.
+   *
+   * @param row the row to copy
+   * @param dest the array to copy into, which must hold at least getWidth() values
+   * @throws IllegalArgumentException if the row is out of bounds of the image
+   *         or the array is null or too small
+   */
+  void getRowARGB(int row, int[] dest) throws IllegalArgumentException;
+
+  /**
+   * Copies a rectangular region of this image into the given array as packed ARGB values
+   * (see PackedPixels). The rectangle's x and y are the column and row of its top-left corner.
+   * Row r of the region is copied to the array starting at index offset + r * stride.
+   *
+   * @param region the region of the image to copy
+   * @param dest the array to copy into
+   * @param offset the index in the array where the first pixel of the region goes
+   * @param stride the distance in the array between the starts of consecutive rows
+   * @throws IllegalArgumentException if the region is null or not inside the image, or the
+   *         array is null or too small for the given offset and stride
+   */
+  void getRegionARGB(Rectangle region, int[] dest, int offset, int stride)
+          throws IllegalArgumentException;
+
+  /**
+   * Gives the position and packed ARGB value (see PackedPixels) of every pixel in this image
+   * to the given consumer, row by row.
+   *
+   * @param consumer the consumer to give each pixel to
+   * @throws IllegalArgumentException if the consumer is null
+   */
+  void forEachPixel(IntPixelConsumer consumer) throws IllegalArgumentException;
+
   /**
    * Returns the text of the PPM file
    * using the contents of the image.
@@ -0,0 +1,89 @@
+package model;
+
+import java.awt.Rectangle;
+import java.util.Arrays;
+
+/**
+ * Holds operations that change the size of an image, such as making a smaller proxy of a
+ * large image that is quick to edit and display.
+ */
+public final class ImageScaling {
+
+  // not meant to be instantiated
+  private ImageScaling() {
+  }
+
+  /**
+   * Shrinks an image to fit within the given size, keeping its proportions. Each pixel of
+   * the result is the rounded average of the box of pixels of the image it covers, including
+   * their alpha. The result has the same max RGB value as the image. An image that already
+   * fits is returned as it is.
+   *
+   * @param image the image to shrink
+   * @param maxWidth the largest width the result may have
+   * @param maxHeight the largest height the result may have
+   * @return the image shrunk to fit, or the image itself if it already fits
+   * @throws IllegalArgumentException if the image is null or the size is not positive
+   */
+  public static ImageModel downscale(ImageModel image, int maxWidth, int maxHeight)
+          throws IllegalArgumentException {
+    if (image == null) {
+      throw new IllegalArgumentException("Image cannot be null.");
+    }
+    if (maxWidth <= 0 || maxHeight <= 0) {
+      throw new IllegalArgumentException("Size must be positive.");
+    }
+    int width = image.getWidth();
+    int height = image.getHeight();
+    if (width <= maxWidth && height <= maxHeight) {
+      return image;
+    }
+    double scale = Math.min((double) maxWidth / width, (double) maxHeight / height);
+    int resultWidth = Math.max(1, Math.min(maxWidth, (int) Math.round(width * scale)));
+    int resultHeight = Math.max(1, Math.min(maxHeight, (int) Math.round(height * scale)));
+
+    // the first column of the image in the box of each column of the result, and one past
+    // the last column of the last box
+    int[] columnStart = new int[resultWidth + 1];
+    for (int x = 0; x <= resultWidth; x++) {
+      columnStart[x] = (int) ((long) x * width / resultWidth);
+    }
+    int[] result = new int[resultWidth * resultHeight];
+    TileScheduler.getDefault().forEachBand(resultWidth, resultHeight, (rowStart, rowEnd) -> {
+      long[] sums = new long[4 * resultWidth]; // alpha, red, green, and blue of each box
+      int[] rows = new int[0];
+      for (int y = rowStart; y < rowEnd; y++) {
+        int top = (int) ((long) y * height / resultHeight);
+        int bottom = (int) ((long) (y + 1) * height / resultHeight);
+        int boxRows = bottom - top;
+        if (rows.length < boxRows * width) {
+          rows = new int[boxRows * width];
+        }
+        image.getRegionARGB(new Rectangle(0, top, width, boxRows), rows, 0, width);
+        Arrays.fill(sums, 0);
+        for (int r = 0; r < boxRows; r++) {
+          int x = 0;
+          for (int col = 0; col < width; col++) {
+            while (col >= columnStart[x + 1]) {
+              x++;
+            }
+            int argb = rows[r * width + col];
+            sums[4 * x] += PackedPixels.alpha(argb);
+            sums[4 * x + 1] += PackedPixels.red(argb);
+            sums[4 * x + 2] += PackedPixels.green(argb);
+            sums[4 * x + 3] += PackedPixels.blue(argb);
+          }
+        }
+        for (int x = 0; x < resultWidth; x++) {
+          long count = (long) boxRows * (columnStart[x + 1] - columnStart[x]);
+          result[y * resultWidth + x] = PackedPixels.pack(
+                  (int) ((sums[4 * x] + count / 2) / count),
+                  (int) ((sums[4 * x + 1] + count / 2) / count),
+                  (int) ((sums[4 * x + 2] + count / 2) / count),
+                  (int) ((sums[4 * x + 3] + count / 2) / count));
+        }
+      }
+    });
+    return new PackedImageModel(resultWidth, resultHeight, image.getMaxRGB(), result);
+  }
+}
@@ -0,0 +1,19 @@
+package model;
+
+/**
+ * Represents an operation that accepts the position of a pixel along with its packed
+ * ARGB value (see PackedPixels), used to visit every pixel of an image without creating
+ * a Pixel object for each one.
+ */
+@FunctionalInterface
+public interface IntPixelConsumer {
+
+  /**
+   * Performs this operation on the given pixel.
+   *
+   * @param row the row of the pixel
+   * @param col the column of the pixel
+   * @param argb the packed ARGB value of the pixel
+   */
+  void accept(int row, int col, int argb);
+}
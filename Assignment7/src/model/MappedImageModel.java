@@ -0,0 +1,300 @@
+package model;
+
+import java.awt.Rectangle;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Class for an image whose pixels stay in a file that is mapped into memory, rather than
+ * being copied onto the heap. The file holds the samples of the image in the layout of a
+ * binary (P6) PPM file: row by row, with the red, green, and blue samples of each pixel
+ * taking one byte each, or two bytes each (most significant first) for wide samples. Pixels
+ * are decoded as they are asked for, so the operating system only pages in the parts of the
+ * file that are used, and images larger than the heap can still be opened and inspected.
+ *
+ * <p>Visualizing a component, brightening, or applying a point operation gives another mapped
+ * image that applies the operation as pixels are decoded, so these can be chained and then
+ * streamed out row by row without ever holding the whole image. Every other operation,
+ * including color transformations, needs the whole image at once, and works on a copy of it
+ * in a PackedImageModel.
+ *
+ * <p>Samples are not checked against the max value when the file is mapped, since that
+ * would mean reading all of it. Wide samples are scaled down to 8 bits, as the other image
+ * models hold, and give an image with a max RGB value of 255.
+ */
+public final class MappedImageModel implements ImageModel {
+  private static final int MAX_SEGMENT_SIZE = 1 << 30;
+  private static final PointOperation[] NO_OPERATIONS = new PointOperation[0];
+
+  private final int width;
+  private final int height;
+  private volatile int maxRGB; // raised when brightened, maybe by several threads at once
+  private final int sampleMax; // the max value wide samples are scaled from
+  private final boolean wide;
+  private final int pixelBytes;
+  private final int rowBytes;
+  private final int rowsPerSegment;
+  private final ByteBuffer[] segments; // each maps a whole number of rows of the file
+  private final PointOperation[] operations; // applied in order to each decoded pixel
+  private volatile Histogram histogram; // computed the first time it is asked for
+
+  /**
+   * Constructor maps the samples of an image from the given file, starting at the given
+   * position of the file. The mapping stays valid after the channel is closed.
+   *
+   * @param channel the file to map
+   * @param offset the position of the first sample in the file
+   * @param width width in pixels
+   * @param height height in pixels
+   * @param maxValue the max value of the samples in the file
+   * @param wide whether each sample takes two bytes rather than one
+   * @throws IOException if the file cannot be mapped
+   * @throws IllegalArgumentException if the channel is null, the dimensions are not
+   *         positive, the max value is negative (or zero for wide samples), the offset is
+   *         negative, or the file is too short to hold the image
+   */
+  public MappedImageModel(FileChannel channel, long offset, int width, int height,
+                          int maxValue, boolean wide)
+          throws IOException, IllegalArgumentException {
+    if (channel == null) {
+      throw new IllegalArgumentException("Channel cannot be null.");
+    }
+    if (width <= 0 || height <= 0 || maxValue < 0 || (wide && maxValue == 0)) {
+      throw new IllegalArgumentException(
+              "Height, width, and max RGB values cannot be negative");
+    }
+    if (offset < 0) {
+      throw new IllegalArgumentException("Offset cannot be negative.");
+    }
+    int pixelBytes = wide ? 6 : 3;
+    if ((long) width * pixelBytes > Integer.MAX_VALUE) {
+      throw new IllegalArgumentException("Image is too large to load");
+    }
+    int rowBytes = width * pixelBytes;
+    if (channel.size() - offset < (long) rowBytes * height) {
+      throw new IllegalArgumentException("Not enough pixel values supplied");
+    }
+    this.width = width;
+    this.height = height;
+    this.maxRGB = wide ? 255 : maxValue;
+    this.sampleMax = maxValue;
+    this.wide = wide;
+    this.pixelBytes = pixelBytes;
+    this.rowBytes = rowBytes;
+    this.rowsPerSegment = Math.max(1, MAX_SEGMENT_SIZE / rowBytes);
+    this.segments = new ByteBuffer[(height + this.rowsPerSegment - 1) / this.rowsPerSegment];
+    for (int i = 0; i < this.segments.length; i++) {
+      int rows = Math.min(this.rowsPerSegment, height - i * this.rowsPerSegment);
+      this.segments[i] = channel.map(FileChannel.MapMode.READ_ONLY,
+              offset + (long) i * this.rowsPerSegment * rowBytes, (long) rows * rowBytes);
+    }
+    this.operations = NO_OPERATIONS;
+  }
+
+  // creates an image of the same file as the given image, with one more operation applied
+  private MappedImageModel(MappedImageModel image, PointOperation operation) {
+    this.width = image.width;
+    this.height = image.height;
+    this.maxRGB = image.maxRGB;
+    this.sampleMax = image.sampleMax;
+    this.wide = image.wide;
+    this.pixelBytes = image.pixelBytes;
+    this.rowBytes = image.rowBytes;
+    this.rowsPerSegment = image.rowsPerSegment;
+    this.segments = image.segments;
+    this.operations = Arrays.copyOf(image.operations, image.operations.length + 1);
+    this.operations[image.operations.length] = operation;
+  }
+
+  @Override
+  public int getWidth() {
+    return this.width;
+  }
+
+  @Override
+  public int getHeight() {
+    return this.height;
+  }
+
+  @Override
+  public int getMaxRGB() {
+    return this.maxRGB;
+  }
+
+  @Override
+  public Histogram getHistogram() {
+    Histogram result = this.histogram;
+    if (result == null) { // computing it twice at once is harmless, as both give the same
+      result = Histogram.compute(this);
+      this.histogram = result;
+    }
+    return result;
+  }
+
+  /**
+   * Raises the max RGB value of this image to at least the given value, as brightening this
+   * image would. Used by FusedColorImageModel, which brightens images without calling brighten.
+   *
+   * @param value the smallest max RGB value this image should have
+   */
+  synchronized void raiseMaxRGB(int value) {
+    this.maxRGB = Math.max(this.maxRGB, value);
+  }
+
+  @Override
+  public Pixel getPixel(int row, int col) throws IllegalArgumentException {
+    if (row < 0 || row >= this.height || col < 0 || col >= this.width) {
+      throw new IllegalArgumentException("Position out of bounds");
+    }
+    int[] argb = new int[1];
+    this.decode(row, col, 1, argb, 0, new byte[this.pixelBytes]);
+    return PackedPixels.toPixel(argb[0]);
+  }
+
+  @Override
+  public void getRowARGB(int row, int[] dest) throws IllegalArgumentException {
+    BulkAccess.checkRow(row, dest, this.width, this.height);
+    this.decode(row, 0, this.width, dest, 0, new byte[this.rowBytes]);
+  }
+
+  @Override
+  public void getRegionARGB(Rectangle region, int[] dest, int offset, int stride)
+          throws IllegalArgumentException {
+    BulkAccess.checkRegion(region, dest, offset, stride, this.width, this.height);
+    byte[] samples = new byte[region.width * this.pixelBytes];
+    for (int r = 0; r < region.height; r++) {
+      this.decode(region.y + r, region.x, region.width, dest, offset + r * stride, samples);
+    }
+  }
+
+  // decodes the given number of pixels of a row, starting at the given column, into the
+  // destination array, using the given array (of at least that many pixels) for the samples
+  private void decode(int row, int col, int count, int[] dest, int destOffset,
+                      byte[] samples) {
+    ByteBuffer segment = this.segments[row / this.rowsPerSegment];
+    int index = (row % this.rowsPerSegment) * this.rowBytes + col * this.pixelBytes;
+    int length = count * this.pixelBytes;
+    segment.get(index, samples, 0, length); // an absolute read, so safe from many threads
+    int pixel = destOffset;
+    if (this.wide) {
+      for (int i = 0; i < length; i += 6) {
+        dest[pixel++] = PackedPixels.pack(255,
+                this.scale(((samples[i] & 0xFF) << 8) | (samples[i + 1] & 0xFF)),
+                this.scale(((samples[i + 2] & 0xFF) << 8) | (samples[i + 3] & 0xFF)),
+                this.scale(((samples[i + 4] & 0xFF) << 8) | (samples[i + 5] & 0xFF)));
+      }
+    } else {
+      for (int i = 0; i < length; i += 3) {
+        dest[pixel++] = PackedPixels.pack(255,
+                samples[i] & 0xFF, samples[i + 1] & 0xFF, samples[i + 2] & 0xFF);
+      }
+    }
+    for (PointOperation operation : this.operations) {
+      operation.apply(dest, dest, destOffset, destOffset + count);
+    }
+  }
+
+  // scales a wide sample down to 8 bits, rounding to the nearest
+  private int scale(int sample) {
+    return Math.min(255, (sample * 255 + this.sampleMax / 2) / this.sampleMax);
+  }
+
+  @Override
+  public void forEachPixel(IntPixelConsumer consumer) throws IllegalArgumentException {
+    if (consumer == null) {
+      throw new IllegalArgumentException("Consumer cannot be null.");
+    }
+    int[] rowData = new int[this.width];
+    byte[] samples = new byte[this.rowBytes];
+    for (int row = 0; row < this.height; row++) {
+      this.decode(row, 0, this.width, rowData, 0, samples);
+      for (int col = 0; col < this.width; col++) {
+        consumer.accept(row, col, rowData[col]);
+      }
+    }
+  }
+
+  @Override
+  public ImageModel visualizeComponent(Component component) throws IllegalArgumentException {
+    return this.applyPointOperation(PointOperation.visualize(component));
+  }
+
+  @Override
+  public ImageModel applyPointOperation(PointOperation operation)
+          throws IllegalArgumentException {
+    if (operation == null) {
+      throw new IllegalArgumentException("Point operation cannot be null.");
+    }
+    return new MappedImageModel(this, operation);
+  }
+
+  @Override
+  public ImageModel flip(String direction) throws IllegalArgumentException {
+    return this.toPacked().flip(direction);
+  }
+
+  @Override
+  public ImageModel brighten(int increment) {
+    MappedImageModel result = new MappedImageModel(this, PointOperation.brighten(increment));
+    // like the other models, brightening raises the max RGB value of this image as well, to
+    // the largest component of the result, which is found a row at a time
+    AtomicInteger newMax = new AtomicInteger();
+    TileScheduler.getDefault().forEachBand(this.width, this.height, (rowStart, rowEnd) -> {
+      int[] rowData = new int[this.width];
+      byte[] samples = new byte[this.rowBytes];
+      int bandMax = 0;
+      for (int row = rowStart; row < rowEnd; row++) {
+        result.decode(row, 0, this.width, rowData, 0, samples);
+        for (int argb : rowData) {
+          bandMax = Math.max(bandMax, Math.max(PackedPixels.red(argb),
+                  Math.max(PackedPixels.green(argb), PackedPixels.blue(argb))));
+        }
+      }
+      newMax.accumulateAndGet(bandMax, Math::max);
+    });
+    this.raiseMaxRGB(newMax.get());
+    result.raiseMaxRGB(this.maxRGB);
+    return result;
+  }
+
+  @Override
+  public ImageModel filter(Kernel kernel) throws IllegalArgumentException {
+    return this.filter(kernel, EdgePolicy.ZERO);
+  }
+
+  @Override
+  public ImageModel filter(Kernel kernel, EdgePolicy edgePolicy)
+          throws IllegalArgumentException {
+    return this.toPacked().filter(kernel, edgePolicy);
+  }
+
+  @Override
+  public ImageModel colorTransform(ColorMatrix matrix) throws IllegalArgumentException {
+    return this.toPacked().colorTransform(matrix);
+  }
+
+  @Override
+  public ImageModel mosaic(int seeds) throws IllegalArgumentException {
+    return this.toPacked().mosaic(seeds);
+  }
+
+  @Override
+  public String toPPMFile() {
+    return this.toPacked().toPPMFile();
+  }
+
+  // copies the whole image onto the heap, decoding it in bands with the default scheduler
+  private PackedImageModel toPacked() {
+    if ((long) this.width * this.height > Integer.MAX_VALUE) {
+      throw new IllegalStateException("Image is too large to copy onto the heap");
+    }
+    int[] pixels = new int[this.width * this.height];
+    TileScheduler.getDefault().forEachBand(this.width, this.height, (rowStart, rowEnd) ->
+            this.getRegionARGB(new Rectangle(0, rowStart, this.width, rowEnd - rowStart),
+                    pixels, rowStart * this.width, this.width));
+    return new PackedImageModel(this.width, this.height, this.getMaxRGB(), pixels);
+  }
+}
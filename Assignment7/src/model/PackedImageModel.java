@@ -0,0 +1,443 @@
+package model;
+
+import java.awt.Point;
+import java.awt.Rectangle;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Class for an image whose pixels are stored in a single row-major array of packed
+ * ARGB ints (see PackedPixels) rather than as individual Pixel objects. Every operation
+ * works directly on the primitive array and produces a new image backed by a new array,
+ * filling the rows of that array in bands with the default TileScheduler.
+ */
+public class PackedImageModel implements ImageModel {
+
+  /**
+   * Field variables describing the image.
+   * width: width of the image in pixels.
+   * height: height of the image in pixels.
+   * maxRGB: max integer value for RGB pixel color.
+   * pixels: packed ARGB values, row by row, so the pixel at (row, col) is at
+   * index row * width + col.
+   */
+  private final int width;
+  private final int height;
+  private volatile int maxRGB; // raised when brightened, maybe by several threads at once
+  private final int[] pixels;
+  private volatile Histogram histogram; // computed the first time it is asked for
+  private volatile long contentHash; // computed the first time it is asked for
+  private volatile boolean hashed; // set after the content hash, so both are seen together
+
+  /**
+   * Constructor creates the model with the input width, height, maximum RGB value,
+   * and an array of packed ARGB values in row-major order. The array is used directly
+   * rather than copied, so the caller must not modify it afterwards.
+   *
+   * @param width width in pixels
+   * @param height height in pixels
+   * @param maxRGB max value for RGB color
+   * @param pixels packed ARGB values in row-major order
+   * @throws IllegalArgumentException if the dimensions are not positive, the max RGB value
+   *         is negative, or the array is null or does not match the dimensions
+   */
+  public PackedImageModel(int width, int height, int maxRGB, int[] pixels)
+          throws IllegalArgumentException {
+    if (width <= 0 || height <= 0 || maxRGB < 0) {
+      throw new IllegalArgumentException(
+              "Height, width, and max RGB values cannot be negative");
+    }
+    if (pixels == null) {
+      throw new IllegalArgumentException("Pixel data cannot be null");
+    }
+    if ((long) width * height != pixels.length) {
+      throw new IllegalArgumentException("Pixel data does not match the image dimensions");
+    }
+    this.width = width;
+    this.height = height;
+    this.maxRGB = maxRGB;
+    this.pixels = pixels;
+  }
+
+  /**
+   * Returns the array of packed ARGB values backing the given image, in row-major order, so
+   * that it can be shared with code outside the model (such as a BufferedImage shown on
+   * screen) without copying it. Images of this class never change their pixels after they
+   * are created, so the array must only be read. Images that are the result of a chain of
+   * FusedColorImageModel steps give the array of their computed result.
+   *
+   * @param image the image to get the array of
+   * @return the array backing the image, or null if the image is not backed by one
+   * @throws IllegalArgumentException if the image is null
+   */
+  public static int[] sharedBuffer(ImageModel image) throws IllegalArgumentException {
+    if (image == null) {
+      throw new IllegalArgumentException("Image cannot be null.");
+    }
+    if (image instanceof FusedColorImageModel) {
+      image = ((FusedColorImageModel) image).compute();
+    }
+    if (image instanceof PackedImageModel) {
+      return ((PackedImageModel) image).pixels;
+    }
+    return null;
+  }
+
+  @Override
+  public int getWidth() {
+    return this.width;
+  }
+
+  @Override
+  public int getHeight() {
+    return this.height;
+  }
+
+  @Override
+  public int getMaxRGB() {
+    return this.maxRGB;
+  }
+
+  @Override
+  public Histogram getHistogram() {
+    Histogram result = this.histogram;
+    if (result == null) { // computing it twice at once is harmless, as both give the same
+      result = Histogram.compute(this.width, this.height, this.pixels);
+      this.histogram = result;
+    }
+    return result;
+  }
+
+  /**
+   * Gets the histogram of this image if it has been computed or derived already, without
+   * computing it.
+   *
+   * @return the histogram of this image, or null if there is none yet
+   */
+  Histogram cachedHistogram() {
+    return this.histogram;
+  }
+
+  /**
+   * Gives this image a histogram derived from the histogram of the image it was made from,
+   * so that it does not have to be computed by scanning this image.
+   *
+   * @param derived the exact histogram of this image, or null if there is none
+   * @return this image
+   */
+  PackedImageModel withHistogram(Histogram derived) {
+    if (derived != null && this.histogram == null) {
+      this.histogram = derived;
+    }
+    return this;
+  }
+
+  @Override
+  public Pixel getPixel(int row, int col) throws IllegalArgumentException {
+    if (row < 0 || row >= this.height || col < 0 || col >= this.width) {
+      throw new IllegalArgumentException("Position out of bounds");
+    }
+    return PackedPixels.toPixel(this.pixels[row * this.width + col]);
+  }
+
+  @Override
+  public void getRowARGB(int row, int[] dest) throws IllegalArgumentException {
+    BulkAccess.checkRow(row, dest, this.width, this.height);
+    System.arraycopy(this.pixels, row * this.width, dest, 0, this.width);
+  }
+
+  @Override
+  public void getRegionARGB(Rectangle region, int[] dest, int offset, int stride)
+          throws IllegalArgumentException {
+    BulkAccess.checkRegion(region, dest, offset, stride, this.width, this.height);
+    for (int r = 0; r < region.height; r++) {
+      System.arraycopy(this.pixels, (region.y + r) * this.width + region.x,
+              dest, offset + r * stride, region.width);
+    }
+  }
+
+  @Override
+  public void forEachPixel(IntPixelConsumer consumer) throws IllegalArgumentException {
+    if (consumer == null) {
+      throw new IllegalArgumentException("Consumer cannot be null.");
+    }
+    int i = 0;
+    for (int row = 0; row < this.height; row++) {
+      for (int col = 0; col < this.width; col++) {
+        consumer.accept(row, col, this.pixels[i++]);
+      }
+    }
+  }
+
+  @Override
+  public ImageModel visualizeComponent(Component component) throws IllegalArgumentException {
+    PackedImageModel result =
+            (PackedImageModel) this.applyPointOperation(PointOperation.visualize(component));
+    Histogram source = this.histogram;
+    return result.withHistogram(source == null ? null : source.visualize(component));
+  }
+
+  @Override
+  public ImageModel flip(String direction) throws IllegalArgumentException {
+    if (direction == null) {
+      throw new IllegalArgumentException("Invalid flip direction");
+    }
+    int[] result = new int[this.pixels.length];
+    switch (direction) {
+      case "horizontal":
+        this.forEachRowBand((rowStart, rowEnd) -> {
+          for (int row = rowStart; row < rowEnd; row++) {
+            int start = row * this.width;
+            int end = start + this.width - 1;
+            for (int col = 0; col < this.width; col++) {
+              result[start + col] = this.pixels[end - col];
+            }
+          }
+        });
+        break;
+      case "vertical":
+        this.forEachRowBand((rowStart, rowEnd) -> {
+          for (int row = rowStart; row < rowEnd; row++) {
+            System.arraycopy(this.pixels, (this.height - 1 - row) * this.width,
+                    result, row * this.width, this.width);
+          }
+        });
+        break;
+      default:
+        throw new IllegalArgumentException("Invalid flip direction");
+    }
+    // flipping only moves pixels around, so the histogram is the same
+    return new PackedImageModel(this.width, this.height, this.maxRGB, result)
+            .withHistogram(this.histogram);
+  }
+
+  @Override
+  public ImageModel brighten(int increment) {
+    PointOperation operation = PointOperation.brighten(increment);
+    int[] result = new int[this.pixels.length];
+    AtomicInteger newMax = new AtomicInteger(); // each band merges its own max once
+    this.forEachBand((start, end) ->
+            newMax.accumulateAndGet(operation.apply(this.pixels, result, start, end), Math::max));
+    // like RasterImageModel, brightening raises the max RGB value of this image as well
+    this.raiseMaxRGB(newMax.get());
+    Histogram source = this.histogram;
+    return new PackedImageModel(this.width, this.height, this.maxRGB, result)
+            .withHistogram(source == null ? null : source.brighten(increment));
+  }
+
+  /**
+   * Raises the max RGB value of this image to at least the given value, as brightening this
+   * image would. Used by FusedColorImageModel, which brightens images without calling brighten.
+   *
+   * @param value the smallest max RGB value this image should have
+   */
+  synchronized void raiseMaxRGB(int value) {
+    this.maxRGB = Math.max(this.maxRGB, value);
+  }
+
+  @Override
+  public ImageModel filter(Kernel kernel) throws IllegalArgumentException {
+    return this.filter(kernel, EdgePolicy.ZERO);
+  }
+
+  @Override
+  public ImageModel filter(Kernel kernel, EdgePolicy edgePolicy)
+          throws IllegalArgumentException {
+    if (kernel == null) {
+      throw new IllegalArgumentException("Kernel cannot be null.");
+    }
+    if (edgePolicy == null) {
+      throw new IllegalArgumentException("Edge policy cannot be null.");
+    }
+    return new PackedImageModel(this.width, this.height, this.maxRGB,
+            Convolution.apply(this.pixels, this.width, this.height, kernel, edgePolicy));
+  }
+
+  // rounds to the nearest integer and clamps 0 to 255
+  private static int clampRound(double value) {
+    return (int) Math.max(0, Math.min(Math.round(value), 255));
+  }
+
+  @Override
+  public ImageModel colorTransform(ColorMatrix matrix) throws IllegalArgumentException {
+    if (matrix == null) {
+      throw new IllegalArgumentException("Transformation matrix cannot be null.");
+    }
+    double[] red = unbox(matrix.redCoefficients());
+    double[] green = unbox(matrix.greenCoefficients());
+    double[] blue = unbox(matrix.blueCoefficients());
+    int[] result = new int[this.pixels.length];
+    this.forEachBand((start, end) -> {
+      for (int i = start; i < end; i++) {
+        int argb = this.pixels[i];
+        int r = PackedPixels.red(argb);
+        int g = PackedPixels.green(argb);
+        int b = PackedPixels.blue(argb);
+        result[i] = PackedPixels.pack(PackedPixels.alpha(argb),
+                clampRound(red[0] * r + red[1] * g + red[2] * b),
+                clampRound(green[0] * r + green[1] * g + green[2] * b),
+                clampRound(blue[0] * r + blue[1] * g + blue[2] * b));
+      }
+    });
+    return new PackedImageModel(this.width, this.height, this.maxRGB, result);
+  }
+
+  @Override
+  public ImageModel applyPointOperation(PointOperation operation)
+          throws IllegalArgumentException {
+    if (operation == null) {
+      throw new IllegalArgumentException("Point operation cannot be null.");
+    }
+    int[] result = new int[this.pixels.length];
+    this.forEachBand((start, end) -> operation.apply(this.pixels, result, start, end));
+    return new PackedImageModel(this.width, this.height, this.maxRGB, result);
+  }
+
+  // converts an array of coefficients to primitives once, rather than for every pixel
+  private static double[] unbox(Double[] coefficients) {
+    return new double[] {coefficients[0], coefficients[1], coefficients[2]};
+  }
+
+  @Override
+  public ImageModel mosaic(int seeds) throws IllegalArgumentException {
+    if (seeds <= 0) {
+      throw new IllegalArgumentException("Number of seeds must be positive.");
+    }
+    Random rand = new Random();
+    Set<Point> seedSet = new LinkedHashSet<>(); // duplicate seeds make up the same cluster
+    for (int i = 0; i < seeds; i++) {
+      seedSet.add(new Point(rand.nextInt(this.height), rand.nextInt(this.width)));
+    }
+    List<Point> seedList = new ArrayList<>(seedSet);
+
+    // label each pixel with the index of its closest seed, summing the colors of each
+    // cluster in arrays local to each band that are added to the totals once at the end
+    SeedIndex index = new SeedIndex(seedList, this.height, this.width);
+    int clusters = seedList.size();
+    int[] labels = new int[this.pixels.length];
+    long[] sums = new long[4 * clusters]; // red, green, blue, and count of each cluster
+    TileScheduler.getDefault().forEachPartition(this.width, this.height, (rowStart, rowEnd) -> {
+      long[] bandSums = new long[4 * clusters];
+      for (int row = rowStart; row < rowEnd; row++) {
+        for (int col = 0; col < this.width; col++) {
+          int i = row * this.width + col;
+          int label = index.nearest(row, col);
+          int argb = this.pixels[i];
+          labels[i] = label;
+          bandSums[4 * label] += PackedPixels.red(argb);
+          bandSums[4 * label + 1] += PackedPixels.green(argb);
+          bandSums[4 * label + 2] += PackedPixels.blue(argb);
+          bandSums[4 * label + 3]++;
+        }
+      }
+      synchronized (sums) {
+        for (int k = 0; k < sums.length; k++) {
+          sums[k] += bandSums[k];
+        }
+      }
+    });
+
+    // the average color of each cluster, without alpha
+    int[] averages = new int[clusters];
+    for (int label = 0; label < clusters; label++) {
+      double count = sums[4 * label + 3];
+      if (count > 0) {
+        averages[label] = PackedPixels.pack(0, (int) (sums[4 * label] / count),
+                (int) (sums[4 * label + 1] / count), (int) (sums[4 * label + 2] / count));
+      }
+    }
+    int[] result = new int[this.pixels.length];
+    this.forEachBand((start, end) -> {
+      for (int i = start; i < end; i++) {
+        result[i] = (this.pixels[i] & 0xFF000000) | averages[labels[i]];
+      }
+    });
+    return new PackedImageModel(this.width, this.height, this.maxRGB, result);
+  }
+
+  // runs the given task on bands of rows of this image with the default scheduler
+  private void forEachRowBand(TileScheduler.BandTask task) {
+    TileScheduler.getDefault().forEachBand(this.width, this.height, task);
+  }
+
+  // runs the given task on bands of rows of this image with the default scheduler, giving it
+  // the range of indices of those rows in the pixel array instead of the rows themselves
+  private void forEachBand(TileScheduler.BandTask task) {
+    this.forEachRowBand((rowStart, rowEnd) -> task.run(rowStart * this.width,
+            rowEnd * this.width));
+  }
+
+  @Override
+  public String toPPMFile() {
+    StringBuilder outputText = new StringBuilder(this.pixels.length * 12 + 32);
+    outputText.append("P3").append(System.lineSeparator())
+            .append(this.width).append(' ').append(this.height).append(System.lineSeparator())
+            .append(this.maxRGB).append(System.lineSeparator());
+    for (int i = 0; i < this.pixels.length; i++) {
+      int argb = this.pixels[i];
+      outputText.append(PackedPixels.red(argb)).append('\n')
+              .append(PackedPixels.green(argb)).append('\n')
+              .append(PackedPixels.blue(argb));
+      if (i != this.pixels.length - 1) {
+        outputText.append('\n');
+      }
+    }
+    return outputText.toString();
+  }
+
+  /**
+   * Gets the hash of the size and pixels of this image (see ContentHash), computing it the
+   * first time it is asked for. The pixels of this image never change, so neither does this.
+   *
+   * @return the content hash of this image
+   */
+  public long contentHash() {
+    if (!this.hashed) { // computing it twice at once is harmless, as both give the same
+      this.contentHash = ContentHash.hashPixels(this);
+      this.hashed = true;
+    }
+    return this.contentHash;
+  }
+
+  /**
+   * Compares this image with another object. They are equal if the other object is also a
+   * PackedImageModel with the same size, max RGB value, and pixels. Images with different
+   * content hashes are told apart without comparing their pixels, and images sharing one
+   * array of pixels are not compared pixel by pixel either.
+   *
+   * @param other object to compare with
+   * @return true if the images are equal, false otherwise
+   */
+  @Override
+  public boolean equals(Object other) {
+    if (this == other) {
+      return true;
+    }
+    if (!(other instanceof PackedImageModel)) {
+      return false;
+    }
+    PackedImageModel that = (PackedImageModel) other;
+    if (this.width != that.width || this.height != that.height
+            || this.maxRGB != that.maxRGB) {
+      return false;
+    }
+    return this.pixels == that.pixels || (this.contentHash() == that.contentHash()
+            && Arrays.equals(this.pixels, that.pixels));
+  }
+
+  /**
+   * Gets a hash code for this image from its content hash. It leaves out the max RGB value,
+   * which brightening may raise, so the hash code of an image never changes.
+   *
+   * @return hash code
+   */
+  @Override
+  public int hashCode() {
+    return Long.hashCode(this.contentHash());
+  }
+}
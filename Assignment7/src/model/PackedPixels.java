@@ -0,0 +1,86 @@
+package model;
+
+/**
+ * Holds static helpers for packing the alpha, red, green, and blue components of a pixel
+ * into a single int (0xAARRGGBB) and for unpacking them again. Each component is stored
+ * in 8 bits.
+ */
+public final class PackedPixels {
+
+  // not meant to be instantiated
+  private PackedPixels() {
+  }
+
+  /**
+   * Packs the given components into a single ARGB int. Each component is masked to 8 bits.
+   *
+   * @param a alpha value
+   * @param r red value
+   * @param g green value
+   * @param b blue value
+   * @return the packed ARGB value
+   */
+  public static int pack(int a, int r, int g, int b) {
+    return ((a & 0xFF) << 24) | ((r & 0xFF) << 16) | ((g & 0xFF) << 8) | (b & 0xFF);
+  }
+
+  /**
+   * Packs the components of the given pixel into a single ARGB int.
+   *
+   * @param pixel the pixel to pack
+   * @return the packed ARGB value
+   */
+  public static int pack(Pixel pixel) {
+    return pack(pixel.getAlpha(), pixel.getRed(), pixel.getGreen(), pixel.getBlue());
+  }
+
+  /**
+   * Gets the alpha component of a packed ARGB value.
+   *
+   * @param argb the packed value
+   * @return the alpha component
+   */
+  public static int alpha(int argb) {
+    return argb >>> 24;
+  }
+
+  /**
+   * Gets the red component of a packed ARGB value.
+   *
+   * @param argb the packed value
+   * @return the red component
+   */
+  public static int red(int argb) {
+    return (argb >> 16) & 0xFF;
+  }
+
+  /**
+   * Gets the green component of a packed ARGB value.
+   *
+   * @param argb the packed value
+   * @return the green component
+   */
+  public static int green(int argb) {
+    return (argb >> 8) & 0xFF;
+  }
+
+  /**
+   * Gets the blue component of a packed ARGB value.
+   *
+   * @param argb the packed value
+   * @return the blue component
+   */
+  public static int blue(int argb) {
+    return argb & 0xFF;
+  }
+
+  /**
+   * Converts a packed ARGB value into a Pixel object.
+   *
+   * @param argb the packed value
+   * @return a pixel with the same components
+   */
+  public static Pixel toPixel(int argb) {
+    return new ARGBPixel(alpha(argb), red(argb), green(argb), blue(argb));
+  }
+}
@@ -0,0 +1,219 @@
+package model;
+
+/**
+ * Represents an operation that changes each pixel of an image using only that pixel's own
+ * color, such as brightening or visualizing a component. Since every color component has 8
+ * bits, the operation is compiled into 256 entry lookup tables once, and applying it to an
+ * image is only a few table reads per pixel. Operations keep the alpha of each pixel.
+ *
+ * <p>An operation either maps each color component through its own table (a curve), or
+ * replaces each pixel with a shade of grey computed from its components.
+ */
+public final class PointOperation {
+  private static final int LEVELS = 256;
+
+  // the intensity of a pixel, indexed by the sum of its components
+  private static final int[] INTENSITY = new int[3 * (LEVELS - 1) + 1];
+  // the weighted components of luma, kept as doubles and summed in the same order as
+  // Pixel.getLuma so the rounded result is exactly the same
+  private static final double[] LUMA_RED = new double[LEVELS];
+  private static final double[] LUMA_GREEN = new double[LEVELS];
+  private static final double[] LUMA_BLUE = new double[LEVELS];
+
+  static {
+    for (int sum = 0; sum < INTENSITY.length; sum++) {
+      INTENSITY[sum] = (int) Math.round(sum / 3.0);
+    }
+    for (int c = 0; c < LEVELS; c++) {
+      LUMA_RED[c] = 0.2126 * c;
+      LUMA_GREEN[c] = 0.7152 * c;
+      LUMA_BLUE[c] = 0.0722 * c;
+    }
+  }
+
+  private final int[] red;
+  private final int[] green;
+  private final int[] blue;
+  private final ImageModel.Component grey; // null for a curve
+
+  private PointOperation(int[] red, int[] green, int[] blue, ImageModel.Component grey) {
+    this.red = red;
+    this.green = green;
+    this.blue = blue;
+    this.grey = grey;
+  }
+
+  /**
+   * Creates an operation mapping the red, green, and blue components of each pixel through
+   * the given tables, where the new value of a component c is table[c].
+   *
+   * @param red the table for the red component
+   * @param green the table for the green component
+   * @param blue the table for the blue component
+   * @return the operation
+   * @throws IllegalArgumentException if any table is null, does not have 256 entries,
+   *         or has an entry outside 0 to 255
+   */
+  public static PointOperation curves(int[] red, int[] green, int[] blue)
+          throws IllegalArgumentException {
+    return new PointOperation(checkTable(red), checkTable(green), checkTable(blue), null);
+  }
+
+  /**
+   * Creates an operation mapping every color component of each pixel through the same table.
+   *
+   * @param table the table for every color component
+   * @return the operation
+   * @throws IllegalArgumentException if the table is null, does not have 256 entries,
+   *         or has an entry outside 0 to 255
+   */
+  public static PointOperation curve(int[] table) throws IllegalArgumentException {
+    int[] checked = checkTable(table);
+    return new PointOperation(checked, checked, checked, null);
+  }
+
+  /**
+   * Creates an operation adding the given amount to every color component of each pixel,
+   * clamping the result to 0 to 255.
+   *
+   * @param increment the amount to add, where negative values darken
+   * @return the operation
+   */
+  public static PointOperation brighten(int increment) {
+    int[] table = brightenTable(increment);
+    return new PointOperation(table, table, table, null);
+  }
+
+  // the table adding the given amount to a component, clamping the result to 0 to 255
+  static int[] brightenTable(int increment) {
+    int[] table = new int[LEVELS];
+    for (int c = 0; c < LEVELS; c++) {
+      table[c] = Math.max(0, Math.min(c + increment, LEVELS - 1));
+    }
+    return table;
+  }
+
+  /**
+   * Creates an operation replacing each pixel with a shade of grey equal to the given
+   * component of that pixel.
+   *
+   * @param component the component to visualize
+   * @return the operation
+   * @throws IllegalArgumentException if the component is null
+   */
+  public static PointOperation visualize(ImageModel.Component component)
+          throws IllegalArgumentException {
+    if (component == null) {
+      throw new IllegalArgumentException("Component cannot be null");
+    }
+    return new PointOperation(null, null, null, component);
+  }
+
+  /**
+   * Gets the intensity of a color, the rounded average of its components. Each component
+   * must be between 0 and 255.
+   *
+   * @param r red value
+   * @param g green value
+   * @param b blue value
+   * @return the intensity of the color
+   */
+  static int intensity(int r, int g, int b) {
+    return INTENSITY[r + g + b];
+  }
+
+  /**
+   * Gets the luma of a color, the rounded weighted sum of its components. Each component
+   * must be between 0 and 255.
+   *
+   * @param r red value
+   * @param g green value
+   * @param b blue value
+   * @return the luma of the color
+   */
+  static int luma(int r, int g, int b) {
+    return (int) Math.round(LUMA_RED[r] + LUMA_GREEN[g] + LUMA_BLUE[b]);
+  }
+
+  /**
+   * Applies this operation to the packed pixels from start (inclusive) to end (exclusive)
+   * of the source array, writing them to the same positions of the destination array.
+   *
+   * @param src the packed pixels to read
+   * @param dst the array to write the packed results to
+   * @param start the first index to apply to
+   * @param end the index after the last one to apply to
+   * @return the largest color component written
+   */
+  int apply(int[] src, int[] dst, int start, int end) {
+    if (this.grey == null) {
+      return this.applyCurves(src, dst, start, end);
+    }
+    int max = 0;
+    for (int i = start; i < end; i++) {
+      int argb = src[i];
+      int r = PackedPixels.red(argb);
+      int g = PackedPixels.green(argb);
+      int b = PackedPixels.blue(argb);
+      int value;
+      switch (this.grey) {
+        case RED:
+          value = r;
+          break;
+        case GREEN:
+          value = g;
+          break;
+        case BLUE:
+          value = b;
+          break;
+        case VALUE:
+          value = Math.max(r, Math.max(g, b));
+          break;
+        case INTENSITY:
+          value = INTENSITY[r + g + b];
+          break;
+        case LUMA:
+          value = luma(r, g, b);
+          break;
+        default:
+          throw new IllegalArgumentException("Error, impossible value");
+      }
+      max = Math.max(max, value);
+      dst[i] = (argb & 0xFF000000) | (value << 16) | (value << 8) | value;
+    }
+    return max;
+  }
+
+  // maps each component through its table
+  private int applyCurves(int[] src, int[] dst, int start, int end) {
+    int[] redTable = this.red;
+    int[] greenTable = this.green;
+    int[] blueTable = this.blue;
+    int max = 0;
+    for (int i = start; i < end; i++) {
+      int argb = src[i];
+      int r = redTable[PackedPixels.red(argb)];
+      int g = greenTable[PackedPixels.green(argb)];
+      int b = blueTable[PackedPixels.blue(argb)];
+      max = Math.max(max, Math.max(r, Math.max(g, b)));
+      dst[i] = (argb & 0xFF000000) | (r << 16) | (g << 8) | b;
+    }
+    return max;
+  }
+
+  // makes a copy of a table after checking it has 256 entries that are all valid components
+  private static int[] checkTable(int[] table) throws IllegalArgumentException {
+    if (table == null) {
+      throw new IllegalArgumentException("Table cannot be null.");
+    }
+    if (table.length != LEVELS) {
+      throw new IllegalArgumentException("Table must have 256 entries.");
+    }
+    for (int value : table) {
+      if (value < 0 || value >= LEVELS) {
+        throw new IllegalArgumentException("Table entries must be between 0 and 255.");
+      }
+    }
+    return table.clone();
+  }
+}
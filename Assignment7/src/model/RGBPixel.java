@@ -54,14 +54,25 @@ public class RGBPixel implements Pixel {
 
   @Override
   public int getIntensity() {
+    if (this.isEightBit()) {
+      return PointOperation.intensity(this.red, this.green, this.blue);
+    }
     return (int) Math.round((this.red + this.green + this.blue) / 3.0);
   }
 
   @Override
   public int getLuma() {
+    if (this.isEightBit()) {
+      return PointOperation.luma(this.red, this.green, this.blue);
+    }
     return (int) Math.round(0.2126 * this.red + 0.7152 * this.green + 0.0722 * this.blue);
   }
 
+  // whether every color value fits the lookup tables of PointOperation
+  private boolean isEightBit() {
+    return (this.red | this.green | this.blue) < 256;
+  }
+
   /**
    * Overrides the Object equals
    * method to compare two pixels.
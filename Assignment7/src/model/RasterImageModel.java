@@ -1,14 +1,12 @@
 package model;
 
 import java.awt.Point;
+import java.awt.Rectangle;
 import java.util.ArrayList;
-import java.util.Collections;
-import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
-import java.util.Map;
 import java.util.Random;
-import java.util.stream.Collectors;
-import java.util.stream.IntStream;
+import java.util.Set;
 
 /**
  * Class for an image loaded from
@@ -31,8 +29,9 @@ public class RasterImageModel implements ImageModel {
    */
   private final int width;
   private final int height;
-  private int maxRGB;
+  private volatile int maxRGB; // raised when brightened, maybe by several threads at once
   private final List<List<Pixel>> pixelGrid;
+  private volatile Histogram histogram; // computed the first time it is asked for
 
   /**
    * Constructor creates the model with the
@@ -73,6 +72,16 @@ public class RasterImageModel implements ImageModel {
     return this.maxRGB;
   }
 
+  @Override
+  public Histogram getHistogram() {
+    Histogram result = this.histogram;
+    if (result == null) { // computing it twice at once is harmless, as both give the same
+      result = Histogram.compute(this);
+      this.histogram = result;
+    }
+    return result;
+  }
+
   /**
    * Returns the pixel at the supplied
    * row and column position. Throws
@@ -98,6 +107,40 @@ public class RasterImageModel implements ImageModel {
     }
   }
 
+  @Override
+  public void getRowARGB(int row, int[] dest) throws IllegalArgumentException {
+    BulkAccess.checkRow(row, dest, this.width, this.height);
+    List<Pixel> pixelRow = this.pixelGrid.get(row);
+    for (int col = 0; col < this.width; col++) {
+      dest[col] = PackedPixels.pack(pixelRow.get(col));
+    }
+  }
+
+  @Override
+  public void getRegionARGB(Rectangle region, int[] dest, int offset, int stride)
+          throws IllegalArgumentException {
+    BulkAccess.checkRegion(region, dest, offset, stride, this.width, this.height);
+    for (int r = 0; r < region.height; r++) {
+      List<Pixel> pixelRow = this.pixelGrid.get(region.y + r);
+      for (int c = 0; c < region.width; c++) {
+        dest[offset + r * stride + c] = PackedPixels.pack(pixelRow.get(region.x + c));
+      }
+    }
+  }
+
+  @Override
+  public void forEachPixel(IntPixelConsumer consumer) throws IllegalArgumentException {
+    if (consumer == null) {
+      throw new IllegalArgumentException("Consumer cannot be null.");
+    }
+    for (int row = 0; row < this.height; row++) {
+      List<Pixel> pixelRow = this.pixelGrid.get(row);
+      for (int col = 0; col < this.width; col++) {
+        consumer.accept(row, col, PackedPixels.pack(pixelRow.get(col)));
+      }
+    }
+  }
+
   /**
    * Called to visualize a specific component of
    * an image and return the new version.
@@ -237,21 +280,33 @@ public class RasterImageModel implements ImageModel {
       throw new IllegalStateException("Image to process cannot be null");
     }
     List<List<Pixel>> newPixelGrid = new ArrayList<>();
+    int newMax = 0;
     for (int row = 0; row < this.getHeight(); row++) {
       newPixelGrid.add(new ArrayList<>());
       for (int col = 0; col < this.getWidth(); col++) {
         int newRed = addColor(increment, this.getPixel(row, col).getRed());
         int newGreen = addColor(increment, this.getPixel(row, col).getGreen());
         int newBlue = addColor(increment, this.getPixel(row, col).getBlue());
-        this.maxRGB = Math.max(this.maxRGB, Math.max(newRed, Math.max(newGreen, newBlue)));
+        newMax = Math.max(newMax, Math.max(newRed, Math.max(newGreen, newBlue)));
         newPixelGrid.get(row).add(
                 new ARGBPixel(this.getPixel(row, col).getAlpha(), newRed, newGreen, newBlue));
       }
     }
+    this.raiseMaxRGB(newMax); // brightening raises the max RGB value of this image as well
     return new RasterImageModel(this.getWidth(),
             this.getHeight(), this.getMaxRGB(), newPixelGrid);
   }
 
+  /**
+   * Raises the max RGB value of this image to at least the given value, as brightening this
+   * image would. Used by FusedColorImageModel, which brightens images without calling brighten.
+   *
+   * @param value the smallest max RGB value this image should have
+   */
+  synchronized void raiseMaxRGB(int value) {
+    this.maxRGB = Math.max(this.maxRGB, value);
+  }
+
   /**
    * Returns a filtered version of this image based on the provided kernel.
    * Currently, only supports filtering uniformly across all color channels.
@@ -263,53 +318,60 @@ public class RasterImageModel implements ImageModel {
    */
   @Override
   public ImageModel filter(Kernel kernel) throws IllegalStateException, IllegalArgumentException {
+    return this.filter(kernel, EdgePolicy.ZERO);
+  }
+
+  /**
+   * Returns a filtered version of this image based on the provided kernel, reading the pixels
+   * that the kernel overlaps outside the image as described by the edge policy.
+   *
+   * @param kernel the kernel of the desired filter
+   * @param edgePolicy how to treat pixels outside the image
+   * @return the filtered image
+   * @throws IllegalStateException if the image has not been initialized
+   * @throws IllegalArgumentException if the provided kernel or edge policy is null
+   */
+  @Override
+  public ImageModel filter(Kernel kernel, EdgePolicy edgePolicy)
+          throws IllegalStateException, IllegalArgumentException {
     if (this.pixelGrid == null) {
       throw new IllegalStateException("Image to process cannot be null");
     }
     if (kernel == null) {
       throw new IllegalArgumentException("Kernel cannot be null.");
     }
+    if (edgePolicy == null) {
+      throw new IllegalArgumentException("Edge policy cannot be null.");
+    }
+    // filter a packed copy of the pixels so all three channels are handled in one pass
+    return this.fromPacked(
+            Convolution.apply(this.toPacked(), this.width, this.height, kernel, edgePolicy));
+  }
+
+  // copies the pixels of this image into an array of packed ARGB values, row by row
+  private int[] toPacked() {
+    int[] packed = new int[this.width * this.height];
+    int[] rowData = new int[this.width];
+    for (int row = 0; row < this.height; row++) {
+      this.getRowARGB(row, rowData);
+      System.arraycopy(rowData, 0, packed, row * this.width, this.width);
+    }
+    return packed;
+  }
+
+  // creates an image the size of this one from an array of packed ARGB values
+  private ImageModel fromPacked(int[] packed) {
     List<List<Pixel>> newPixelGrid = new ArrayList<>();
     for (int row = 0; row < this.getHeight(); row++) {
       newPixelGrid.add(new ArrayList<>());
       for (int col = 0; col < this.getWidth(); col++) {
-        int newRed = applyKernel(kernel, Component.RED, row, col);
-        int newGreen = applyKernel(kernel, Component.GREEN, row, col);
-        int newBlue = applyKernel(kernel, Component.BLUE, row, col);
-        // apply the kernel centered at the current pixel and return the sum as the channel value
-        newPixelGrid.get(row).add(
-                new ARGBPixel(255, newRed, newGreen, newBlue));
+        newPixelGrid.get(row).add(PackedPixels.toPixel(packed[row * this.width + col]));
       }
     }
     return new RasterImageModel(this.getWidth(),
             this.getHeight(), this.getMaxRGB(), newPixelGrid);
   }
 
-  // applies the kernel on the given channel centered at the pixel with the given row and column
-  private int applyKernel(Kernel kernel, Component channel, int row, int col) {
-    int kernelStartRow = -(kernel.getHeight() - 1) / 2; // starts from -1 for a 3-row kernel
-    int kernelStartCol = -(kernel.getWidth() - 1) / 2;
-    double sum = 0.0;
-    for (int r = kernelStartRow; r <= -kernelStartRow; r++) { // start and end are symmetrical
-      for (int c = kernelStartCol; c <= -kernelStartCol; c++) {
-        try {
-          Pixel pixel = this.pixelGrid.get(row + r).get(col + c);
-          int channelVal = 0; // the value of the chosen channel of this pixel
-          if (channel.equals(Component.RED)) {
-            channelVal = pixel.getRed();
-          } else if (channel.equals(Component.GREEN)) {
-            channelVal = pixel.getGreen();
-          } else if (channel.equals(Component.BLUE)) {
-            channelVal = pixel.getBlue();
-          }
-          sum += kernel.get(r, c) * channelVal;
-        } catch (IndexOutOfBoundsException ignored) { // if the kernel overlaps outside the image
-        } // do not apply the kernel there, ie sum does not increase
-      }
-    }
-    return (int) Math.max(0, Math.min(Math.round(sum), 255)); // round to integer, clamp 0 to 255
-  }
-
   /**
    * Returns a color transformed version of the image according to the given
    * color coefficient matrix.
@@ -342,71 +404,89 @@ public class RasterImageModel implements ImageModel {
             this.getHeight(), this.getMaxRGB(), newPixelGrid);
   }
 
+  /**
+   * Applies a point operation to a packed copy of this image. Color components above 255
+   * are reduced to their lowest 8 bits first, as when the image is saved.
+   *
+   * @param operation the point operation to apply
+   * @return new ImageModel with the operation applied
+   * @throws IllegalStateException if the image has not been initialized
+   * @throws IllegalArgumentException if the operation is null
+   */
   @Override
-  public ImageModel mosaic(int seeds) {
-    Random r = new Random();
-    Map<Point, List<Point>> clusters = new HashMap<>();
+  public ImageModel applyPointOperation(PointOperation operation)
+          throws IllegalStateException, IllegalArgumentException {
+    if (this.pixelGrid == null) {
+      throw new IllegalStateException("Image to process cannot be null");
+    }
+    if (operation == null) {
+      throw new IllegalArgumentException("Point operation cannot be null.");
+    }
+    int[] packed = this.toPacked();
+    operation.apply(packed, packed, 0, packed.length);
+    return this.fromPacked(packed);
+  }
 
+  @Override
+  public ImageModel mosaic(int seeds) throws IllegalStateException, IllegalArgumentException {
+    if (this.pixelGrid == null) {
+      throw new IllegalStateException("Image to process cannot be null");
+    }
+    if (seeds <= 0) {
+      throw new IllegalArgumentException("Number of seeds must be positive.");
+    }
+    Random r = new Random();
+    Set<Point> seedSet = new LinkedHashSet<>(); // duplicate seeds make up the same cluster
     for (int i = 0; i < seeds; i++) {
-      clusters.put(new Point(r.nextInt(this.getHeight()), r.nextInt(this.getWidth())),
-              Collections.synchronizedList(new ArrayList<>()));
+      seedSet.add(new Point(r.nextInt(this.getHeight()), r.nextInt(this.getWidth())));
     }
-
-    List<List<Pixel>> newPixelGrid = List.copyOf(this.pixelGrid);
-
-    List<Integer> heightRange = IntStream.range(0, getHeight()).boxed()
-            .collect(Collectors.toList());
-
-    heightRange.parallelStream().forEach( (row) -> {
-      for (int col = 0; col < this.getWidth(); col++) {
-        Point lowest = new Point();
-
-        // Purposely bigger than possible in the image to start as a max distance
-        double distance = this.getHeight() + this.getWidth();
-
-        for (Point p : clusters.keySet()) {
-          double currDistance = this.distanceTo(row, col, (int) p.getX(), (int) p.getY());
-          if (currDistance < distance) {
-            lowest = p;
-            distance = currDistance;
-          }
+    List<Point> seedList = new ArrayList<>(seedSet);
+
+    // label each pixel with the index of its closest seed, summing the colors of each
+    // cluster in arrays local to each band that are added to the totals once at the end
+    SeedIndex index = new SeedIndex(seedList, this.getHeight(), this.getWidth());
+    int clusters = seedList.size();
+    int[] labels = new int[this.getWidth() * this.getHeight()];
+    long[] sums = new long[4 * clusters]; // red, green, blue, and count of each cluster
+    TileScheduler.getDefault().forEachPartition(this.width, this.height, (rowStart, rowEnd) -> {
+      long[] bandSums = new long[4 * clusters];
+      for (int row = rowStart; row < rowEnd; row++) {
+        List<Pixel> pixelRow = this.pixelGrid.get(row);
+        for (int col = 0; col < this.getWidth(); col++) {
+          int label = index.nearest(row, col);
+          Pixel pixel = pixelRow.get(col);
+          labels[row * this.getWidth() + col] = label;
+          bandSums[4 * label] += pixel.getRed();
+          bandSums[4 * label + 1] += pixel.getGreen();
+          bandSums[4 * label + 2] += pixel.getBlue();
+          bandSums[4 * label + 3]++;
         }
-        clusters.get(lowest).add(new Point(row, col));
       }
-    }); // Clusters are formed by here
-
-    for (Point p : clusters.keySet()) {
-      double avgR = 0;
-      double avgG = 0;
-      double avgB = 0;
-      double count = 0;
-
-      for (Point pt : clusters.get(p)) {
-        avgR += this.pixelGrid.get(pt.x).get(pt.y).getRed();
-        avgG += this.pixelGrid.get(pt.x).get(pt.y).getGreen();
-        avgB += this.pixelGrid.get(pt.x).get(pt.y).getBlue();
-        count++;
+      synchronized (sums) {
+        for (int k = 0; k < sums.length; k++) {
+          sums[k] += bandSums[k];
+        }
       }
+    }); // Clusters are formed by here
 
-      avgR /= count;
-      avgG /= count;
-      avgB /= count;
-
-      for (Point pt : clusters.get(p)) {
-        newPixelGrid.get(pt.x).set(pt.y, new ARGBPixel(this.getPixel(pt.x, pt.y).getAlpha(),
-            (int) avgR, (int) avgG, (int) avgB));
+    // build new rows, so the pixels of this image are left as they are
+    List<List<Pixel>> newPixelGrid = new ArrayList<>();
+    for (int row = 0; row < this.getHeight(); row++) {
+      List<Pixel> pixelRow = this.pixelGrid.get(row);
+      List<Pixel> newRow = new ArrayList<>(this.getWidth());
+      for (int col = 0; col < this.getWidth(); col++) {
+        int label = labels[row * this.getWidth() + col];
+        double count = sums[4 * label + 3];
+        newRow.add(new ARGBPixel(pixelRow.get(col).getAlpha(), (int) (sums[4 * label] / count),
+                (int) (sums[4 * label + 1] / count), (int) (sums[4 * label + 2] / count)));
       }
+      newPixelGrid.add(newRow);
     }
 
     return new RasterImageModel(this.getWidth(),
         this.getHeight(), this.getMaxRGB(), newPixelGrid);
   }
 
-  // returns the distance between two points, or pixels
-  private double distanceTo(int row1, int col1, int row2, int col2) {
-    return Math.sqrt(Math.pow(col2 - col1, 2) + Math.pow(row2 - row1, 2));
-  }
-
   // applies an array of coefficients to a pixel's corresponding RGB values and returns the sum
   private int applyCoefficients(Double[] coeff, Pixel pixel) {
     return (int) Math.max(0, Math.min(Math.round(
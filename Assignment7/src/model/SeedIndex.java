@@ -0,0 +1,129 @@
+package model;
+
+import java.awt.Point;
+import java.util.List;
+
+/**
+ * Finds the closest of a set of seeds to a pixel, for the mosaic operation. The seeds are
+ * put into the cells of a uniform grid laid over the image, with about two seeds per cell,
+ * so a search only looks at the cells around a pixel rather than at every seed. Distances
+ * are compared squared, so no square roots are taken.
+ */
+final class SeedIndex {
+  private static final int SEEDS_PER_CELL = 2;
+
+  private final int[] seedRows;
+  private final int[] seedCols;
+  private final int cellSize;
+  private final int gridRows;
+  private final int gridCols;
+  // the seeds in cell c are cellSeeds[cellStart[c]] to cellSeeds[cellStart[c + 1] - 1],
+  // in increasing order
+  private final int[] cellStart;
+  private final int[] cellSeeds;
+
+  /**
+   * Creates an index of the given seeds in an image of the given size.
+   *
+   * @param seeds the seeds, where x is the row and y the column of each seed in the image
+   * @param height the height of the image
+   * @param width the width of the image
+   */
+  SeedIndex(List<Point> seeds, int height, int width) {
+    int count = seeds.size();
+    this.seedRows = new int[count];
+    this.seedCols = new int[count];
+    for (int s = 0; s < count; s++) {
+      this.seedRows[s] = seeds.get(s).x;
+      this.seedCols[s] = seeds.get(s).y;
+    }
+    double area = (double) height * width * SEEDS_PER_CELL / Math.max(1, count);
+    this.cellSize = (int) Math.max(1, Math.min(Math.ceil(Math.sqrt(area)),
+            Math.max(height, width)));
+    this.gridRows = (height + this.cellSize - 1) / this.cellSize;
+    this.gridCols = (width + this.cellSize - 1) / this.cellSize;
+
+    // counting sort of the seeds by cell, which keeps them in order within each cell
+    this.cellStart = new int[this.gridRows * this.gridCols + 1];
+    for (int s = 0; s < count; s++) {
+      this.cellStart[this.cellOf(this.seedRows[s], this.seedCols[s]) + 1]++;
+    }
+    for (int c = 0; c < this.gridRows * this.gridCols; c++) {
+      this.cellStart[c + 1] += this.cellStart[c];
+    }
+    int[] next = this.cellStart.clone();
+    this.cellSeeds = new int[count];
+    for (int s = 0; s < count; s++) {
+      this.cellSeeds[next[this.cellOf(this.seedRows[s], this.seedCols[s])]++] = s;
+    }
+  }
+
+  // the index of the grid cell containing the given pixel
+  private int cellOf(int row, int col) {
+    return (row / this.cellSize) * this.gridCols + col / this.cellSize;
+  }
+
+  /**
+   * Finds the seed closest to the given pixel. If several seeds are equally close, the one
+   * that comes first in the list given to the constructor is chosen.
+   *
+   * @param row the row of the pixel
+   * @param col the column of the pixel
+   * @return the position of the closest seed in the list of seeds
+   */
+  int nearest(int row, int col) {
+    int cellRow = row / this.cellSize;
+    int cellCol = col / this.cellSize;
+    int best = -1;
+    long bestDistance = Long.MAX_VALUE;
+    for (int ring = 0; ; ring++) {
+      // look at the cells exactly ring cells away from the pixel's cell
+      int top = cellRow - ring;
+      int bottom = cellRow + ring;
+      int left = cellCol - ring;
+      int right = cellCol + ring;
+      for (int r = Math.max(0, top); r <= Math.min(this.gridRows - 1, bottom); r++) {
+        boolean edgeRow = r == top || r == bottom;
+        for (int c = Math.max(0, left); c <= Math.min(this.gridCols - 1, right); c++) {
+          if (!edgeRow && c != left && c != right) {
+            c = right - 1; // skip the inside of the ring, which was already searched
+            continue;
+          }
+          int cell = r * this.gridCols + c;
+          for (int i = this.cellStart[cell]; i < this.cellStart[cell + 1]; i++) {
+            int s = this.cellSeeds[i];
+            long dRow = this.seedRows[s] - row;
+            long dCol = this.seedCols[s] - col;
+            long distance = dRow * dRow + dCol * dCol;
+            if (distance < bestDistance || (distance == bestDistance && s < best)) {
+              best = s;
+              bestDistance = distance;
+            }
+          }
+        }
+      }
+      if (top <= 0 && left <= 0 && bottom >= this.gridRows - 1 && right >= this.gridCols - 1) {
+        return best; // every cell has been searched
+      }
+      // every seed not searched yet is outside the searched block of cells, so it is at
+      // least as far away as the closest side of that block that is still inside the grid
+      long outside = Long.MAX_VALUE;
+      if (top > 0) {
+        outside = Math.min(outside, row - (long) top * this.cellSize + 1);
+      }
+      if (bottom < this.gridRows - 1) {
+        outside = Math.min(outside, (long) (bottom + 1) * this.cellSize - row);
+      }
+      if (left > 0) {
+        outside = Math.min(outside, col - (long) left * this.cellSize + 1);
+      }
+      if (right < this.gridCols - 1) {
+        outside = Math.min(outside, (long) (right + 1) * this.cellSize - col);
+      }
+      // an equally close seed further out may come first, so only stop when strictly closer
+      if (best >= 0 && bestDistance < outside * outside) {
+        return best;
+      }
+    }
+  }
+}
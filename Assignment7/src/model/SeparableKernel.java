@@ -0,0 +1,135 @@
+package model;
+
+/**
+ * Represents a kernel that is the product of a column vector and a row vector (a rank-1
+ * kernel), such as a Gaussian blur. Filtering with such a kernel can be done as a horizontal
+ * pass with the row vector followed by a vertical pass with the column vector.
+ *
+ * <p>The two passes add up the same products as the full convolution in a different order,
+ * so a kernel is only split when both vectors are exact binary fractions (like 0.25 or 0.125)
+ * with few enough digits that every sum of products of them and 8-bit channel values is exact
+ * in a double. Any other kernel, even one that is rank-1, could round differently than the
+ * full convolution, and is not split.
+ */
+final class SeparableKernel {
+  // the bits of a double's significand, including the implicit leading bit
+  private static final int SIGNIFICAND_BITS = 53;
+  // the bits of a channel value the kernel is applied to
+  private static final int CHANNEL_BITS = 8;
+
+  private final double[] vertical;
+  private final double[] horizontal;
+
+  private SeparableKernel(double[] vertical, double[] horizontal) {
+    this.vertical = vertical;
+    this.horizontal = horizontal;
+  }
+
+  /**
+   * Splits the given kernel into a column vector and a row vector whose product is the kernel.
+   *
+   * @param kernel the kernel to split
+   * @return the separated kernel, or null if the kernel is not rank-1 or the two passes might
+   *         not give exactly the same result as the full convolution
+   */
+  static SeparableKernel decompose(Kernel kernel) {
+    int radiusRow = (kernel.getHeight() - 1) / 2;
+    int radiusCol = (kernel.getWidth() - 1) / 2;
+    double[][] values = new double[kernel.getHeight()][kernel.getWidth()];
+    int pivotRow = 0;
+    int pivotCol = 0;
+    double maxAbs = 0.0;
+    for (int r = 0; r < values.length; r++) {
+      for (int c = 0; c < values[r].length; c++) {
+        values[r][c] = kernel.get(r - radiusRow, c - radiusCol);
+        if (Math.abs(values[r][c]) > maxAbs) {
+          maxAbs = Math.abs(values[r][c]);
+          pivotRow = r;
+          pivotCol = c;
+        }
+      }
+    }
+    if (maxAbs == 0.0) {
+      return null; // nothing to gain for an all-zero kernel
+    }
+
+    // the pivot's column and row, scaled so their product reproduces the pivot
+    double[] vertical = new double[values.length];
+    double[] horizontal = new double[values[0].length];
+    for (int r = 0; r < vertical.length; r++) {
+      vertical[r] = values[r][pivotCol];
+    }
+    for (int c = 0; c < horizontal.length; c++) {
+      horizontal[c] = values[pivotRow][c] / values[pivotRow][pivotCol];
+    }
+
+    if (!sumsExactly(vertical, horizontal)) {
+      return null;
+    }
+    // every other entry must be exactly the product of its row and column factors
+    for (int r = 0; r < values.length; r++) {
+      for (int c = 0; c < values[r].length; c++) {
+        if (values[r][c] != vertical[r] * horizontal[c]) {
+          return null;
+        }
+      }
+    }
+    return new SeparableKernel(vertical, horizontal);
+  }
+
+  // whether every product of the two vectors and a channel value, and every sum of such
+  // products over the kernel, is exact in a double, so the order of adding them up does not
+  // change the result
+  private static boolean sumsExactly(double[] vertical, double[] horizontal) {
+    int[] verticalBits = bitRange(vertical);
+    int[] horizontalBits = bitRange(horizontal);
+    if (verticalBits == null || horizontalBits == null) {
+      return false;
+    }
+    int terms = vertical.length * horizontal.length;
+    int carryBits = 32 - Integer.numberOfLeadingZeros(terms); // more than log2 of the terms
+    // the highest bit a sum can reach, less the lowest bit any product can have
+    int span = verticalBits[1] + horizontalBits[1] + 2 + CHANNEL_BITS + carryBits
+            - (verticalBits[0] + horizontalBits[0]);
+    return span <= SIGNIFICAND_BITS;
+  }
+
+  // the exponents of the lowest and highest bits set in any of the given values, ignoring
+  // zeros, or null if a value is not a finite number with a normal exponent
+  private static int[] bitRange(double[] values) {
+    int lowest = Integer.MAX_VALUE;
+    int highest = Integer.MIN_VALUE;
+    for (double value : values) {
+      if (value == 0.0) {
+        continue;
+      }
+      if (Double.isNaN(value) || Double.isInfinite(value)
+              || Math.abs(value) < Double.MIN_NORMAL) {
+        return null;
+      }
+      long significand = (Double.doubleToRawLongBits(value) & ((1L << 52) - 1)) | (1L << 52);
+      int exponent = Math.getExponent(value);
+      lowest = Math.min(lowest, exponent - 52 + Long.numberOfTrailingZeros(significand));
+      highest = Math.max(highest, exponent);
+    }
+    return new int[] {lowest, highest};
+  }
+
+  /**
+   * Gets the column vector of this kernel, from the top row to the bottom row.
+   *
+   * @return the weights of the vertical pass
+   */
+  double[] getVertical() {
+    return this.vertical.clone();
+  }
+
+  /**
+   * Gets the row vector of this kernel, from the leftmost column to the rightmost column.
+   *
+   * @return the weights of the horizontal pass
+   */
+  double[] getHorizontal() {
+    return this.horizontal.clone();
+  }
+}
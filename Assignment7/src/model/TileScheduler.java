@@ -0,0 +1,282 @@
+package model;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Splits the rows of an image into bands of roughly cache-sized pieces and runs an operation
+ * on every band, in parallel on a ForkJoinPool. Images smaller than a threshold, or schedulers
+ * with a parallelism of 1, run the operation on the whole image in the calling thread instead.
+ *
+ * <p>Operations given to this scheduler must only write to the rows of their own band. If
+ * the thread that asked for the bands is interrupted, the bands not started yet are skipped,
+ * and once the bands already running are done a CancellationException is thrown (keeping the
+ * thread interrupted), so a long operation can be stopped part way.
+ */
+public final class TileScheduler {
+  // about 64KB of packed pixels per band, so a band's input and output stay in cache
+  private static final int BAND_PIXELS = 1 << 14;
+  // images with fewer pixels than this are not worth splitting up
+  private static final long DEFAULT_SEQUENTIAL_THRESHOLD = 1 << 16;
+
+  private static volatile TileScheduler defaultScheduler =
+          new TileScheduler(Runtime.getRuntime().availableProcessors());
+
+  private final int parallelism;
+  private final long sequentialThreshold;
+  private volatile ForkJoinPool pool; // created the first time it is needed
+
+  /**
+   * Represents an operation on a band of rows of an image.
+   */
+  @FunctionalInterface
+  public interface BandTask {
+
+    /**
+     * Runs this operation on the given rows.
+     *
+     * @param rowStart the first row of the band (inclusive)
+     * @param rowEnd the last row of the band (exclusive)
+     */
+    void run(int rowStart, int rowEnd);
+  }
+
+  /**
+   * Creates a scheduler that runs up to the given number of bands at once, and runs images
+   * with fewer than 65536 pixels sequentially.
+   *
+   * @param parallelism the number of threads to use, where 1 means always sequential
+   * @throws IllegalArgumentException if the parallelism is not positive
+   */
+  public TileScheduler(int parallelism) throws IllegalArgumentException {
+    this(parallelism, DEFAULT_SEQUENTIAL_THRESHOLD);
+  }
+
+  /**
+   * Creates a scheduler that runs up to the given number of bands at once, and runs images
+   * with fewer than the given number of pixels sequentially.
+   *
+   * @param parallelism the number of threads to use, where 1 means always sequential
+   * @param sequentialThreshold the number of pixels below which images are not split up
+   * @throws IllegalArgumentException if the parallelism is not positive or the threshold
+   *         is negative
+   */
+  public TileScheduler(int parallelism, long sequentialThreshold)
+          throws IllegalArgumentException {
+    if (parallelism <= 0) {
+      throw new IllegalArgumentException("Parallelism must be positive.");
+    }
+    if (sequentialThreshold < 0) {
+      throw new IllegalArgumentException("Threshold cannot be negative.");
+    }
+    this.parallelism = parallelism;
+    this.sequentialThreshold = sequentialThreshold;
+  }
+
+  /**
+   * Gets the scheduler used by the image models.
+   *
+   * @return the default scheduler
+   */
+  public static TileScheduler getDefault() {
+    return defaultScheduler;
+  }
+
+  /**
+   * Sets the scheduler used by the image models, for example to limit how many threads
+   * image operations may use. The threads of the scheduler it replaces are shut down, though
+   * that scheduler starts new ones if it is used again.
+   *
+   * @param scheduler the new default scheduler
+   * @throws IllegalArgumentException if the scheduler is null
+   */
+  public static void setDefault(TileScheduler scheduler) throws IllegalArgumentException {
+    if (scheduler == null) {
+      throw new IllegalArgumentException("Scheduler cannot be null.");
+    }
+    TileScheduler old;
+    synchronized (TileScheduler.class) {
+      old = defaultScheduler;
+      defaultScheduler = scheduler;
+    }
+    if (old != scheduler) {
+      old.shutdown();
+    }
+  }
+
+  /**
+   * Shuts down the threads of this scheduler once the bands they are running are done. The
+   * scheduler can still be used afterwards, and starts new threads when it needs them.
+   */
+  public void shutdown() {
+    ForkJoinPool current;
+    synchronized (this) {
+      current = this.pool;
+      this.pool = null;
+    }
+    if (current != null) {
+      current.shutdown();
+    }
+  }
+
+  /**
+   * Gets the number of bands this scheduler runs at once.
+   *
+   * @return the parallelism of this scheduler
+   */
+  public int getParallelism() {
+    return this.parallelism;
+  }
+
+  /**
+   * Runs the given operation on every band of rows of an image with the given size.
+   *
+   * @param width the width of the image
+   * @param height the height of the image
+   * @param task the operation to run on each band
+   * @throws IllegalArgumentException if the task is null
+   */
+  public void forEachBand(int width, int height, BandTask task) throws IllegalArgumentException {
+    this.forEachBand(width, height, 1, task);
+  }
+
+  /**
+   * Runs the given operation on every band of rows of an image with the given size, where
+   * every band (except possibly the last) has at least the given number of rows. Operations
+   * that need some setup per band, like the rows around a filter kernel, can use this to
+   * keep that setup small compared to the band.
+   *
+   * @param width the width of the image
+   * @param height the height of the image
+   * @param minRows the smallest number of rows to put in a band
+   * @param task the operation to run on each band
+   * @throws IllegalArgumentException if the task is null
+   * @throws CancellationException if the calling thread is interrupted before every band runs
+   */
+  public void forEachBand(int width, int height, int minRows, BandTask task)
+          throws IllegalArgumentException, CancellationException {
+    if (task == null) {
+      throw new IllegalArgumentException("Task cannot be null.");
+    }
+    if (height <= 0) {
+      return;
+    }
+    if (Thread.currentThread().isInterrupted()) {
+      throw new CancellationException("Operation was interrupted.");
+    }
+    if (this.parallelism == 1 || (long) width * height < this.sequentialThreshold) {
+      task.run(0, height); // not worth splitting up
+      return;
+    }
+    int rowsPerBand = Math.max(Math.max(1, minRows), BAND_PIXELS / Math.max(1, width));
+    int bands = (height + rowsPerBand - 1) / rowsPerBand;
+    if (bands == 1) {
+      task.run(0, height);
+      return;
+    }
+    AtomicBoolean stopped = new AtomicBoolean();
+    ForkJoinTask<Void> running;
+    try {
+      running = this.getPool().submit(new BandAction(task, stopped, 0, bands, rowsPerBand,
+              height));
+    } catch (RejectedExecutionException e) { // shut down just now, so run it on a new pool
+      running = this.getPool().submit(new BandAction(task, stopped, 0, bands, rowsPerBand,
+              height));
+    }
+    try {
+      running.get(); // waits to be interrupted, unlike invoke
+    } catch (InterruptedException e) {
+      stopped.set(true);
+      running.quietlyJoin(); // bands must not be running once this returns
+      Thread.currentThread().interrupt();
+      throw new CancellationException("Operation was interrupted.");
+    } catch (ExecutionException e) { // rethrow what the operation threw, as invoke would
+      if (e.getCause() instanceof RuntimeException) {
+        throw (RuntimeException) e.getCause();
+      }
+      if (e.getCause() instanceof Error) {
+        throw (Error) e.getCause();
+      }
+      throw new IllegalStateException(e.getCause());
+    }
+  }
+
+  /**
+   * Runs the given operation on bands of rows of an image with the given size, using at most
+   * one band per thread of this scheduler. Operations that keep state for each band, like
+   * sums that are merged once the band is done, can use this to keep that state small.
+   *
+   * @param width the width of the image
+   * @param height the height of the image
+   * @param task the operation to run on each band
+   * @throws IllegalArgumentException if the task is null
+   */
+  public void forEachPartition(int width, int height, BandTask task)
+          throws IllegalArgumentException {
+    int minRows = (height + this.parallelism - 1) / this.parallelism;
+    this.forEachBand(width, height, minRows, task);
+  }
+
+  // creates the pool on first use, or first use after a shutdown, so schedulers that are
+  // never used start no threads
+  private ForkJoinPool getPool() {
+    ForkJoinPool current = this.pool;
+    if (current == null) {
+      synchronized (this) {
+        current = this.pool;
+        if (current == null) {
+          current = new ForkJoinPool(this.parallelism);
+          this.pool = current;
+        }
+      }
+    }
+    return current;
+  }
+
+  /**
+   * Runs a task on bands firstBand (inclusive) to lastBand (exclusive), splitting the range
+   * in half until it is a single band.
+   */
+  private static final class BandAction extends RecursiveAction {
+    private static final long serialVersionUID = 1L;
+
+    private final BandTask task;
+    private final AtomicBoolean stopped; // set once the bands not started yet should be skipped
+    private final int firstBand;
+    private final int lastBand;
+    private final int rowsPerBand;
+    private final int height;
+
+    private BandAction(BandTask task, AtomicBoolean stopped, int firstBand, int lastBand,
+                       int rowsPerBand, int height) {
+      this.task = task;
+      this.stopped = stopped;
+      this.firstBand = firstBand;
+      this.lastBand = lastBand;
+      this.rowsPerBand = rowsPerBand;
+      this.height = height;
+    }
+
+    @Override
+    protected void compute() {
+      if (this.lastBand - this.firstBand == 1) {
+        if (this.stopped.get()) {
+          return;
+        }
+        int rowStart = this.firstBand * this.rowsPerBand;
+        this.task.run(rowStart, Math.min(this.height, rowStart + this.rowsPerBand));
+        return;
+      }
+      int middle = (this.firstBand + this.lastBand) >>> 1;
+      invokeAll(new BandAction(this.task, this.stopped, this.firstBand, middle,
+                      this.rowsPerBand, this.height),
+              new BandAction(this.task, this.stopped, middle, this.lastBand,
+                      this.rowsPerBand, this.height));
+    }
+  }
+}
@@ -16,6 +16,7 @@ import javax.swing.JFrame;
 import javax.swing.JLabel;
 import javax.swing.JOptionPane;
 import javax.swing.JPanel;
+import javax.swing.JProgressBar;
 import javax.swing.JScrollPane;
 import javax.swing.JTextField;
 
@@ -46,6 +47,10 @@ public class GUIImageProcessorView extends JFrame implements ImageGUIView {
   private JTextField darkenField;
   private JButton mosaicButton;
   private JTextField mosaicField;
+  private JPanel progressGrid;
+  private JButton cancelButton;
+  private JButton undoButton;
+  private JButton redoButton;
   private JFileChooser fileChooser;
   private Image currentImage;
 
@@ -87,12 +92,12 @@ public class GUIImageProcessorView extends JFrame implements ImageGUIView {
     this.add(optionPanel, BorderLayout.LINE_END);
 
     // display the histogram in the top of the right-hand panel
-    this.histogramPanel = new HistogramPanel(currentImage);
+    this.histogramPanel = new HistogramPanel();
     histogramPanel.setPreferredSize(new Dimension(270, 250));
     optionPanel.add(histogramPanel);
 
     // create a grid to hold the buttons in
-    JPanel buttonGrid = new JPanel(new GridLayout(5,2, 5, 5));
+    JPanel buttonGrid = new JPanel(new GridLayout(6,2, 5, 5));
     optionPanel.add(buttonGrid);
 
     // create each button/text field/etc and add them in the grid
@@ -147,6 +152,16 @@ public class GUIImageProcessorView extends JFrame implements ImageGUIView {
     this.sharpenButton.setActionCommand("sharpen button");
     buttonGrid.add(sharpenButton);
 
+    // undo button
+    this.undoButton = new JButton("Undo");
+    this.undoButton.setActionCommand("undo button");
+    buttonGrid.add(undoButton);
+
+    // redo button
+    this.redoButton = new JButton("Redo");
+    this.redoButton.setActionCommand("redo button");
+    buttonGrid.add(redoButton);
+
     // add panel for the brighten features
     JPanel brightenGrid = new JPanel();
     brightenGrid.setLayout(new BoxLayout(brightenGrid, BoxLayout.LINE_AXIS));
@@ -212,6 +227,24 @@ public class GUIImageProcessorView extends JFrame implements ImageGUIView {
     mosaicField.setMaximumSize(new Dimension(100,60));
     mosaicGrid.add(mosaicField);
 
+    // add panel for the progress of a running operation, hidden until one runs
+    this.progressGrid = new JPanel();
+    progressGrid.setLayout(new BoxLayout(progressGrid, BoxLayout.LINE_AXIS));
+    progressGrid.setVisible(false);
+    optionPanel.add(progressGrid);
+
+    // progress bar, which moves back and forth since operations do not report how far along
+    // they are
+    JProgressBar progressBar = new JProgressBar();
+    progressBar.setIndeterminate(true);
+    progressGrid.add(progressBar);
+    progressGrid.add(Box.createHorizontalGlue());
+
+    // cancel button
+    this.cancelButton = new JButton("Cancel");
+    this.cancelButton.setActionCommand("cancel button");
+    progressGrid.add(cancelButton);
+
     pack();
     setVisible(true);
   }
@@ -269,6 +302,9 @@ public class GUIImageProcessorView extends JFrame implements ImageGUIView {
     darkenButton.addActionListener(evt -> features.darken(darkenField.getText()));
     mosaicButton.addActionListener(
         evt -> features.mosaic(mosaicField.getText()));
+    cancelButton.addActionListener(evt -> features.cancel());
+    undoButton.addActionListener(evt -> features.undo());
+    redoButton.addActionListener(evt -> features.redo());
 
   }
 
@@ -277,10 +313,16 @@ public class GUIImageProcessorView extends JFrame implements ImageGUIView {
     this.currentImage = new ImageModelAdapter(model);
     this.imageLabel.setIcon(new ImageIcon(currentImage));
     this.imageLabel.setVisible(true); //make image visible now that it has something in it
-    ((HistogramPanel) this.histogramPanel).setImage(currentImage); // update histogram panel
+    ((HistogramPanel) this.histogramPanel).setHistogram(model.getHistogram()); // computed once
     this.histogramPanel.setVisible(true); // make histogram visible
   }
 
+  @Override
+  public void showProgress(boolean inProgress) {
+    this.progressGrid.setVisible(inProgress);
+    this.optionPanel.revalidate();
+  }
+
   @Override
   public void renderMessage(String message) { // makes a pop-up dialog
     JOptionPane.showMessageDialog(this, message);
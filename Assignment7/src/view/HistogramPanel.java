@@ -2,13 +2,10 @@ package view;
 
 import java.awt.Color;
 import java.awt.Graphics;
-import java.awt.Image;
-import java.awt.image.BufferedImage;
 
 import javax.swing.JPanel;
 
-import model.Pixel;
-import model.RGBPixel;
+import model.Histogram;
 
 /**
  * Class for a histogram panel
@@ -16,95 +13,63 @@ import model.RGBPixel;
  * class.
  */
 public class HistogramPanel extends JPanel {
-  private Image image;
+  private static final int GRAPH_HEIGHT = 200;
 
-  public HistogramPanel(Image image) {
+  private final int[] vals;
+  // the y coordinates of the line for each of red, green, blue, and intensity,
+  // worked out once for each histogram so that repainting only draws them
+  private int[][] lines;
+
+  /**
+   * Creates a panel that draws nothing until it is given a histogram.
+   */
+  public HistogramPanel() {
     super();
-    this.image = image;
+    this.vals = new int[Histogram.LEVELS];
+    for (int i = 0; i < Histogram.LEVELS; i++) {
+      this.vals[i] = i;
+    }
+    this.lines = null;
   }
 
   /**
-   * Calculates the number of pixels that have each value for each component and returns them
-   * in a 4 by 256 2d array. The first inner array is frequencies for the red component,
-   * the second is green, the third is blue, and the fourth is intensity.
+   * Sets the histogram this panel draws, scaling its frequencies to fit the panel.
+   *
+   * @param histogram the histogram to draw, or null to draw nothing
    */
-  private int[][] getFrequencies() {
-    int[][] frequencies = new int[4][256];
-    int imData;
-    Pixel curPixel;
-    int r;
-    int g;
-    int b;
-    for (int row = 0; row < this.image.getHeight(new JPanel()); row++) {
-      for (int col = 0; col < this.image.getWidth(new JPanel()); col++) {
-        imData = ((BufferedImage)this.image).getRGB(col, row);
-        r = (imData >> 16) & 0xFF;
-        g = (imData >> 8) & 0xFF;
-        b = imData & 0xFF;
-        curPixel = new RGBPixel(r, g, b);
-        frequencies[0][r] += 1;
-        frequencies[1][g] += 1;
-        frequencies[2][b] += 1;
-        frequencies[3][curPixel.getIntensity()] += 1;
+  public void setHistogram(Histogram histogram) {
+    if (histogram == null) {
+      this.lines = null;
+      return;
+    }
+    int max = histogram.getMaxFrequency() + 20; // add some padding
+    double scaleFactor = (double) GRAPH_HEIGHT / max; // scale the graph to fit in the panel
+    int[][] frequencies = new int[][] {histogram.getRed(), histogram.getGreen(),
+        histogram.getBlue(), histogram.getIntensity()};
+    int[][] result = new int[4][Histogram.LEVELS];
+    for (int c = 0; c < 4; c++) {
+      for (int i = 0; i < Histogram.LEVELS; i++) {
+        // subtract from the height so that the graph appears right-side up
+        result[c][i] = (int) Math.round(GRAPH_HEIGHT - scaleFactor * frequencies[c][i]);
       }
     }
-    return frequencies;
-  }
-
-  public void setImage(Image image) {
-    this.image = image;
+    this.lines = result;
   }
 
   @Override
   protected void paintComponent(Graphics g) {
     super.paintComponent(g);
-
-    if (image.getWidth(this) == 1 && image.getHeight(this) == 1) {
-      return; // don't draw the histogram for the initial dummy image
+    int[][] current = this.lines;
+    if (current == null) {
+      return; // don't draw anything until there is an image
     }
-
-    int[] vals = new int[256];
-    for (int i = 0; i < 256; i++) {
-      vals[i] = i;
-    }
-
-
-    int[][] frequencies = getFrequencies();
-
-    int max = frequencies[0][0];
-    for (int[] comp : frequencies) {
-      for (int i = 0; i < comp.length; i++) {
-        max = Math.max(max, comp[i]);
-      }
-    }
-    max += 20; // add some padding
-    double scaleFactor = 200.0 / max; // have to scale the resulting graph to fit in the panel
-
-    int[] redFrequencies = new int[256];
-    for (int i = 0; i < 256; i++) {
-      redFrequencies[i] = (int) Math.round(200 - scaleFactor * frequencies[0][i]);
-      // subtract from max so that graph appears right-side up
-    }
-    int[] greenFrequencies = new int[256];
-    for (int i = 0; i < 256; i++) {
-      greenFrequencies[i] = (int) Math.round(200 - scaleFactor * frequencies[1][i]);
-    }
-    int[] blueFrequencies = new int[256];
-    for (int i = 0; i < 256; i++) {
-      blueFrequencies[i] = (int) Math.round(200 - scaleFactor * frequencies[2][i]);
-    }
-    int[] intensityFrequencies = new int[256];
-    for (int i = 0; i < 256; i++) {
-      intensityFrequencies[i] = (int) Math.round(200 - scaleFactor * frequencies[3][i]);
-    }
-
     g.setColor(Color.RED);
-    g.drawPolyline(vals, redFrequencies, 256);
+    g.drawPolyline(this.vals, current[0], Histogram.LEVELS);
     g.setColor(Color.GREEN);
-    g.drawPolyline(vals, greenFrequencies, 256);
+    g.drawPolyline(this.vals, current[1], Histogram.LEVELS);
     g.setColor(Color.BLUE);
-    g.drawPolyline(vals, blueFrequencies, 256);
+    g.drawPolyline(this.vals, current[2], Histogram.LEVELS);
     g.setColor(Color.BLACK);
-    g.drawPolyline(vals, intensityFrequencies, 256);
+    g.drawPolyline(this.vals, current[3], Histogram.LEVELS);
   }
 }
@@ -38,4 +38,12 @@ public interface ImageGUIView extends ImageTextView {
    * Re-draws the graphical user interface.
    */
   void refresh();
+
+  /**
+   * Shows or hides an indication that an operation is running, along with a way for the
+   * user to cancel it.
+   *
+   * @param inProgress whether an operation is running
+   */
+  void showProgress(boolean inProgress);
 }
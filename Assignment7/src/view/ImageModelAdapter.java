@@ -1,36 +1,46 @@
 package view;
 
+import java.awt.Rectangle;
 import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.awt.image.DirectColorModel;
+import java.awt.image.Raster;
+import java.awt.image.WritableRaster;
 
 import model.ImageModel;
-import model.Pixel;
+import model.PackedImageModel;
 
 /**
  * This class converts an ImageModel into a form that can be used like a BufferedImage
  * for use in view methods that require objects of type Image.
  */
 public class ImageModelAdapter extends BufferedImage {
+  private static final DirectColorModel COLOR_MODEL =
+          new DirectColorModel(24, 0x00FF0000, 0x0000FF00, 0x000000FF); // alpha is ignored
 
   /**
    * Constructor converts the image to a Buffered
-   * Image by parsing through the ImageModel pixel
-   * data and creating a new BufferedImage.
+   * Image. Images backed by an array of packed
+   * values share that array with this image, so
+   * no pixels are copied at all; any other image
+   * is copied into a new array once.
+   * This image must only be read, never drawn on.
    * @param model the model to convert
    */
   public ImageModelAdapter(ImageModel model) {
-    super(model.getWidth(), model.getHeight(), BufferedImage.TYPE_INT_RGB);
-    int mask = 0xFFFFFFFF;
-    Pixel pixel;
-    int color;
-    for (int row = 0; row < model.getHeight(); row++) {
-      for (int col = 0; col < model.getWidth(); col++) {
-        pixel = model.getPixel(row, col);
-        color = ((pixel.getAlpha() << 24) & mask)
-                + ((pixel.getRed() << 16) & mask)
-                + ((pixel.getGreen() << 8) & mask)
-                + (pixel.getBlue() & mask);
-        this.setRGB(col, row, color);
-      }
+    super(COLOR_MODEL, createRaster(model), false, null);
+  }
+
+  // creates a raster of the pixels of the given image, sharing its array if it has one
+  private static WritableRaster createRaster(ImageModel model) {
+    int width = model.getWidth();
+    int height = model.getHeight();
+    int[] data = PackedImageModel.sharedBuffer(model);
+    if (data == null) {
+      data = new int[width * height];
+      model.getRegionARGB(new Rectangle(0, 0, width, height), data, 0, width);
     }
+    return Raster.createPackedRaster(new DataBufferInt(data, data.length),
+            width, height, width, COLOR_MODEL.getMasks(), null);
   }
 }
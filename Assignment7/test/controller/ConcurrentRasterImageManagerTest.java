@@ -0,0 +1,99 @@
+package controller;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import model.ImageModel;
+import model.PackedImageModel;
+import model.PackedPixels;
+import view.SimpleImageTextView;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Test class for the ConcurrentRasterImageManager class. Tests that scripts can run against
+ * one shared manager at once, and that names keep their versions.
+ */
+public class ConcurrentRasterImageManagerTest {
+
+  // loads a 2 by 1 image into the manager under the given name
+  private void loadBase(ImageManager manager, String name) throws IOException {
+    Path file = Files.createTempFile("base", ".ppm");
+    file.toFile().deleteOnExit();
+    Files.writeString(file, "P3 2 1 255 10 20 30 40 50 60");
+    manager.load(file.toString(), name, ImageManager.ImageFileFormat.PPM);
+  }
+
+  // test that many scripts sharing a loaded image each get their own results
+  @Test
+  public void testParallelScripts() throws Exception {
+    ConcurrentRasterImageManager manager = new ConcurrentRasterImageManager();
+    loadBase(manager, "base");
+    ExecutorService pool = Executors.newFixedThreadPool(8);
+    try {
+      List<Future<?>> scripts = new ArrayList<>();
+      for (int i = 0; i < 32; i++) {
+        String script = "brighten " + i + " base bright" + i + "\n"
+                + "horizontal-flip bright" + i + " flipped" + i + "\n";
+        scripts.add(pool.submit(() -> new TextImageController(new StringReader(script),
+                manager, new SimpleImageTextView(new StringBuilder())).runProgram()));
+      }
+      for (Future<?> script : scripts) {
+        script.get();
+      }
+    } finally {
+      pool.shutdown();
+    }
+    for (int i = 0; i < 32; i++) {
+      ImageModel flipped = manager.getStoredImages().get("flipped" + i);
+      assertEquals(PackedPixels.pack(255, 40 + i, 50 + i, 60 + i),
+              PackedPixels.pack(flipped.getPixel(0, 0)));
+    }
+    assertEquals(1, manager.getVersion("base"));
+  }
+
+  // test that a manager with exclusive results will not replace an image
+  @Test
+  public void testExclusiveResults() throws IOException {
+    ConcurrentRasterImageManager manager = new ConcurrentRasterImageManager(true);
+    loadBase(manager, "base");
+    manager.flip("vertical", "base", "result");
+    try {
+      manager.flip("horizontal", "base", "result");
+      fail("The name was taken");
+    } catch (IllegalArgumentException e) {
+      assertEquals("Image already exists.", e.getMessage());
+    }
+    assertEquals(1, manager.getVersion("result"));
+  }
+
+  // test that images are only stored at the version asked for
+  @Test
+  public void testVersions() {
+    ConcurrentRasterImageManager manager = new ConcurrentRasterImageManager();
+    ImageModel first = new PackedImageModel(1, 1, 255, new int[1]);
+    ImageModel second = new PackedImageModel(1, 1, 255, new int[1]);
+    assertEquals(0, manager.getVersion("image"));
+    assertTrue(manager.storeIfAbsent("image", first));
+    assertFalse(manager.storeIfAbsent("image", second));
+    assertFalse(manager.replace("image", 0, second));
+    assertTrue(manager.replace("image", 1, second));
+    assertEquals(2, manager.getVersion("image"));
+    manager.store("image", first);
+    assertEquals(3, manager.getVersion("image"));
+    assertSame(first, manager.getStoredImages().get("image"));
+  }
+}
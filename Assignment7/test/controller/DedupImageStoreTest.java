@@ -0,0 +1,92 @@
+package controller;
+
+import org.junit.Test;
+
+import model.FusedColorImageModel;
+import model.ImageModel;
+import model.PackedImageModel;
+
+import static model.TestImages.makeImage;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+/**
+ * Test class for the DedupImageStore class. Tests that images with the same content share one
+ * array of pixels, and that sharing it changes nothing else about them.
+ */
+public class DedupImageStoreTest {
+
+  // test that an image with the same pixels as a stored one shares its array
+  @Test
+  public void testSharesDuplicates() {
+    DedupImageStore store = new DedupImageStore();
+    PackedImageModel first = makeImage(255);
+    store.put("first", first);
+    store.put("second", makeImage(240));
+    ImageModel second = store.get("second");
+    assertSame(PackedImageModel.sharedBuffer(first), PackedImageModel.sharedBuffer(second));
+    assertEquals(240, second.getMaxRGB());
+    assertEquals(1, store.getDuplicates());
+    assertEquals(48, store.getSavedBytes());
+    assertSame(first, store.get("first"));
+  }
+
+  // test that images with other pixels or another size do not share an array
+  @Test
+  public void testKeepsDifferentImages() {
+    DedupImageStore store = new DedupImageStore();
+    PackedImageModel image = makeImage(255);
+    store.put("image", image);
+    store.put("flipped", image.flip("horizontal"));
+    int[] pixels = PackedImageModel.sharedBuffer(image).clone();
+    store.put("resized", new PackedImageModel(3, 4, 255, pixels));
+    assertNotSame(PackedImageModel.sharedBuffer(image),
+            PackedImageModel.sharedBuffer(store.get("resized")));
+    assertEquals(0, store.getDuplicates());
+  }
+
+  // test that images whose pixels are not computed yet are stored as they are
+  @Test
+  public void testLazyImages() {
+    DedupImageStore store = new DedupImageStore();
+    store.put("image", makeImage(255));
+    ImageModel fused = FusedColorImageModel.brighten(makeImage(255), 0);
+    store.put("fused", fused);
+    assertSame(fused, store.get("fused"));
+    assertEquals(0, store.getDuplicates());
+  }
+
+  // test that a manager flipping an image twice keeps one array for both images
+  @Test
+  public void testFlipTwice() {
+    ImageManager manager = new RasterImageManager(new DedupImageStore());
+    manager.store("image", makeImage(255));
+    manager.flip("vertical", "image", "once");
+    manager.flip("vertical", "once", "twice");
+    assertSame(PackedImageModel.sharedBuffer(manager.getImage("image")),
+            PackedImageModel.sharedBuffer(manager.getImage("twice")));
+  }
+
+  // test that brightening a shared image does not raise the max value of the others
+  @Test
+  public void testSeparateMaxRGB() {
+    DedupImageStore store = new DedupImageStore();
+    store.put("first", makeImage(200));
+    store.put("second", makeImage(200));
+    store.get("first").brighten(100);
+    assertEquals(200, store.get("second").getMaxRGB());
+  }
+
+  // test put exception for a null image
+  @Test(expected = IllegalArgumentException.class)
+  public void testPutNull() {
+    new DedupImageStore().put("image", null);
+  }
+
+  // test constructor exception for a null store
+  @Test(expected = IllegalArgumentException.class)
+  public void testNullStore() {
+    new DedupImageStore(null);
+  }
+}
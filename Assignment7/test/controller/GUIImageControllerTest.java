@@ -2,12 +2,20 @@ package controller;
 
 import org.junit.Test;
 
+import java.io.File;
 import java.io.IOException;
+import java.nio.file.Files;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
 import java.util.function.Function;
 
+import javax.swing.SwingUtilities;
+
 import controller.command.Blue;
 import controller.command.Brighten;
 import controller.command.FlipHorizontal;
@@ -26,10 +34,12 @@ import controller.command.Value;
 import model.ColorMatrix;
 import model.ImageModel;
 import model.Kernel;
+import model.PackedImageModel;
 import model.RasterImageModel;
 import view.ImageGUIView;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 
 /**
@@ -68,20 +78,53 @@ public class GUIImageControllerTest {
     public void refresh() {
       log.append("refresh\n");
     }
+
+    @Override
+    public void showProgress(boolean inProgress) {
+      log.append("showProgress ").append(inProgress).append("\n");
+    }
   }
 
   private class MockManager implements ImageManager {
     private StringBuilder log = new StringBuilder();
+    private final List<ImageListener> listeners = new ArrayList<>();
 
     private String getLog() {
       return this.log.toString();
     }
 
+    // the images this manager pretends to have, by name
+    Map<String, ImageModel> images() {
+      Map<String, ImageModel> dummyMap = new HashMap<>();
+      dummyMap.put("1", new RasterImageModel(1, 1, 1, new ArrayList<>()));
+      dummyMap.put("2", new RasterImageModel(2, 2, 2, new ArrayList<>()));
+      dummyMap.put("3", new RasterImageModel(3, 3, 3, new ArrayList<>()));
+      return dummyMap;
+    }
+
+    // tells the listeners the dummy image with the given name was stored, if there is one
+    void stored(String name) {
+      ImageModel image = this.images().get(name);
+      if (image != null) {
+        for (ImageListener listener : this.listeners) {
+          listener.onImageStored(name, image);
+        }
+      }
+    }
+
     @Override
     public void load(String filePath, String name, ImageFileFormat fileFormat)
             throws IOException, IllegalArgumentException {
       log.append("load ").append(filePath).append(" ").append(name).append(" ")
               .append(fileFormat).append("\n");
+      this.stored(name);
+    }
+
+    @Override
+    public void loadMapped(String filePath, String name)
+            throws IOException, IllegalArgumentException {
+      log.append("loadMapped ").append(filePath).append(" ").append(name).append("\n");
+      this.stored(name);
     }
 
     @Override
@@ -91,15 +134,39 @@ public class GUIImageControllerTest {
               .append(fileFormat).append("\n");
     }
 
+    @Override
+    public void remove(String name) throws IllegalArgumentException {
+      log.append("remove ").append(name).append("\n");
+    }
+
+    @Override
+    public void store(String name, ImageModel image) throws IllegalArgumentException {
+      log.append("store ").append(name).append("\n");
+      for (ImageListener listener : this.listeners) {
+        listener.onImageStored(name, image);
+      }
+    }
+
     @Override
     public Map<String, ImageModel> getStoredImages() {
       log.append("getStoredImages\n");
-      Map<String, ImageModel> dummyMap = new HashMap<>();
-      dummyMap.put("1", new RasterImageModel(1, 1, 1, new ArrayList<>()));
-      dummyMap.put("2", new RasterImageModel(2, 2, 2, new ArrayList<>()));
-      dummyMap.put("3", new RasterImageModel(3, 3, 3, new ArrayList<>()));
+      return this.images();
+    }
 
-      return dummyMap;
+    @Override
+    public Map<String, ImageModel> getStoredImagesView() {
+      log.append("getStoredImagesView\n");
+      return Collections.emptyMap();
+    }
+
+    @Override
+    public void addImageListener(ImageListener listener) throws IllegalArgumentException {
+      this.listeners.add(listener);
+    }
+
+    @Override
+    public void removeImageListener(ImageListener listener) {
+      this.listeners.remove(listener);
     }
 
     @Override
@@ -129,6 +196,7 @@ public class GUIImageControllerTest {
             throws IllegalArgumentException, IllegalStateException {
       log.append("visualizeComponent ").append(component).append(" ").append(imageName).append(" ")
               .append(resultName).append("\n");
+      this.stored(resultName);
     }
 
     @Override
@@ -136,6 +204,7 @@ public class GUIImageControllerTest {
             throws IllegalArgumentException, IllegalStateException {
       log.append("flip ").append(direction).append(" ").append(imageName).append(" ")
               .append(resultName).append("\n");
+      this.stored(resultName);
     }
 
     @Override
@@ -143,6 +212,7 @@ public class GUIImageControllerTest {
             throws IllegalArgumentException {
       log.append("brighten").append(" ").append(increment).append(" ").append(imageName)
               .append(" ").append(resultName).append("\n");
+      this.stored(resultName);
     }
 
     @Override
@@ -150,6 +220,7 @@ public class GUIImageControllerTest {
             throws IllegalArgumentException {
       log.append("filter ").append(kernel.toString()).append(" ").append(imageName).append(" ")
               .append(resultName).append("\n");
+      this.stored(resultName);
     }
 
     @Override
@@ -157,6 +228,7 @@ public class GUIImageControllerTest {
             throws IllegalArgumentException {
       log.append("colorTransform ").append(matrix.toString()).append(" ").append(imageName)
               .append(" ").append(resultName).append("\n");
+      this.stored(resultName);
     }
 
     @Override
@@ -164,6 +236,15 @@ public class GUIImageControllerTest {
         throws IllegalArgumentException {
       log.append("mosaic").append(" ").append(seeds).append(" ").append(imageName)
               .append(" ").append(resultName).append("\n");
+      this.stored(resultName);
+    }
+
+    @Override
+    public void downscale(int maxWidth, int maxHeight, String imageName, String resultName)
+            throws IllegalArgumentException {
+      log.append("downscale ").append(maxWidth).append(" ").append(maxHeight).append(" ")
+              .append(imageName).append(" ").append(resultName).append("\n");
+      this.stored(resultName);
     }
   }
 
@@ -197,6 +278,98 @@ public class GUIImageControllerTest {
     }
   }
 
+  // has working images, and makes its first horizontal flip wait until it is released, for
+  // testing commands run in the background; the log is written to from both threads, so
+  // every method that writes to it holds the lock of this manager
+  private class BlockingMockManager extends MockManager {
+    private final CountDownLatch release = new CountDownLatch(1);
+    private boolean blocked = false;
+
+    @Override
+    public synchronized Map<String, ImageModel> getStoredImages() {
+      return super.getStoredImages();
+    }
+
+    @Override
+    Map<String, ImageModel> images() {
+      Map<String, ImageModel> images = new HashMap<>();
+      for (int i = 1; i <= 3; i++) {
+        images.put(Integer.toString(i), new PackedImageModel(i, i, 255, new int[i * i]));
+      }
+      return images;
+    }
+
+    @Override
+    public synchronized Map<String, Function<String[], ImageCommand>> getKnownCommands() {
+      return super.getKnownCommands();
+    }
+
+    @Override
+    public synchronized void brighten(int increment, String imageName, String resultName)
+            throws IllegalArgumentException {
+      super.brighten(increment, imageName, resultName);
+    }
+
+    @Override
+    public synchronized void remove(String name) {
+      super.remove(name);
+    }
+
+    @Override
+    public void flip(String direction, String imageName, String resultName)
+            throws IllegalArgumentException, IllegalStateException {
+      synchronized (this) {
+        super.flip(direction, imageName, resultName);
+      }
+      if (direction.equals("horizontal") && !blocked) {
+        blocked = true;
+        try {
+          release.await();
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+        }
+      }
+    }
+  }
+
+  // makes replaying commands on the full resolution image wait until released or interrupted,
+  // for cancelling saves in preview mode
+  private class ReplayBlockingMockManager extends BlockingMockManager {
+    private final CountDownLatch replay = new CountDownLatch(1);
+
+    @Override
+    public void flip(String direction, String imageName, String resultName)
+            throws IllegalArgumentException, IllegalStateException {
+      super.flip(direction, imageName, resultName);
+      if (resultName.startsWith("full-")) {
+        try {
+          replay.await();
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+        }
+      }
+    }
+
+    @Override
+    public synchronized void save(String imageName, String filePath, ImageFileFormat fileFormat)
+            throws IOException, IllegalArgumentException {
+      super.save(imageName, filePath, fileFormat);
+    }
+  }
+
+  // runs the given task on the event dispatch thread, as the buttons of a view would
+  private void onEventThread(Runnable task) throws Exception {
+    SwingUtilities.invokeAndWait(task);
+  }
+
+  // waits for the event dispatch thread until the view has shown progress stopping
+  private void waitForFinish(MockView view) throws Exception {
+    for (int i = 0; i < 1000 && !view.getLog().contains("showProgress false\n"); i++) {
+      Thread.sleep(5);
+      SwingUtilities.invokeAndWait(() -> { });
+    }
+  }
+
   // constructor exceptions
   @Test(expected = IllegalArgumentException.class)
   public void testConstructorNullView() {
@@ -250,7 +423,7 @@ public class GUIImageControllerTest {
     m = new MockManager();
     controller = new GUIImageController(v, m);
     controller.loadImage("bird.ppm");
-    assertEquals("load bird.ppm 1 ppm\ngetStoredImages\n", m.getLog());
+    assertEquals("load bird.ppm 1 ppm\nremove 0\n", m.getLog());
     assertTrue(v.getLog().contains("setDisplayImage") && v.getLog().contains("refresh\n"));
   }
 
@@ -261,7 +434,7 @@ public class GUIImageControllerTest {
     m = new MockManager();
     controller = new GUIImageController(v, m);
     controller.loadImage("bird.png");
-    assertEquals("load bird.png 1 png\ngetStoredImages\n", m.getLog());
+    assertEquals("load bird.png 1 png\nremove 0\n", m.getLog());
     assertTrue(v.getLog().contains("setDisplayImage") && v.getLog().contains("refresh\n"));
   }
 
@@ -272,7 +445,7 @@ public class GUIImageControllerTest {
     m = new MockManager();
     controller = new GUIImageController(v, m);
     controller.loadImage("bird.jpg");
-    assertEquals("load bird.jpg 1 jpg\ngetStoredImages\n", m.getLog());
+    assertEquals("load bird.jpg 1 jpg\nremove 0\n", m.getLog());
     assertTrue(v.getLog().contains("setDisplayImage") && v.getLog().contains("refresh\n"));
   }
 
@@ -283,7 +456,7 @@ public class GUIImageControllerTest {
     m = new MockManager();
     controller = new GUIImageController(v, m);
     controller.loadImage("bird.jpeg");
-    assertEquals("load bird.jpeg 1 jpeg\ngetStoredImages\n", m.getLog());
+    assertEquals("load bird.jpeg 1 jpeg\nremove 0\n", m.getLog());
     assertTrue(v.getLog().contains("setDisplayImage") && v.getLog().contains("refresh\n"));
   }
 
@@ -294,7 +467,7 @@ public class GUIImageControllerTest {
     m = new MockManager();
     controller = new GUIImageController(v, m);
     controller.loadImage("bird.bmp");
-    assertEquals("load bird.bmp 1 bmp\ngetStoredImages\n", m.getLog());
+    assertEquals("load bird.bmp 1 bmp\nremove 0\n", m.getLog());
     assertTrue(v.getLog().contains("setDisplayImage") && v.getLog().contains("refresh\n"));
   }
 
@@ -405,7 +578,7 @@ public class GUIImageControllerTest {
     m = new MockManager();
     controller = new GUIImageController(v, m);
     controller.visualizeRed();
-    assertEquals("getKnownCommands\nvisualizeComponent RED 0 1\ngetStoredImages\n",
+    assertEquals("getKnownCommands\nvisualizeComponent RED 0 1\nremove 0\n",
             m.getLog());
     assertEquals("addFeatures\nsetDisplayImage 1 1 1\nrefresh\n", v.getLog());
   }
@@ -417,7 +590,7 @@ public class GUIImageControllerTest {
     m = new MockManager();
     controller = new GUIImageController(v, m);
     controller.visualizeGreen();
-    assertEquals("getKnownCommands\nvisualizeComponent GREEN 0 1\ngetStoredImages\n",
+    assertEquals("getKnownCommands\nvisualizeComponent GREEN 0 1\nremove 0\n",
             m.getLog());
     assertEquals("addFeatures\nsetDisplayImage 1 1 1\nrefresh\n", v.getLog());
   }
@@ -429,7 +602,7 @@ public class GUIImageControllerTest {
     m = new MockManager();
     controller = new GUIImageController(v, m);
     controller.visualizeBlue();
-    assertEquals("getKnownCommands\nvisualizeComponent BLUE 0 1\ngetStoredImages\n",
+    assertEquals("getKnownCommands\nvisualizeComponent BLUE 0 1\nremove 0\n",
             m.getLog());
     assertEquals("addFeatures\nsetDisplayImage 1 1 1\nrefresh\n", v.getLog());
   }
@@ -441,7 +614,7 @@ public class GUIImageControllerTest {
     m = new MockManager();
     controller = new GUIImageController(v, m);
     controller.visualizeValue();
-    assertEquals("getKnownCommands\nvisualizeComponent VALUE 0 1\ngetStoredImages\n",
+    assertEquals("getKnownCommands\nvisualizeComponent VALUE 0 1\nremove 0\n",
             m.getLog());
     assertEquals("addFeatures\nsetDisplayImage 1 1 1\nrefresh\n", v.getLog());
   }
@@ -453,7 +626,7 @@ public class GUIImageControllerTest {
     m = new MockManager();
     controller = new GUIImageController(v, m);
     controller.visualizeIntensity();
-    assertEquals("getKnownCommands\nvisualizeComponent INTENSITY 0 1\ngetStoredImages\n",
+    assertEquals("getKnownCommands\nvisualizeComponent INTENSITY 0 1\nremove 0\n",
             m.getLog());
     assertEquals("addFeatures\nsetDisplayImage 1 1 1\nrefresh\n", v.getLog());
   }
@@ -465,7 +638,7 @@ public class GUIImageControllerTest {
     m = new MockManager();
     controller = new GUIImageController(v, m);
     controller.visualizeLuma();
-    assertEquals("getKnownCommands\nvisualizeComponent LUMA 0 1\ngetStoredImages\n",
+    assertEquals("getKnownCommands\nvisualizeComponent LUMA 0 1\nremove 0\n",
             m.getLog());
     assertEquals("addFeatures\nsetDisplayImage 1 1 1\nrefresh\n", v.getLog());
   }
@@ -478,7 +651,7 @@ public class GUIImageControllerTest {
     controller = new GUIImageController(v, m);
     controller.greyscale();
     assertEquals("getKnownCommands\ncolorTransform [[0.2126, 0.7152, 0.0722], "
-                    + "[0.2126, 0.7152, 0.0722], [0.2126, 0.7152, 0.0722]] 0 1\ngetStoredImages\n",
+                    + "[0.2126, 0.7152, 0.0722], [0.2126, 0.7152, 0.0722]] 0 1\nremove 0\n",
             m.getLog());
     assertEquals("addFeatures\nsetDisplayImage 1 1 1\nrefresh\n", v.getLog());
   }
@@ -491,7 +664,7 @@ public class GUIImageControllerTest {
     controller = new GUIImageController(v, m);
     controller.sepia();
     assertEquals("getKnownCommands\ncolorTransform [[0.393, 0.769, 0.189], "
-                    + "[0.349, 0.686, 0.168], [0.272, 0.534, 0.131]] 0 1\ngetStoredImages\n",
+                    + "[0.349, 0.686, 0.168], [0.272, 0.534, 0.131]] 0 1\nremove 0\n",
             m.getLog());
     assertEquals("addFeatures\nsetDisplayImage 1 1 1\nrefresh\n", v.getLog());
   }
@@ -503,7 +676,7 @@ public class GUIImageControllerTest {
     m = new MockManager();
     controller = new GUIImageController(v, m);
     controller.flipHorizontal();
-    assertEquals("getKnownCommands\nflip horizontal 0 1\ngetStoredImages\n",
+    assertEquals("getKnownCommands\nflip horizontal 0 1\nremove 0\n",
             m.getLog());
     assertEquals("addFeatures\nsetDisplayImage 1 1 1\nrefresh\n", v.getLog());
   }
@@ -515,7 +688,7 @@ public class GUIImageControllerTest {
     m = new MockManager();
     controller = new GUIImageController(v, m);
     controller.flipVertical();
-    assertEquals("getKnownCommands\nflip vertical 0 1\ngetStoredImages\n",
+    assertEquals("getKnownCommands\nflip vertical 0 1\nremove 0\n",
             m.getLog());
     assertEquals("addFeatures\nsetDisplayImage 1 1 1\nrefresh\n", v.getLog());
   }
@@ -528,7 +701,7 @@ public class GUIImageControllerTest {
     controller = new GUIImageController(v, m);
     controller.blur();
     assertEquals("getKnownCommands\nfilter [[0.0625, 0.125, 0.0625], "
-                    + "[0.125, 0.25, 0.125], [0.0625, 0.125, 0.0625]] 0 1\ngetStoredImages\n",
+                    + "[0.125, 0.25, 0.125], [0.0625, 0.125, 0.0625]] 0 1\nremove 0\n",
             m.getLog());
     assertEquals("addFeatures\nsetDisplayImage 1 1 1\nrefresh\n", v.getLog());
   }
@@ -543,7 +716,7 @@ public class GUIImageControllerTest {
     assertEquals("getKnownCommands\nfilter [[-0.125, -0.125, -0.125, -0.125, -0.125], "
                     + "[-0.125, 0.25, 0.25, 0.25, -0.125], [-0.125, 0.25, 1.0, 0.25, -0.125], "
                     + "[-0.125, 0.25, 0.25, 0.25, -0.125], "
-                    + "[-0.125, -0.125, -0.125, -0.125, -0.125]] 0 1\ngetStoredImages\n",
+                    + "[-0.125, -0.125, -0.125, -0.125, -0.125]] 0 1\nremove 0\n",
             m.getLog());
     assertEquals("addFeatures\nsetDisplayImage 1 1 1\nrefresh\n", v.getLog());
   }
@@ -555,7 +728,7 @@ public class GUIImageControllerTest {
     m = new MockManager();
     controller = new GUIImageController(v, m);
     controller.brighten("10");
-    assertEquals("getKnownCommands\nbrighten 10 0 1\ngetStoredImages\n",
+    assertEquals("getKnownCommands\nbrighten 10 0 1\nremove 0\n",
             m.getLog());
     assertEquals("addFeatures\nsetDisplayImage 1 1 1\nrefresh\n", v.getLog());
   }
@@ -591,7 +764,7 @@ public class GUIImageControllerTest {
     m = new MockManager();
     controller = new GUIImageController(v, m);
     controller.darken("10");
-    assertEquals("getKnownCommands\nbrighten -10 0 1\ngetStoredImages\n",
+    assertEquals("getKnownCommands\nbrighten -10 0 1\nremove 0\n",
             m.getLog()); // brighten by negative inputted value
     assertEquals("addFeatures\nsetDisplayImage 1 1 1\nrefresh\n", v.getLog());
   }
@@ -615,11 +788,29 @@ public class GUIImageControllerTest {
     m = new MockManager();
     controller = new GUIImageController(v, m);
     controller.mosaic("50");
-    assertEquals("getKnownCommands\nmosaic 50 0 1\ngetStoredImages\n",
+    assertEquals("getKnownCommands\nmosaic 50 0 1\nremove 0\n",
             m.getLog()); // mosaic by negative inputted value
     assertEquals("addFeatures\nsetDisplayImage 1 1 1\nrefresh\n", v.getLog());
   }
 
+  // test that the image displayed is the last one the manager reports storing under the
+  // result's name
+  @Test
+  public void testDisplaysReportedImage() {
+    v = new MockView();
+    m = new MockManager() {
+      @Override
+      public void flip(String direction, String imageName, String resultName) {
+        super.flip(direction, imageName, resultName);
+        this.store(resultName, new RasterImageModel(5, 5, 5, new ArrayList<>()));
+      }
+    };
+    controller = new GUIImageController(v, m);
+    controller.flipVertical();
+    assertEquals("getKnownCommands\nflip vertical 0 1\nstore 1\nremove 0\n", m.getLog());
+    assertEquals("addFeatures\nsetDisplayImage 5 5 5\nrefresh\n", v.getLog());
+  }
+
   // test mosaic input error
   @Test
   public void testMosaicInvalidAmount() {
@@ -656,8 +847,289 @@ public class GUIImageControllerTest {
             v.getLog());
   }
 
-}
+  // test that a command in the background shows its progress and then its result
+  @Test
+  public void testBackgroundCommand() throws Exception {
+    v = new MockView();
+    m = new BlockingMockManager();
+    controller = new GUIImageController(v, m, true);
+    onEventThread(() -> controller.flipVertical());
+    waitForFinish(v);
+    assertEquals("addFeatures\nshowProgress true\nsetDisplayImage 1 1 255\nrefresh\n"
+            + "showProgress false\n", v.getLog());
+    assertEquals("getKnownCommands\nflip vertical 0 1\nremove 0\n", m.getLog());
+  }
+
+  // test that commands asked for while one runs are coalesced into the last of them
+  @Test
+  public void testBackgroundCoalescing() throws Exception {
+    v = new MockView();
+    BlockingMockManager blocking = new BlockingMockManager();
+    m = blocking;
+    controller = new GUIImageController(v, m, true);
+    onEventThread(() -> {
+      controller.flipHorizontal();
+      controller.flipVertical();
+      controller.brighten("5");
+    });
+    blocking.release.countDown();
+    waitForFinish(v);
+    assertTrue(m.getLog().endsWith("\nbrighten 5 1 2\nremove 1\n"));
+    assertTrue(m.getLog().contains("flip horizontal 0 1\n"));
+    assertFalse(m.getLog().contains("flip vertical")); // replaced by the brighten
+    assertTrue(v.getLog().endsWith("setDisplayImage 2 2 255\nrefresh\nshowProgress false\n"));
+  }
+
+  // test that a cancelled command does not show its result, and loading waits for it
+  @Test
+  public void testBackgroundCancel() throws Exception {
+    v = new MockView();
+    BlockingMockManager blocking = new BlockingMockManager();
+    m = blocking;
+    controller = new GUIImageController(v, m, true);
+    onEventThread(() -> {
+      controller.flipHorizontal();
+      controller.cancel();
+      controller.loadImage("bird.ppm");
+    });
+    blocking.release.countDown();
+    waitForFinish(v);
+    onEventThread(() -> { }); // let the cancelled command finish
+    assertEquals("addFeatures\nshowProgress true\nshowProgress false\n"
+            + "renderMessage Operation cancelled.\n"
+            + "renderMessage Please wait for the current operation to finish.\n",
+            v.getLog().substring(0, v.getLog().indexOf("finish.\n") + 8));
+    assertFalse(v.getLog().contains("setDisplayImage"));
+  }
+
+  // test that cancelling a save interrupts its replay and never writes the file
+  @Test
+  public void testBackgroundCancelSave() throws Exception {
+    v = new MockView();
+    m = new ReplayBlockingMockManager();
+    controller = new GUIImageController(v, m, true, 512);
+    onEventThread(() -> {
+      controller.loadImage("bird.ppm");
+      controller.flipVertical();
+    });
+    waitForFinish(v);
+    onEventThread(() -> controller.saveImage("out.bmp"));
+    for (int i = 0; i < 1000 && !m.getLog().contains("full-1"); i++) {
+      Thread.sleep(5);
+    }
+    onEventThread(() -> controller.cancel());
+    // the cancelled save shows progress stopping again once it has stopped
+    for (int i = 0; i < 1000 && !v.getLog().endsWith("cancelled.\nshowProgress false\n"); i++) {
+      Thread.sleep(5);
+      onEventThread(() -> { });
+    }
+    assertTrue(v.getLog().endsWith("showProgress true\nshowProgress false\n"
+            + "renderMessage Operation cancelled.\nshowProgress false\n"));
+    // the image the cancelled replay made is not kept
+    assertTrue(m.getLog().endsWith("flip vertical 1 full-1\nremove full-1\n"));
+  }
+
+  // test that preview mode edits a proxy and replays the edits on the full image when saving
+  @Test
+  public void testPreviewSave() {
+    v = new MockView();
+    m = new MockManager();
+    controller = new GUIImageController(v, m, false, 512);
+    controller.loadImage("bird.ppm");
+    controller.flipVertical();
+    controller.saveImage("out.png");
+    controller.saveImage("again.png"); // nothing new to replay
+    assertEquals("loadMapped bird.ppm 1\ndownscale 512 512 1 2\nremove 0\n"
+            + "getKnownCommands\nflip vertical 2 3\nremove 2\n"
+            + "flip vertical 1 full-1\nsave full-1 out.png png\n"
+            + "save full-1 again.png png\n", m.getLog());
+    assertEquals("addFeatures\nsetDisplayImage 2 2 2\nrefresh\nsetDisplayImage 3 3 3\n"
+            + "refresh\nrefresh\nrefresh\n", v.getLog());
+  }
+
+  // test that saving in preview mode keeps only the last full resolution image it replayed,
+  // and removes it once undoing goes past it or another image is loaded
+  @Test
+  public void testPreviewSaveKeepsLastReplayed() throws IOException {
+    File ppm = File.createTempFile("preview", ".ppm");
+    ppm.deleteOnExit();
+    Files.writeString(ppm.toPath(), "P3 2 1 255 10 20 30 40 50 60");
+    File out = File.createTempFile("preview-out", ".ppm");
+    out.deleteOnExit();
+    v = new MockView();
+    ImageManager manager = new RasterImageManager();
+    controller = new GUIImageController(v, manager, false, 1);
+    controller.loadImage(ppm.getAbsolutePath());
+    controller.flipHorizontal();
+    controller.brighten("5");
+    controller.saveImage(out.getAbsolutePath());
+    assertEquals(Set.of("1", "4", "full-2"), manager.getStoredImagesView().keySet());
+    controller.flipHorizontal();
+    controller.saveImage(out.getAbsolutePath());
+    assertEquals(Set.of("1", "5", "full-3"), manager.getStoredImagesView().keySet());
+    controller.undo(); // past the last image replayed
+    assertEquals(Set.of("1", "6"), manager.getStoredImagesView().keySet());
+    controller.saveImage(out.getAbsolutePath());
+    assertEquals(Set.of("1", "6", "full-5"), manager.getStoredImagesView().keySet());
+    controller.loadImage(ppm.getAbsolutePath());
+    assertEquals(Set.of("7", "8"), manager.getStoredImagesView().keySet());
+    assertFalse(v.getLog().contains("renderMessage"));
+  }
+
+  // test that preview mode only maps PPM files, loading other formats as usual
+  @Test
+  public void testPreviewLoadFormats() {
+    v = new MockView();
+    m = new MockManager();
+    controller = new GUIImageController(v, m, false, 512);
+    controller.loadImage("bird.png");
+    assertTrue(m.getLog().startsWith("load bird.png 1 png\ndownscale 512 512 1 2\n"));
+  }
+
+  // test that a failed replay is not remembered, so the next save replays it again
+  @Test
+  public void testPreviewSaveFails() {
+    v = new MockView();
+    m = new AccurateSaveMockManager(); // never has the full resolution results
+    controller = new GUIImageController(v, m, false, 512);
+    controller.loadImage("bird.ppm");
+    controller.flipVertical();
+    controller.saveImage("out.png");
+    controller.saveImage("out.png");
+    assertTrue(m.getLog().endsWith("flip vertical 1 full-1\nsave full-1 out.png png\n"
+            + "getStoredImages\nremove full-1\nflip vertical 1 full-1\n"
+            + "save full-1 out.png png\ngetStoredImages\nremove full-1\n"));
+    assertTrue(v.getLog().endsWith("renderMessage Image not found.\n"
+            + "renderMessage Image not found.\n"));
+  }
 
+  // test that saving in preview mode replays the edits in the background
+  @Test
+  public void testPreviewBackgroundSave() throws Exception {
+    v = new MockView();
+    BlockingMockManager blocking = new BlockingMockManager();
+    m = blocking;
+    blocking.release.countDown();
+    controller = new GUIImageController(v, m, true, 512);
+    onEventThread(() -> {
+      controller.loadImage("bird.ppm");
+      controller.flipVertical();
+    });
+    waitForFinish(v);
+    onEventThread(() -> controller.saveImage("out.bmp"));
+    // the save has shown its progress, so wait until it shows progress stopping again
+    for (int i = 0; i < 1000 && !v.getLog().endsWith("showProgress false\n"); i++) {
+      Thread.sleep(5);
+      onEventThread(() -> { });
+    }
+    assertTrue(m.getLog().endsWith("flip vertical 1 full-1\nsave full-1 out.bmp bmp\n"));
+    assertTrue(v.getLog().endsWith("showProgress true\nrefresh\nshowProgress false\n"));
+  }
 
+  // test exception for a negative history budget
+  @Test(expected = IllegalArgumentException.class)
+  public void testNegativeHistoryBudget() {
+    new GUIImageController(new MockView(), new MockManager(), false, 0, -1);
+  }
 
+  // test exception for a negative preview size
+  @Test(expected = IllegalArgumentException.class)
+  public void testNegativePreviewSize() {
+    new GUIImageController(new MockView(), new MockManager(), false, -1);
+  }
 
+  // test that undo and redo display the images before and after the last command
+  @Test
+  public void testUndoRedo() {
+    v = new MockView();
+    m = new MockManager();
+    controller = new GUIImageController(v, m);
+    controller.loadImage("bird.ppm");
+    controller.flipVertical();
+    controller.undo();
+    controller.redo();
+    controller.redo();
+    assertEquals("load bird.ppm 1 ppm\nremove 0\ngetKnownCommands\n"
+            + "flip vertical 1 2\nremove 1\nstore 3\nremove 2\nstore 4\nremove 3\n",
+            m.getLog());
+    assertEquals("addFeatures\nsetDisplayImage 1 1 1\nrefresh\nsetDisplayImage 2 2 2\n"
+            + "refresh\nsetDisplayImage 1 1 1\nrefresh\nsetDisplayImage 2 2 2\nrefresh\n"
+            + "renderMessage Nothing to redo.\n", v.getLog());
+  }
+
+  // test that a command run again to undo, when the image before it is not kept, runs away
+  // from the manager, storing nothing in it but the image undone to
+  @Test
+  public void testUndoRunsAgainPrivately() {
+    v = new MockView();
+    m = new BlockingMockManager(); // has images that can be flipped
+    controller = new GUIImageController(v, m, false, 0, 0);
+    controller.loadImage("bird.ppm");
+    controller.flipVertical();
+    controller.flipVertical();
+    controller.undo(); // only the loaded and last images are kept
+    assertEquals("load bird.ppm 1 ppm\nremove 0\ngetKnownCommands\nflip vertical 1 2\n"
+            + "remove 1\ngetKnownCommands\nflip vertical 2 3\nremove 2\nstore 4\nremove 3\n",
+            m.getLog());
+    assertTrue(v.getLog().endsWith("setDisplayImage 3 3 255\nrefresh\n"
+            + "setDisplayImage 1 1 255\nrefresh\n"));
+  }
+
+  // test that the manager keeps only the current image however many edits are made and
+  // undone, as the history of edits keeps what it needs to find the others again
+  @Test
+  public void testManagerKeepsCurrentImage() throws IOException {
+    File ppm = File.createTempFile("edits", ".ppm");
+    ppm.deleteOnExit();
+    Files.writeString(ppm.toPath(), "P3 2 1 255 10 20 30 40 50 60");
+    for (int previewSize : new int[] {0, 1}) {
+      v = new MockView();
+      ImageManager manager = new RasterImageManager();
+      controller = new GUIImageController(v, manager, false, previewSize, 0);
+      controller.loadImage(ppm.getAbsolutePath());
+      // in preview mode, the full resolution image is kept to replay the edits on
+      int kept = previewSize > 0 ? 2 : 1;
+      for (int i = 0; i < 200; i++) {
+        if (i % 2 == 0) {
+          controller.flipHorizontal();
+        } else {
+          controller.brighten("1");
+        }
+        assertEquals(kept, manager.getStoredImagesView().size());
+      }
+      for (int i = 0; i < 100; i++) {
+        controller.undo();
+      }
+      controller.redo();
+      assertEquals(kept, manager.getStoredImagesView().size());
+      assertFalse(v.getLog().contains("renderMessage"));
+    }
+  }
+
+  // test that there is nothing to undo before an image is loaded
+  @Test
+  public void testUndoNothing() {
+    v = new MockView();
+    m = new MockManager();
+    controller = new GUIImageController(v, m);
+    controller.undo();
+    assertEquals("addFeatures\nrenderMessage Nothing to undo.\n", v.getLog());
+    assertEquals("", m.getLog());
+  }
+
+  // test that undone commands are not replayed when saving in preview mode, until redone
+  @Test
+  public void testPreviewUndo() {
+    v = new MockView();
+    m = new MockManager();
+    controller = new GUIImageController(v, m, false, 512);
+    controller.loadImage("bird.ppm");
+    controller.flipVertical();
+    controller.undo();
+    controller.saveImage("out.png");
+    controller.redo();
+    controller.saveImage("out.png");
+    assertTrue(m.getLog().endsWith("store 4\nremove 3\nsave 1 out.png png\nstore 5\n"
+            + "remove 4\nflip vertical 1 full-1\nsave full-1 out.png png\n"));
+  }
+}
@@ -0,0 +1,37 @@
+package controller;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Test class for the MemoryBudget class. Tests that the shares of a budget fit within it.
+ */
+public class MemoryBudgetTest {
+
+  // test that each part gets its share, and all of them fit within the budget
+  @Test
+  public void testShares() {
+    MemoryBudget budget = new MemoryBudget(800);
+    assertEquals(800, budget.getTotal());
+    assertEquals(400, budget.getStoredImages());
+    assertEquals(100, budget.getResults());
+    assertEquals(100, budget.getHistory());
+  }
+
+  // test that the budget of the heap is all the memory the program may use
+  @Test
+  public void testOfHeap() {
+    MemoryBudget budget = MemoryBudget.ofHeap();
+    assertEquals(Runtime.getRuntime().maxMemory(), budget.getTotal());
+    assertTrue(budget.getStoredImages() + budget.getResults() + budget.getHistory()
+            <= budget.getTotal());
+  }
+
+  // test constructor exception for a negative budget
+  @Test(expected = IllegalArgumentException.class)
+  public void testNegativeBudget() {
+    new MemoryBudget(-1);
+  }
+}
@@ -0,0 +1,240 @@
+package controller;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import model.ARGBPixel;
+import model.ImageModel;
+import model.MappedImageModel;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Test class for the PPMReader class. Tests reading P3 and P6 images from streams of bytes.
+ */
+public class PPMReaderTest {
+
+  // reads an image from the given text
+  private ImageModel read(String text) throws IOException {
+    return new PPMReader(new ByteArrayInputStream(
+            text.getBytes(StandardCharsets.US_ASCII))).read();
+  }
+
+  // reads an image from the given header followed by the given samples as bytes
+  private ImageModel readBinary(String header, int... samples) throws IOException {
+    byte[] head = header.getBytes(StandardCharsets.US_ASCII);
+    byte[] bytes = new byte[head.length + samples.length];
+    System.arraycopy(head, 0, bytes, 0, head.length);
+    for (int i = 0; i < samples.length; i++) {
+      bytes[head.length + i] = (byte) samples[i];
+    }
+    return new PPMReader(new ByteArrayInputStream(bytes)).read();
+  }
+
+  // test reading an image with comments on their own lines and after values
+  @Test
+  public void testReadWithComments() throws IOException {
+    ImageModel image = read("P3\n# a comment\n2 1 # size\n100\n1 2 3#red\n\r\n4 5 6");
+    assertEquals(2, image.getWidth());
+    assertEquals(1, image.getHeight());
+    assertEquals(100, image.getMaxRGB());
+    assertEquals(new ARGBPixel(255, 1, 2, 3), image.getPixel(0, 0));
+    assertEquals(new ARGBPixel(255, 4, 5, 6), image.getPixel(0, 1));
+  }
+
+  // test reading from a stream that only gives one byte at a time
+  @Test
+  public void testReadOneByteAtATime() throws IOException {
+    byte[] bytes = "P3 1 2 255 10 20 30\t40 50 60\n".getBytes(StandardCharsets.US_ASCII);
+    InputStream slow = new InputStream() {
+      private int next = 0;
+
+      @Override
+      public int read() {
+        return next < bytes.length ? bytes[next++] : -1;
+      }
+
+      @Override
+      public int read(byte[] b, int off, int len) {
+        if (next >= bytes.length) {
+          return -1;
+        }
+        b[off] = bytes[next++];
+        return 1;
+      }
+    };
+    ImageModel image = new PPMReader(slow).read();
+    assertEquals(new ARGBPixel(255, 40, 50, 60), image.getPixel(1, 0));
+  }
+
+  // test exception for a file that is not P3
+  @Test(expected = IllegalArgumentException.class)
+  public void testNotP3() throws IOException {
+    read("1 2\n255\n1 2 3 4 5 6");
+  }
+
+  // test exception for an empty file
+  @Test(expected = IllegalArgumentException.class)
+  public void testEmpty() throws IOException {
+    read("");
+  }
+
+  // test exception for fewer values than the size of the image needs
+  @Test(expected = IllegalArgumentException.class)
+  public void testNotEnoughValues() throws IOException {
+    read("P3\n2 2\n255\n1 2 3 4 5 6 7 8 9");
+  }
+
+  // test exception for a value that is not a number
+  @Test(expected = IllegalArgumentException.class)
+  public void testInvalidValue() throws IOException {
+    read("P3\n2 1\n255\n26 52 f 129 12 5");
+  }
+
+  // test exception for a negative color value
+  @Test(expected = IllegalArgumentException.class)
+  public void testNegativeValue() throws IOException {
+    read("P3\n1 2\n255\n10 4 -1 12 23 100");
+  }
+
+  // test exception for a color value above the max value of the image
+  @Test(expected = IllegalArgumentException.class)
+  public void testValueOverMax() throws IOException {
+    read("P3\n3 1 100\n50 70 12 39 101 12 19 48 29");
+  }
+
+  // test exception for a size that is not positive
+  @Test(expected = IllegalArgumentException.class)
+  public void testZeroWidth() throws IOException {
+    read("P3\n0 1 255\n");
+  }
+
+  // test reading a binary image with one byte per sample, including a comment in the header
+  @Test
+  public void testReadBinary() throws IOException {
+    ImageModel image = readBinary("P6\n# binary\n2 1\n200\n", 1, 2, 3, 200, 10, 0);
+    assertEquals(2, image.getWidth());
+    assertEquals(1, image.getHeight());
+    assertEquals(200, image.getMaxRGB());
+    assertEquals(new ARGBPixel(255, 1, 2, 3), image.getPixel(0, 0));
+    assertEquals(new ARGBPixel(255, 200, 10, 0), image.getPixel(0, 1));
+  }
+
+  // test that sample bytes which look like whitespace or comments are read as samples
+  @Test
+  public void testReadBinarySeparatorBytes() throws IOException {
+    ImageModel image = readBinary("P6 1 1 255\n", '#', ' ', '\n');
+    assertEquals(new ARGBPixel(255, '#', ' ', '\n'), image.getPixel(0, 0));
+  }
+
+  // test that two byte samples are scaled down to a max value of 255
+  @Test
+  public void testReadBinaryWide() throws IOException {
+    ImageModel image = readBinary("P6 2 1 65535\n",
+            0xFF, 0xFF, 0x00, 0x00, 0x80, 0x00,
+            0x01, 0x01, 0x7F, 0x7F, 0xFE, 0xFE);
+    assertEquals(255, image.getMaxRGB());
+    assertEquals(new ARGBPixel(255, 255, 0, 128), image.getPixel(0, 0));
+    assertEquals(new ARGBPixel(255, 1, 127, 254), image.getPixel(0, 1));
+  }
+
+  // test reading a binary image larger than the buffer, through a channel
+  @Test
+  public void testReadBinaryLarge() throws IOException {
+    int width = 300;
+    int height = 100;
+    int[] samples = new int[width * height * 3];
+    for (int i = 0; i < samples.length; i++) {
+      samples[i] = (i * 7) % 256;
+    }
+    ImageModel image = readBinary("P6 300 100 255\n", samples);
+    for (int row = 0; row < height; row++) {
+      for (int col = 0; col < width; col++) {
+        int i = (row * width + col) * 3;
+        assertEquals(new ARGBPixel(255, samples[i], samples[i + 1], samples[i + 2]),
+                image.getPixel(row, col));
+      }
+    }
+  }
+
+  // test exception for a binary image with too few samples
+  @Test(expected = IllegalArgumentException.class)
+  public void testBinaryNotEnoughValues() throws IOException {
+    readBinary("P6 2 1 255\n", 1, 2, 3, 4, 5);
+  }
+
+  // test exception for a binary sample above the max value of the image
+  @Test(expected = IllegalArgumentException.class)
+  public void testBinaryValueOverMax() throws IOException {
+    readBinary("P6 1 1 100\n", 50, 101, 12);
+  }
+
+  // test exception for a binary image with a max value that is too large
+  @Test(expected = IllegalArgumentException.class)
+  public void testBinaryMaxTooLarge() throws IOException {
+    readBinary("P6 1 1 65536\n", 0, 0, 0, 0, 0, 0);
+  }
+
+  // maps an image from a temporary file holding the given bytes
+  private ImageModel map(byte[] bytes) throws IOException {
+    Path file = Files.createTempFile("reader", ".ppm");
+    try {
+      Files.write(file, bytes);
+      try (FileChannel channel = FileChannel.open(file)) {
+        return new PPMReader(channel).map(file.getParent());
+      }
+    } finally {
+      file.toFile().deleteOnExit();
+    }
+  }
+
+  // test mapping a binary image whose samples start past the first block of the buffer
+  @Test
+  public void testMapBinary() throws IOException {
+    StringBuilder header = new StringBuilder("P6\n");
+    while (header.length() < 70000) {
+      header.append("# a long comment\n");
+    }
+    header.append("2 1 200\n");
+    byte[] head = header.toString().getBytes(StandardCharsets.US_ASCII);
+    byte[] bytes = new byte[head.length + 6];
+    System.arraycopy(head, 0, bytes, 0, head.length);
+    byte[] samples = {1, 2, 3, (byte) 200, 10, 0};
+    System.arraycopy(samples, 0, bytes, head.length, 6);
+    ImageModel image = map(bytes);
+    assertTrue(image instanceof MappedImageModel);
+    assertEquals(200, image.getMaxRGB());
+    assertEquals(new ARGBPixel(255, 1, 2, 3), image.getPixel(0, 0));
+    assertEquals(new ARGBPixel(255, 200, 10, 0), image.getPixel(0, 1));
+  }
+
+  // test mapping a plain image, which is converted to binary samples first
+  @Test
+  public void testMapPlain() throws IOException {
+    ImageModel image = map("P3\n2 1\n100\n1 2 3 4 5 6".getBytes(StandardCharsets.US_ASCII));
+    assertTrue(image instanceof MappedImageModel);
+    assertEquals(100, image.getMaxRGB());
+    assertEquals(new ARGBPixel(255, 1, 2, 3), image.getPixel(0, 0));
+    assertEquals(new ARGBPixel(255, 4, 5, 6), image.getPixel(0, 1));
+  }
+
+  // test exception for mapping a plain image with a value above its max value
+  @Test(expected = IllegalArgumentException.class)
+  public void testMapPlainValueOverMax() throws IOException {
+    map("P3\n2 1\n100\n1 2 3 4 5 101".getBytes(StandardCharsets.US_ASCII));
+  }
+
+  // test exception for mapping an image that is not in a file
+  @Test(expected = IllegalStateException.class)
+  public void testMapNotFile() throws IOException {
+    new PPMReader(new ByteArrayInputStream(new byte[0])).map(null);
+  }
+}
@@ -0,0 +1,105 @@
+package controller;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+
+import model.ImageModel;
+import model.PackedImageModel;
+import model.PackedPixels;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Test class for the PPMWriter class. Tests that streamed P3 output is the same as the text
+ * of ImageModel.toPPMFile, and that P6 output has the expected bytes and reads back.
+ */
+public class PPMWriterTest {
+
+  // creates an image of the given size with varied color values
+  private ImageModel makeImage(int width, int height) {
+    int[] pixels = new int[width * height];
+    for (int i = 0; i < pixels.length; i++) {
+      pixels[i] = PackedPixels.pack(255, i % 256, (i * 31) % 256, (i * 7) % 10);
+    }
+    return new PackedImageModel(width, height, 255, pixels);
+  }
+
+  // test that a small image is written exactly as toPPMFile gives it
+  @Test
+  public void testMatchesToPPMFile() throws IOException {
+    ImageModel image = makeImage(3, 2);
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    new PPMWriter(out).write(image);
+    assertEquals(image.toPPMFile(), out.toString(StandardCharsets.US_ASCII));
+  }
+
+  // test an image larger than the buffer, written through a channel
+  @Test
+  public void testLargeImageThroughChannel() throws IOException {
+    ImageModel image = makeImage(300, 200);
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    new PPMWriter(Channels.newChannel(out)).write(image);
+    assertEquals(image.toPPMFile(), out.toString(StandardCharsets.US_ASCII));
+  }
+
+  // test that a written image reads back as the same image
+  @Test
+  public void testReadBack() throws IOException {
+    ImageModel image = makeImage(17, 5);
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    new PPMWriter(out).write(image);
+    ImageModel read = new PPMReader(new ByteArrayInputStream(out.toByteArray())).read();
+    for (int row = 0; row < 5; row++) {
+      for (int col = 0; col < 17; col++) {
+        assertEquals(image.getPixel(row, col), read.getPixel(row, col));
+      }
+    }
+  }
+
+  // test the exact bytes of a small binary image with one byte per sample
+  @Test
+  public void testBinaryBytes() throws IOException {
+    ImageModel image = new PackedImageModel(2, 1, 200, new int[] {
+        PackedPixels.pack(255, 1, 2, 3), PackedPixels.pack(255, 200, 0, 128)});
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    new PPMWriter(out).writeBinary(image, false);
+    byte[] expected = {'P', '6', '\n', '2', ' ', '1', '\n', '2', '0', '0', '\n',
+        1, 2, 3, (byte) 200, 0, (byte) 128};
+    assertArrayEquals(expected, out.toByteArray());
+  }
+
+  // test the exact bytes of a small binary image with two bytes per sample
+  @Test
+  public void testBinaryWideBytes() throws IOException {
+    ImageModel image = new PackedImageModel(1, 1, 255, new int[] {
+        PackedPixels.pack(255, 255, 1, 0)});
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    new PPMWriter(out).writeBinary(image, true);
+    byte[] expected = {'P', '6', '\n', '1', ' ', '1', '\n', '6', '5', '5', '3', '5', '\n',
+        (byte) 0xFF, (byte) 0xFF, 1, 1, 0, 0};
+    assertArrayEquals(expected, out.toByteArray());
+  }
+
+  // test that binary images of either sample size read back as the same image
+  @Test
+  public void testBinaryReadBack() throws IOException {
+    ImageModel image = makeImage(300, 200);
+    for (boolean wide : new boolean[] {false, true}) {
+      ByteArrayOutputStream out = new ByteArrayOutputStream();
+      new PPMWriter(Channels.newChannel(out)).writeBinary(image, wide);
+      ImageModel read = new PPMReader(new ByteArrayInputStream(out.toByteArray())).read();
+      assertEquals(255, read.getMaxRGB());
+      for (int row = 0; row < 200; row++) {
+        for (int col = 0; col < 300; col++) {
+          assertEquals(image.getPixel(row, col), read.getPixel(row, col));
+        }
+      }
+    }
+  }
+}
@@ -4,6 +4,7 @@ import controller.ImageManager.ImageFileFormat;
 import model.ARGBPixel;
 import model.FilterKernel;
 import model.ImageModel;
+import model.PackedImageModel;
 import model.RGBColorMatrix;
 import model.RGBPixel;
 
@@ -12,10 +13,14 @@ import org.junit.Test;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.Map;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
@@ -784,4 +789,158 @@ public class RasterImageManagerTest {
     ImageModel model2 = testProcessorModel.getStoredImages().getOrDefault("image2", null);
     assertNotEquals(null, model2);
   }
-}
\ No newline at end of file
+
+  // test that images saved through ImageIO in each lossless format load back unchanged
+  @Test
+  public void testImageIORoundTrip() throws IOException {
+    File ppm = File.createTempFile("roundtrip", ".ppm");
+    ppm.deleteOnExit();
+    StringBuilder text = new StringBuilder("P3 7 5 255");
+    for (int i = 0; i < 7 * 5; i++) {
+      text.append(' ').append(i * 7 % 256).append(' ').append(i * 31 % 256)
+              .append(' ').append(255 - i);
+    }
+    java.nio.file.Files.writeString(ppm.toPath(), text);
+    testProcessorModel = new RasterImageManager();
+    testProcessorModel.load(ppm.getAbsolutePath(), "original", ImageFileFormat.PPM);
+    ImageModel original = testProcessorModel.getStoredImages().get("original");
+    for (ImageFileFormat format : new ImageFileFormat[] {ImageFileFormat.PNG,
+        ImageFileFormat.BMP}) {
+      File file = File.createTempFile("roundtrip", "." + format);
+      file.deleteOnExit();
+      testProcessorModel.save("original", file.getAbsolutePath(), format);
+      testProcessorModel.load(file.getAbsolutePath(), "copy", format);
+      ImageModel copy = testProcessorModel.getStoredImages().get("copy");
+      assertEquals(original.getMaxRGB(), copy.getMaxRGB());
+      for (int row = 0; row < 5; row++) {
+        for (int col = 0; col < 7; col++) {
+          assertEquals(original.getPixel(row, col), copy.getPixel(row, col));
+        }
+      }
+    }
+  }
+
+  // test that a save interrupted while writing, as cancelling a save in the background does,
+  // fails and leaves the file already there as it was, with nothing written next to it
+  @Test
+  public void testInterruptedSaveKeepsFile() throws IOException {
+    File directory = java.nio.file.Files.createTempDirectory("interrupted").toFile();
+    directory.deleteOnExit();
+    testProcessorModel = new RasterImageManager();
+    testProcessorModel.store("image1", new PackedImageModel(300, 200, 255, new int[60000]));
+    for (ImageFileFormat format : new ImageFileFormat[] {ImageFileFormat.PPM,
+        ImageFileFormat.PPM_BINARY, ImageFileFormat.PNG}) {
+      File file = new File(directory, "out." + format);
+      file.deleteOnExit();
+      java.nio.file.Files.writeString(file.toPath(), "earlier");
+      Thread.currentThread().interrupt();
+      try {
+        testProcessorModel.save("image1", file.getAbsolutePath(), format);
+        fail("The interrupted save finished");
+      } catch (IOException e) {
+        assertEquals("earlier", java.nio.file.Files.readString(file.toPath()));
+      } finally {
+        Thread.interrupted(); // do not leave the interrupt to later tests
+      }
+      assertEquals(0, directory.list((dir, name) -> name.endsWith(".part")).length);
+    }
+    testProcessorModel.save("image1", new File(directory, "out.png").getAbsolutePath(),
+            ImageFileFormat.PNG);
+    testProcessorModel.load(new File(directory, "out.png").getAbsolutePath(), "image2",
+            ImageFileFormat.PNG);
+    assertEquals(300, testProcessorModel.getImage("image2").getWidth());
+  }
+
+  // test that downscale stores a proxy that fits within the given size
+  @Test
+  public void testDownscale() throws IOException {
+    File ppm = File.createTempFile("downscale", ".ppm");
+    ppm.deleteOnExit();
+    StringBuilder text = new StringBuilder("P3 8 4 255");
+    for (int i = 0; i < 8 * 4; i++) {
+      text.append(" 10 20 30");
+    }
+    java.nio.file.Files.writeString(ppm.toPath(), text);
+    testProcessorModel = new RasterImageManager();
+    testProcessorModel.load(ppm.getAbsolutePath(), "image1", ImageFileFormat.PPM);
+    testProcessorModel.downscale(4, 4, "image1", "image2");
+    ImageModel proxy = testProcessorModel.getStoredImages().get("image2");
+    assertEquals(4, proxy.getWidth());
+    assertEquals(2, proxy.getHeight());
+    assertEquals(20, proxy.getPixel(1, 3).getGreen());
+  }
+
+  // test that images and commands are looked up by name without copying them all
+  @Test
+  public void testLookups() {
+    testProcessorModel = new RasterImageManager();
+    ImageModel image = new PackedImageModel(1, 1, 255, new int[1]);
+    testProcessorModel.store("image1", image);
+    assertSame(image, testProcessorModel.getImage("image1"));
+    assertNull(testProcessorModel.getImage("image2"));
+    assertNull(testProcessorModel.getImage(null));
+    assertNotNull(testProcessorModel.getCommand("sepia"));
+    assertNull(testProcessorModel.getCommand("unknown"));
+  }
+
+  // test that the view of the stored images shows later images and cannot change them
+  @Test
+  public void testStoredImagesView() {
+    testProcessorModel = new RasterImageManager();
+    Map<String, ImageModel> view = testProcessorModel.getStoredImagesView();
+    assertTrue(view.isEmpty());
+    ImageModel image = new PackedImageModel(1, 1, 255, new int[1]);
+    testProcessorModel.store("image1", image);
+    testProcessorModel.flip("horizontal", "image1", "image2");
+    assertEquals(2, view.size());
+    assertSame(image, view.get("image1"));
+    assertTrue(view.containsKey("image2"));
+    try {
+      view.put("image3", image);
+      fail("The view was changed");
+    } catch (UnsupportedOperationException e) {
+      assertFalse(testProcessorModel.getStoredImagesView().containsKey("image3"));
+    }
+    try {
+      view.clear();
+      fail("The view was changed");
+    } catch (UnsupportedOperationException e) {
+      assertEquals(2, view.size());
+    }
+  }
+
+  // test that listeners are told about every image stored until they are removed
+  @Test
+  public void testImageListener() throws IOException {
+    File ppm = File.createTempFile("listener", ".ppm");
+    ppm.deleteOnExit();
+    java.nio.file.Files.writeString(ppm.toPath(), "P3 1 1 255 10 20 30");
+    testProcessorModel = new RasterImageManager();
+    StringBuilder log = new StringBuilder();
+    ImageListener listener = (name, image) -> log.append(name).append(" ")
+            .append(image.getWidth()).append("\n");
+    testProcessorModel.addImageListener(listener);
+    testProcessorModel.load(ppm.getAbsolutePath(), "image1", ImageFileFormat.PPM);
+    testProcessorModel.brighten(10, "image1", "image2");
+    testProcessorModel.store("image3", new PackedImageModel(2, 1, 255, new int[2]));
+    testProcessorModel.removeImageListener(listener);
+    testProcessorModel.flip("vertical", "image1", "image4");
+    assertEquals("image1 1\nimage2 1\nimage3 2\n", log.toString());
+  }
+
+  // test that a listener is not told about a result that could not be stored
+  @Test
+  public void testImageListenerExclusive() {
+    ConcurrentRasterImageManager manager = new ConcurrentRasterImageManager(true);
+    StringBuilder log = new StringBuilder();
+    manager.addImageListener((name, image) -> log.append(name).append("\n"));
+    manager.store("image1", new PackedImageModel(1, 1, 255, new int[1]));
+    manager.flip("vertical", "image1", "image2");
+    try {
+      manager.flip("horizontal", "image1", "image2");
+      fail("The name was taken");
+    } catch (IllegalArgumentException e) {
+      assertEquals("image1\nimage2\n", log.toString());
+    }
+  }
+}
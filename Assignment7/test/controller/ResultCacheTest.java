@@ -0,0 +1,156 @@
+package controller;
+
+import org.junit.Test;
+
+import java.util.List;
+
+import model.FilterKernel;
+import model.ImageModel;
+import model.Kernel;
+import model.PackedImageModel;
+import model.Pixel;
+import model.RGBColorMatrix;
+import model.RGBPixel;
+import model.RasterImageModel;
+
+import static model.TestImages.makeImage;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+/**
+ * Test class for the ResultCache class. Tests that operations run again on images with the
+ * same content are not computed again, and that the cache stays within its budget.
+ */
+public class ResultCacheTest {
+
+  // creates the kernel used to sharpen images
+  private Kernel makeSharpen() {
+    Double[][] values = new Double[5][5];
+    for (int row = 0; row < 5; row++) {
+      for (int col = 0; col < 5; col++) {
+        boolean inner = row >= 1 && row <= 3 && col >= 1 && col <= 3;
+        values[row][col] = row == 2 && col == 2 ? 1.0 : inner ? 0.25 : -0.125;
+      }
+    }
+    return new FilterKernel(values);
+  }
+
+  // test that filtering an image with the same content again gives the cached pixels
+  @Test
+  public void testHit() {
+    ResultCache cache = new ResultCache(1 << 20);
+    ImageManager manager = new RasterImageManager(new MemoryImageStore(), cache);
+    manager.store("image", makeImage(255));
+    manager.filter(makeSharpen(), "image", "sharp");
+    manager.store("copy", makeImage(255));
+    manager.filter(makeSharpen(), "copy", "sharp-copy");
+    assertEquals(1, cache.getHits());
+    assertEquals(1, cache.getMisses());
+    assertEquals(96, cache.getCachedBytes()); // the result and the image it came from
+    ImageModel sharp = manager.getImage("sharp");
+    ImageModel sharpCopy = manager.getImage("sharp-copy");
+    assertNotSame(sharp, sharpCopy);
+    assertSame(PackedImageModel.sharedBuffer(sharp), PackedImageModel.sharedBuffer(sharpCopy));
+    assertEquals(sharp, sharpCopy);
+  }
+
+  // test that other arguments, operations, or max values are not found in the cache
+  @Test
+  public void testMisses() {
+    ResultCache cache = new ResultCache(1 << 20);
+    ImageManager manager = new RasterImageManager(new MemoryImageStore(), cache);
+    manager.store("image", makeImage(255));
+    manager.store("dim", makeImage(100));
+    manager.flip("horizontal", "image", "result");
+    manager.flip("vertical", "image", "result");
+    manager.flip("horizontal", "dim", "result");
+    manager.visualizeComponent(ImageModel.Component.RED, "image", "result");
+    manager.downscale(2, 2, "image", "result");
+    assertEquals(0, cache.getHits());
+    assertEquals(5, cache.getMisses());
+  }
+
+  // test that brightening, color transformations, and mosaics are never cached
+  @Test
+  public void testNotCached() {
+    ResultCache cache = new ResultCache(1 << 20);
+    ImageManager manager = new RasterImageManager(new MemoryImageStore(), cache);
+    manager.store("image", makeImage(255));
+    Double[][] identity = {{1.0, 0.0, 0.0}, {0.0, 1.0, 0.0}, {0.0, 0.0, 1.0}};
+    for (int i = 0; i < 2; i++) {
+      manager.brighten(10, "image", "result");
+      manager.colorTransform(new RGBColorMatrix(identity), "image", "result");
+      manager.mosaic(3, "image", "result");
+    }
+    assertEquals(0, cache.getHits() + cache.getMisses());
+  }
+
+  // test that a cached result keeps its max value when the first result is brightened
+  @Test
+  public void testCachedMaxRGB() {
+    ResultCache cache = new ResultCache(1 << 20);
+    ImageManager manager = new RasterImageManager(new MemoryImageStore(), cache);
+    manager.store("image", makeImage(200));
+    manager.flip("vertical", "image", "first");
+    manager.getImage("first").brighten(100);
+    manager.flip("vertical", "image", "second");
+    assertEquals(1, cache.getHits());
+    assertEquals(200, manager.getImage("second").getMaxRGB());
+  }
+
+  // test that the results used least recently are dropped to stay within the budget
+  @Test
+  public void testEviction() {
+    ResultCache cache = new ResultCache(150);
+    ImageManager manager = new RasterImageManager(new MemoryImageStore(), cache);
+    manager.store("image", makeImage(255));
+    manager.flip("horizontal", "image", "result");
+    manager.flip("vertical", "image", "result");
+    manager.flip("horizontal", "image", "result");
+    manager.visualizeComponent(ImageModel.Component.RED, "image", "result");
+    assertEquals(1, cache.getHits());
+    assertEquals(1, cache.getEvictions());
+    assertEquals(144, cache.getCachedBytes()); // the image is kept once for both results
+    manager.flip("vertical", "image", "result");
+    assertEquals(1, cache.getHits());
+    assertEquals(4, cache.getMisses());
+  }
+
+  // test that images whose pixels are not on the heap are never looked up
+  @Test
+  public void testNotOnHeap() {
+    ResultCache cache = new ResultCache(1 << 20);
+    ImageManager manager = new RasterImageManager(new MemoryImageStore(), cache);
+    manager.store("image", new RasterImageModel(1, 1, 255, List.of(List.<Pixel>of(
+            new RGBPixel(10, 20, 30)))));
+    manager.flip("horizontal", "image", "result");
+    manager.flip("horizontal", "image", "result");
+    assertEquals(0, cache.getHits() + cache.getMisses());
+    assertEquals(0, cache.getCachedBytes());
+  }
+
+  // test that every result computed from an image is dropped before the image itself
+  @Test
+  public void testSourceDropped() {
+    ResultCache cache = new ResultCache(100);
+    PackedImageModel first = makeImage(255);
+    ImageModel second = first.flip("vertical");
+    cache.getOrCompute(first, "flip", "horizontal", () -> first.flip("horizontal"));
+    cache.getOrCompute(second, "flip", "horizontal", () -> second.flip("horizontal"));
+    assertEquals(1, cache.getEvictions());
+    assertEquals(96, cache.getCachedBytes());
+  }
+
+  // test getOrCompute exception for a null operation
+  @Test(expected = IllegalArgumentException.class)
+  public void testNullOperation() {
+    new ResultCache(100).getOrCompute(makeImage(255), null, "", () -> makeImage(255));
+  }
+
+  // test constructor exception for a negative budget
+  @Test(expected = IllegalArgumentException.class)
+  public void testNegativeBudget() {
+    new ResultCache(-1);
+  }
+}
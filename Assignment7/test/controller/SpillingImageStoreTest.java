@@ -0,0 +1,145 @@
+package controller;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+
+import model.ImageModel;
+import model.PackedImageModel;
+import model.PackedPixels;
+
+import static model.TestImages.assertSameImage;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Test class for the SpillingImageStore class. Tests that images over the budget are spilled
+ * least recently used first, and come back with the same pixels when asked for.
+ */
+public class SpillingImageStoreTest {
+
+  // creates a 10 by 10 image, which takes 400 bytes on the heap
+  private ImageModel makeImage(int seed, boolean opaque) {
+    int[] pixels = new int[100];
+    for (int i = 0; i < pixels.length; i++) {
+      pixels[i] = PackedPixels.pack(opaque ? 255 : i * 2, (i + seed) % 256, (i * 7) % 256,
+              seed % 256);
+    }
+    return new PackedImageModel(10, 10, 200, pixels);
+  }
+
+  // test that the least recently used images are spilled, and read back unchanged
+  @Test
+  public void testSpillAndReload() throws IOException {
+    Path directory = Files.createTempDirectory("spill");
+    SpillingImageStore store = new SpillingImageStore(800, directory);
+    ImageModel first = makeImage(1, true);
+    ImageModel second = makeImage(2, false);
+    store.put("first", first);
+    store.put("second", second);
+    assertSame(first, store.get("first")); // now the second is used least recently
+    store.put("third", makeImage(3, true));
+    assertEquals(800, store.getResidentBytes());
+    assertEquals(400, store.getSpilledBytes()); // four bytes for each pixel, as some have alpha
+    assertEquals(1, store.getHits());
+    assertEquals(0, store.getMisses());
+    assertSameImage(second, store.get("second"));
+    assertEquals(1, store.getMisses());
+    assertEquals(700, store.getSpilledBytes()); // three bytes for each opaque pixel of the first
+    assertSameImage(first, store.get("first"));
+    assertEquals(2, store.getMisses());
+    assertEquals(800, store.getResidentBytes());
+  }
+
+  // test that an image read back and spilled again is not written again
+  @Test
+  public void testSpillFileKept() throws IOException {
+    SpillingImageStore store = new SpillingImageStore(400, Files.createTempDirectory("spill"));
+    store.put("first", makeImage(1, true));
+    store.put("second", makeImage(2, true));
+    store.get("first");
+    store.get("second");
+    store.get("first");
+    assertEquals(600, store.getSpilledBytes()); // each was written once
+    assertEquals(3, store.getMisses());
+  }
+
+  // test that replacing an image deletes its spill file
+  @Test
+  public void testReplaceDeletesFile() throws IOException {
+    Path directory = Files.createTempDirectory("spill");
+    SpillingImageStore store = new SpillingImageStore(0, directory);
+    store.put("first", makeImage(1, true));
+    store.put("second", makeImage(2, true));
+    assertEquals(1, directory.toFile().list().length);
+    store.put("first", makeImage(3, true));
+    assertEquals(1, directory.toFile().list().length); // now the spill file of the second
+    assertEquals(400, store.getResidentBytes());
+  }
+
+  // test that removing an image deletes its spill file, or lets go of its heap
+  @Test
+  public void testRemove() throws IOException {
+    Path directory = Files.createTempDirectory("spill");
+    SpillingImageStore store = new SpillingImageStore(400, directory);
+    store.put("first", makeImage(1, true));
+    store.put("second", makeImage(2, true)); // spills the first
+    store.remove("first");
+    assertEquals(0, directory.toFile().list().length);
+    store.remove("second");
+    store.remove("third"); // nothing stored under it
+    assertEquals(0, store.getResidentBytes());
+    assertTrue(store.names().isEmpty());
+    assertNull(store.get("second"));
+  }
+
+  // test that a snapshot has the images stored when it was taken, read back as needed
+  @Test
+  public void testSnapshot() throws IOException {
+    SpillingImageStore store = new SpillingImageStore(400, Files.createTempDirectory("spill"));
+    ImageModel first = makeImage(1, true);
+    store.put("first", first);
+    store.put("second", makeImage(2, true));
+    Map<String, ImageModel> snapshot = store.snapshot();
+    store.put("third", makeImage(3, true));
+    assertEquals(2, snapshot.size());
+    assertTrue(snapshot.containsKey("first"));
+    assertNull(snapshot.get("third"));
+    assertSameImage(first, snapshot.get("first"));
+    assertNull(store.get("missing"));
+  }
+
+  // test that a manager works the same with images spilled from under it
+  @Test
+  public void testManager() throws IOException {
+    ImageManager manager = new RasterImageManager(
+            new SpillingImageStore(0, Files.createTempDirectory("spill")));
+    Path file = Files.createTempFile("spill", ".ppm");
+    file.toFile().deleteOnExit();
+    Files.writeString(file, "P3 2 1 255 10 20 30 40 50 60");
+    manager.load(file.toString(), "image", ImageManager.ImageFileFormat.PPM);
+    manager.flip("horizontal", "image", "flipped");
+    manager.brighten(5, "image", "brighter");
+    assertEquals(PackedPixels.pack(255, 40, 50, 60),
+            PackedPixels.pack(manager.getStoredImages().get("flipped").getPixel(0, 0)));
+    assertEquals(PackedPixels.pack(255, 15, 25, 35),
+            PackedPixels.pack(manager.getStoredImages().get("brighter").getPixel(0, 0)));
+  }
+
+  // test exception for a negative budget
+  @Test(expected = IllegalArgumentException.class)
+  public void testNegativeBudget() {
+    new SpillingImageStore(-1);
+  }
+
+  // test exception for a null image
+  @Test(expected = IllegalArgumentException.class)
+  public void testPutNull() {
+    new SpillingImageStore(0).put("image", null);
+  }
+}
@@ -10,6 +10,9 @@ import java.io.IOException;
 import java.io.InputStreamReader;
 import java.io.StringReader;
 import java.nio.CharBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.function.Function;
@@ -22,6 +25,8 @@ import controller.command.Sharpen;
 import model.ColorMatrix;
 import model.ImageModel;
 import model.Kernel;
+import model.MappedImageModel;
+import model.PackedImageModel;
 import controller.command.Blue;
 import controller.command.Brighten;
 import controller.command.FlipHorizontal;
@@ -50,9 +55,13 @@ public class TextImageControllerTest {
                   + "- menu (display the menu of supported commands)\n"
                   + "- load file-path name "
                   + "(loads the file at the file path and refer to it by the given name)\n"
+                  + "- load-mapped file-path name "
+                  + "(loads the PPM file at the file path without copying it into memory, "
+                  + "for images too large to load otherwise)\n"
                   + "- save file-path image-name"
                   + "(save the image with the given name to the specified file path,"
-                  + " including the file name)\n"
+                  + " including the file name; a name ending in .p6.ppm or .p6-16.ppm"
+                  + " saves a binary PPM file)\n"
                   + "- red-component image-name result-name "
                   + "(create a greyscale image using the red component of the given image, "
                   + "and refer to the result by the given result name)\n"
@@ -115,6 +124,12 @@ public class TextImageControllerTest {
               .append(fileFormat).append("\n");
     }
 
+    @Override
+    public void loadMapped(String filePath, String name)
+            throws IOException, IllegalArgumentException {
+      log.append("loadMapped ").append(filePath).append(" ").append(name).append("\n");
+    }
+
     @Override
     public void save(String imageName, String filePath, ImageFileFormat fileFormat)
             throws IOException, IllegalArgumentException {
@@ -122,12 +137,38 @@ public class TextImageControllerTest {
               .append(fileFormat).append("\n");
     }
 
+    @Override
+    public void remove(String name) throws IllegalArgumentException {
+      log.append("remove ").append(name).append("\n");
+    }
+
+    @Override
+    public void store(String name, ImageModel image) throws IllegalArgumentException {
+      log.append("store ").append(name).append("\n");
+    }
+
     @Override
     public Map<String, ImageModel> getStoredImages() {
       log.append("getStoredImages\n");
       return new HashMap<>();
     }
 
+    @Override
+    public Map<String, ImageModel> getStoredImagesView() {
+      log.append("getStoredImagesView\n");
+      return Collections.emptyMap();
+    }
+
+    @Override
+    public void addImageListener(ImageListener listener) throws IllegalArgumentException {
+      log.append("addImageListener\n");
+    }
+
+    @Override
+    public void removeImageListener(ImageListener listener) {
+      log.append("removeImageListener\n");
+    }
+
     @Override
     public Map<String, Function<String[], ImageCommand>> getKnownCommands() {
       log.append("getKnownCommands\n");
@@ -194,6 +235,13 @@ public class TextImageControllerTest {
               .append(imageName).append(" ").append(resultName).append("\n");
     }
 
+    @Override
+    public void downscale(int maxWidth, int maxHeight, String imageName, String resultName)
+            throws IllegalArgumentException {
+      log.append("downscale ").append(maxWidth).append(" ").append(maxHeight).append(" ")
+              .append(imageName).append(" ").append(resultName).append("\n");
+    }
+
   }
 
   /**
@@ -346,6 +394,46 @@ public class TextImageControllerTest {
     assertEquals("load " + filePath + " test1 ppm\n", manager1.getLog());
   }
 
+  /**
+   * Test that runProgram() responds to the load-mapped command by calling
+   * the model's loadMapped method with the correct arguments.
+   */
+  @Test
+  public void testLoadMapped() {
+    String filePath = "test\\model\\TestInputFiles\\test1.ppm";
+    Readable input = new StringReader("load-mapped " + filePath + " test1\nq");
+    ManagerLogMock manager1 = new ManagerLogMock();
+    ImageController controller1 = new TextImageController(input, manager1, view);
+    controller1.runProgram();
+    assertEquals("loadMapped " + filePath + " test1\n", manager1.getLog());
+  }
+
+  /**
+   * Test that runProgram() streams brightening from a PPM file loaded with load-mapped,
+   * saving the same image as loading it normally.
+   */
+  @Test
+  public void testLoadMappedBrighten() throws IOException {
+    Path file = Files.createTempFile("image", ".ppm");
+    Path mappedOut = Files.createTempFile("mapped", ".ppm");
+    Path loadedOut = Files.createTempFile("loaded", ".ppm");
+    try {
+      Files.writeString(file, "P3 2 1 255 10 20 30 240 250 200");
+      Readable input = new StringReader("load-mapped " + file + " mapped\n"
+              + "brighten 10 mapped mapped-brighter\nsave " + mappedOut + " mapped-brighter\n"
+              + "load " + file + " loaded\nbrighten 10 loaded loaded-brighter\n"
+              + "save " + loadedOut + " loaded-brighter\nq");
+      new TextImageController(input, manager, view).runProgram();
+      assertTrue(manager.getImage("mapped") instanceof MappedImageModel);
+      assertTrue(manager.getImage("mapped-brighter") instanceof MappedImageModel);
+      assertEquals(Files.readString(loadedOut), Files.readString(mappedOut));
+    } finally {
+      Files.delete(file);
+      Files.delete(mappedOut);
+      Files.delete(loadedOut);
+    }
+  }
+
   /**
    * Test that runProgram() responds to the save command by calling
    * the model's save method with the correct arguments.
@@ -525,6 +613,33 @@ public class TextImageControllerTest {
             "Could not load file.\nProgram ended. Thank you for using this program!\n"));
   }
 
+  /**
+   * Test that runProgram() saves a binary PPM file when the file name asks for one,
+   * with one byte per sample for .p6.ppm and two for .p6-16.ppm, and plain text otherwise.
+   */
+  @Test
+  public void testSaveBinaryPPM() throws IOException {
+    manager.store("image", new PackedImageModel(2, 1, 255, new int[] {0xFF0A141E, 0xFF28323C}));
+    Path plain = Files.createTempFile("image", ".ppm");
+    Path binary = Files.createTempFile("image", ".p6.ppm");
+    Path binary16 = Files.createTempFile("image", ".p6-16.ppm");
+    try {
+      Readable input = new StringReader("save " + plain + " image\nsave " + binary
+              + " image\nsave " + binary16 + " image\nq");
+      new TextImageController(input, manager, view).runProgram();
+      assertTrue(Files.readString(plain).startsWith("P3"));
+      byte[] bytes = Files.readAllBytes(binary);
+      assertEquals("P6", new String(bytes, 0, 2));
+      assertEquals(10, bytes[bytes.length - 6]);
+      assertEquals(60, bytes[bytes.length - 1]);
+      assertTrue(Files.readAllBytes(binary16).length > bytes.length);
+    } finally {
+      Files.delete(plain);
+      Files.delete(binary);
+      Files.delete(binary16);
+    }
+  }
+
   /**
    * Tests whether runProgram() gives the user the correct error message
    * when they attempt to save with an invalid image name.
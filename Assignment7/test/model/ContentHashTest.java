@@ -0,0 +1,86 @@
+package model;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static model.TestImages.makePixels;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+
+/**
+ * Test class for the ContentHash class. Tests that hashes follow 64-bit xxHash, and that
+ * images have the same hash exactly when they have the same size and pixels.
+ */
+public class ContentHashTest {
+
+  // test that ints are hashed as their bytes with the lowest byte first
+  @Test
+  public void testXxHash64() {
+    assertEquals(0xEF46DB3751D8E999L, ContentHash.xxHash64(new int[0], 0, 0));
+    assertEquals(0xF42F94001FCB5351L, ContentHash.xxHash64(new int[] {1}, 0, 1));
+    assertEquals(0xB5148CB100A911FCL, ContentHash.xxHash64(new int[] {9, 1, 2, 3}, 1, 3));
+    assertEquals(0xAC049FB813DA8309L,
+            ContentHash.xxHash64(new int[] {1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11}, 0, 11));
+    assertEquals(0xB1211B6EBA92FF32L,
+            ContentHash.xxHash64(new int[] {-1, -1, -1, -1, -1, -1, -1, -1, -1}, 0, 9));
+  }
+
+  // test xxHash64 exception for a range outside the array
+  @Test(expected = IllegalArgumentException.class)
+  public void testXxHash64Range() {
+    ContentHash.xxHash64(new int[4], 2, 3);
+  }
+
+  // test hash exception for a null image
+  @Test(expected = IllegalArgumentException.class)
+  public void testHashNull() {
+    ContentHash.hash(null);
+  }
+
+  // test that an image has the same hash however many threads hash it
+  @Test
+  public void testParallel() {
+    int[] pixels = makePixels(700 * 300);
+    TileScheduler original = TileScheduler.getDefault();
+    try {
+      TileScheduler.setDefault(new TileScheduler(1));
+      long sequential = ContentHash.hash(new PackedImageModel(700, 300, 255, pixels));
+      TileScheduler.setDefault(new TileScheduler(4, 0));
+      assertEquals(sequential, ContentHash.hash(new PackedImageModel(700, 300, 255, pixels)));
+    } finally {
+      TileScheduler.setDefault(original);
+    }
+  }
+
+  // test that images with the same pixels have the same hash whatever class they are
+  @Test
+  public void testSameContent() {
+    int[] pixels = makePixels(12);
+    List<List<Pixel>> grid = new ArrayList<>();
+    for (int row = 0; row < 3; row++) {
+      List<Pixel> rowPixels = new ArrayList<>();
+      for (int col = 0; col < 4; col++) {
+        rowPixels.add(PackedPixels.toPixel(pixels[row * 4 + col]));
+      }
+      grid.add(rowPixels);
+    }
+    ImageModel packed = new PackedImageModel(4, 3, 255, pixels);
+    assertEquals(ContentHash.hash(packed), ContentHash.hash(new RasterImageModel(4, 3, 100,
+            grid)));
+    assertEquals(ContentHash.hash(packed), ContentHash.hash(FusedColorImageModel.brighten(
+            new PackedImageModel(4, 3, 255, pixels.clone()), 0)));
+  }
+
+  // test that a different pixel or a different size gives a different hash
+  @Test
+  public void testDifferentContent() {
+    int[] pixels = makePixels(6);
+    long hash = ContentHash.hash(new PackedImageModel(2, 3, 255, pixels));
+    assertNotEquals(hash, ContentHash.hash(new PackedImageModel(3, 2, 255, pixels)));
+    int[] changed = pixels.clone();
+    changed[5] ^= 1;
+    assertNotEquals(hash, ContentHash.hash(new PackedImageModel(2, 3, 255, changed)));
+  }
+}
@@ -0,0 +1,51 @@
+package model;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * This class holds tests for how each EdgePolicy maps indices outside an image.
+ */
+public class EdgePolicyTest {
+
+  // test that indices inside the image are never changed
+  @Test
+  public void testInsideUnchanged() {
+    for (EdgePolicy policy : EdgePolicy.values()) {
+      assertEquals(0, policy.resolve(0, 5));
+      assertEquals(4, policy.resolve(4, 5));
+    }
+  }
+
+  // test that zero fill reads nothing outside the image
+  @Test
+  public void testZero() {
+    assertEquals(-1, EdgePolicy.ZERO.resolve(-1, 5));
+    assertEquals(-1, EdgePolicy.ZERO.resolve(5, 5));
+  }
+
+  // test that clamping repeats the edge pixels
+  @Test
+  public void testClamp() {
+    assertEquals(0, EdgePolicy.CLAMP.resolve(-3, 5));
+    assertEquals(4, EdgePolicy.CLAMP.resolve(7, 5));
+  }
+
+  // test that mirroring reflects about the edge pixels, even far outside the image
+  @Test
+  public void testMirror() {
+    assertEquals(1, EdgePolicy.MIRROR.resolve(-1, 5));
+    assertEquals(3, EdgePolicy.MIRROR.resolve(5, 5));
+    assertEquals(2, EdgePolicy.MIRROR.resolve(-6, 5));
+    assertEquals(0, EdgePolicy.MIRROR.resolve(-2, 1));
+  }
+
+  // test that wrapping reads from the opposite side
+  @Test
+  public void testWrap() {
+    assertEquals(4, EdgePolicy.WRAP.resolve(-1, 5));
+    assertEquals(0, EdgePolicy.WRAP.resolve(5, 5));
+    assertEquals(2, EdgePolicy.WRAP.resolve(-8, 5));
+  }
+}
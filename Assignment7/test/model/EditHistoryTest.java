@@ -0,0 +1,133 @@
+package model;
+
+import org.junit.Test;
+
+import java.awt.Rectangle;
+import java.util.Random;
+
+import static model.TestImages.assertSameImage;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Test class for the EditHistory class. Tests that undoing and redoing give back the same
+ * images whether the edits are run again or kept as differences, and that the history stays
+ * within its budget.
+ */
+public class EditHistoryTest {
+
+  // creates an image of the given size with varied colors, some not opaque
+  private ImageModel makeImage(int width, int height, int seed) {
+    int[] pixels = new int[width * height];
+    Random random = new Random(seed);
+    for (int i = 0; i < pixels.length; i++) {
+      pixels[i] = random.nextInt();
+    }
+    return new PackedImageModel(width, height, 255, pixels);
+  }
+
+  // test that edits kept as operations are run again to find images that were not kept
+  @Test
+  public void testReplay() {
+    ImageModel base = makeImage(30, 20, 1);
+    EditHistory history = new EditHistory(base, 0); // keeps only the image used last
+    int[] runs = new int[1];
+    EditHistory.Edit flip = EditHistory.replay(image -> {
+      runs[0]++;
+      return image.flip("horizontal");
+    });
+    ImageModel flipped = base.flip("horizontal");
+    history.push(flip, flipped);
+    history.push(flip, flipped.flip("horizontal"));
+    assertSameImage(flipped, history.undo()); // run again from the first image
+    assertEquals(1, runs[0]);
+    assertSame(base, history.undo()); // the first image is always kept
+    assertSameImage(flipped, history.redo()); // kept when it was found
+    assertEquals(1, runs[0]);
+    assertSameImage(base, history.redo());
+    assertEquals(2, runs[0]);
+    assertFalse(history.canRedo());
+  }
+
+  // test that edits kept as differences give back the same images, of any size
+  @Test
+  public void testDifference() {
+    ImageModel base = makeImage(150, 70, 1);
+    ImageModel changed = makeImage(150, 70, 2);
+    ImageModel smaller = makeImage(65, 3, 3);
+    EditHistory history = new EditHistory(base, 0);
+    history.push(EditHistory.difference(base, changed), changed);
+    history.push(EditHistory.difference(changed, smaller), smaller);
+    history.push(EditHistory.difference(smaller, base), base);
+    history.undo();
+    history.undo();
+    assertSame(base, history.undo());
+    assertSameImage(changed, history.redo());
+    assertSameImage(smaller, history.redo());
+    assertSameImage(base, history.redo());
+  }
+
+  // test that small changes and flat results take little space
+  @Test
+  public void testDifferenceCompressed() {
+    ImageModel base = makeImage(256, 256, 1);
+    ImageModel same = base.flip("vertical").flip("vertical");
+    int[] pixels = new int[256 * 256];
+    base.getRegionARGB(new Rectangle(0, 0, 256, 256), pixels, 0, 256);
+    pixels[1000] ^= 1;
+    ImageModel changed = new PackedImageModel(256, 256, 255, pixels);
+    assertEquals(0, EditHistory.difference(base, same).getBytes());
+    assertTrue(EditHistory.difference(base, changed).getBytes() < 64);
+    ImageModel flat = new PackedImageModel(256, 256, 255, new int[256 * 256]);
+    assertEquals(16 * 12, EditHistory.difference(base, flat).getBytes()); // one run per tile
+  }
+
+  // test that adding an edit after undoing forgets the edits that were undone
+  @Test
+  public void testPushAfterUndo() {
+    ImageModel base = makeImage(10, 10, 1);
+    EditHistory history = new EditHistory(base, 1 << 20);
+    history.push(EditHistory.replay(image -> image.flip("vertical")), base.flip("vertical"));
+    history.undo();
+    assertTrue(history.canRedo());
+    ImageModel other = base.flip("horizontal");
+    history.push(EditHistory.replay(image -> image.flip("horizontal")), other);
+    assertFalse(history.canRedo());
+    assertSame(other, history.current());
+    assertSame(base, history.previous());
+    assertSame(other, history.current()); // previous does not undo
+  }
+
+  // test that kept images stay within the budget, besides the one used last
+  @Test
+  public void testBudget() {
+    ImageModel base = makeImage(10, 10, 1);
+    EditHistory history = new EditHistory(base, 400);
+    ImageModel image = base;
+    for (int i = 0; i < 5; i++) {
+      image = image.flip("vertical");
+      history.push(EditHistory.replay(previous -> previous.flip("vertical")), image);
+      assertEquals(400, history.getBytes());
+    }
+  }
+
+  // test exception for undoing at the start of the history
+  @Test(expected = IllegalStateException.class)
+  public void testNothingToUndo() {
+    new EditHistory(makeImage(2, 2, 1), 0).undo();
+  }
+
+  // test exception for redoing without undoing
+  @Test(expected = IllegalStateException.class)
+  public void testNothingToRedo() {
+    new EditHistory(makeImage(2, 2, 1), 0).redo();
+  }
+
+  // test exception for a null image
+  @Test(expected = IllegalArgumentException.class)
+  public void testNullBase() {
+    new EditHistory(null, 0);
+  }
+}
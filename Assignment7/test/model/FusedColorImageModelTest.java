@@ -0,0 +1,118 @@
+package model;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static model.TestImages.assertSameImage;
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Test class for the FusedColorImageModel class. Tests that chains of color transformations
+ * and brightening give the same images as running each step on its own.
+ */
+public class FusedColorImageModelTest {
+  private final ColorMatrix sepiaMatrix = new RGBColorMatrix(new Double[][] {
+          {0.393, 0.769, 0.189},
+          {0.349, 0.686, 0.168},
+          {0.272, 0.534, 0.131}
+  });
+  private final ColorMatrix greyscaleMatrix = new RGBColorMatrix(new Double[][] {
+          {0.2126, 0.7152, 0.0722},
+          {0.2126, 0.7152, 0.0722},
+          {0.2126, 0.7152, 0.0722}
+  });
+  private int[] data;
+
+  /**
+   * Creates the pixels of a 3 by 2 image to test on.
+   */
+  @Before
+  public void setUp() {
+    data = new int[] {
+        PackedPixels.pack(255, 12, 26, 34),
+        PackedPixels.pack(255, 95, 103, 78),
+        PackedPixels.pack(255, 26, 39, 245),
+        PackedPixels.pack(100, 74, 0, 0),
+        PackedPixels.pack(255, 173, 18, 45),
+        PackedPixels.pack(255, 200, 38, 209)};
+  }
+
+  // test that sepia, greyscale, then brighten matches running them one at a time
+  @Test
+  public void testChainMatchesSteps() {
+    ImageModel steps = new PackedImageModel(3, 2, 255, data.clone())
+            .colorTransform(sepiaMatrix).colorTransform(greyscaleMatrix).brighten(10);
+    ImageModel fused = FusedColorImageModel.brighten(FusedColorImageModel.colorTransform(
+            FusedColorImageModel.colorTransform(new PackedImageModel(3, 2, 255, data.clone()),
+                    sepiaMatrix), greyscaleMatrix), 10);
+    assertSameImage(steps, fused);
+  }
+
+  // test that clamping between brightening steps is kept, rather than adding the increments
+  @Test
+  public void testBrightenClampsEachStep() {
+    ImageModel fused = FusedColorImageModel.brighten(
+            new PackedImageModel(3, 2, 255, data.clone()), 100).brighten(-100);
+    assertEquals(new ARGBPixel(255, 155, 38, 155), fused.getPixel(1, 2));
+    assertEquals(new ARGBPixel(100, 74, 0, 0), fused.getPixel(1, 0));
+  }
+
+  // test that an image in the middle of a chain is still correct when used later
+  @Test
+  public void testIntermediateUsedLater() {
+    ImageModel sepia = FusedColorImageModel.colorTransform(
+            new PackedImageModel(3, 2, 255, data.clone()), sepiaMatrix);
+    ImageModel darker = sepia.brighten(-30);
+    assertSameImage(new PackedImageModel(3, 2, 255, data.clone())
+            .colorTransform(sepiaMatrix).brighten(-30), darker);
+    assertSameImage(new PackedImageModel(3, 2, 255, data.clone())
+            .colorTransform(sepiaMatrix), sepia);
+  }
+
+  // test that brightening raises the max RGB value of the source before anything is computed
+  @Test
+  public void testBrightenRaisesSourceMaxRGB() {
+    ImageModel source = new PackedImageModel(3, 2, 100, data.clone());
+    ImageModel brighter = FusedColorImageModel.brighten(source, 20);
+    assertEquals(255, source.getMaxRGB());
+    assertEquals(255, brighter.getMaxRGB());
+  }
+
+  // test that a step brightened before it is computed has the max RGB value it would have had
+  @Test
+  public void testBrightenRaisesIntermediateMaxRGB() {
+    ImageModel steps = new PackedImageModel(3, 2, 100, data.clone()).brighten(-40);
+    steps.brighten(30);
+    ImageModel darker = FusedColorImageModel.brighten(
+            new PackedImageModel(3, 2, 100, data.clone()), -40);
+    darker.brighten(30);
+    assertSameImage(steps, darker);
+  }
+
+  // test that a chain is still correct after a step in the middle of it is computed
+  @Test
+  public void testChainAfterIntermediateComputed() {
+    ImageModel sepia = FusedColorImageModel.colorTransform(
+            new PackedImageModel(3, 2, 255, data.clone()), sepiaMatrix);
+    ImageModel grey = sepia.colorTransform(greyscaleMatrix);
+    ImageModel brighter = grey.brighten(15);
+    assertSameImage(new PackedImageModel(3, 2, 255, data.clone())
+            .colorTransform(sepiaMatrix).colorTransform(greyscaleMatrix), grey);
+    assertSameImage(new PackedImageModel(3, 2, 255, data.clone()).colorTransform(sepiaMatrix)
+            .colorTransform(greyscaleMatrix).brighten(15), brighter);
+    assertSameImage(new PackedImageModel(3, 2, 255, data.clone())
+            .colorTransform(sepiaMatrix), sepia);
+  }
+
+  // test colorTransform exception for a null matrix
+  @Test(expected = IllegalArgumentException.class)
+  public void testColorTransformNullMatrix() {
+    FusedColorImageModel.colorTransform(new PackedImageModel(3, 2, 255, data), null);
+  }
+
+  // test brighten exception for a null image
+  @Test(expected = IllegalArgumentException.class)
+  public void testBrightenNullImage() {
+    FusedColorImageModel.brighten(null, 10);
+  }
+}
@@ -0,0 +1,143 @@
+package model;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static model.TestImages.makePixels;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+/**
+ * Test class for the Histogram class. Tests that histograms count every pixel once however
+ * the image is split into bands, and that images keep the histogram they compute.
+ */
+public class HistogramTest {
+
+  // asserts that a histogram holds the counts of the given pixels
+  private void assertCounts(int[] pixels, Histogram histogram) {
+    int[][] expected = new int[4][256];
+    for (int argb : pixels) {
+      int r = PackedPixels.red(argb);
+      int g = PackedPixels.green(argb);
+      int b = PackedPixels.blue(argb);
+      expected[0][r]++;
+      expected[1][g]++;
+      expected[2][b]++;
+      expected[3][(int) Math.round((r + g + b) / 3.0)]++;
+    }
+    assertArrayEquals(expected[0], histogram.getRed());
+    assertArrayEquals(expected[1], histogram.getGreen());
+    assertArrayEquals(expected[2], histogram.getBlue());
+    assertArrayEquals(expected[3], histogram.getIntensity());
+  }
+
+  // test that a packed image split across several threads counts every pixel once
+  @Test
+  public void testPackedParallel() {
+    int[] pixels = makePixels(500 * 300);
+    TileScheduler original = TileScheduler.getDefault();
+    try {
+      TileScheduler.setDefault(new TileScheduler(4, 0));
+      assertCounts(pixels, new PackedImageModel(500, 300, 255, pixels).getHistogram());
+    } finally {
+      TileScheduler.setDefault(original);
+    }
+  }
+
+  // test that an image of pixel objects gives the same counts
+  @Test
+  public void testRaster() {
+    int[] pixels = makePixels(12);
+    List<List<Pixel>> grid = new ArrayList<>();
+    for (int row = 0; row < 3; row++) {
+      List<Pixel> rowPixels = new ArrayList<>();
+      for (int col = 0; col < 4; col++) {
+        rowPixels.add(PackedPixels.toPixel(pixels[row * 4 + col]));
+      }
+      grid.add(rowPixels);
+    }
+    assertCounts(pixels, new RasterImageModel(4, 3, 255, grid).getHistogram());
+  }
+
+  // test that an image keeps its histogram, and a fused image gives that of its result
+  @Test
+  public void testCached() {
+    ImageModel image = new PackedImageModel(10, 10, 255, makePixels(100));
+    assertSame(image.getHistogram(), image.getHistogram());
+    ImageModel fused = FusedColorImageModel.brighten(image, 5);
+    assertSame(fused.getHistogram(), fused.getHistogram());
+    assertEquals(1, fused.getHistogram().getRed()[5]);
+  }
+
+  // test that the arrays given out are copies, and the max frequency covers every array
+  @Test
+  public void testCopiesAndMax() {
+    int[] pixels = new int[] {PackedPixels.pack(255, 0, 0, 0), PackedPixels.pack(255, 0, 0, 9),
+        PackedPixels.pack(255, 0, 0, 3)};
+    Histogram histogram = new PackedImageModel(3, 1, 255, pixels).getHistogram();
+    histogram.getRed()[0] = 100;
+    assertEquals(3, histogram.getRed()[0]);
+    assertEquals(3, histogram.getMaxFrequency());
+    assertEquals(2, histogram.getIntensity()[0] + histogram.getIntensity()[1]);
+  }
+
+  // asserts that an image was given a derived histogram equal to the one scanning it gives
+  private void assertDerived(ImageModel image) {
+    Histogram derived = ((PackedImageModel) image).cachedHistogram();
+    assertNotNull(derived);
+    int[] pixels = PackedImageModel.sharedBuffer(image);
+    assertCounts(pixels, derived);
+  }
+
+  // test that flips, brightens without clamping, and visualizations derive exact histograms
+  @Test
+  public void testDerived() {
+    int[] pixels = new int[600];
+    for (int i = 0; i < pixels.length; i++) {
+      pixels[i] = PackedPixels.pack(255, 20 + i % 200, 30 + (i * 7) % 190, 25 + (i * 13) % 200);
+    }
+    PackedImageModel image = new PackedImageModel(30, 20, 255, pixels);
+    image.getHistogram();
+    assertDerived(image.flip("horizontal"));
+    assertDerived(image.flip("vertical"));
+    assertDerived(image.brighten(20));
+    assertDerived(image.brighten(-20));
+    for (ImageModel.Component component : new ImageModel.Component[] {
+        ImageModel.Component.RED, ImageModel.Component.GREEN, ImageModel.Component.BLUE,
+        ImageModel.Component.INTENSITY}) {
+      assertDerived(image.visualizeComponent(component));
+    }
+    ImageModel fused = FusedColorImageModel.brighten(FusedColorImageModel.brighten(image, 10),
+            -15);
+    fused.getWidth(); // computes the chain
+    assertDerived(((FusedColorImageModel) fused).compute());
+  }
+
+  // test that histograms are not derived where they would not be exact, and are scanned
+  @Test
+  public void testNotDerived() {
+    int[] pixels = makePixels(600);
+    PackedImageModel image = new PackedImageModel(30, 20, 255, pixels);
+    image.getHistogram();
+    ImageModel[] results = new ImageModel[] {image.brighten(30),
+        image.visualizeComponent(ImageModel.Component.LUMA),
+        image.visualizeComponent(ImageModel.Component.VALUE),
+        ((FusedColorImageModel) FusedColorImageModel.brighten(image, 30)).compute()};
+    for (ImageModel result : results) {
+      assertNull(((PackedImageModel) result).cachedHistogram());
+      assertCounts(PackedImageModel.sharedBuffer(result), result.getHistogram());
+    }
+  }
+
+  // test that nothing is derived from a source whose histogram was never computed
+  @Test
+  public void testNotDerivedWithoutSource() {
+    PackedImageModel image = new PackedImageModel(10, 10, 255, makePixels(100));
+    assertNull(((PackedImageModel) image.flip("vertical")).cachedHistogram());
+  }
+}
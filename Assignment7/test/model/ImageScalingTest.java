@@ -0,0 +1,67 @@
+package model;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+/**
+ * Test class for the ImageScaling class. Tests that shrunk images keep their proportions and
+ * that each pixel is the average of the box of pixels it covers.
+ */
+public class ImageScalingTest {
+
+  // test that each pixel is the rounded average of the pixels it covers, including alpha
+  @Test
+  public void testBoxAverage() {
+    ImageModel image = new PackedImageModel(4, 2, 200, new int[] {
+        PackedPixels.pack(255, 0, 10, 100), PackedPixels.pack(255, 1, 20, 100),
+        PackedPixels.pack(0, 50, 0, 0), PackedPixels.pack(0, 50, 0, 0),
+        PackedPixels.pack(255, 2, 30, 100), PackedPixels.pack(255, 4, 40, 100),
+        PackedPixels.pack(0, 50, 0, 0), PackedPixels.pack(255, 50, 0, 0)});
+    ImageModel result = ImageScaling.downscale(image, 2, 2);
+    assertEquals(2, result.getWidth());
+    assertEquals(1, result.getHeight());
+    assertEquals(200, result.getMaxRGB());
+    assertEquals(new ARGBPixel(255, 2, 25, 100), result.getPixel(0, 0));
+    assertEquals(new ARGBPixel(64, 50, 0, 0), result.getPixel(0, 1));
+  }
+
+  // test that a large image keeps its proportions and fits within the given size
+  @Test
+  public void testProportions() {
+    int[] pixels = new int[300 * 200];
+    for (int i = 0; i < pixels.length; i++) {
+      pixels[i] = PackedPixels.pack(255, 90, i % 2 == 0 ? 0 : 200, 7);
+    }
+    ImageModel result = ImageScaling.downscale(new PackedImageModel(300, 200, 255, pixels),
+            64, 64);
+    assertEquals(64, result.getWidth());
+    assertEquals(43, result.getHeight());
+    for (int row = 0; row < 43; row++) {
+      for (int col = 0; col < 64; col++) {
+        assertEquals(90, result.getPixel(row, col).getRed());
+        assertEquals(7, result.getPixel(row, col).getBlue());
+      }
+    }
+  }
+
+  // test that an image which already fits is returned as it is
+  @Test
+  public void testAlreadyFits() {
+    ImageModel image = new PackedImageModel(3, 5, 255, new int[15]);
+    assertSame(image, ImageScaling.downscale(image, 5, 5));
+  }
+
+  // test exception for a null image
+  @Test(expected = IllegalArgumentException.class)
+  public void testNullImage() {
+    ImageScaling.downscale(null, 5, 5);
+  }
+
+  // test exception for a size that is not positive
+  @Test(expected = IllegalArgumentException.class)
+  public void testSizeNotPositive() {
+    ImageScaling.downscale(new PackedImageModel(3, 5, 255, new int[15]), 0, 5);
+  }
+}
@@ -0,0 +1,147 @@
+package model;
+
+import org.junit.Test;
+
+import java.awt.Rectangle;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static model.TestImages.assertSameImage;
+import static model.TestImages.makePixels;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Test class for the MappedImageModel class. Tests that images mapped from binary samples in
+ * a file give the same pixels and results as the same images held in a PackedImageModel.
+ */
+public class MappedImageModelTest {
+  private static final int WIDTH = 40;
+  private static final int HEIGHT = 30;
+
+  // maps the given pixels after a header of the given number of bytes, as one byte samples
+  private MappedImageModel map(int[] pixels, int headerLength) throws IOException {
+    byte[] bytes = new byte[headerLength + pixels.length * 3];
+    for (int i = 0; i < pixels.length; i++) {
+      bytes[headerLength + 3 * i] = (byte) PackedPixels.red(pixels[i]);
+      bytes[headerLength + 3 * i + 1] = (byte) PackedPixels.green(pixels[i]);
+      bytes[headerLength + 3 * i + 2] = (byte) PackedPixels.blue(pixels[i]);
+    }
+    return mapBytes(bytes, headerLength, 255, false);
+  }
+
+  // maps the given bytes from a temporary file, which is deleted afterwards
+  private MappedImageModel mapBytes(byte[] bytes, int offset, int maxValue, boolean wide)
+          throws IOException {
+    Path file = Files.createTempFile("mapped", ".raw");
+    try {
+      Files.write(file, bytes);
+      try (FileChannel channel = FileChannel.open(file)) {
+        return new MappedImageModel(channel, offset, WIDTH, HEIGHT, maxValue, wide);
+      }
+    } finally {
+      file.toFile().deleteOnExit();
+    }
+  }
+
+  // test that pixels, rows, and regions are decoded from the right place in the file
+  @Test
+  public void testAccessors() throws IOException {
+    int[] pixels = makePixels(WIDTH * HEIGHT);
+    MappedImageModel mapped = map(pixels, 15);
+    PackedImageModel packed = new PackedImageModel(WIDTH, HEIGHT, 255, pixels.clone());
+    assertSameImage(packed, mapped);
+    assertEquals(packed.getPixel(29, 39), mapped.getPixel(29, 39));
+    int[] expected = new int[50];
+    int[] actual = new int[50];
+    Rectangle region = new Rectangle(3, 4, 5, 6);
+    packed.getRegionARGB(region, expected, 2, 8);
+    mapped.getRegionARGB(region, actual, 2, 8);
+    assertArrayEquals(expected, actual);
+    int[] count = new int[1];
+    mapped.forEachPixel((row, col, argb) -> {
+      assertEquals(pixels[row * WIDTH + col], argb);
+      count[0]++;
+    });
+    assertEquals(pixels.length, count[0]);
+  }
+
+  // test that two byte samples are scaled down to 8 bits
+  @Test
+  public void testWideSamples() throws IOException {
+    byte[] bytes = new byte[WIDTH * HEIGHT * 6];
+    bytes[0] = (byte) 0x03;
+    bytes[1] = (byte) 0xE8; // 1000 of 1000
+    bytes[3] = (byte) 0x64; // 100 of 1000
+    MappedImageModel mapped = mapBytes(bytes, 0, 1000, true);
+    assertEquals(255, mapped.getMaxRGB());
+    assertEquals(new ARGBPixel(255, 255, 26, 0), mapped.getPixel(0, 0));
+    assertEquals(new ARGBPixel(255, 0, 0, 0), mapped.getPixel(0, 1));
+  }
+
+  // test that point operations are applied as pixels are decoded, and chain in order
+  @Test
+  public void testPointOperations() throws IOException {
+    int[] pixels = makePixels(WIDTH * HEIGHT);
+    MappedImageModel mapped = map(pixels, 0);
+    PackedImageModel packed = new PackedImageModel(WIDTH, HEIGHT, 255, pixels.clone());
+    ImageModel mappedResult = mapped.applyPointOperation(PointOperation.brighten(30))
+            .visualizeComponent(ImageModel.Component.LUMA);
+    assertTrue(mappedResult instanceof MappedImageModel);
+    assertSameImage(packed.applyPointOperation(PointOperation.brighten(30))
+            .visualizeComponent(ImageModel.Component.LUMA), mappedResult);
+    assertSameImage(packed, mapped); // the source is unchanged
+  }
+
+  // test that the other operations give the same results as on a packed image
+  @Test
+  public void testOperationsMatchPacked() throws IOException {
+    int[] pixels = makePixels(WIDTH * HEIGHT);
+    MappedImageModel mapped = map(pixels, 0);
+    PackedImageModel packed = new PackedImageModel(WIDTH, HEIGHT, 255, pixels.clone());
+    assertSameImage(packed.flip("horizontal"), mapped.flip("horizontal"));
+    assertSameImage(packed.filter(new FilterKernel(new Double[][] {
+        {0.0625, 0.125, 0.0625}, {0.125, 0.25, 0.125}, {0.0625, 0.125, 0.0625}})),
+            mapped.filter(new FilterKernel(new Double[][] {
+                {0.0625, 0.125, 0.0625}, {0.125, 0.25, 0.125}, {0.0625, 0.125, 0.0625}})));
+    assertEquals(packed.toPPMFile(), mapped.toPPMFile());
+  }
+
+  // test that brightening raises the max RGB value of the mapped image, like other models
+  @Test
+  public void testBrightenRaisesMax() throws IOException {
+    int[] pixels = makePixels(WIDTH * HEIGHT);
+    byte[] bytes = new byte[pixels.length * 3];
+    MappedImageModel mapped = mapBytes(bytes, 0, 100, false);
+    assertEquals(100, mapped.getMaxRGB());
+    ImageModel result = mapped.brighten(120);
+    assertEquals(120, result.getMaxRGB());
+    assertEquals(120, mapped.getMaxRGB());
+  }
+
+  // test that brightening streams from the file and matches brightening a packed image
+  @Test
+  public void testBrightenMatchesPacked() throws IOException {
+    int[] pixels = makePixels(WIDTH * HEIGHT);
+    MappedImageModel mapped = map(pixels, 0);
+    PackedImageModel packed = new PackedImageModel(WIDTH, HEIGHT, 255, pixels.clone());
+    ImageModel result = mapped.brighten(-40);
+    assertTrue(result instanceof MappedImageModel);
+    assertSameImage(packed.brighten(-40), result);
+  }
+
+  // test exception for a file too short to hold the image
+  @Test(expected = IllegalArgumentException.class)
+  public void testFileTooShort() throws IOException {
+    mapBytes(new byte[WIDTH * HEIGHT * 3 - 1], 0, 255, false);
+  }
+
+  // test exception for a null point operation
+  @Test(expected = IllegalArgumentException.class)
+  public void testApplyPointOperationNull() throws IOException {
+    map(makePixels(WIDTH * HEIGHT), 0).applyPointOperation(null);
+  }
+}
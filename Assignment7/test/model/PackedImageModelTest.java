@@ -0,0 +1,324 @@
+package model;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.awt.Rectangle;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Test class for the PackedImageModel class. Tests the operations on images
+ * backed by an array of packed ARGB values.
+ */
+public class PackedImageModelTest {
+  private ImageModel testModel;
+
+  // the kernel for the gaussian blur filter
+  private final Kernel gaussianKernel = new FilterKernel(new Double[][] {
+          {0.0625, 0.125, 0.0625},
+          {0.125, 0.25, 0.125},
+          {0.0625, 0.125, 0.0625}});
+
+  // the matrix for the sepia color transformation
+  private final ColorMatrix sepiaMatrix = new RGBColorMatrix(new Double[][] {
+          {0.393, 0.769, 0.189},
+          {0.349, 0.686, 0.168},
+          {0.272, 0.534, 0.131}
+  });
+
+  /**
+   * Creates a 3 by 2 image to test on.
+   */
+  @Before
+  public void setUp() {
+    testModel = new PackedImageModel(3, 2, 255, new int[] {
+        PackedPixels.pack(255, 12, 26, 34),
+        PackedPixels.pack(255, 95, 103, 78),
+        PackedPixels.pack(255, 26, 39, 245),
+        PackedPixels.pack(100, 74, 0, 0),
+        PackedPixels.pack(255, 173, 18, 45),
+        PackedPixels.pack(255, 18, 38, 209)});
+  }
+
+  // test constructor exception for mismatched pixel data
+  @Test(expected = IllegalArgumentException.class)
+  public void testConstructorMismatchedLength() {
+    new PackedImageModel(3, 3, 255, new int[8]);
+  }
+
+  // test constructor exception for null pixel data
+  @Test(expected = IllegalArgumentException.class)
+  public void testConstructorNullPixels() {
+    new PackedImageModel(3, 3, 255, null);
+  }
+
+  // test getPixel exception for out of bounds positions
+  @Test(expected = IllegalArgumentException.class)
+  public void testGetPixelOutOfBounds() {
+    testModel.getPixel(2, 0);
+  }
+
+  // test that getPixel unpacks every component, including alpha
+  @Test
+  public void testGetPixel() {
+    assertEquals(3, testModel.getWidth());
+    assertEquals(2, testModel.getHeight());
+    assertEquals(new ARGBPixel(255, 95, 103, 78), testModel.getPixel(0, 1));
+    assertEquals(100, testModel.getPixel(1, 0).getAlpha());
+    assertEquals(74, testModel.getPixel(1, 0).getRed());
+  }
+
+  // test visualizing components keeps alpha and greys out the pixel
+  @Test
+  public void testVisualizeComponent() {
+    ImageModel red = testModel.visualizeComponent(ImageModel.Component.RED);
+    assertEquals(new ARGBPixel(100, 74, 74, 74), red.getPixel(1, 0));
+    ImageModel luma = testModel.visualizeComponent(ImageModel.Component.LUMA);
+    assertEquals(new ARGBPixel(255, 99, 99, 99), luma.getPixel(0, 1));
+    ImageModel intensity = testModel.visualizeComponent(ImageModel.Component.INTENSITY);
+    assertEquals(new ARGBPixel(255, 92, 92, 92), intensity.getPixel(0, 1));
+  }
+
+  // test flipping in both directions
+  @Test
+  public void testFlip() {
+    ImageModel horizontal = testModel.flip("horizontal");
+    assertEquals(new ARGBPixel(255, 26, 39, 245), horizontal.getPixel(0, 0));
+    assertEquals(new ARGBPixel(255, 12, 26, 34), horizontal.getPixel(0, 2));
+    ImageModel vertical = testModel.flip("vertical");
+    assertEquals(new ARGBPixel(100, 74, 0, 0), vertical.getPixel(0, 0));
+    assertEquals(new ARGBPixel(255, 26, 39, 245), vertical.getPixel(1, 2));
+  }
+
+  // test flip exception for an invalid direction
+  @Test(expected = IllegalArgumentException.class)
+  public void testFlipInvalidDirection() {
+    testModel.flip("diagonal");
+  }
+
+  // test brightening clamps to 0 and 255
+  @Test
+  public void testBrighten() {
+    ImageModel brighter = testModel.brighten(50);
+    assertEquals(new ARGBPixel(255, 76, 89, 255), brighter.getPixel(0, 2));
+    ImageModel darker = testModel.brighten(-50);
+    assertEquals(new ARGBPixel(100, 24, 0, 0), darker.getPixel(1, 0));
+  }
+
+  // test filtering treats pixels outside the image as contributing nothing
+  @Test
+  public void testFilter() {
+    ImageModel blurred = testModel.filter(gaussianKernel);
+    assertEquals(new ARGBPixel(255, 35, 21, 21), blurred.getPixel(0, 0));
+    assertEquals(new ARGBPixel(255, 69, 26, 65), blurred.getPixel(1, 1));
+  }
+
+  // test that each edge policy changes only what the kernel reads outside the image
+  @Test
+  public void testFilterEdgePolicies() {
+    Kernel rowBlur = new FilterKernel(new Double[][] {{0.25, 0.5, 0.25}});
+    assertEquals(new ARGBPixel(255, 30, 39, 37),
+            testModel.filter(rowBlur, EdgePolicy.ZERO).getPixel(0, 0));
+    assertEquals(new ARGBPixel(255, 33, 45, 45),
+            testModel.filter(rowBlur, EdgePolicy.CLAMP).getPixel(0, 0));
+    assertEquals(new ARGBPixel(255, 54, 65, 56),
+            testModel.filter(rowBlur, EdgePolicy.MIRROR).getPixel(0, 0));
+    assertEquals(new ARGBPixel(255, 36, 49, 98),
+            testModel.filter(rowBlur, EdgePolicy.WRAP).getPixel(0, 0));
+  }
+
+  // test filter exception for a null edge policy
+  @Test(expected = IllegalArgumentException.class)
+  public void testFilterNullEdgePolicy() {
+    testModel.filter(gaussianKernel, null);
+  }
+
+  // test filtering with a 1D (and so separable) kernel along each row
+  @Test
+  public void testFilterSeparable() {
+    ImageModel blurred = testModel.filter(new FilterKernel(new Double[][] {{0.25, 0.5, 0.25}}));
+    assertEquals(new ARGBPixel(255, 30, 39, 37), blurred.getPixel(0, 0));
+    assertEquals(new ARGBPixel(255, 57, 68, 109), blurred.getPixel(0, 1));
+    assertEquals(new ARGBPixel(255, 110, 19, 75), blurred.getPixel(1, 1));
+  }
+
+  // test that a rank-1 kernel whose weights are not exact binary fractions gives exactly the
+  // result of summing the 2D kernel, with nothing read outside the image
+  @Test
+  public void testFilterInexactRankOne() {
+    Double[][] weights = {{0.09, 0.12, 0.09}, {0.12, 0.16, 0.12}, {0.09, 0.12, 0.09}};
+    int size = 32;
+    int[] pixels = new int[size * size];
+    for (int i = 0; i < pixels.length; i++) {
+      pixels[i] = PackedPixels.pack(255, i * 37 % 256, i * 101 % 256, i * 59 % 256);
+    }
+    ImageModel image = new PackedImageModel(size, size, 255, pixels);
+    ImageModel filtered = image.filter(new FilterKernel(weights), EdgePolicy.ZERO);
+    for (int row = 0; row < size; row++) {
+      for (int col = 0; col < size; col++) {
+        double[] sums = new double[3];
+        for (int r = -1; r <= 1; r++) {
+          for (int c = -1; c <= 1; c++) {
+            if (row + r < 0 || row + r >= size || col + c < 0 || col + c >= size) {
+              continue;
+            }
+            int argb = pixels[(row + r) * size + col + c];
+            sums[0] += weights[r + 1][c + 1] * PackedPixels.red(argb);
+            sums[1] += weights[r + 1][c + 1] * PackedPixels.green(argb);
+            sums[2] += weights[r + 1][c + 1] * PackedPixels.blue(argb);
+          }
+        }
+        int[] expected = new int[3];
+        for (int k = 0; k < 3; k++) {
+          expected[k] = (int) Math.max(0, Math.min(Math.round(sums[k]), 255));
+        }
+        assertEquals(new ARGBPixel(255, expected[0], expected[1], expected[2]),
+                filtered.getPixel(row, col));
+      }
+    }
+  }
+
+  // test applying a curve keeps alpha and the max RGB value
+  @Test
+  public void testApplyPointOperation() {
+    int[] invert = new int[256];
+    for (int c = 0; c < 256; c++) {
+      invert[c] = 255 - c;
+    }
+    ImageModel inverted = testModel.applyPointOperation(PointOperation.curve(invert));
+    assertEquals(new ARGBPixel(100, 181, 255, 255), inverted.getPixel(1, 0));
+    assertEquals(new ARGBPixel(255, 229, 216, 10), inverted.getPixel(0, 2));
+    assertEquals(255, inverted.getMaxRGB());
+  }
+
+  // test applyPointOperation exception for a null operation
+  @Test(expected = IllegalArgumentException.class)
+  public void testApplyPointOperationNull() {
+    testModel.applyPointOperation(null);
+  }
+
+  // test that the shared buffer is the array the image was made with
+  @Test
+  public void testSharedBuffer() {
+    int[] pixels = new int[6];
+    ImageModel model = new PackedImageModel(3, 2, 255, pixels);
+    assertSame(pixels, PackedImageModel.sharedBuffer(model));
+    ImageModel fused = FusedColorImageModel.brighten(model, 10);
+    int[] fusedBuffer = PackedImageModel.sharedBuffer(fused);
+    assertEquals(10, PackedPixels.red(fusedBuffer[0]));
+    assertSame(fusedBuffer, PackedImageModel.sharedBuffer(fused)); // computed only once
+  }
+
+  // test sharedBuffer exception for a null image
+  @Test(expected = IllegalArgumentException.class)
+  public void testSharedBufferNull() {
+    PackedImageModel.sharedBuffer(null);
+  }
+
+  // test color transformation rounds and clamps
+  @Test
+  public void testColorTransform() {
+    ImageModel sepia = testModel.colorTransform(sepiaMatrix);
+    assertEquals(new ARGBPixel(255, 131, 117, 91), sepia.getPixel(0, 1));
+    assertEquals(new ARGBPixel(255, 87, 77, 60), sepia.getPixel(0, 2));
+  }
+
+  // test that a single seed mosaic averages the whole image
+  @Test
+  public void testMosaicOneSeed() {
+    ImageModel mosaic = testModel.mosaic(1);
+    for (int row = 0; row < 2; row++) {
+      for (int col = 0; col < 3; col++) {
+        assertEquals(66, mosaic.getPixel(row, col).getRed());
+        assertEquals(37, mosaic.getPixel(row, col).getGreen());
+        assertEquals(101, mosaic.getPixel(row, col).getBlue());
+      }
+    }
+  }
+
+  // test mosaic exception for a non-positive number of seeds
+  @Test(expected = IllegalArgumentException.class)
+  public void testMosaicNoSeeds() {
+    testModel.mosaic(0);
+  }
+
+  // test writing the image as the text of a PPM file
+  @Test
+  public void testToPPMFile() {
+    ImageModel small = new PackedImageModel(2, 1, 255, new int[] {
+        PackedPixels.pack(255, 1, 2, 3), PackedPixels.pack(255, 4, 5, 6)});
+    assertEquals("P3" + System.lineSeparator() + "2 1" + System.lineSeparator() + "255"
+            + System.lineSeparator() + "1\n2\n3\n4\n5\n6", small.toPPMFile());
+  }
+
+  // test copying a single row of packed values
+  @Test
+  public void testGetRowARGB() {
+    int[] row = new int[4];
+    testModel.getRowARGB(1, row);
+    assertArrayEquals(new int[] {PackedPixels.pack(100, 74, 0, 0),
+        PackedPixels.pack(255, 173, 18, 45), PackedPixels.pack(255, 18, 38, 209), 0}, row);
+  }
+
+  // test getRowARGB exception for an array that cannot hold a row
+  @Test(expected = IllegalArgumentException.class)
+  public void testGetRowARGBSmallArray() {
+    testModel.getRowARGB(0, new int[2]);
+  }
+
+  // test copying a region into an array with an offset and a wider stride
+  @Test
+  public void testGetRegionARGB() {
+    int[] dest = new int[7];
+    testModel.getRegionARGB(new Rectangle(1, 0, 2, 2), dest, 1, 3);
+    assertArrayEquals(new int[] {0, PackedPixels.pack(255, 95, 103, 78),
+        PackedPixels.pack(255, 26, 39, 245), 0, PackedPixels.pack(255, 173, 18, 45),
+        PackedPixels.pack(255, 18, 38, 209), 0}, dest);
+  }
+
+  // test getRegionARGB exception for a region outside the image
+  @Test(expected = IllegalArgumentException.class)
+  public void testGetRegionARGBOutOfBounds() {
+    testModel.getRegionARGB(new Rectangle(2, 0, 2, 1), new int[10], 0, 2);
+  }
+
+  // test visiting every pixel in row-major order
+  @Test
+  public void testForEachPixel() {
+    StringBuilder visited = new StringBuilder();
+    testModel.forEachPixel((row, col, argb) -> visited.append(row).append(col)
+            .append(':').append(PackedPixels.red(argb)).append(' '));
+    assertEquals("00:12 01:95 02:26 10:74 11:173 12:18 ", visited.toString());
+  }
+
+  // test that images are equal when their size, max RGB value, and pixels are
+  @Test
+  public void testEquals() {
+    int[] pixels = {PackedPixels.pack(255, 1, 2, 3), PackedPixels.pack(0, 4, 5, 6)};
+    PackedImageModel image = new PackedImageModel(2, 1, 255, pixels);
+    PackedImageModel copy = new PackedImageModel(2, 1, 255, pixels.clone());
+    assertEquals(image, copy);
+    assertEquals(image.hashCode(), copy.hashCode());
+    assertEquals(image.contentHash(), copy.contentHash());
+    assertNotEquals(image, new PackedImageModel(2, 1, 100, pixels));
+    assertNotEquals(image, new PackedImageModel(1, 2, 255, pixels));
+    assertNotEquals(image, new PackedImageModel(2, 1, 255, new int[] {pixels[0], 0}));
+    assertEquals(image, image.flip("horizontal").flip("horizontal"));
+  }
+
+  // test that brightening keeps the hash code while raising the max RGB value
+  @Test
+  public void testHashCodeAfterBrighten() {
+    PackedImageModel image = new PackedImageModel(1, 1, 10, new int[] {
+        PackedPixels.pack(255, 5, 5, 5)});
+    int hashCode = image.hashCode();
+    image.brighten(100);
+    assertTrue(image.getMaxRGB() > 10);
+    assertEquals(hashCode, image.hashCode());
+  }
+}
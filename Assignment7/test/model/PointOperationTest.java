@@ -0,0 +1,101 @@
+package model;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Test class for the PointOperation class. Tests that the lookup tables give exactly the
+ * same results as computing each pixel directly.
+ */
+public class PointOperationTest {
+
+  // test that the intensity and luma tables match the direct formulas for every color
+  @Test
+  public void testTablesMatchFormulas() {
+    for (int r = 0; r < 256; r++) {
+      for (int g = 0; g < 256; g++) {
+        for (int b = 0; b < 256; b++) {
+          assertEquals((int) Math.round(0.2126 * r + 0.7152 * g + 0.0722 * b),
+                  PointOperation.luma(r, g, b));
+        }
+        for (int b = 0; b < 256; b += 85) {
+          assertEquals((int) Math.round((r + g + b) / 3.0), PointOperation.intensity(r, g, b));
+        }
+      }
+    }
+  }
+
+  // test that brightening clamps to 0 and 255 and keeps alpha
+  @Test
+  public void testBrighten() {
+    int[] src = {PackedPixels.pack(10, 250, 100, 0), PackedPixels.pack(255, 5, 0, 30)};
+    int[] dst = new int[2];
+    assertEquals(255, PointOperation.brighten(20).apply(src, dst, 0, 2));
+    assertArrayEquals(new int[] {PackedPixels.pack(10, 255, 120, 20),
+        PackedPixels.pack(255, 25, 20, 50)}, dst);
+    assertEquals(0, PointOperation.brighten(-300).apply(src, dst, 0, 2));
+    assertArrayEquals(new int[] {PackedPixels.pack(10, 0, 0, 0),
+        PackedPixels.pack(255, 0, 0, 0)}, dst);
+  }
+
+  // test that visualizing a component greys out only the given range of pixels
+  @Test
+  public void testVisualizeRange() {
+    int[] src = {PackedPixels.pack(255, 1, 2, 3), PackedPixels.pack(7, 40, 90, 20),
+        PackedPixels.pack(255, 4, 5, 6)};
+    int[] dst = new int[3];
+    assertEquals(90, PointOperation.visualize(ImageModel.Component.VALUE).apply(src, dst, 1, 2));
+    assertArrayEquals(new int[] {0, PackedPixels.pack(7, 90, 90, 90), 0}, dst);
+  }
+
+  // test that each channel is mapped through its own table
+  @Test
+  public void testCurves() {
+    int[] invert = new int[256];
+    int[] identity = new int[256];
+    int[] zero = new int[256];
+    for (int c = 0; c < 256; c++) {
+      invert[c] = 255 - c;
+      identity[c] = c;
+    }
+    int[] src = {PackedPixels.pack(128, 10, 20, 30)};
+    int[] dst = new int[1];
+    PointOperation.curves(invert, identity, zero).apply(src, dst, 0, 1);
+    assertEquals(PackedPixels.pack(128, 245, 20, 0), dst[0]);
+    PointOperation.curve(invert).apply(src, dst, 0, 1);
+    assertEquals(PackedPixels.pack(128, 245, 235, 225), dst[0]);
+  }
+
+  // test that changing a table after creating a curve does not change the curve
+  @Test
+  public void testCurveCopiesTable() {
+    int[] table = new int[256];
+    PointOperation curve = PointOperation.curve(table);
+    table[10] = 200;
+    int[] dst = new int[1];
+    curve.apply(new int[] {PackedPixels.pack(255, 10, 10, 10)}, dst, 0, 1);
+    assertEquals(PackedPixels.pack(255, 0, 0, 0), dst[0]);
+  }
+
+  // test curve exception for a table without 256 entries
+  @Test(expected = IllegalArgumentException.class)
+  public void testCurveShortTable() {
+    PointOperation.curve(new int[255]);
+  }
+
+  // test curve exception for a table entry that is not a color value
+  @Test(expected = IllegalArgumentException.class)
+  public void testCurveInvalidEntry() {
+    int[] table = new int[256];
+    table[3] = 256;
+    PointOperation.curve(table);
+  }
+
+  // test visualize exception for a null component
+  @Test(expected = IllegalArgumentException.class)
+  public void testVisualizeNull() {
+    PointOperation.visualize(null);
+  }
+}
@@ -7,6 +7,8 @@ import controller.RasterImageManager;
 import org.junit.Test;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotEquals;
@@ -740,6 +742,30 @@ public class RasterImageModelTest {
     assertEquals(new ARGBPixel(255, 71, 106, 73), testModel.getPixel(1, 1));
   }
 
+  // test that mosaic builds new rows rather than changing the pixels of the source image
+  @Test
+  public void mosaicLeavesSourceUnchanged() {
+    List<List<Pixel>> grid = new ArrayList<>();
+    grid.add(new ArrayList<>(List.of(new ARGBPixel(255, 10, 20, 30),
+            new ARGBPixel(255, 50, 60, 70))));
+    grid.add(new ArrayList<>(List.of(new ARGBPixel(100, 90, 100, 110),
+            new ARGBPixel(255, 130, 140, 150))));
+    testModel = new RasterImageModel(2, 2, 255, grid);
+    ImageModel mosaic = testModel.mosaic(1);
+    assertEquals(new ARGBPixel(100, 70, 80, 90), mosaic.getPixel(1, 0));
+    assertEquals(new ARGBPixel(255, 70, 80, 90), mosaic.getPixel(0, 1));
+    assertEquals(new ARGBPixel(255, 10, 20, 30), testModel.getPixel(0, 0));
+    assertEquals(new ARGBPixel(100, 90, 100, 110), testModel.getPixel(1, 0));
+  }
+
+  // test mosaic exception for a non-positive number of seeds
+  @Test(expected = IllegalArgumentException.class)
+  public void mosaicNoSeeds() {
+    List<List<Pixel>> grid = new ArrayList<>();
+    grid.add(new ArrayList<>(List.of(new ARGBPixel(255, 10, 20, 30))));
+    new RasterImageModel(1, 1, 255, grid).mosaic(0);
+  }
+
   // test filter exception
   @Test(expected = IllegalArgumentException.class)
   public void testFilterNullKernelException() {
@@ -0,0 +1,82 @@
+package model;
+
+import org.junit.Test;
+
+import java.awt.Point;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Test class for the SeedIndex class. Tests that the grid search finds the same seed as
+ * comparing a pixel against every seed.
+ */
+public class SeedIndexTest {
+
+  // finds the closest seed by checking all of them, choosing the first of equally close seeds
+  private int bruteForce(List<Point> seeds, int row, int col) {
+    int best = 0;
+    long bestDistance = Long.MAX_VALUE;
+    for (int s = 0; s < seeds.size(); s++) {
+      long dRow = seeds.get(s).x - row;
+      long dCol = seeds.get(s).y - col;
+      long distance = dRow * dRow + dCol * dCol;
+      if (distance < bestDistance) {
+        best = s;
+        bestDistance = distance;
+      }
+    }
+    return best;
+  }
+
+  // checks every pixel of an image of the given size against the brute force search
+  private void checkRandomSeeds(int height, int width, int count, long randomSeed) {
+    Random rand = new Random(randomSeed);
+    List<Point> seeds = new ArrayList<>();
+    for (int i = 0; i < count; i++) {
+      seeds.add(new Point(rand.nextInt(height), rand.nextInt(width)));
+    }
+    SeedIndex index = new SeedIndex(seeds, height, width);
+    for (int row = 0; row < height; row++) {
+      for (int col = 0; col < width; col++) {
+        assertEquals(bruteForce(seeds, row, col), index.nearest(row, col));
+      }
+    }
+  }
+
+  // test a single seed is closest to every pixel
+  @Test
+  public void testOneSeed() {
+    checkRandomSeeds(17, 23, 1, 1);
+  }
+
+  // test a few seeds, which makes cells larger than most of the image
+  @Test
+  public void testFewSeeds() {
+    checkRandomSeeds(40, 31, 5, 2);
+  }
+
+  // test many seeds, including seeds in the same position
+  @Test
+  public void testManySeeds() {
+    checkRandomSeeds(64, 80, 600, 3);
+  }
+
+  // test images that are a single row or column
+  @Test
+  public void testThinImages() {
+    checkRandomSeeds(1, 200, 12, 4);
+    checkRandomSeeds(150, 1, 9, 5);
+  }
+
+  // test that the first of two equally close seeds is chosen
+  @Test
+  public void testTieChoosesFirstSeed() {
+    List<Point> seeds = List.of(new Point(0, 4), new Point(0, 0), new Point(9, 9));
+    SeedIndex index = new SeedIndex(seeds, 10, 10);
+    assertEquals(0, index.nearest(0, 2));
+    assertEquals(1, index.nearest(0, 1));
+  }
+}
@@ -0,0 +1,80 @@
+package model;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+/**
+ * This class holds tests for splitting kernels into a column vector and a row vector.
+ */
+public class SeparableKernelTest {
+
+  // test that the gaussian blur kernel is split into its two 1D passes
+  @Test
+  public void testGaussianIsSeparable() {
+    SeparableKernel separable = SeparableKernel.decompose(new FilterKernel(new Double[][] {
+        {0.0625, 0.125, 0.0625},
+        {0.125, 0.25, 0.125},
+        {0.0625, 0.125, 0.0625}}));
+    assertNotNull(separable);
+    assertArrayEquals(new double[] {0.125, 0.25, 0.125}, separable.getVertical(), 1e-12);
+    assertArrayEquals(new double[] {0.5, 1.0, 0.5}, separable.getHorizontal(), 1e-12);
+  }
+
+  // test that the sharpen kernel is not rank-1
+  @Test
+  public void testSharpenIsNotSeparable() {
+    assertNull(SeparableKernel.decompose(new FilterKernel(new Double[][] {
+        {-0.125, -0.125, -0.125, -0.125, -0.125},
+        {-0.125, 0.25, 0.25, 0.25, -0.125},
+        {-0.125, 0.25, 1.0, 0.25, -0.125},
+        {-0.125, 0.25, 0.25, 0.25, -0.125},
+        {-0.125, -0.125, -0.125, -0.125, -0.125}})));
+  }
+
+  // test that every product of the two vectors reproduces the kernel, including negatives
+  @Test
+  public void testProductReproducesKernel() {
+    Double[][] array = {
+        {-0.25, 0.5, -1.0},
+        {0.125, -0.25, 0.5},
+        {-0.0625, 0.125, -0.25},
+        {-0.5, 1.0, -2.0},
+        {0.0, 0.0, 0.0}};
+    SeparableKernel separable = SeparableKernel.decompose(new FilterKernel(array));
+    assertNotNull(separable);
+    for (int r = 0; r < array.length; r++) {
+      for (int c = 0; c < array[r].length; c++) {
+        assertEquals(array[r][c],
+                separable.getVertical()[r] * separable.getHorizontal()[c], 0.0);
+      }
+    }
+  }
+
+  // test that a rank-1 kernel whose weights are not exact binary fractions is left to the
+  // full convolution, as the two passes could round differently
+  @Test
+  public void testInexactRankOneNotSeparated() {
+    assertNull(SeparableKernel.decompose(new FilterKernel(new Double[][] {
+        {0.09, 0.12, 0.09},
+        {0.12, 0.16, 0.12},
+        {0.09, 0.12, 0.09}})));
+    assertNull(SeparableKernel.decompose(new FilterKernel(new Double[][] {{0.2, 0.4, 0.2}})));
+  }
+
+  // test that a kernel of exact binary fractions too far apart to sum exactly is not split
+  @Test
+  public void testTooManyDigitsNotSeparated() {
+    assertNull(SeparableKernel.decompose(new FilterKernel(new Double[][] {
+        {Math.scalb(1.0, -50), 1.0, Math.scalb(1.0, -50)}})));
+  }
+
+  // test that an all-zero kernel is left to the full convolution
+  @Test
+  public void testZeroKernel() {
+    assertNull(SeparableKernel.decompose(new FilterKernel(new Double[][] {{0.0, 0.0, 0.0}})));
+  }
+}
@@ -0,0 +1,57 @@
+package model;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Holds the images and pixels that tests are run on, and the check that two images are the
+ * same, so that every test class builds them the same way.
+ */
+public final class TestImages {
+
+  private TestImages() {
+  }
+
+  /**
+   * Creates packed opaque pixels with varied colors.
+   *
+   * @param count the number of pixels
+   * @return the pixels
+   */
+  public static int[] makePixels(int count) {
+    int[] pixels = new int[count];
+    for (int i = 0; i < count; i++) {
+      pixels[i] = PackedPixels.pack(255, i % 256, (i * 7) % 256, (i * 13) % 256);
+    }
+    return pixels;
+  }
+
+  /**
+   * Creates a 4 by 3 image with the given max value, whose pixels are all different.
+   *
+   * @param maxRGB the max value of the image
+   * @return the image
+   */
+  public static PackedImageModel makeImage(int maxRGB) {
+    return new PackedImageModel(4, 3, maxRGB, makePixels(12));
+  }
+
+  /**
+   * Asserts that two images have the same size, max value, and pixels.
+   *
+   * @param expected the image expected
+   * @param actual the image to check
+   */
+  public static void assertSameImage(ImageModel expected, ImageModel actual) {
+    assertEquals(expected.getWidth(), actual.getWidth());
+    assertEquals(expected.getHeight(), actual.getHeight());
+    assertEquals(expected.getMaxRGB(), actual.getMaxRGB());
+    int[] expectedRow = new int[expected.getWidth()];
+    int[] actualRow = new int[actual.getWidth()];
+    for (int row = 0; row < expected.getHeight(); row++) {
+      expected.getRowARGB(row, expectedRow);
+      actual.getRowARGB(row, actualRow);
+      assertArrayEquals(expectedRow, actualRow);
+    }
+  }
+}
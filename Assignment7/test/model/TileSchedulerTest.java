@@ -0,0 +1,204 @@
+package model;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Test class for the TileScheduler class. Tests how the rows of an image are split into
+ * bands, and that operations give the same results however they are split.
+ */
+public class TileSchedulerTest {
+
+  // test constructor exception for a parallelism of zero
+  @Test(expected = IllegalArgumentException.class)
+  public void testConstructorZeroParallelism() {
+    new TileScheduler(0);
+  }
+
+  // test constructor exception for a negative threshold
+  @Test(expected = IllegalArgumentException.class)
+  public void testConstructorNegativeThreshold() {
+    new TileScheduler(2, -1);
+  }
+
+  // test setDefault exception for a null scheduler
+  @Test(expected = IllegalArgumentException.class)
+  public void testSetDefaultNull() {
+    TileScheduler.setDefault(null);
+  }
+
+  // test forEachBand exception for a null task
+  @Test(expected = IllegalArgumentException.class)
+  public void testForEachBandNullTask() {
+    new TileScheduler(2).forEachBand(10, 10, null);
+  }
+
+  // test that a scheduler starts new threads when it is used after being shut down
+  @Test
+  public void testShutdownThenReuse() {
+    TileScheduler scheduler = new TileScheduler(4, 0);
+    for (int i = 0; i < 2; i++) {
+      AtomicInteger rows = new AtomicInteger();
+      scheduler.forEachBand(1 << 14, 64, (rowStart, rowEnd) ->
+              rows.addAndGet(rowEnd - rowStart));
+      assertEquals(64, rows.get());
+      scheduler.shutdown();
+    }
+  }
+
+  // test that a scheduler replaced as the default can still be used
+  @Test
+  public void testSetDefaultShutsDownOld() {
+    TileScheduler original = TileScheduler.getDefault();
+    TileScheduler replaced = new TileScheduler(4, 0);
+    try {
+      TileScheduler.setDefault(replaced);
+      TileScheduler.setDefault(new TileScheduler(2, 0));
+      AtomicInteger rows = new AtomicInteger();
+      replaced.forEachBand(1 << 14, 64, (rowStart, rowEnd) -> rows.addAndGet(rowEnd - rowStart));
+      assertEquals(64, rows.get());
+    } finally {
+      TileScheduler.setDefault(original);
+    }
+  }
+
+  // test that interrupting the calling thread stops the bands not started yet
+  @Test
+  public void testInterrupted() {
+    TileScheduler scheduler = new TileScheduler(2, 0);
+    AtomicInteger rows = new AtomicInteger();
+    Thread caller = Thread.currentThread();
+    try {
+      scheduler.forEachBand(1 << 14, 1000, (rowStart, rowEnd) -> { // a row per band
+        if (rows.getAndAdd(rowEnd - rowStart) == 0) {
+          caller.interrupt(); // only once, so it cannot come after the interrupt is cleared
+        }
+        LockSupport.parkNanos(1000000); // slow enough to be stopped part way
+      });
+      fail("Interrupting the calling thread should stop the operation.");
+    } catch (CancellationException e) {
+      assertTrue(rows.get() < 1000);
+    } finally {
+      Thread.interrupted();
+      scheduler.shutdown();
+    }
+  }
+
+  // test that small images are run as a single band in the calling thread
+  @Test
+  public void testSmallImageSequential() {
+    List<String> bands = new ArrayList<>();
+    Thread caller = Thread.currentThread();
+    new TileScheduler(8).forEachBand(100, 100, (rowStart, rowEnd) -> {
+      assertEquals(caller, Thread.currentThread());
+      bands.add(rowStart + "-" + rowEnd);
+    });
+    assertEquals(List.of("0-100"), bands);
+  }
+
+  // test that a parallelism of 1 never splits up the image
+  @Test
+  public void testParallelismOneSequential() {
+    AtomicInteger calls = new AtomicInteger();
+    TileScheduler scheduler = new TileScheduler(1, 0);
+    assertEquals(1, scheduler.getParallelism());
+    scheduler.forEachBand(10000, 500, (rowStart, rowEnd) -> calls.incrementAndGet());
+    assertEquals(1, calls.get());
+  }
+
+  // test that every row is in exactly one band, and bands have at least the minimum rows
+  @Test
+  public void testBandsCoverEveryRowOnce() {
+    int[] visits = new int[1000];
+    List<Integer> sizes = Collections.synchronizedList(new ArrayList<>());
+    new TileScheduler(4, 0).forEachBand(8192, 1000, 3, (rowStart, rowEnd) -> {
+      sizes.add(rowEnd - rowStart);
+      for (int row = rowStart; row < rowEnd; row++) {
+        visits[row]++;
+      }
+    });
+    assertTrue(sizes.size() > 1);
+    for (int visit : visits) {
+      assertEquals(1, visit);
+    }
+    int small = 0;
+    for (int size : sizes) {
+      if (size < 3) {
+        small++;
+      }
+    }
+    assertTrue(small <= 1); // only the last band may be shorter
+  }
+
+  // test that partitions use at most one band per thread and still cover every row
+  @Test
+  public void testForEachPartition() {
+    List<Integer> sizes = Collections.synchronizedList(new ArrayList<>());
+    new TileScheduler(3, 0).forEachPartition(100, 1000, (rowStart, rowEnd) ->
+            sizes.add(rowEnd - rowStart));
+    assertEquals(3, sizes.size());
+    assertEquals(1000, sizes.stream().mapToInt(Integer::intValue).sum());
+  }
+
+  // test that operations give the same image when run in bands on several threads
+  @Test
+  public void testOperationsMatchSequential() {
+    int width = 600;
+    int height = 150;
+    int[] data = new int[width * height];
+    for (int i = 0; i < data.length; i++) {
+      data[i] = PackedPixels.pack(255, i % 256, (i * 7) % 256, (i * 13) % 256);
+    }
+    Kernel kernel = new FilterKernel(new Double[][] {
+        {0.0625, 0.125, 0.0625},
+        {0.125, 0.25, 0.125},
+        {0.0625, 0.125, 0.0625}});
+    TileScheduler original = TileScheduler.getDefault();
+    try {
+      TileScheduler.setDefault(new TileScheduler(1));
+      ImageModel[] sequential = runOperations(new PackedImageModel(width, height, 255,
+              data.clone()), kernel);
+      TileScheduler.setDefault(new TileScheduler(4, 0));
+      ImageModel[] parallel = runOperations(new PackedImageModel(width, height, 255,
+              data.clone()), kernel);
+      int[] expected = new int[width];
+      int[] actual = new int[width];
+      for (int i = 0; i < sequential.length; i++) {
+        assertEquals(sequential[i].getMaxRGB(), parallel[i].getMaxRGB());
+        for (int row = 0; row < height; row++) {
+          sequential[i].getRowARGB(row, expected);
+          parallel[i].getRowARGB(row, actual);
+          assertArrayEquals(expected, actual);
+        }
+      }
+    } finally {
+      TileScheduler.setDefault(original);
+    }
+  }
+
+  // runs each deterministic operation on the given image
+  private ImageModel[] runOperations(ImageModel model, Kernel kernel) {
+    return new ImageModel[] {
+        model.visualizeComponent(ImageModel.Component.LUMA),
+        model.flip("horizontal"),
+        model.flip("vertical"),
+        model.brighten(40),
+        model.filter(kernel),
+        model.filter(kernel, EdgePolicy.MIRROR),
+        model.colorTransform(new RGBColorMatrix(new Double[][] {
+            {0.393, 0.769, 0.189},
+            {0.349, 0.686, 0.168},
+            {0.272, 0.534, 0.131}}))};
+  }
+}
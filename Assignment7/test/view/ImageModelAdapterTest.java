@@ -0,0 +1,49 @@
+package view;
+
+import org.junit.Test;
+
+import java.awt.image.DataBufferInt;
+import java.util.ArrayList;
+import java.util.List;
+
+import model.ARGBPixel;
+import model.ImageModel;
+import model.PackedImageModel;
+import model.PackedPixels;
+import model.Pixel;
+import model.RasterImageModel;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+/**
+ * Holds tests for the ImageModelAdapter class. Tests that images backed by packed arrays
+ * are shown without copying, and that other images are copied correctly.
+ */
+public class ImageModelAdapterTest {
+
+  // test that a packed image shares its array with the adapter
+  @Test
+  public void testSharesPackedBuffer() {
+    int[] pixels = new int[] {
+        PackedPixels.pack(255, 1, 2, 3), PackedPixels.pack(100, 4, 5, 6)};
+    ImageModelAdapter adapter = new ImageModelAdapter(new PackedImageModel(2, 1, 255, pixels));
+    assertSame(pixels, ((DataBufferInt) adapter.getRaster().getDataBuffer()).getData());
+    assertEquals(0xFF010203, adapter.getRGB(0, 0));
+    assertEquals(0xFF040506, adapter.getRGB(1, 0)); // alpha is not shown
+  }
+
+  // test that an image that is not packed is copied into the adapter
+  @Test
+  public void testCopiesOtherImages() {
+    List<List<Pixel>> grid = new ArrayList<>();
+    grid.add(List.of(new ARGBPixel(255, 7, 8, 9)));
+    grid.add(List.of(new ARGBPixel(255, 10, 11, 12)));
+    ImageModel model = new RasterImageModel(1, 2, 255, grid);
+    ImageModelAdapter adapter = new ImageModelAdapter(model);
+    assertEquals(1, adapter.getWidth());
+    assertEquals(2, adapter.getHeight());
+    assertEquals(0xFF070809, adapter.getRGB(0, 0));
+    assertEquals(0xFF0A0B0C, adapter.getRGB(0, 1));
+  }
+}